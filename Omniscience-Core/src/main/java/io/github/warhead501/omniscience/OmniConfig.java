@@ -1,8 +1,10 @@
 package io.github.warhead501.omniscience;
 
-import io.github.warhead501.omniscience.io.dynamo.DynamoStorageHandler;
-import io.github.warhead501.omniscience.io.StorageHandler;
-import io.github.warhead501.omniscience.io.mongo.MongoStorageHandler;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import io.github.warhead501.omniscience.listener.CaptureFilter;
+import io.github.warhead501.omniscience.listener.CaptureLimiter;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
@@ -10,6 +12,8 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataType;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The singular location for all end user configured directives from the plugin.yml
  *
@@ -23,7 +27,7 @@ public enum OmniConfig {
 
     private String databaseName;
     private String authenticationDatabaseName;
-    private DatabaseType dbType;
+    private String storageType;
 
     private boolean debugEnabled;
 
@@ -35,13 +39,27 @@ public enum OmniConfig {
     private String dateFormat;
     private ChatColor primary = ChatColor.AQUA;
     private int actionablesLimit;
+    private int applyTickBudget;
+    private int previewChunksPerTick;
+    private int previewTimeout;
+    private int undoLevels;
+    private int undoMaxRecords;
+    private String undoExpiry;
     private String recordExpiry;
     private int maxPoolSize;
     private int minPoolSize;
     private int purgeBatchLimit;
+    private long purgeDelay;
+    private int transferBatchSize;
+    private int captureThreads;
+    private boolean itemDeduplication;
+    private ImmutableSet<String> coalescedEvents;
+    private String coalesceWindow;
+    private ImmutableMap<String, CaptureLimiter.Rule> rateLimits = ImmutableMap.of();
     private ChatColor secondary = ChatColor.GREEN;
     private String simpleDateFormat;
     private String tableName;
+    private String serverId;
 
     private boolean worldEditInteraction;
     private boolean faweInteraction;
@@ -50,26 +68,66 @@ public enum OmniConfig {
     private Material wandMaterial;
 
     void setup(FileConfiguration configuration) {
-        if (dbType == null) {
-            dbType = DatabaseType.valueOf(configuration.getString("database.type").toUpperCase());
+        //Storage is connected once, so what it connected to isn't changed by /omni reload
+        if (storageType == null) {
+            storageType = configuration.getString("database.type", "mongodb").toLowerCase();
+            this.databaseName = configuration.getString("database.name");
+            this.authenticationDatabaseName = configuration.getString("mongodb.authenticationDatabase");
+            this.tableName = configuration.getString("database.dataTableName");
+            this.serverId = configuration.getString("database.serverId", "").trim();
         }
         this.debugEnabled = configuration.getBoolean("debug");
 
-        this.databaseName = configuration.getString("database.name");
-        this.authenticationDatabaseName = configuration.getString("mongodb.authenticationDatabase");
-        this.tableName = configuration.getString("database.dataTableName");
         this.defaultsEnabled = configuration.getBoolean("defaults.enabled");
         this.defaultRadius = configuration.getInt("defaults.radius");
         this.defaultSearchTime = configuration.getString("defaults.time");
         this.radiusLimit = configuration.getInt("limits.radius");
         this.lookupSizeLimit = configuration.getInt("limits.lookup.size");
         this.actionablesLimit = configuration.getInt("limits.actionables");
+        this.applyTickBudget = configuration.getInt("limits.applyTickBudget", 20);
+        this.previewChunksPerTick = configuration.getInt("limits.previewChunksPerTick", 4);
+        this.previewTimeout = configuration.getInt("limits.previewTimeout", 300);
+        this.undoLevels = configuration.getInt("undo.levels", 5);
+        this.undoMaxRecords = configuration.getInt("undo.maxRecords", 50000);
+        this.undoExpiry = configuration.getString("undo.expire", "1h");
         this.dateFormat = configuration.getString("display.format");
         this.simpleDateFormat = configuration.getString("display.simpleFormat");
         this.recordExpiry = configuration.getString("storage.expireRecords");
-        this.maxPoolSize = configuration.getInt("storage.maxPoolSize");
-        this.minPoolSize = configuration.getInt("storage.minPoolSize");
+        this.maxPoolSize = configuration.getInt("storage.maxPoolSize", 10);
+        this.minPoolSize = configuration.getInt("storage.minPoolSize", 2);
         this.purgeBatchLimit = configuration.getInt("storage.purgeBatchLimit");
+        try {
+            this.purgeDelay = DateUtil.parseDuration(configuration.getString("storage.purgeDelay", "1s"));
+        } catch (IllegalArgumentException e) {
+            this.purgeDelay = TimeUnit.SECONDS.toMillis(1);
+            Omniscience.getPluginInstance().getLogger().warning("Invalid configuration option for storage.purgeDelay: " + configuration.getString("storage.purgeDelay") + ". Defaulting to 1s");
+        }
+        this.transferBatchSize = configuration.getInt("storage.transferBatchSize", 5000);
+        this.captureThreads = configuration.getInt("storage.captureThreads", 2);
+        this.itemDeduplication = configuration.getBoolean("storage.deduplicateItems", true);
+        this.coalescedEvents = ImmutableSet.copyOf(configuration.getStringList("coalesce.events"));
+        this.coalesceWindow = configuration.getString("coalesce.window", "30s");
+
+        ImmutableMap.Builder<String, CaptureLimiter.Rule> rateLimits = ImmutableMap.builder();
+        ConfigurationSection rateLimitSection = configuration.getConfigurationSection("rateLimits");
+        if (rateLimitSection != null) {
+            for (String event : rateLimitSection.getKeys(false)) {
+                ConfigurationSection rule = rateLimitSection.getConfigurationSection(event);
+                if (rule == null) {
+                    Omniscience.getPluginInstance().getLogger().warning("Invalid configuration option for rateLimits." + event + ": expected max, window and sample. Not limiting " + event);
+                    continue;
+                }
+                long window;
+                try {
+                    window = DateUtil.parseDuration(rule.getString("window", "1s"));
+                } catch (IllegalArgumentException e) {
+                    Omniscience.getPluginInstance().getLogger().warning("Invalid configuration option for rateLimits." + event + ".window: " + rule.getString("window") + ". Not limiting " + event);
+                    continue;
+                }
+                rateLimits.put(event, new CaptureLimiter.Rule(rule.getInt("max", 5), window, rule.getInt("sample", 0)));
+            }
+        }
+        this.rateLimits = rateLimits.build();
 
         this.worldEditInteraction = configuration.getBoolean("integration.worldEdit");
         this.faweInteraction = configuration.getBoolean("integration.fastAsyncWorldEdit");
@@ -80,6 +138,8 @@ public enum OmniConfig {
             ConfigurationSection innerSection = section.getConfigurationSection(key);
             OmniEventRegistrar.INSTANCE.addEvent(key, innerSection.getString("past"), innerSection.getBoolean("enabled"));
         }
+        OmniEventRegistrar.INSTANCE.retainConfigured(section.getKeys(false));
+        CaptureFilter.INSTANCE.compile(section);
 
         String wandMaterialName = configuration.getString("wand.material");
 
@@ -91,10 +151,10 @@ public enum OmniConfig {
     }
 
     /**
-     * @return The database type selected by the end user.
+     * @return The name of the storage selected by the end user, as registered with {@link io.github.warhead501.omniscience.io.StorageProviders}
      */
-    public DatabaseType getDbType() {
-        return dbType;
+    public String getStorageType() {
+        return storageType;
     }
 
     /**
@@ -118,6 +178,13 @@ public enum OmniConfig {
         return tableName;
     }
 
+    /**
+     * @return The name records saved by this server are tagged with, or an empty string if they aren't tagged
+     */
+    public String getServerId() {
+        return serverId;
+    }
+
     /**
      * @return The desired primary color for all of our command color schemes
      */
@@ -217,6 +284,48 @@ public enum OmniConfig {
         return actionablesLimit;
     }
 
+    /**
+     * @return The amount of milliseconds per tick that rollbacks, restores and undos may spend changing the world
+     */
+    public int getApplyTickBudget() {
+        return applyTickBudget;
+    }
+
+    /**
+     * @return The amount of chunks worth of fake block changes sent to a player per tick while previewing
+     */
+    public int getPreviewChunksPerTick() {
+        return previewChunksPerTick;
+    }
+
+    /**
+     * @return The amount of seconds a preview is kept before it is discarded without being applied
+     */
+    public int getPreviewTimeout() {
+        return previewTimeout;
+    }
+
+    /**
+     * @return The amount of rollbacks/restores that are kept per player for undoing
+     */
+    public int getUndoLevels() {
+        return undoLevels;
+    }
+
+    /**
+     * @return The maximum amount of changes that are journaled for a single rollback/restore
+     */
+    public int getUndoMaxRecords() {
+        return undoMaxRecords;
+    }
+
+    /**
+     * @return How long a rollback/restore can be undone for before its journal is discarded
+     */
+    public String getUndoExpiry() {
+        return undoExpiry;
+    }
+
     /**
      * @return How long records are kept for before being discarded
      */
@@ -245,6 +354,55 @@ public enum OmniConfig {
         return purgeBatchLimit;
     }
 
+    /**
+     * @return The least amount of milliseconds to wait between two batches of a purge
+     */
+    public long getPurgeDelay() {
+        return purgeDelay;
+    }
+
+    /**
+     * @return The amount of records read or written at once by /omni export and /omni import
+     */
+    public int getTransferBatchSize() {
+        return transferBatchSize;
+    }
+
+    /**
+     * @return The amount of worker threads that turn captured events into records
+     */
+    public int getCaptureThreads() {
+        return captureThreads;
+    }
+
+    /**
+     * @return Whether items are stored once in a separate collection and referred to by records
+     */
+    public boolean isItemDeduplicationEnabled() {
+        return itemDeduplication;
+    }
+
+    /**
+     * @return The events whose environment changes are merged into one record per chunk and block type
+     */
+    public ImmutableSet<String> getCoalescedEvents() {
+        return coalescedEvents;
+    }
+
+    /**
+     * @return How long changes are merged for before their record is written
+     */
+    public String getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    /**
+     * @return The rate limit of each event that has one, by event name
+     */
+    public ImmutableMap<String, CaptureLimiter.Rule> getRateLimits() {
+        return rateLimits;
+    }
+
     /**
      * @return The material used for the search wand. Must be a block.
      */
@@ -270,29 +428,4 @@ public enum OmniConfig {
     public boolean isDebugEnabled() {
         return debugEnabled;
     }
-
-    enum DatabaseType {
-        /**
-         * https://www.mongodb.com/
-         */
-        MONGODB(MongoStorageHandler.class),
-        /**
-         * https://aws.amazon.com/dynamodb/
-         */
-        DYNAMODB(DynamoStorageHandler.class);
-
-        Class<? extends StorageHandler> storageClass;
-
-        DatabaseType(Class<? extends StorageHandler> storageClass) {
-            this.storageClass = storageClass;
-        }
-
-        public Class<? extends StorageHandler> getStorageClass() {
-            return storageClass;
-        }
-
-        public StorageHandler invokeConstructor() throws Exception {
-            return storageClass.getConstructor().newInstance();
-        }
-    }
 }
@@ -16,14 +16,23 @@ import io.github.warhead501.omniscience.api.util.OmniUtils;
 import io.github.warhead501.omniscience.api.util.PastTenseWithEnabled;
 import io.github.warhead501.omniscience.command.OmniscienceCommand;
 import io.github.warhead501.omniscience.command.OmniscienceTabCompleter;
+import io.github.warhead501.omniscience.command.util.ApplyPlanner;
 import io.github.warhead501.omniscience.command.util.OmniTeleCommand;
+import io.github.warhead501.omniscience.listener.CaptureLimiter;
 import io.github.warhead501.omniscience.listener.CraftBookSignListener;
 import io.github.warhead501.omniscience.listener.PluginInteractionListener;
+import io.github.warhead501.omniscience.listener.PreviewListener;
 import io.github.warhead501.omniscience.listener.WandInteractListener;
 import lombok.Getter;
 import me.lucko.commodore.Commodore;
 import me.lucko.commodore.CommodoreProvider;
 import io.github.warhead501.omniscience.io.StorageHandler;
+import io.github.warhead501.omniscience.io.StorageProvider;
+import io.github.warhead501.omniscience.io.StorageProviders;
+import io.github.warhead501.omniscience.io.archive.TieredStorageHandler;
+import io.github.warhead501.omniscience.io.journal.UndoJournal;
+import io.github.warhead501.omniscience.io.purge.PurgeJob;
+import io.github.warhead501.omniscience.io.transfer.TransferJob;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.command.PluginCommand;
@@ -32,6 +41,7 @@ import org.bukkit.plugin.PluginManager;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.*;
 import java.util.logging.Level;
 
@@ -41,12 +51,13 @@ final class OmniCore implements IOmniscience {
     private Map<String, Class<? extends DataEntry>> eventMap = Maps.newHashMap();
     private List<FlagHandler> flagHandlerList = Lists.newArrayList();
     private List<DisplayHandler> displayHandlerList = Lists.newArrayList();
-    private Map<UUID, List<ActionResult>> lastActionResults = Maps.newHashMap();
 
     private Set<UUID> activeWandList = Sets.newHashSet();
 
     private WorldEditHandler worldEditHandler;
     private StorageHandler storageHandler;
+    private UndoJournal undoJournal;
+    private EntryMaterializer entryMaterializer;
 
     @Getter private NamespacedKey itemKey;
 
@@ -59,16 +70,18 @@ final class OmniCore implements IOmniscience {
         this.itemKey = new NamespacedKey(omniscience,"omnisciencetool");
         this.versionHelper = OmniVersionHelper.get(OmniUtils.getNMSVersion());
         if (this.versionHelper==null) throw new UnsupportedOperationException("Omni does not support "+OmniUtils.getNMSVersion()+" version! But it was reporting back as "+OmniUtils.getNMSVersion());
-        try {
-            OmniApi.setCore(this);
-        } catch (IllegalAccessException e) {
-            omniscience.getLogger().log(Level.SEVERE, "Failed to register Omniscience with the Omniscience API! This is a critical failure, we're shutting down! Is the plugin already running?", e);
+        if (OmniApi.getOmniscience() != this) {
+            omniscience.getLogger().severe("Omniscience isn't registered with the Omniscience API! This is a critical failure, we're shutting down! Is the plugin already running?");
             Bukkit.getPluginManager().disablePlugin(omniscience);
+            return;
         }
         omniscience.saveDefaultConfig();
         OmniConfig.INSTANCE.setup(omniscience.getConfig());
         try {
-            this.storageHandler = OmniConfig.INSTANCE.getDbType().invokeConstructor();
+            this.storageHandler = StorageProviders.create(OmniConfig.INSTANCE.getStorageType());
+            if (omniscience.getConfig().getBoolean("archive.enabled", false)) {
+                this.storageHandler = new TieredStorageHandler(this.storageHandler);
+            }
             if (!this.storageHandler.connect(omniscience)) {
                 omniscience.getLogger().severe("Failed to connect to the database specified, shutting down.");
                 Bukkit.getPluginManager().disablePlugin(omniscience);
@@ -80,6 +93,10 @@ final class OmniCore implements IOmniscience {
             return;
         }
 
+        this.undoJournal = new UndoJournal(new File(omniscience.getDataFolder(), "undo"));
+        PurgeJob.INSTANCE.setup(omniscience.getDataFolder());
+        TransferJob.INSTANCE.setup(omniscience.getDataFolder());
+
         registerEventWrapperClasses();
         registerParameters();
         registerFlags();
@@ -88,10 +105,23 @@ final class OmniCore implements IOmniscience {
         registerCommands(omniscience);
         registerEventHandlers(omniscience);
 
+        this.entryMaterializer = new EntryMaterializer(OmniConfig.INSTANCE.getCaptureThreads());
         scheduler.runTaskTimerAsynchronously(omniscience,
                 new EntryQueueRunner(),
                 20,
                 20);
+        scheduler.runTaskTimer(omniscience,
+                EventCoalescer.INSTANCE::flush,
+                20,
+                20);
+        scheduler.runTaskTimer(omniscience,
+                CaptureLimiter.INSTANCE::flush,
+                20,
+                20);
+        scheduler.runTaskTimerAsynchronously(omniscience,
+                () -> undoJournal.purgeExpired(),
+                1200,
+                1200);
 
         if (omniscience.getConfig().getBoolean("integration.fastAsyncWorldEdit")
                 && Bukkit.getServer().getPluginManager().isPluginEnabled("FastAsyncWorldEdit")) {
@@ -104,11 +134,48 @@ final class OmniCore implements IOmniscience {
         omniscience.getLogger().log(Level.INFO, "Omniscience is Awake. None can escape.");
     }
 
+    /**
+     * Registers with the API while plugins load, so plugins depending on Omniscience can register their storage before
+     * it is selected.
+     */
     void onLoad(Omniscience omniscience) {
+        try {
+            OmniApi.setCore(this);
+        } catch (IllegalAccessException e) {
+            omniscience.getLogger().log(Level.SEVERE, "Failed to register Omniscience with the Omniscience API! Is the plugin already running?", e);
+        }
     }
 
     void onDisable(Omniscience omniscience) {
+        ApplyPlanner.shutdown();
+        EventCoalescer.INSTANCE.flushAll();
+        CaptureLimiter.INSTANCE.flushAll();
+        if (entryMaterializer != null) {
+            entryMaterializer.close();
+        }
+        if (undoJournal != null) {
+            undoJournal.close();
+        }
+        PurgeJob.INSTANCE.shutdown();
+        TransferJob.INSTANCE.shutdown();
+        if (storageHandler != null) {
+            //Write what is still queued, so storage that buffers in the process can close cleanly
+            new EntryQueueRunner().run();
+            storageHandler.close();
+        }
+    }
 
+    /**
+     * Reloads the configuration and registers or unregisters event listeners to match it, without a restart.
+     * Capture filters, rate limits, coalescing, search defaults and limits take effect right away. The database and
+     * the storage settings read when connecting still need a restart. Must be called on the main thread.
+     *
+     * @param omniscience The plugin
+     */
+    void reload(Omniscience omniscience) {
+        omniscience.reloadConfig();
+        OmniConfig.INSTANCE.setup(omniscience.getConfig());
+        OmniEventRegistrar.INSTANCE.enableEvents(omniscience.getServer().getPluginManager(), omniscience);
     }
 
     private void registerCommands(Omniscience omniscience) {
@@ -141,6 +208,7 @@ final class OmniCore implements IOmniscience {
         PluginManager pm = plugin.getServer().getPluginManager();
         pm.registerEvents(new WandInteractListener(), plugin);
         pm.registerEvents(new PluginInteractionListener(), plugin);
+        pm.registerEvents(new PreviewListener(), plugin);
         if (OmniConfig.INSTANCE.doCraftBookInteraction()
                 && Bukkit.getServer().getPluginManager().isPluginEnabled("CraftBook")) {
             pm.registerEvents(new CraftBookSignListener(), plugin);
@@ -165,6 +233,7 @@ final class OmniCore implements IOmniscience {
         registerParameterHandler(new ItemDescParameter());
         registerParameterHandler(new CustomItemParameter());
         registerParameterHandler(new TargetParameter());
+        registerParameterHandler(new ServerParameter());
     }
 
     private void registerFlags() {
@@ -173,6 +242,8 @@ final class OmniCore implements IOmniscience {
         flagHandlerList.add(new FlagOrder());
         flagHandlerList.add(new FlagDrain());
         flagHandlerList.add(new FlagNoChat());
+        flagHandlerList.add(new FlagPreview());
+        flagHandlerList.add(new FlagSafe());
         if (OmniConfig.INSTANCE.areDefaultsEnabled()) {
             flagHandlerList.add(new FlagIgnoreDefault());
             flagHandlerList.add(new FlagGlobal());
@@ -240,12 +311,8 @@ final class OmniCore implements IOmniscience {
         activeWandList.remove(player.getUniqueId());
     }
 
-    void addLastActionResults(UUID id, List<ActionResult> results) {
-        this.lastActionResults.put(id, results);
-    }
-
-    Optional<List<ActionResult>> getLastActionResults(UUID id) {
-        return Optional.ofNullable(lastActionResults.get(id));
+    UndoJournal getUndoJournal() {
+        return undoJournal;
     }
 
     void registerEvent(String event, Class<? extends DataEntry> clazz) {
@@ -351,6 +418,14 @@ final class OmniCore implements IOmniscience {
         this.worldEditHandler = handler;
     }
 
+    @Override
+    public void registerStorageProvider(io.github.warhead501.omniscience.api.interfaces.StorageProvider<?> provider) {
+        if (!(provider instanceof StorageProvider)) {
+            throw new IllegalArgumentException("The storage " + provider.getName() + " has to implement " + StorageProvider.class.getName());
+        }
+        StorageProviders.register((StorageProvider) provider);
+    }
+
     @Override
     public String getDateFormat() {
         return OmniConfig.INSTANCE.getDateFormat();
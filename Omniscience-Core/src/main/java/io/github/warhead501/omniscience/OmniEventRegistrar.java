@@ -2,7 +2,6 @@ package io.github.warhead501.omniscience;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import io.github.warhead501.omniscience.api.util.PastTenseWithEnabled;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import io.github.warhead501.omniscience.listener.block.*;
@@ -16,14 +15,17 @@ import io.github.warhead501.omniscience.listener.item.*;
 import io.github.warhead501.omniscience.listener.player.EventJoinListener;
 import io.github.warhead501.omniscience.listener.player.EventQuitListener;
 import io.github.warhead501.omniscience.listener.player.EventTeleportListener;
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.PluginManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public enum OmniEventRegistrar {
     INSTANCE;
 
-    private final Map<String, PastTenseWithEnabled> eventMapping = Maps.newHashMap();
+    //Read by the entry queue off of the main thread while a reload may be changing it
+    private final Map<String, PastTenseWithEnabled> eventMapping = new ConcurrentHashMap<>();
     private List<OmniListener> listeners = Lists.newArrayList();
 
     OmniEventRegistrar() {
@@ -153,16 +155,35 @@ public enum OmniEventRegistrar {
         eventMapping.put(name, new PastTenseWithEnabled(enabled, pastTense));
     }
 
-    void enableEvents(PluginManager manager, Omniscience omniscience) {
+    /**
+     * Disables every event handled by one of our listeners that is no longer in the configuration.
+     * Events registered by other plugins are left as they are.
+     *
+     * @param configured The events in the configuration
+     */
+    void retainConfigured(Set<String> configured) {
         eventMapping.forEach((key, value) -> {
-            Optional<OmniListener> listener = listeners.stream().filter(l -> l.handles(key)).findFirst();
-            if (listener.isPresent() && value.isEnabled()) {
-                OmniListener list = listener.get();
-                if (!list.isEnabled()) {
-                    manager.registerEvents(list, omniscience);
-                    list.setEnabled(true);
-                }
+            if (!configured.contains(key) && value.isEnabled() && listeners.stream().anyMatch(l -> l.handles(key))) {
+                eventMapping.put(key, new PastTenseWithEnabled(false, value.getPastTense()));
             }
         });
     }
+
+    /**
+     * Registers the listeners of every enabled event and unregisters listeners that no longer handle an enabled event.
+     * Must be called on the main thread.
+     */
+    void enableEvents(PluginManager manager, Omniscience omniscience) {
+        for (OmniListener listener : listeners) {
+            boolean needed = eventMapping.entrySet().stream()
+                    .anyMatch(entry -> entry.getValue().isEnabled() && listener.handles(entry.getKey()));
+            if (needed && !listener.isEnabled()) {
+                manager.registerEvents(listener, omniscience);
+                listener.setEnabled(true);
+            } else if (!needed && listener.isEnabled()) {
+                HandlerList.unregisterAll(listener);
+                listener.setEnabled(false);
+            }
+        }
+    }
 }
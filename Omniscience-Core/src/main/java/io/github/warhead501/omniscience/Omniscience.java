@@ -3,20 +3,18 @@ package io.github.warhead501.omniscience;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.github.warhead501.omniscience.api.display.DisplayHandler;
-import io.github.warhead501.omniscience.api.entry.ActionResult;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
 import io.github.warhead501.omniscience.api.flag.FlagHandler;
 import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
 import io.github.warhead501.omniscience.api.parameter.ParameterHandler;
 import io.github.warhead501.omniscience.api.util.OmniUtils;
 import io.github.warhead501.omniscience.io.StorageHandler;
+import io.github.warhead501.omniscience.io.journal.UndoJournal;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 public final class Omniscience extends JavaPlugin {
 
@@ -79,12 +77,15 @@ public final class Omniscience extends JavaPlugin {
         INSTANCE.onWorldEditStatusChange(status);
     }
 
-    public static void addLastActionResults(UUID id, List<ActionResult> results) {
-        INSTANCE.addLastActionResults(id, results);
+    public static UndoJournal getUndoJournal() {
+        return INSTANCE.getUndoJournal();
     }
 
-    public static Optional<List<ActionResult>> getLastActionResults(UUID id) {
-        return INSTANCE.getLastActionResults(id);
+    /**
+     * Reloads the configuration and the event listeners it enables. Must be called on the main thread.
+     */
+    public static void reload() {
+        INSTANCE.reload(PLUGIN_INSTANCE);
     }
 
     /**
@@ -141,7 +142,10 @@ public final class Omniscience extends JavaPlugin {
     public void onEnable() {
         // Plugin startup logic
         PLUGIN_INSTANCE = this;
-        INSTANCE = new OmniCore();
+        //The instance created while loading is the one registered with the API
+        if (INSTANCE == null) {
+            INSTANCE = new OmniCore();
+        }
         INSTANCE.onEnable(this, Bukkit.getScheduler());
     }
 }
@@ -4,6 +4,7 @@ import io.github.warhead501.omniscience.api.data.DataKey;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.data.Transaction;
+import io.github.warhead501.omniscience.api.util.ContainerContents;
 import io.github.warhead501.omniscience.api.util.DataHelper;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -12,6 +13,8 @@ import org.bukkit.block.banner.Pattern;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class BlockEntry extends DataEntryComplete implements Actionable {
@@ -21,83 +24,149 @@ public class BlockEntry extends DataEntryComplete implements Actionable {
 
     @Override
     public ActionResult rollback() throws Exception {
+        return planRollback().commit();
+    }
+
+    @Override
+    public ActionResult restore() throws Exception {
+        return planRestore().commit();
+    }
+
+    @Override
+    public PlannedAction planRollback() throws Exception {
+        if (isCoalesced()) {
+            throw skipped(SkipReason.INVALID);
+        }
         DataWrapper original = data.getWrapper(DataKeys.ORIGINAL_BLOCK)
                 .orElseThrow(() -> skipped(SkipReason.INVALID));
 
         BlockData originalData = DataHelper.getBlockDataFromWrapper(original)
                 .orElseThrow(() -> skipped(SkipReason.INVALID));
-        Location location = DataHelper.getLocationFromDataWrapper(data)
+        PlannedLocation plannedLocation = PlannedLocation.from(data)
                 .orElseThrow(() -> skipped(SkipReason.INVALID_LOCATION));
+        TileEntityData tileEntity = new TileEntityData(DataKeys.ORIGINAL_BLOCK);
+
+        return () -> {
+            Location location = plannedLocation.resolve()
+                    .orElseThrow(() -> skipped(SkipReason.INVALID_LOCATION));
 
-        BlockState beforeState = location.getBlock().getState();
+            BlockState beforeState = location.getBlock().getState();
 
-        location.getBlock().setType(originalData.getMaterial());
+            location.getBlock().setType(originalData.getMaterial());
 
-        BlockState editState = location.getBlock().getState();
-        editState.setBlockData(originalData);
+            BlockState editState = location.getBlock().getState();
+            editState.setBlockData(originalData);
 
-        handleTileEntity(editState, DataKeys.ORIGINAL_BLOCK);
+            tileEntity.applyTo(editState);
 
-        editState.update(false, false);
+            editState.update(false, false);
 
-        return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+            return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+        };
     }
 
     @Override
-    public ActionResult restore() throws Exception {
-        Location location = DataHelper.getLocationFromDataWrapper(data)
+    public PlannedAction planRestore() throws Exception {
+        if (isCoalesced()) {
+            throw skipped(SkipReason.INVALID);
+        }
+        PlannedLocation plannedLocation = PlannedLocation.from(data)
                 .orElseThrow(() -> skipped(SkipReason.INVALID_LOCATION));
         Optional<DataWrapper> oFinalState = data.getWrapper(DataKeys.NEW_BLOCK);
-        BlockState beforeState = location.getBlock().getState();
-        BlockState editState = location.getBlock().getState();
         if (!oFinalState.isPresent()) {
-            location.getBlock().setBlockData(Material.AIR.createBlockData());
-            return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+            return () -> {
+                Location location = plannedLocation.resolve()
+                        .orElseThrow(() -> skipped(SkipReason.INVALID_LOCATION));
+                BlockState beforeState = location.getBlock().getState();
+                location.getBlock().setBlockData(Material.AIR.createBlockData());
+                return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+            };
         }
-        DataWrapper finalState = oFinalState.get();
 
-        BlockData finalData = DataHelper.getBlockDataFromWrapper(finalState)
+        BlockData finalData = DataHelper.getBlockDataFromWrapper(oFinalState.get())
                 .orElseThrow(() -> skipped(SkipReason.INVALID));
+        TileEntityData tileEntity = new TileEntityData(DataKeys.NEW_BLOCK);
+
+        return () -> {
+            Location location = plannedLocation.resolve()
+                    .orElseThrow(() -> skipped(SkipReason.INVALID_LOCATION));
+            BlockState beforeState = location.getBlock().getState();
+            BlockState editState = location.getBlock().getState();
 
-        editState.setBlockData(finalData);
+            editState.setBlockData(finalData);
 
-        handleTileEntity(editState, DataKeys.NEW_BLOCK);
+            tileEntity.applyTo(editState);
 
-        editState.update(true, false);
+            editState.update(true, false);
 
-        return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+            return ActionResult.success(new Transaction<>(beforeState, location.getBlock().getState()));
+        };
     }
 
-    private void handleTileEntity(BlockState state, DataKey parent) {
-        if (state instanceof Container) {
-            Container container = (Container) state;
-
-            data.getWrapper(parent.then(DataKeys.INVENTORY)).ifPresent(wrapper -> wrapper.getKeys(false)
-                    .forEach(key -> wrapper.getConfigSerializable(key)
-                            .ifPresent(config -> {
-                                if (config instanceof ItemStack) {
-                                    container.getInventory().setItem(Integer.valueOf(key.toString()), (ItemStack) config);
-                                }
-                            })));
-        } else if (state instanceof Sign) {
-            Sign sign = (Sign) state;
-            data.getStringList(parent.then(DataKeys.SIGN_TEXT)).ifPresent(signText -> {
+    /**
+     * Works out the block this entry would place if it were applied, without touching the world.
+     *
+     * @param rollback True for the block a rollback would place, false for the block a restore would place
+     * @return The block data that would be placed, if it can be read
+     */
+    public Optional<BlockData> getAppliedBlockData(boolean rollback) {
+        if (isCoalesced()) {
+            return Optional.empty();
+        }
+        if (rollback) {
+            return data.getWrapper(DataKeys.ORIGINAL_BLOCK).flatMap(DataHelper::getBlockDataFromWrapper);
+        }
+        Optional<DataWrapper> oFinalState = data.getWrapper(DataKeys.NEW_BLOCK);
+        if (!oFinalState.isPresent()) {
+            return Optional.of(Material.AIR.createBlockData());
+        }
+        return DataHelper.getBlockDataFromWrapper(oFinalState.get());
+    }
+
+    /**
+     * Merged records stand for many changes in an area and carry no per-block state, so they can't be applied. Without
+     * this check a restore would treat them as breaks and place air at the corner of their bounds.
+     */
+    private boolean isCoalesced() {
+        return data.get(DataKeys.COUNT).isPresent() || data.get(DataKeys.BOUNDS).isPresent();
+    }
+
+    /**
+     * The tile entity contents stored for one side of this entry, deserialized ahead of time.
+     * Only the part matching the block's state when committed gets used.
+     */
+    private final class TileEntityData {
+        private final Map<Integer, ItemStack> items;
+        private final List<String> signText;
+        private final List<Pattern> bannerPatterns;
+        private final ItemStack record;
+
+        private TileEntityData(DataKey parent) {
+            this.items = ContainerContents.read(data, parent);
+            this.signText = data.getStringList(parent.then(DataKeys.SIGN_TEXT)).orElse(null);
+            this.bannerPatterns = data.getSerializableList(parent.then(DataKeys.BANNER_PATTERNS), Pattern.class).orElse(null);
+            this.record = data.getConfigSerializable(parent.then(DataKeys.RECORD))
+                    .filter(config -> config instanceof ItemStack)
+                    .map(config -> (ItemStack) config)
+                    .orElse(null);
+        }
+
+        private void applyTo(BlockState state) {
+            if (state instanceof Container) {
+                Container container = (Container) state;
+                items.forEach((slot, item) -> container.getInventory().setItem(slot, item));
+            } else if (state instanceof Sign && signText != null) {
+                Sign sign = (Sign) state;
                 for (int i = 0; i < 4; i++) {
                     if (signText.size() >= i + 1) {
                         sign.setLine(i, signText.get(i));
                     }
                 }
-            });
-        } else if (state instanceof Banner) {
-            Banner banner = (Banner) state;
-            data.getSerializableList(parent.then(DataKeys.BANNER_PATTERNS), Pattern.class).ifPresent(banner::setPatterns);
-        } else if (state instanceof Jukebox) {
-            Jukebox jukebox = (Jukebox) state;
-            data.getConfigSerializable(parent.then(DataKeys.RECORD)).ifPresent(config ->  {
-                if (config instanceof ItemStack) {
-                    jukebox.setRecord((ItemStack) config);
-                }
-            });
+            } else if (state instanceof Banner && bannerPatterns != null) {
+                ((Banner) state).setPatterns(bannerPatterns);
+            } else if (state instanceof Jukebox && record != null) {
+                ((Jukebox) state).setRecord(record);
+            }
         }
     }
 }
@@ -1,8 +1,8 @@
 package io.github.warhead501.omniscience.api.entry;
 
+import io.github.warhead501.omniscience.api.data.DataKey;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
-import io.github.warhead501.omniscience.api.util.DataHelper;
 import org.bukkit.Location;
 import org.bukkit.block.Container;
 import org.bukkit.inventory.Inventory;
@@ -12,47 +12,48 @@ public class ContainerEntry extends DataEntryComplete implements Actionable {
 
     @Override
     public ActionResult rollback() throws Exception {
-        Location location = DataHelper.getLocationFromDataWrapper(data)
-                .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID_LOCATION)));
-
-        if (!(location.getBlock().getState() instanceof Container)) {
-            throw new ActionableException(ActionResult.skipped(SkipReason.INVALID));
-        }
-
-        int slotAffected = data.getInt(DataKeys.ITEM_SLOT)
-                .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID)));
-
-        ItemStack before = (ItemStack) data.getConfigSerializable(DataKeys.BEFORE.then(DataKeys.ITEMSTACK)).orElse(null);
-
-        Container container = (Container) location.getBlock().getState();
-
-        Inventory snapshot = container.getSnapshotInventory();
+        return planRollback().commit();
+    }
 
-        container.getInventory().setItem(slotAffected, before);
+    @Override
+    public ActionResult restore() throws Exception {
+        return planRestore().commit();
+    }
 
-        return ActionResult.success(new LocationTransaction<>(location, snapshot, container.getInventory()));
+    @Override
+    public PlannedAction planRollback() throws Exception {
+        return planSlotChange(DataKeys.BEFORE);
     }
 
     @Override
-    public ActionResult restore() throws Exception {
-        Location location = DataHelper.getLocationFromDataWrapper(data)
-                .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID_LOCATION)));
+    public PlannedAction planRestore() throws Exception {
+        return planSlotChange(DataKeys.AFTER);
+    }
 
-        if (!(location.getBlock().getState() instanceof Container)) {
-            throw new ActionableException(ActionResult.skipped(SkipReason.INVALID));
-        }
+    private PlannedAction planSlotChange(DataKey side) throws ActionableException {
+        PlannedLocation plannedLocation = PlannedLocation.from(data)
+                .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID_LOCATION)));
 
         int slotAffected = data.getInt(DataKeys.ITEM_SLOT)
                 .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID)));
 
-        ItemStack after = (ItemStack) data.getConfigSerializable(DataKeys.AFTER.then(DataKeys.ITEMSTACK)).orElse(null);
+        ItemStack item = (ItemStack) data.getConfigSerializable(side.then(DataKeys.ITEMSTACK)).orElse(null);
+
+        return () -> {
+            Location location = plannedLocation.resolve()
+                    .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID_LOCATION)));
+
+            if (!(location.getBlock().getState() instanceof Container)) {
+                throw new ActionableException(ActionResult.skipped(SkipReason.INVALID));
+            }
 
-        Container container = (Container) location.getBlock().getState();
+            Container container = (Container) location.getBlock().getState();
 
-        Inventory snapshot = container.getSnapshotInventory();
+            Inventory snapshot = container.getSnapshotInventory();
 
-        container.getInventory().setItem(slotAffected, after);
+            container.getInventory().setItem(slotAffected, item);
 
-        return ActionResult.success(new LocationTransaction<>(location, snapshot, container.getInventory()));
+            return ActionResult.success(new LocationTransaction<>(location, snapshot, container.getInventory()));
+        };
     }
 }
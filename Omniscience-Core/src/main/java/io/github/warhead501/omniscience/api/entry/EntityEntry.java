@@ -12,8 +12,9 @@ public class EntityEntry extends DataEntryComplete implements Actionable {
 
     @Override
     public ActionResult rollback() throws Exception {
-        //Get the nbt data that was stored for this entry
-        String entityData = data.getString(DataKeys.ENTITY)
+        //Get the nbt data that was stored for this entry. Older entries hold it as Base64 text.
+        Object entityData = data.get(DataKeys.ENTITY)
+                .filter(nbt -> nbt instanceof byte[] || nbt instanceof String)
                 .orElseThrow(() -> skipped(SkipReason.INVALID));
         //Get the entity type string that was stored for this entry
         String entityType = data.getString(DataKeys.ENTITY_TYPE)
@@ -35,7 +36,11 @@ public class EntityEntry extends DataEntryComplete implements Actionable {
 
         //Now, complete the rollback by cloning our data into the entity.
         //This is an UNSAFE operation. Data can change from version to version.
-        ReflectionHandler.loadEntityFromNBT(baseEntity, entityData);
+        if (entityData instanceof byte[]) {
+            ReflectionHandler.loadEntityFromNBT(baseEntity, (byte[]) entityData);
+        } else {
+            ReflectionHandler.loadEntityFromNBT(baseEntity, (String) entityData);
+        }
 
         return ActionResult.success(new Transaction<>(null, baseEntity));
     }
@@ -0,0 +1,63 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import io.github.warhead501.omniscience.Omniscience;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Worker threads that turn the {@link EntrySnapshot}s captured by listeners into records as soon as they are queued.
+ * The records are then saved by the {@link EntryQueueRunner} like any other.
+ */
+public final class EntryMaterializer {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public EntryMaterializer(int threads) {
+        int workerCount = Math.max(1, threads);
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "Omniscience Capture Worker #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Stops the workers and materializes anything still waiting, so no captured events are lost.
+     */
+    public void close() {
+        running = false;
+        workers.shutdownNow();
+        EntrySnapshot snapshot;
+        while ((snapshot = EntryQueue.getSnapshotQueue().poll()) != null) {
+            materialize(snapshot);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            final EntrySnapshot snapshot;
+            try {
+                snapshot = EntryQueue.getSnapshotQueue().take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            materialize(snapshot);
+        }
+    }
+
+    private void materialize(EntrySnapshot snapshot) {
+        try {
+            EntryQueue.getQueue().add(snapshot.materialize());
+        } catch (Exception e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to build a record from a captured event", e);
+        }
+    }
+}
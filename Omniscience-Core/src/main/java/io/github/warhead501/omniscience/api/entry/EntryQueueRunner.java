@@ -3,9 +3,13 @@ package io.github.warhead501.omniscience.api.entry;
 import com.google.common.collect.Lists;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.OmniConfig;
 import io.github.warhead501.omniscience.Omniscience;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 
 public final class EntryQueueRunner implements Runnable {
 
@@ -22,12 +26,58 @@ public final class EntryQueueRunner implements Runnable {
             }
         }
 
+        //Batches are only expanded into full records here, off of the main thread
+        while (!EntryQueue.getBatchQueue().isEmpty()) {
+            BlockBatch batch = EntryQueue.getBatchQueue().poll();
+            if (batch != null) {
+                Omniscience.logDebug("We're now saving a batch of " + batch.size() + " " + batch.getEventName() + " events");
+                batchWrappers.addAll(batch.expand());
+            }
+        }
+
+        //Taken after the records, so every item they refer to is stored before or along with them
+        Map<String, String> items = ItemReferences.drainPending();
+        if (!items.isEmpty()) {
+            try {
+                //Waited for, as the records may only be written once every item they refer to is stored
+                Omniscience.getStorageHandler().records().writeItems(items).join();
+                ItemReferences.markStored(items.keySet());
+            } catch (Exception e) {
+                //The records may refer to these items, so neither is written until the items are stored
+                Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to store " + items.size()
+                        + " items, retrying them and " + batchWrappers.size() + " records with the next write", e);
+                ItemReferences.requeue(items);
+                requeue(batchWrappers);
+                return;
+            }
+        }
+
         if (batchWrappers.size() > 0) {
+            String serverId = OmniConfig.INSTANCE.getServerId();
+            if (!serverId.isEmpty()) {
+                batchWrappers.forEach(wrapper -> wrapper.set(DataKeys.SERVER, serverId));
+            }
             try {
-                Omniscience.getStorageHandler().records().write(batchWrappers);
+                Omniscience.getStorageHandler().records().write(batchWrappers).exceptionally(e -> {
+                    failedToWrite(batchWrappers, e);
+                    return null;
+                });
             } catch (Exception e) {
-                e.printStackTrace();
+                failedToWrite(batchWrappers, e);
             }
         }
     }
+
+    private static void failedToWrite(List<DataWrapper> wrappers, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to store " + wrappers.size()
+                + " records, retrying them with the next write", cause);
+        requeue(wrappers);
+    }
+
+    private static void requeue(List<DataWrapper> wrappers) {
+        for (int i = wrappers.size() - 1; i >= 0; i--) {
+            EntryQueue.getQueue().addFirst(wrappers.get(i));
+        }
+    }
 }
@@ -0,0 +1,141 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Merges environment changes that happen very often, such as crops growing or snow forming, into one record per event,
+ * chunk and block type instead of one record per block.
+ * <p>
+ * A merged record stores how many changes it holds under {@link io.github.warhead501.omniscience.api.data.DataKeys#COUNT}
+ * and the area they happened in under {@link io.github.warhead501.omniscience.api.data.DataKeys#BOUNDS}. It is written
+ * once {@link OmniConfig#getCoalesceWindow()} has passed since its first change. Merged changes can't be rolled back,
+ * so changes caused by a player should always be saved on their own.
+ * </p>
+ */
+public enum EventCoalescer {
+    INSTANCE;
+
+    private final Map<Key, Area> pending = Maps.newHashMap();
+
+    /**
+     * Adds a change to the pending record of its event, chunk and block type. Must be called on the main thread.
+     *
+     * @param eventName The event of the change
+     * @param block     The block that was changed
+     * @param target    The block type the change is recorded under
+     * @return false if the event isn't merged, in which case the change should be saved on its own
+     */
+    public boolean coalesce(String eventName, Block block, Material target) {
+        if (!OmniConfig.INSTANCE.getCoalescedEvents().contains(eventName)) {
+            return false;
+        }
+        World world = block.getWorld();
+        Key key = new Key(eventName, world.getUID(), block.getX() >> 4, block.getZ() >> 4, target);
+        Area area = pending.get(key);
+        if (area == null) {
+            pending.put(key, new Area(world, block.getX(), block.getY(), block.getZ()));
+        } else {
+            area.add(block.getX(), block.getY(), block.getZ());
+        }
+        return true;
+    }
+
+    /**
+     * Saves every pending record whose window has passed. Must be called on the main thread.
+     */
+    public void flush() {
+        long cutoff = DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getCoalesceWindow(), false).getTime();
+        flush(area -> area.started <= cutoff);
+    }
+
+    /**
+     * Saves every pending record, such as when the plugin is disabled. Must be called on the main thread.
+     */
+    public void flushAll() {
+        flush(area -> true);
+    }
+
+    private void flush(Predicate<Area> ready) {
+        Iterator<Map.Entry<Key, Area>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Area> entry = iterator.next();
+            Area area = entry.getValue();
+            if (!ready.test(area)) {
+                continue;
+            }
+            iterator.remove();
+            OEntry.create().environment()
+                    .coalesced(entry.getKey().eventName, entry.getKey().target.name(), area.count,
+                            new Location(area.world, area.minX, area.minY, area.minZ),
+                            new Location(area.world, area.maxX, area.maxY, area.maxZ))
+                    .save();
+        }
+    }
+
+    private static final class Key {
+        private final String eventName;
+        private final UUID world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final Material target;
+
+        private Key(String eventName, UUID world, int chunkX, int chunkZ, Material target) {
+            this.eventName = eventName;
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.target = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eventName, world, chunkX, chunkZ, target);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return chunkX == key.chunkX && chunkZ == key.chunkZ && target == key.target
+                    && eventName.equals(key.eventName) && world.equals(key.world);
+        }
+    }
+
+    private static final class Area {
+        private final World world;
+        private final long started = System.currentTimeMillis();
+        private int count = 1;
+        private int minX, minY, minZ;
+        private int maxX, maxY, maxZ;
+
+        private Area(World world, int x, int y, int z) {
+            this.world = world;
+            this.minX = this.maxX = x;
+            this.minY = this.maxY = y;
+            this.minZ = this.maxZ = z;
+        }
+
+        private void add(int x, int y, int z) {
+            count++;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Optional;
+
+/**
+ * The stored location of an entry, decoded off of the main thread. The world is only looked up when the plan is committed.
+ */
+final class PlannedLocation {
+
+    private final BlockPosition position;
+
+    private PlannedLocation(BlockPosition position) {
+        this.position = position;
+    }
+
+    static Optional<PlannedLocation> from(DataWrapper wrapper) {
+        return BlockPosition.from(wrapper).map(PlannedLocation::new);
+    }
+
+    /**
+     * @return The location in its world, if the world is loaded. Must be called on the main thread.
+     */
+    Optional<Location> resolve() {
+        World bukkitWorld = Bukkit.getWorld(position.getWorld());
+        return bukkitWorld == null
+                ? Optional.empty()
+                : Optional.of(new Location(bukkitWorld, position.getX(), position.getY(), position.getZ()));
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.warhead501.omniscience.api.flag;
+
+import com.google.common.collect.ImmutableList;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public class FlagPreview extends BaseFlagHandler {
+
+    public FlagPreview() {
+        super(ImmutableList.of("preview"));
+    }
+
+    @Override
+    public boolean acceptsSource(CommandSender sender) {
+        return sender instanceof Player;
+    }
+
+    @Override
+    public boolean acceptsValue(String value) {
+        return true;
+    }
+
+    @Override
+    public Optional<CompletableFuture<?>> process(QuerySession session, String flag, String value, Query query) {
+        session.addFlag(Flag.PREVIEW);
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.warhead501.omniscience.api.parameter;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import io.github.warhead501.omniscience.OmniConfig;
+import org.apache.commons.lang3.tuple.Pair;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Limits a lookup to the records of one or more servers sharing the database. Without it lookups only search the
+ * records of this server, and {@code server:all} searches every server's records, including untagged ones.
+ */
+public class ServerParameter extends BaseParameterHandler {
+    private final Pattern pattern = Pattern.compile("[\\w,!-\\\\*]+");
+
+    public ServerParameter() {
+        super(ImmutableList.of("server"));
+    }
+
+    @Override
+    public boolean canRun(CommandSender sender) {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsValue(String value) {
+        return pattern.matcher(value).matches();
+    }
+
+    @Override
+    public Optional<CompletableFuture<?>> buildForQuery(QuerySession session, String parameter, String value, Query query) {
+        if (value.equalsIgnoreCase("all")) {
+            return Optional.empty();
+        }
+        if (value.contains(",") || value.startsWith("!")) {
+            List<Object> in = Lists.newArrayList();
+            List<Object> nin = Lists.newArrayList();
+            for (String server : value.split(",")) {
+                if (server.startsWith("!")) {
+                    nin.add(toMatch(server.substring(1)));
+                } else {
+                    in.add(toMatch(server));
+                }
+            }
+            if (!in.isEmpty()) {
+                query.addCondition(FieldCondition.of(DataKeys.SERVER, MatchRule.INCLUDES, in));
+            }
+            if (!nin.isEmpty()) {
+                query.addCondition(FieldCondition.of(DataKeys.SERVER, MatchRule.EXCLUDES, nin));
+            }
+        } else {
+            query.addCondition(FieldCondition.of(DataKeys.SERVER, MatchRule.EQUALS, toMatch(value)));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Server names without a wildcard are matched exactly, so server:hub doesn't also match hub-2, and the lookup can
+     * use the index on the server.
+     */
+    private static Object toMatch(String server) {
+        return server.contains("*") ? DataHelper.compileUserInput(server) : server;
+    }
+
+    @Override
+    public Optional<Pair<String, String>> processDefault(QuerySession session, Query query) {
+        String serverId = OmniConfig.INSTANCE.getServerId();
+        if (serverId.isEmpty()) {
+            return Optional.empty();
+        }
+        //Matched exactly rather than as a pattern, so the lookup can use the index on the server
+        query.addCondition(FieldCondition.of(DataKeys.SERVER, MatchRule.EQUALS, serverId));
+        return Optional.of(Pair.of("server", serverId));
+    }
+
+    @Override
+    public Optional<List<String>> suggestTabCompletion(String partial) {
+        List<String> options = Lists.newArrayList("all");
+        if (!OmniConfig.INSTANCE.getServerId().isEmpty()) {
+            options.add(OmniConfig.INSTANCE.getServerId());
+        }
+        return Optional.of(generateDefaultsBasedOnPartial(options, partial));
+    }
+}
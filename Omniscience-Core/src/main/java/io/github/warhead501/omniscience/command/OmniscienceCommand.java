@@ -29,9 +29,15 @@ public class OmniscienceCommand implements CommandExecutor {
                 new SearchCommand(),
                 new ApplierCommand(QuerySession.Sort.NEWEST_FIRST), //Rollback
                 new ApplierCommand(QuerySession.Sort.OLDEST_FIRST), //Restore
+                new PreviewCommand(true), //Confirm
+                new PreviewCommand(false), //Cancel
                 new UndoCommand(),
                 new ToolCommand(),
-                new EventsCommand()
+                new EventsCommand(),
+                new ReloadCommand(),
+                new PurgeCommand(),
+                new ExportCommand(),
+                new ImportCommand()
         );
     }
 
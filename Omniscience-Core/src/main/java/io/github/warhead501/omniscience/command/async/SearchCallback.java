@@ -85,12 +85,11 @@ public class SearchCallback implements AsyncCallback {
             targetHover = displayHandler.get().buildTargetSpecificHoverData(entry, target, this.session);
         }
 
-        if (entry instanceof DataAggregateEntry) {
-            entry.data.getInt(DataKeys.COUNT).ifPresent(count -> {
-                endOfMessage.append(ChatColor.GREEN).append("x").append(count).append(" ");
-                hoverMessage.append("\n").append(ChatColor.DARK_GRAY).append("Count: ").append(ChatColor.WHITE).append(count);
-            });
-        }
+        //Aggregated results and merged records both carry a count
+        entry.data.getInt(DataKeys.COUNT).ifPresent(count -> {
+            endOfMessage.append(ChatColor.GREEN).append("x").append(count).append(" ");
+            hoverMessage.append("\n").append(ChatColor.DARK_GRAY).append("Count: ").append(ChatColor.WHITE).append(count);
+        });
 
         displayHandler.ifPresent(
                 handler -> handler
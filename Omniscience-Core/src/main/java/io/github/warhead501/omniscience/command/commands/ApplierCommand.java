@@ -1,14 +1,12 @@
 package io.github.warhead501.omniscience.command.commands;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
 import io.github.warhead501.omniscience.api.entry.ActionResult;
 import io.github.warhead501.omniscience.api.entry.Actionable;
-import io.github.warhead501.omniscience.api.entry.ActionableException;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
 import io.github.warhead501.omniscience.api.flag.Flag;
 import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
@@ -18,14 +16,20 @@ import io.github.warhead501.omniscience.OmniConfig;
 import io.github.warhead501.omniscience.Omniscience;
 import io.github.warhead501.omniscience.command.result.CommandResult;
 import io.github.warhead501.omniscience.command.result.UseResult;
+import io.github.warhead501.omniscience.command.util.ApplyPlanner;
+import io.github.warhead501.omniscience.command.util.ConflictDetector;
+import io.github.warhead501.omniscience.command.util.RollbackPreview;
 import io.github.warhead501.omniscience.command.util.SearchParameterHelper;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 public class ApplierCommand extends SimpleCommand {
 
@@ -71,77 +75,39 @@ public class ApplierCommand extends SimpleCommand {
                 session.getQuery().setSearchLimit(OmniConfig.INSTANCE.getActionablesLimit());
 
                 try {
-                    List<ActionResult> actionResults = Lists.newArrayList();
-
                     CompletableFuture<List<DataEntry>> futureResults = Omniscience.getStorageHandler().records().query(session);
 
                     futureResults.thenAccept(results -> {
                         if (results.isEmpty()) {
                             sender.sendMessage(Formatter.error("No results."));
-                        } else {
-                            try {
-                                for (DataEntry entry : results) {
-                                    if (entry instanceof Actionable) {
-                                        Actionable actionable = (Actionable) entry;
-                                        try {
-                                            if (sort.equals(QuerySession.Sort.NEWEST_FIRST)) {
-                                                actionResults.add(actionable.rollback());
-                                            } else {
-                                                actionResults.add(actionable.restore());
-                                            }
-                                        } catch (ActionableException ae) {
-                                            actionResults.add(ae.getResult());
-                                        }
-                                    }
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
-
-                            if (sender instanceof Player) {
-                                int changes = 0;
-
-                                if (session.hasFlag(Flag.DRAIN)) {
-                                    //TODO drain liquids around person
-                                }
-
-                                if (changes > 0) {
-                                    sender.sendMessage(Formatter.bonus("Cleaning area..."));
-                                }
-                            }
-
-                            int appliedCount = 0;
-                            int skippedCount = 0;
-                            for (ActionResult result : actionResults) {
-                                if (result.applied()) {
-                                    appliedCount++;
-                                } else {
-                                    skippedCount++;
-                                }
-                            }
-
-                            Map<String, String> tokens = Maps.newHashMap();
-                            tokens.put("appliedCount", "" + appliedCount);
-                            tokens.put("skippedCount", "" + skippedCount);
-
-                            final String messageTemplate;
-                            if (skippedCount > 0) {
-                                messageTemplate = String.format(" %s reversals. %s skipped", appliedCount, skippedCount);
-                                for (ActionResult result : actionResults) {
-                                    if (!result.applied()) {
-                                        sender.sendMessage(Formatter.bonus("Skip Reason: " + result.getReason()));
-                                    }
-                                }
-                            } else {
-                                messageTemplate = String.format(" %s reversals", appliedCount);
-                            }
-
-                            sender.sendMessage(Formatter.success(messageTemplate));
-
-                            if (sender instanceof Player) {
-                                Omniscience.addLastActionResults(((Player) sender).getUniqueId(), actionResults);
-                            }
+                            return;
+                        }
+                        List<Actionable> actionables = results.stream()
+                                .filter(entry -> entry instanceof Actionable)
+                                .map(entry -> (Actionable) entry)
+                                .collect(Collectors.toList());
+                        if (!session.hasFlag(Flag.SAFE)) {
+                            proceed(sender, session, actionables);
+                            return;
                         }
+                        try {
+                            ConflictDetector.filter(actionables).thenAccept(check -> {
+                                reportConflicts(sender, check.getConflicts());
+                                proceed(sender, session, check.getActionables());
+                            }).exceptionally(e -> {
+                                e.printStackTrace();
+                                sender.sendMessage(Formatter.error("Failed to check for newer changes: " + rootMessage(e)));
+                                return null;
+                            });
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            sender.sendMessage(Formatter.error("Failed to check for newer changes: " + e.getMessage()));
+                        }
+                    });
+                    futureResults.exceptionally(e -> {
+                        e.printStackTrace();
+                        sender.sendMessage(Formatter.error("Failed to look up records: " + rootMessage(e)));
+                        return null;
                     });
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -155,6 +121,92 @@ public class ApplierCommand extends SimpleCommand {
         return CommandResult.success();
     }
 
+    private static String rootMessage(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+    }
+
+    private void proceed(CommandSender sender, QuerySession session, List<Actionable> actionables) {
+        if (session.hasFlag(Flag.PREVIEW) && sender instanceof Player) {
+            showPreview((Player) sender, session, actionables);
+            return;
+        }
+        ApplyPlanner.planAndApply(actionables, sort)
+                .thenAccept(actionResults -> reportResults(sender, session, actionResults));
+    }
+
+    private void reportConflicts(CommandSender sender, Set<BlockPosition> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        sender.sendMessage(Formatter.bonus(String.format("Skipping %s positions that were changed again afterwards.", conflicts.size())));
+        String sample = conflicts.stream()
+                .limit(5)
+                .map(position -> "(" + position + ")")
+                .collect(Collectors.joining(", "));
+        sender.sendMessage(Formatter.bonus(sample + (conflicts.size() > 5 ? ", ..." : "")));
+    }
+
+    private void showPreview(Player player, QuerySession session, List<Actionable> actionables) {
+        RollbackPreview preview = RollbackPreview.create(session, actionables);
+        if (preview.getBlockCount() == 0) {
+            player.sendMessage(Formatter.error("None of these changes can be previewed."));
+            return;
+        }
+        Bukkit.getScheduler().runTask(Omniscience.getPluginInstance(), () -> preview.show(player));
+        player.sendMessage(Formatter.success(String.format("Previewing %s block changes in %s chunks. Only you can see them.",
+                preview.getBlockCount(), preview.getChunkCount())));
+        int unpreviewable = actionables.size() - preview.getBlockCount();
+        if (unpreviewable > 0) {
+            player.sendMessage(Formatter.bonus(String.format("%s other changes (containers, entities and overwritten blocks) are not shown.", unpreviewable)));
+        }
+        player.sendMessage(Formatter.bonus("Use /omni confirm to apply them or /omni cancel to discard them."));
+    }
+
+    static void reportResults(CommandSender sender, QuerySession session, List<ActionResult> actionResults) {
+        if (sender instanceof Player) {
+            int changes = 0;
+
+            if (session.hasFlag(Flag.DRAIN)) {
+                //TODO drain liquids around person
+            }
+
+            if (changes > 0) {
+                sender.sendMessage(Formatter.bonus("Cleaning area..."));
+            }
+        }
+
+        int appliedCount = 0;
+        int skippedCount = 0;
+        for (ActionResult result : actionResults) {
+            if (result.applied()) {
+                appliedCount++;
+            } else {
+                skippedCount++;
+            }
+        }
+
+        final String messageTemplate;
+        if (skippedCount > 0) {
+            messageTemplate = String.format(" %s reversals. %s skipped", appliedCount, skippedCount);
+            for (ActionResult result : actionResults) {
+                if (!result.applied()) {
+                    sender.sendMessage(Formatter.bonus("Skip Reason: " + result.getReason()));
+                }
+            }
+        } else {
+            messageTemplate = String.format(" %s reversals", appliedCount);
+        }
+
+        sender.sendMessage(Formatter.success(messageTemplate));
+
+        if (sender instanceof Player) {
+            int notJournaled = Omniscience.getUndoJournal().record(((Player) sender).getUniqueId(), actionResults);
+            if (notJournaled > 0) {
+                sender.sendMessage(Formatter.bonus(String.format("%s changes were too many to remember and can't be undone", notJournaled)));
+            }
+        }
+    }
+
     @Override
     public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
         builder.then(RequiredArgumentBuilder.argument("search-parameters", StringArgumentType.greedyString()));
@@ -0,0 +1,86 @@
+package io.github.warhead501.omniscience.command.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import io.github.warhead501.omniscience.command.result.UseResult;
+import io.github.warhead501.omniscience.command.util.SearchParameterHelper;
+import io.github.warhead501.omniscience.io.transfer.TransferJob;
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ExportCommand extends SimpleCommand {
+
+    public ExportCommand() {
+        super(ImmutableList.of());
+    }
+
+    @Override
+    public UseResult canRun(CommandSender sender) {
+        return hasPermission(sender, "omniscience.commands.export");
+    }
+
+    @Override
+    public String getCommand() {
+        return "export";
+    }
+
+    @Override
+    public String getUsage() {
+        return GREEN + "<Lookup Params> <File> | status | stop";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Write the records matching the parameters provided to a file in the exports folder, in the background.";
+    }
+
+    @Override
+    public CommandResult run(CommandSender sender, IOmniscience core, String[] args) {
+        if (args.length == 0) {
+            return CommandResult.failure("Add the name of the file to export to, e.g. w:world_nether nether-backup");
+        }
+        switch (args[0].toLowerCase()) {
+            case "status":
+                sender.sendMessage(Formatter.subHeader(TransferJob.INSTANCE.getStatus().orElse("No export or import is running.")));
+                return CommandResult.success();
+            case "stop":
+                if (!TransferJob.INSTANCE.stop()) {
+                    return CommandResult.failure("No export or import is running.");
+                }
+                sender.sendMessage(Formatter.success("The export or import stops after its current batch."));
+                return CommandResult.success();
+            default:
+                break;
+        }
+
+        if (TransferJob.INSTANCE.isRunning()) {
+            return CommandResult.failure("An export or import is already running. Stop it with /omni export stop first.");
+        }
+        String fileName = args[args.length - 1];
+        String[] parameters = Arrays.copyOf(args, args.length - 1);
+        String description = parameters.length == 0 ? "every record" : String.join(" ", parameters);
+        return SearchParameterHelper.parseConditions(sender, "export", parameters, true, conditions -> {
+            TransferJob.INSTANCE.startExport(sender, description, conditions, fileName);
+            sender.sendMessage(Formatter.success("Exporting " + description + " to " + fileName + " in the background. Check on it with /omni export status."));
+        });
+    }
+
+    @Override
+    public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
+        builder.then(LiteralArgumentBuilder.literal("status"));
+        builder.then(LiteralArgumentBuilder.literal("stop"));
+        builder.then(RequiredArgumentBuilder.argument("export-parameters", StringArgumentType.greedyString()));
+    }
+
+    @Override
+    public List<String> getCommandSuggestions(String partial) {
+        return SearchParameterHelper.suggestParameterCompletion(partial);
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.warhead501.omniscience.command.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import io.github.warhead501.omniscience.command.result.UseResult;
+import io.github.warhead501.omniscience.io.transfer.TransferJob;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public class ImportCommand extends SimpleCommand {
+
+    public ImportCommand() {
+        super(ImmutableList.of());
+    }
+
+    @Override
+    public UseResult canRun(CommandSender sender) {
+        return hasPermission(sender, "omniscience.commands.import");
+    }
+
+    @Override
+    public String getCommand() {
+        return "import";
+    }
+
+    @Override
+    public String getUsage() {
+        return GREEN + "<File> | status | stop";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Add the records of a file in the exports folder to storage, in the background.";
+    }
+
+    @Override
+    public CommandResult run(CommandSender sender, IOmniscience core, String[] args) {
+        if (args.length != 1) {
+            return CommandResult.failure("Add the name of a file in the exports folder to import.");
+        }
+        switch (args[0].toLowerCase()) {
+            case "status":
+                sender.sendMessage(Formatter.subHeader(TransferJob.INSTANCE.getStatus().orElse("No export or import is running.")));
+                return CommandResult.success();
+            case "stop":
+                if (!TransferJob.INSTANCE.stop()) {
+                    return CommandResult.failure("No export or import is running.");
+                }
+                sender.sendMessage(Formatter.success("The export or import stops after its current batch."));
+                return CommandResult.success();
+            default:
+                break;
+        }
+
+        //Records are added as they are, importing the same file twice stores its records twice
+        try {
+            TransferJob.INSTANCE.startImport(sender, args[0]);
+        } catch (IllegalStateException e) {
+            return CommandResult.failure(e.getMessage());
+        }
+        sender.sendMessage(Formatter.success("Importing " + args[0] + " in the background. Check on it with /omni import status."));
+        return CommandResult.success();
+    }
+
+    @Override
+    public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
+        builder.then(LiteralArgumentBuilder.literal("status"));
+        builder.then(LiteralArgumentBuilder.literal("stop"));
+        builder.then(RequiredArgumentBuilder.argument("file", StringArgumentType.word()));
+    }
+
+    @Override
+    public List<String> getCommandSuggestions(String partial) {
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.warhead501.omniscience.command.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import io.github.warhead501.omniscience.command.result.UseResult;
+import io.github.warhead501.omniscience.command.util.ApplyPlanner;
+import io.github.warhead501.omniscience.command.util.RollbackPreview;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Optional;
+
+public class PreviewCommand extends SimpleCommand {
+
+    private final boolean confirm;
+
+    public PreviewCommand(boolean confirm) {
+        super(confirm ? ImmutableList.of("c", "apply") : ImmutableList.of("discard"));
+        this.confirm = confirm;
+    }
+
+    @Override
+    public UseResult canRun(CommandSender sender) {
+        return (sender instanceof Player ? hasPermission(sender, "omniscience.commands.rollback") : UseResult.NO_COMMAND_SENDER);
+    }
+
+    @Override
+    public String getCommand() {
+        return confirm ? "confirm" : "cancel";
+    }
+
+    @Override
+    public String getUsage() {
+        return "";
+    }
+
+    @Override
+    public String getDescription() {
+        return confirm ? "Applies the rollback or restore you are previewing" : "Discards the rollback or restore you are previewing";
+    }
+
+    @Override
+    public CommandResult run(CommandSender sender, IOmniscience core, String[] args) {
+        if (!(sender instanceof Player)) {
+            return CommandResult.failure("You must be a player to use this command");
+        }
+        Player player = (Player) sender;
+
+        Optional<RollbackPreview> oPreview = RollbackPreview.remove(player.getUniqueId());
+        if (!oPreview.isPresent()) {
+            return CommandResult.failure("You are not previewing anything. Add -preview to a rollback or restore first.");
+        }
+        RollbackPreview preview = oPreview.get();
+
+        if (!confirm) {
+            preview.hide(player);
+            sender.sendMessage(Formatter.success("Preview discarded."));
+            return CommandResult.success();
+        }
+
+        ApplyPlanner.planAndApply(preview.getActionables(), preview.getSession().getSortOrder())
+                .thenAccept(actionResults -> {
+                    //Resend the real blocks so that anything that was skipped doesn't stay faked
+                    preview.hide(player);
+                    ApplierCommand.reportResults(sender, preview.getSession(), actionResults);
+                });
+        return CommandResult.success();
+    }
+
+    @Override
+    public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
+
+    }
+
+    @Override
+    public List<String> getCommandSuggestions(String partial) {
+        return null;
+    }
+}
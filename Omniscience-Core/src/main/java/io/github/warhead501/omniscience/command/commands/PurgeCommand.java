@@ -0,0 +1,101 @@
+package io.github.warhead501.omniscience.command.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import io.github.warhead501.omniscience.command.result.UseResult;
+import io.github.warhead501.omniscience.command.util.SearchParameterHelper;
+import io.github.warhead501.omniscience.io.purge.PurgeJob;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public class PurgeCommand extends SimpleCommand {
+
+    public PurgeCommand() {
+        super(ImmutableList.of("prune"));
+    }
+
+    @Override
+    public UseResult canRun(CommandSender sender) {
+        return hasPermission(sender, "omniscience.commands.purge");
+    }
+
+    @Override
+    public String getCommand() {
+        return "purge";
+    }
+
+    @Override
+    public String getUsage() {
+        return GREEN + "<Lookup Params> | status | stop | resume";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Delete the records matching the parameters provided, in the background.";
+    }
+
+    @Override
+    public CommandResult run(CommandSender sender, IOmniscience core, String[] args) {
+        if (args.length == 0) {
+            return CommandResult.failure("Add parameters to choose which records to purge, e.g. w:world_nether e:break");
+        }
+        switch (args[0].toLowerCase()) {
+            case "status":
+                sender.sendMessage(PurgeJob.INSTANCE.getStatus()
+                        .map(Formatter::subHeader)
+                        .orElseGet(() -> Formatter.subHeader(PurgeJob.INSTANCE.canResume()
+                                ? "No purge is running. A stopped purge can be resumed with /omni purge resume."
+                                : "No purge is running.")));
+                return CommandResult.success();
+            case "stop":
+                if (!PurgeJob.INSTANCE.stop()) {
+                    return CommandResult.failure("No purge is running.");
+                }
+                sender.sendMessage(Formatter.success("The purge stops after its current batch."));
+                return CommandResult.success();
+            case "resume":
+                try {
+                    String description = PurgeJob.INSTANCE.resume(sender);
+                    sender.sendMessage(Formatter.success("Resumed purging " + description));
+                } catch (IllegalStateException e) {
+                    return CommandResult.failure(e.getMessage());
+                }
+                return CommandResult.success();
+            default:
+                break;
+        }
+
+        if (PurgeJob.INSTANCE.isRunning()) {
+            return CommandResult.failure("A purge is already running. Stop it with /omni purge stop first.");
+        }
+        try {
+            PurgeJob.INSTANCE.checkSupported();
+        } catch (IllegalStateException e) {
+            return CommandResult.failure(e.getMessage());
+        }
+        String description = String.join(" ", args);
+        return SearchParameterHelper.parseConditions(sender, "purge", args, false, conditions -> {
+            PurgeJob.INSTANCE.start(sender, description, conditions);
+            sender.sendMessage(Formatter.success("Purging " + description + " in the background. Check on it with /omni purge status."));
+        });
+    }
+
+    @Override
+    public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
+        builder.then(LiteralArgumentBuilder.literal("status"));
+        builder.then(LiteralArgumentBuilder.literal("stop"));
+        builder.then(LiteralArgumentBuilder.literal("resume"));
+        builder.then(RequiredArgumentBuilder.argument("purge-parameters", StringArgumentType.greedyString()));
+    }
+
+    @Override
+    public List<String> getCommandSuggestions(String partial) {
+        return SearchParameterHelper.suggestParameterCompletion(partial);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.warhead501.omniscience.command.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import io.github.warhead501.omniscience.command.result.UseResult;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.logging.Level;
+
+public class ReloadCommand extends SimpleCommand {
+
+    public ReloadCommand() {
+        super(ImmutableList.of("rl"));
+    }
+
+    @Override
+    public UseResult canRun(CommandSender sender) {
+        return hasPermission(sender, "omniscience.commands.reload");
+    }
+
+    @Override
+    public String getCommand() {
+        return "reload";
+    }
+
+    @Override
+    public String getUsage() {
+        return "";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Reload the configuration and enabled events";
+    }
+
+    @Override
+    public CommandResult run(CommandSender sender, IOmniscience core, String[] args) {
+        try {
+            Omniscience.reload();
+        } catch (RuntimeException e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, "Failed to reload the configuration", e);
+            return CommandResult.failure("Failed to reload the configuration, check the console for details.");
+        }
+        sender.sendMessage(Formatter.success("Configuration reloaded."));
+        sender.sendMessage(Formatter.bonus("Database and storage settings take effect after a restart."));
+        return CommandResult.success();
+    }
+
+    @Override
+    public void buildLiteralArgumentBuilder(LiteralArgumentBuilder<Object> builder) {
+
+    }
+
+    @Override
+    public List<String> getCommandSuggestions(String partial) {
+        return null;
+    }
+}
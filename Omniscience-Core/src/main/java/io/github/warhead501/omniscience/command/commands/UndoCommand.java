@@ -3,24 +3,21 @@ package io.github.warhead501.omniscience.command.commands;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
-import io.github.warhead501.omniscience.api.data.LocationTransaction;
 import io.github.warhead501.omniscience.api.entry.ActionResult;
 import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
 import io.github.warhead501.omniscience.api.util.Formatter;
 import io.github.warhead501.omniscience.Omniscience;
 import io.github.warhead501.omniscience.command.result.CommandResult;
 import io.github.warhead501.omniscience.command.result.UseResult;
-import org.bukkit.Location;
-import org.bukkit.block.BlockState;
-import org.bukkit.block.Container;
-import org.bukkit.block.data.BlockData;
+import io.github.warhead501.omniscience.command.util.BudgetedApplier;
+import io.github.warhead501.omniscience.io.journal.UndoLevel;
+import io.github.warhead501.omniscience.io.journal.UndoRecord;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.logging.Level;
 
 public class UndoCommand extends SimpleCommand {
 
@@ -54,53 +51,32 @@ public class UndoCommand extends SimpleCommand {
             return CommandResult.failure("You must be a player to use this command");
         }
 
-        Optional<List<ActionResult>> oResults = Omniscience.getLastActionResults(((Player) sender).getUniqueId());
-        if (!oResults.isPresent()) {
+        Optional<UndoLevel> oLevel = Omniscience.getUndoJournal().pop(((Player) sender).getUniqueId());
+        if (!oLevel.isPresent()) {
             return CommandResult.failure("You have no valid actions to undo");
         }
 
-        List<ActionResult> results = Lists.reverse(oResults.get());
+        sender.sendMessage(Formatter.bonus(String.format("Undoing %s changes...", oLevel.get().getRecordCount())));
 
+        Omniscience.getUndoJournal().read(oLevel.get())
+                .thenAccept(records -> BudgetedApplier.apply(Lists.reverse(records), UndoRecord::apply)
+                        .thenAccept(results -> reportResults(sender, results)))
+                .exceptionally(ex -> {
+                    Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, "Failed to read the undo journal", ex);
+                    sender.sendMessage(Formatter.error("Your last action could not be read back, so it can't be undone."));
+                    return null;
+                });
+
+        return CommandResult.success();
+    }
+
+    private void reportResults(CommandSender sender, List<ActionResult> results) {
         int applied = 0;
         int skipped = 0;
 
         for (ActionResult result : results) {
-            if (result.getTransaction() != null) {
-                Object rawOriginal = result.getTransaction().getOriginalState();
-                Object rawFinal = result.getTransaction().getFinalState();
-
-                if (result.getTransaction() instanceof LocationTransaction) {
-                    Location location = ((LocationTransaction) result.getTransaction()).getLocation();
-
-                    if (rawOriginal instanceof Inventory) {
-                        if (location.getBlock().getState() instanceof Container) {
-                            ((Container) location.getBlock().getState()).getInventory().setContents(((Inventory) rawOriginal).getContents());
-                            applied++;
-                        } else {
-                            skipped++;
-                        }
-                    }
-                }
-
-                if (rawOriginal instanceof BlockState) {
-                    BlockData data = ((BlockState) rawOriginal).getBlockData();
-                    ((BlockState) rawOriginal).getBlock().setBlockData(data);
-                    if (((BlockState) rawOriginal).getBlockData().equals(data)) {
-                        applied++;
-                    } else {
-                        skipped++;
-                    }
-                }
-
-                if (rawFinal instanceof Entity) {
-                    Entity entity = (Entity) rawFinal;
-                    if (!entity.isDead() && entity.isValid()) {
-                        entity.remove();
-                        applied++;
-                    } else {
-                        skipped++;
-                    }
-                }
+            if (result.applied()) {
+                applied++;
             } else {
                 skipped++;
             }
@@ -108,14 +84,12 @@ public class UndoCommand extends SimpleCommand {
 
         final String messageTemplate;
         if (skipped > 0) {
-            messageTemplate = String.format("%s reversals(). %s skipped", applied, skipped);
+            messageTemplate = String.format("%s reversals. %s skipped", applied, skipped);
         } else {
             messageTemplate = String.format("%s reversals", applied);
         }
 
         sender.sendMessage(Formatter.success(messageTemplate));
-
-        return CommandResult.success();
     }
 
     @Override
@@ -0,0 +1,98 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.entry.Actionable;
+import io.github.warhead501.omniscience.api.entry.ActionableException;
+import io.github.warhead501.omniscience.api.entry.PlannedAction;
+import io.github.warhead501.omniscience.api.entry.SkipReason;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Plans rollbacks and restores on worker threads before they are handed to the {@link BudgetedApplier}.
+ * <p>
+ * Planning decodes locations, parses block data and deserializes items for every change in parallel, so that the
+ * main thread is left with nothing but the block and inventory writes.
+ * </p>
+ */
+public final class ApplyPlanner {
+
+    private static final int PARTITION_SIZE = 256;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService planExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "Omniscience Apply Planner #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ApplyPlanner() {
+    }
+
+    /**
+     * Plans and then applies the given changes.
+     *
+     * @param actionables The changes, in the order they are to be applied
+     * @param sort        {@link QuerySession.Sort#NEWEST_FIRST} to roll the changes back, otherwise they are restored
+     * @return A future completed on the main thread with one result per change, in order
+     */
+    public static CompletableFuture<List<ActionResult>> planAndApply(List<Actionable> actionables, QuerySession.Sort sort) {
+        return plan(actionables, sort == QuerySession.Sort.NEWEST_FIRST)
+                .thenCompose(plans -> BudgetedApplier.apply(plans, PlannedAction::commit));
+    }
+
+    /**
+     * Plans the given changes in parallel.
+     *
+     * @param actionables The changes, in the order they are to be applied
+     * @param rollback    True to plan rollbacks, false to plan restores
+     * @return A future completed off of the main thread with one plan per change, in the same order
+     */
+    public static CompletableFuture<List<PlannedAction>> plan(List<Actionable> actionables, boolean rollback) {
+        List<CompletableFuture<List<PlannedAction>>> partitions = Lists.newArrayList();
+        for (List<Actionable> partition : Lists.partition(actionables, PARTITION_SIZE)) {
+            partitions.add(CompletableFuture.supplyAsync(() -> planPartition(partition, rollback), planExecutor));
+        }
+        return CompletableFuture.allOf(partitions.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<PlannedAction> plans = Lists.newArrayListWithCapacity(actionables.size());
+                    partitions.forEach(partition -> plans.addAll(partition.join()));
+                    return plans;
+                });
+    }
+
+    public static void shutdown() {
+        planExecutor.shutdownNow();
+    }
+
+    private static List<PlannedAction> planPartition(List<Actionable> partition, boolean rollback) {
+        List<PlannedAction> plans = Lists.newArrayListWithCapacity(partition.size());
+        for (Actionable actionable : partition) {
+            plans.add(planOne(actionable, rollback));
+        }
+        return plans;
+    }
+
+    private static PlannedAction planOne(Actionable actionable, boolean rollback) {
+        try {
+            return rollback ? actionable.planRollback() : actionable.planRestore();
+        } catch (ActionableException ae) {
+            //Keep the skip in place so results still line up with the changes
+            return () -> {
+                throw ae;
+            };
+        } catch (Exception e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to plan a change", e);
+            return () -> ActionResult.skipped(SkipReason.UNKNOWN);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.bukkit.Bukkit;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public final class Async {
 
@@ -30,6 +31,13 @@ public final class Async {
                         e.printStackTrace();
                     }
                 });
+                //Storage can fail after the lookup was handed off, which ends up here instead of the catch below
+                future.exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    callback.error(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                    cause.printStackTrace();
+                    return null;
+                });
             } catch (Exception e) {
                 callback.error(e);
                 e.printStackTrace();
@@ -0,0 +1,87 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.entry.ActionableException;
+import io.github.warhead501.omniscience.api.entry.SkipReason;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Applies a set of world changes on the main thread, spreading them out over as many ticks as needed so that
+ * no single tick spends more than {@link OmniConfig#getApplyTickBudget()} milliseconds changing the world.
+ * <p>
+ * Used by rollbacks, restores and undos so they all share the same pacing.
+ * </p>
+ *
+ * @param <T> The kind of work item being applied
+ */
+public final class BudgetedApplier<T> extends BukkitRunnable {
+
+    private final Iterator<T> work;
+    private final ApplyOperation<T> operation;
+    private final long budgetNanos;
+    private final List<ActionResult> results;
+    private final CompletableFuture<List<ActionResult>> future = new CompletableFuture<>();
+
+    private BudgetedApplier(List<T> work, ApplyOperation<T> operation) {
+        this.work = work.iterator();
+        this.operation = operation;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, OmniConfig.INSTANCE.getApplyTickBudget()));
+        this.results = Lists.newArrayListWithCapacity(work.size());
+    }
+
+    /**
+     * Schedules the given work to be applied on the main thread.
+     *
+     * @param work      The work items, applied in order
+     * @param operation The change to perform for each item
+     * @param <T>       The kind of work item being applied
+     * @return A future completed on the main thread with one result per work item, in order
+     */
+    public static <T> CompletableFuture<List<ActionResult>> apply(List<T> work, ApplyOperation<T> operation) {
+        BudgetedApplier<T> applier = new BudgetedApplier<>(work, operation);
+        applier.runTaskTimer(Omniscience.getPluginInstance(), 0L, 1L);
+        return applier.future;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + budgetNanos;
+        //Always make progress, even if a single change takes longer than the budget
+        do {
+            if (!work.hasNext()) {
+                break;
+            }
+            results.add(applyOne(work.next()));
+        } while (System.nanoTime() < deadline);
+
+        if (!work.hasNext()) {
+            cancel();
+            future.complete(results);
+        }
+    }
+
+    private ActionResult applyOne(T item) {
+        try {
+            return operation.apply(item);
+        } catch (ActionableException ae) {
+            return ae.getResult();
+        } catch (Exception e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to apply a change", e);
+            return ActionResult.skipped(SkipReason.UNKNOWN);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ApplyOperation<T> {
+        ActionResult apply(T item) throws Exception;
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.entry.Actionable;
+import io.github.warhead501.omniscience.api.entry.BlockEntry;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.io.RecordHandler;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the positions of a rollback or restore whose block was changed again after the changes being applied, so that
+ * newer, legitimate changes are not overwritten.
+ * <p>
+ * All positions of a job are checked with a single batched lookup through
+ * {@link RecordHandler#getLatestBlockChanges}.
+ * </p>
+ */
+public final class ConflictDetector {
+
+    private ConflictDetector() {
+    }
+
+    /**
+     * Removes every change at a position that has a newer block change which is not part of the job.
+     *
+     * @param actionables The changes that are about to be applied
+     * @return The changes that are safe to apply, and the positions that were left out
+     */
+    public static CompletableFuture<Result> filter(List<Actionable> actionables) throws Exception {
+        return filter(actionables, Omniscience.getStorageHandler().records());
+    }
+
+    static CompletableFuture<Result> filter(List<Actionable> actionables, RecordHandler records) throws Exception {
+        //The newest change of this job at each position. Anything stored after it was made by someone else.
+        Map<BlockPosition, Date> newestInJob = Maps.newHashMap();
+        for (Actionable actionable : actionables) {
+            if (!(actionable instanceof BlockEntry)) {
+                continue;
+            }
+            DataEntry entry = (DataEntry) actionable;
+            Optional<BlockPosition> oPosition = BlockPosition.from(entry.data);
+            Optional<Date> oCreated = getCreated(entry);
+            if (oPosition.isPresent() && oCreated.isPresent()) {
+                newestInJob.merge(oPosition.get(), oCreated.get(), (a, b) -> a.after(b) ? a : b);
+            }
+        }
+        if (newestInJob.isEmpty()) {
+            return CompletableFuture.completedFuture(new Result(actionables, ImmutableSet.of()));
+        }
+
+        Date oldest = newestInJob.values().stream().min(Date::compareTo).get();
+        return records.getLatestBlockChanges(newestInJob.keySet(), oldest)
+                .thenApply(latest -> {
+                    ImmutableSet<BlockPosition> conflicts = latest.entrySet().stream()
+                            .filter(change -> change.getValue().after(newestInJob.get(change.getKey())))
+                            .map(Map.Entry::getKey)
+                            .collect(ImmutableSet.toImmutableSet());
+                    if (conflicts.isEmpty()) {
+                        return new Result(actionables, conflicts);
+                    }
+                    List<Actionable> safe = actionables.stream()
+                            .filter(actionable -> !(actionable instanceof BlockEntry)
+                                    || !BlockPosition.from(((DataEntry) actionable).data).map(conflicts::contains).orElse(false))
+                            .collect(Collectors.toList());
+                    return new Result(safe, conflicts);
+                });
+    }
+
+    private static Optional<Date> getCreated(DataEntry entry) {
+        return entry.data.get(DataKeys.CREATED).map(time -> {
+            if (time instanceof Date) {
+                return (Date) time;
+            } else if (time instanceof Long) {
+                return new Date((Long) time);
+            }
+            return null;
+        });
+    }
+
+    public static final class Result {
+        private final ImmutableList<Actionable> actionables;
+        private final ImmutableSet<BlockPosition> conflicts;
+
+        private Result(List<Actionable> actionables, ImmutableSet<BlockPosition> conflicts) {
+            this.actionables = ImmutableList.copyOf(actionables);
+            this.conflicts = conflicts;
+        }
+
+        /**
+         * @return The changes that do not conflict, in their original order
+         */
+        public ImmutableList<Actionable> getActionables() {
+            return actionables;
+        }
+
+        /**
+         * @return The positions that were changed again after this job's changes and were left out
+         */
+        public ImmutableSet<BlockPosition> getConflicts() {
+            return conflicts;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.Actionable;
+import io.github.warhead501.omniscience.api.entry.BlockEntry;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A rollback or restore that has been queried but not applied. The blocks it would place are shown to a single player
+ * with fake block changes, so nothing in the world is changed and no physics run until the preview is confirmed.
+ * <p>
+ * Block changes are sent one chunk at a time, with at most {@link OmniConfig#getPreviewChunksPerTick()} chunks per tick.
+ * A preview that isn't confirmed or cancelled within {@link OmniConfig#getPreviewTimeout()} seconds is discarded, as is
+ * the preview of a player who leaves.
+ * </p>
+ */
+public final class RollbackPreview {
+
+    private static final Map<UUID, RollbackPreview> previews = Maps.newConcurrentMap();
+
+    private final QuerySession session;
+    private final ImmutableList<Actionable> actionables;
+    private final ImmutableList<Map<Location, BlockData>> chunks;
+    private final int blockCount;
+    private BukkitTask sendTask;
+    private BukkitTask expiryTask;
+
+    private RollbackPreview(QuerySession session, List<Actionable> actionables, List<Map<Location, BlockData>> chunks, int blockCount) {
+        this.session = session;
+        this.actionables = ImmutableList.copyOf(actionables);
+        this.chunks = ImmutableList.copyOf(chunks);
+        this.blockCount = blockCount;
+    }
+
+    /**
+     * Collapses the given changes into the final block per position, grouped by chunk.
+     * The changes must be in the order they would be applied in.
+     *
+     * @param session     The session the changes were queried with. Its sort order decides between rollback and restore.
+     * @param actionables The changes that would be applied
+     * @return A preview that has not been shown yet
+     */
+    public static RollbackPreview create(QuerySession session, List<Actionable> actionables) {
+        boolean rollback = session.getSortOrder() == QuerySession.Sort.NEWEST_FIRST;
+        //Later changes to the same position overwrite earlier ones, exactly as applying them would.
+        Map<Location, BlockData> collapsed = Maps.newLinkedHashMap();
+        for (Actionable actionable : actionables) {
+            if (!(actionable instanceof BlockEntry)) {
+                continue;
+            }
+            BlockEntry entry = (BlockEntry) actionable;
+            Optional<Location> oLocation = DataHelper.getLocationFromDataWrapper(entry.data);
+            Optional<BlockData> oBlockData = entry.getAppliedBlockData(rollback);
+            if (oLocation.isPresent() && oBlockData.isPresent()) {
+                Location location = oLocation.get();
+                collapsed.put(new Location(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ()),
+                        oBlockData.get());
+            }
+        }
+
+        Map<Location, Map<Location, BlockData>> byChunk = Maps.newLinkedHashMap();
+        collapsed.forEach((location, blockData) -> byChunk
+                .computeIfAbsent(chunkOrigin(location), origin -> Maps.newLinkedHashMap())
+                .put(location, blockData));
+
+        return new RollbackPreview(session, actionables, Lists.newArrayList(byChunk.values()), collapsed.size());
+    }
+
+    /**
+     * Removes the pending preview of a player without hiding it.
+     *
+     * @param owner The player who made the preview
+     * @return The preview, if the player had one
+     */
+    public static Optional<RollbackPreview> remove(UUID owner) {
+        RollbackPreview preview = previews.remove(owner);
+        if (preview != null) {
+            preview.stopSending();
+            preview.stopExpiry();
+        }
+        return Optional.ofNullable(preview);
+    }
+
+    /**
+     * Starts sending this preview to the player, replacing any preview they already had.
+     *
+     * @param player The player to show the preview to
+     */
+    public void show(Player player) {
+        remove(player.getUniqueId()).ifPresent(previous -> previous.hide(player));
+        previews.put(player.getUniqueId(), this);
+        send(player, true);
+        expiryTask = Bukkit.getScheduler().runTaskLater(Omniscience.getPluginInstance(), () -> {
+            if (!previews.remove(player.getUniqueId(), this)) {
+                return;
+            }
+            stopSending();
+            if (player.isOnline()) {
+                hide(player);
+                player.sendMessage(Formatter.error("Your preview expired without being confirmed and was discarded."));
+            }
+        }, Math.max(1, OmniConfig.INSTANCE.getPreviewTimeout()) * 20L);
+    }
+
+    /**
+     * Sends the real blocks back to the player for every position this preview covered.
+     *
+     * @param player The player the preview was shown to
+     */
+    public void hide(Player player) {
+        stopSending();
+        send(player, false);
+    }
+
+    public QuerySession getSession() {
+        return session;
+    }
+
+    public ImmutableList<Actionable> getActionables() {
+        return actionables;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    private synchronized void send(Player player, boolean fake) {
+        List<Map<Location, BlockData>> ordered = Lists.newArrayList(chunks);
+        //Nearest chunks first so the area the player is looking at fills in before the rest
+        Location eye = player.getLocation();
+        ordered.sort(Comparator.comparingDouble(chunk -> distanceSquared(eye, chunk.keySet().iterator().next())));
+        Iterator<Map<Location, BlockData>> iterator = ordered.iterator();
+
+        sendTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!player.isOnline()) {
+                    previews.remove(player.getUniqueId(), RollbackPreview.this);
+                    cancel();
+                    return;
+                }
+                int chunksPerTick = Math.max(1, OmniConfig.INSTANCE.getPreviewChunksPerTick());
+                for (int i = 0; i < chunksPerTick && iterator.hasNext(); i++) {
+                    sendChunk(player, iterator.next(), fake);
+                }
+                if (!iterator.hasNext()) {
+                    cancel();
+                }
+            }
+        }.runTaskTimer(Omniscience.getPluginInstance(), 0L, 1L);
+    }
+
+    private synchronized void stopSending() {
+        if (sendTask != null && !sendTask.isCancelled()) {
+            sendTask.cancel();
+        }
+    }
+
+    private synchronized void stopExpiry() {
+        if (expiryTask != null && !expiryTask.isCancelled()) {
+            expiryTask.cancel();
+        }
+    }
+
+    private static void sendChunk(Player player, Map<Location, BlockData> chunk, boolean fake) {
+        Location any = chunk.keySet().iterator().next();
+        //A chunk the server doesn't have loaded is not loaded by the client either
+        if (any.getWorld() == null || !player.getWorld().equals(any.getWorld())
+                || !any.getWorld().isChunkLoaded(any.getBlockX() >> 4, any.getBlockZ() >> 4)) {
+            return;
+        }
+        chunk.forEach((location, blockData) -> player.sendBlockChange(location,
+                fake ? blockData : location.getBlock().getBlockData()));
+    }
+
+    private static Location chunkOrigin(Location location) {
+        return new Location(location.getWorld(), (location.getBlockX() >> 4) << 4, 0, (location.getBlockZ() >> 4) << 4);
+    }
+
+    private static double distanceSquared(Location from, Location to) {
+        if (from.getWorld() == null || !from.getWorld().equals(to.getWorld())) {
+            return Double.MAX_VALUE;
+        }
+        return from.distanceSquared(to);
+    }
+}
@@ -1,11 +1,20 @@
 package io.github.warhead501.omniscience.command.util;
 
 import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.api.parameter.ParameterException;
 import io.github.warhead501.omniscience.api.parameter.ParameterHandler;
 import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.command.result.CommandResult;
+import org.bukkit.command.CommandSender;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Stream;
 
 public final class SearchParameterHelper {
@@ -67,4 +76,49 @@ public final class SearchParameterHelper {
 
         return results;
     }
+
+    /**
+     * Reads the parameters of a command that goes through every record they match in the background, such as a purge or
+     * an export. Only what was asked for is matched, defaults like a radius around the sender don't apply.
+     *
+     * @param action     What the records are matched for, shown in errors, e.g. "purge"
+     * @param parameters The parameters given to the command
+     * @param everything Whether parameters that match every record are accepted
+     * @param start      Starts the command with the conditions once they are read. The message of a RuntimeException
+     *                   it throws is sent to the sender.
+     * @return A failure if the parameters couldn't be read right away. Later failures are sent to the sender.
+     */
+    public static CommandResult parseConditions(CommandSender sender, String action, String[] parameters, boolean everything, Consumer<List<SearchCondition>> start) {
+        final QuerySession session = new QuerySession(sender);
+        for (ParameterHandler handler : Omniscience.getParameters()) {
+            session.addIgnoredDefault(handler);
+        }
+        String description = String.join(" ", parameters);
+        try {
+            session.newQueryFromArguments(parameters).thenAccept(ignored -> {
+                List<SearchCondition> conditions = session.getQuery().getSearchCriteria();
+                if (conditions.isEmpty() && !everything) {
+                    sender.sendMessage(Formatter.error("These parameters match every record. Add parameters to choose which records to " + action + "."));
+                    return;
+                }
+                try {
+                    start.accept(conditions);
+                } catch (RuntimeException e) {
+                    sender.sendMessage(Formatter.error(e.getMessage()));
+                }
+            }).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to read the " + action + " parameters " + description, cause);
+                sender.sendMessage(Formatter.error("Failed to read the " + action + " parameters: " + cause.getMessage()));
+                return null;
+            });
+        } catch (ParameterException e) {
+            return CommandResult.failure(e.getMessage());
+        } catch (Exception ex) {
+            String message = ex.getMessage() == null ? "An unknown error occurred while running this command. Please check console." : ex.getMessage();
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to read the " + action + " parameters " + description, ex);
+            return CommandResult.failure(message);
+        }
+        return CommandResult.success();
+    }
 }
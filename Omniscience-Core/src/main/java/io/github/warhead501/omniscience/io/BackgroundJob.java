@@ -0,0 +1,160 @@
+package io.github.warhead501.omniscience.io;
+
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Runs one long task at a time on a thread of its own, such as a purge or an export, so it never holds up writing or
+ * looking up records. Whoever started the task is told how it goes, and so is the console.
+ *
+ * @param <P> What the tasks keep track of while running
+ */
+public final class BackgroundJob<P extends BackgroundJob.Progress> {
+
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final ExecutorService executor;
+    private volatile P running;
+
+    /**
+     * @param threadName The name of the thread tasks run on
+     */
+    public BackgroundJob(String threadName) {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * @return The progress of the running task
+     */
+    public Optional<P> getRunning() {
+        return Optional.ofNullable(running);
+    }
+
+    /**
+     * Runs the task once the job's thread is free. Only one task should be started at a time, check
+     * {@link #isRunning()} first.
+     *
+     * @param sender   Who started the task, and is told if it fails
+     * @param progress What the task keeps track of
+     * @param task     The task
+     * @param failed   Gives the message logged and sent when the task throws
+     */
+    public void run(CommandSender sender, P progress, Task task, Function<Exception, String> failed) {
+        running = progress;
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                String message = failed.apply(e);
+                Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, message, e);
+                tell(sender, Formatter.error(message));
+            } finally {
+                running = null;
+            }
+        });
+    }
+
+    /**
+     * Stops the running task after its current batch.
+     *
+     * @return false if no task was running
+     */
+    public boolean stop() {
+        Progress progress = running;
+        if (progress == null) {
+            return false;
+        }
+        progress.stopped = true;
+        return true;
+    }
+
+    /**
+     * Stops the running task and waits shortly for its current batch to finish.
+     */
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Logs the message, and sends it to the sender if they are a player that is still online.
+     */
+    public static void report(CommandSender sender, String message) {
+        Omniscience.getPluginInstance().getLogger().info(ChatColor.stripColor(message));
+        tell(sender, message);
+    }
+
+    private static void tell(CommandSender sender, String message) {
+        if (!(sender instanceof Player) || !Omniscience.getPluginInstance().isEnabled()) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(Omniscience.getPluginInstance(), () -> {
+            if (((Player) sender).isOnline()) {
+                sender.sendMessage(message);
+            }
+        });
+    }
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * What a running task keeps track of. Subclasses add how far the task got.
+     */
+    public static class Progress {
+        private final String description;
+        private volatile boolean stopped;
+        private long lastReport = System.currentTimeMillis();
+
+        protected Progress(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Only called from the task itself.
+         *
+         * @return Whether enough time passed since the last report to tell how the task is going again
+         */
+        public boolean isReportDue() {
+            long now = System.currentTimeMillis();
+            if (now - lastReport < REPORT_INTERVAL) {
+                return false;
+            }
+            lastReport = now;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Collects when each of the given positions last had its block changed, for storage that reads the records itself
+ * instead of having the database look them up. Only records within {@link #getBounds()} have to be read.
+ */
+public final class BlockChanges {
+
+    private final Set<BlockPosition> wanted;
+    private final ScanBounds bounds;
+    private final RecordMatcher matcher;
+    private final Map<BlockPosition, Date> latest = Maps.newHashMap();
+
+    /**
+     * @param positions The positions to check, at least one
+     * @param after     Only changes newer than this are collected
+     */
+    public BlockChanges(Collection<BlockPosition> positions, Date after) {
+        this.wanted = positions instanceof Set ? (Set<BlockPosition>) positions : Sets.newHashSet(positions);
+
+        List<String> worlds = Lists.newArrayList();
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPosition position : wanted) {
+            if (!worlds.contains(position.getWorld().toString())) {
+                worlds.add(position.getWorld().toString());
+            }
+            minX = Math.min(minX, position.getX());
+            minZ = Math.min(minZ, position.getZ());
+            maxX = Math.max(maxX, position.getX());
+            maxZ = Math.max(maxZ, position.getZ());
+        }
+        List<SearchCondition> conditions = Lists.newArrayList(
+                FieldCondition.of(DataKeys.CREATED, MatchRule.GREATER_THAN_EQUAL, new Date(after.getTime() + 1)),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.WORLD), MatchRule.INCLUDES, worlds),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(minX, maxX)),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Z), Range.closed(minZ, maxZ)));
+        this.bounds = ScanBounds.from(conditions);
+        this.matcher = new RecordMatcher(conditions);
+    }
+
+    public ScanBounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Collects the record if it changed the block at one of the positions.
+     *
+     * @param created When the record was created
+     * @param body    The encoded record
+     * @return true, every record has to be looked at
+     */
+    public boolean visit(long created, ByteBuffer body) {
+        DataWrapper wrapper = RecordCodec.decode(body);
+        if (!matcher.matches(wrapper)
+                || !(wrapper.get(DataKeys.ORIGINAL_BLOCK).isPresent() || wrapper.get(DataKeys.NEW_BLOCK).isPresent())) {
+            return true;
+        }
+        Optional<Integer> x = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.X));
+        Optional<Integer> y = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Y));
+        Optional<Integer> z = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Z));
+        Optional<String> world = wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD));
+        if (x.isPresent() && y.isPresent() && z.isPresent() && world.isPresent()) {
+            BlockPosition position = new BlockPosition(UUID.fromString(world.get()), x.get(), y.get(), z.get());
+            if (wanted.contains(position)) {
+                add(position, new Date(created));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds changes found elsewhere, such as in another tier of the storage.
+     */
+    public void addAll(Map<BlockPosition, Date> changes) {
+        changes.forEach(this::add);
+    }
+
+    private void add(BlockPosition position, Date changed) {
+        latest.merge(position, changed, (a, b) -> a.after(b) ? a : b);
+    }
+
+    /**
+     * @return The time of the newest block change per position. Positions without a newer change are left out.
+     */
+    public Map<BlockPosition, Date> getLatest() {
+        return latest;
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.warhead501.omniscience.io;
+
+import io.github.warhead501.omniscience.Omniscience;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Wraps a storage that can't handle every lookup itself, completing its lookups with a {@link QueryPlanner}.
+ */
+final class PlannedStorageHandler implements StorageHandler {
+
+    private final StorageHandler storage;
+    private QueryPlanner planner;
+
+    PlannedStorageHandler(StorageHandler storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public boolean connect(Omniscience omniscience) throws Exception {
+        if (!storage.connect(omniscience)) {
+            return false;
+        }
+        this.planner = new QueryPlanner(storage.records(), storage.getCapabilities());
+        return true;
+    }
+
+    @Override
+    public RecordHandler records() {
+        return planner;
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    @Override
+    public Set<StorageCapability> getCapabilities() {
+        Set<StorageCapability> capabilities = EnumSet.of(StorageCapability.GROUPING, StorageCapability.TEXT_SEARCH, StorageCapability.SPATIAL_INDEX);
+        capabilities.addAll(storage.getCapabilities());
+        return capabilities;
+    }
+}
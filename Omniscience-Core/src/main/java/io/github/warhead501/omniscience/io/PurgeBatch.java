@@ -0,0 +1,34 @@
+package io.github.warhead501.omniscience.io;
+
+/**
+ * The outcome of deleting one batch of records during a purge.
+ */
+public final class PurgeBatch {
+
+    private final int deleted;
+    private final String next;
+
+    /**
+     * @param deleted The amount of records deleted
+     * @param next    Where the next batch continues, or null if there are no records left to look at
+     */
+    public PurgeBatch(int deleted, String next) {
+        this.deleted = deleted;
+        this.next = next;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return Where the next batch continues, to be passed back to {@link RecordHandler#purge}
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public boolean isDone() {
+        return next == null;
+    }
+}
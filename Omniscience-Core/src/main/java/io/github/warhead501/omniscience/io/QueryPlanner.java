@@ -0,0 +1,192 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+import io.github.warhead501.omniscience.io.archive.ArchiveStore;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import static io.github.warhead501.omniscience.api.data.DataKeys.LOCATION;
+
+/**
+ * Completes the lookups of a storage that can't handle every condition or grouping itself.
+ * <p>
+ * The conditions the storage supports are passed on to it, the others are checked here on the records it returns, and
+ * grouping is done here like {@link RecordResults} does for the storage that filters records itself. Storage that can
+ * stream records is read in full through {@link RecordHandler#export}, so nothing is missed. Other storage is asked for
+ * the usual amount of records, of which some may not match, so a lookup can come back with fewer results than exist.
+ * </p>
+ */
+final class QueryPlanner implements RecordHandler {
+
+    private static final Set<DataKey> COORDINATES = ImmutableSet.of(LOCATION.then(DataKeys.X), LOCATION.then(DataKeys.Y), LOCATION.then(DataKeys.Z));
+
+    private final RecordHandler records;
+    private final Set<StorageCapability> capabilities;
+
+    QueryPlanner(RecordHandler records, Set<StorageCapability> capabilities) {
+        this.records = records;
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * @return Whether storage with these capabilities needs lookups completed in memory
+     */
+    static boolean isNeeded(Set<StorageCapability> capabilities) {
+        return !capabilities.contains(StorageCapability.GROUPING)
+                || !capabilities.contains(StorageCapability.TEXT_SEARCH)
+                || !capabilities.contains(StorageCapability.SPATIAL_INDEX);
+    }
+
+    @Override
+    public CompletableFuture<Void> write(List<DataWrapper> wrappers) {
+        return records.write(wrappers);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeItems(Map<String, String> items) {
+        return records.writeItems(items);
+    }
+
+    @Override
+    public CompletableFuture<List<DataEntry>> query(QuerySession session) throws Exception {
+        Query query = session.getQuery();
+        List<SearchCondition> supported = Lists.newArrayList();
+        List<SearchCondition> remaining = Lists.newArrayList();
+        split(query.getSearchCriteria(), supported, remaining);
+        boolean grouped = !session.hasFlag(Flag.NO_GROUP);
+        if (remaining.isEmpty() && (!grouped || capabilities.contains(StorageCapability.GROUPING))) {
+            return records.query(session);
+        }
+
+        Omniscience.logDebug("Query Planner: " + supported.size() + " conditions passed on, " + remaining.size() + " checked in memory"
+                + (grouped ? ", grouped in memory" : ""));
+        RecordMatcher matcher = new RecordMatcher(remaining);
+        RecordResults results = new RecordResults(grouped, session.getSortOrder() == QuerySession.Sort.NEWEST_FIRST, query.getSearchLimit());
+        if (capabilities.contains(StorageCapability.STREAMING)) {
+            int batchSize = Math.max(1, OmniConfig.INSTANCE.getTransferBatchSize());
+            String after = null;
+            do {
+                RecordBatch batch = records.export(supported, after, batchSize);
+                for (DataWrapper wrapper : batch.getRecords()) {
+                    add(results, matcher, wrapper);
+                }
+                after = batch.getNext();
+            } while (after != null);
+            return CompletableFuture.completedFuture(results.toEntries());
+        }
+
+        //Single records are asked for, so nothing is lost to grouping before the other conditions are checked
+        QuerySession narrowed = new QuerySession(session.getSender());
+        session.getFlags().forEach(narrowed::addFlag);
+        if (!narrowed.hasFlag(Flag.NO_GROUP)) {
+            narrowed.addFlag(Flag.NO_GROUP);
+        }
+        narrowed.setSortOrder(session.getSortOrder());
+        narrowed.setRadius(session.getRadius());
+        Query narrowedQuery = narrowed.newQuery();
+        narrowedQuery.setSearchCriteria(supported);
+        narrowedQuery.setSearchLimit(query.getSearchLimit());
+        return records.query(narrowed).thenApply(entries -> {
+            for (DataEntry entry : entries) {
+                add(results, matcher, entry.data);
+            }
+            return results.toEntries();
+        });
+    }
+
+    private static void add(RecordResults results, RecordMatcher matcher, DataWrapper wrapper) {
+        long created = wrapper.get(DataKeys.CREATED)
+                .filter(Date.class::isInstance)
+                .map(date -> ((Date) date).getTime())
+                .orElse(0L);
+        if (results.wants(created) && matcher.matches(wrapper)) {
+            results.add(created, wrapper);
+        }
+    }
+
+    private void split(List<SearchCondition> conditions, List<SearchCondition> supported, List<SearchCondition> remaining) {
+        for (SearchCondition condition : conditions) {
+            (supports(condition) ? supported : remaining).add(condition);
+        }
+    }
+
+    private boolean supports(SearchCondition condition) {
+        if (condition instanceof SearchConditionGroup) {
+            for (SearchCondition inner : ((SearchConditionGroup) condition).getConditions()) {
+                if (!supports(inner)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        FieldCondition field = (FieldCondition) condition;
+        if (!capabilities.contains(StorageCapability.TEXT_SEARCH) && isPattern(field.getValue())) {
+            return false;
+        }
+        return capabilities.contains(StorageCapability.SPATIAL_INDEX) || !COORDINATES.contains(field.getField());
+    }
+
+    private static boolean isPattern(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().anyMatch(Pattern.class::isInstance);
+        }
+        return value instanceof Pattern;
+    }
+
+    @Override
+    public CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) throws Exception {
+        return records.getLatestBlockChanges(positions, after);
+    }
+
+    /**
+     * Passed on as it is, the storage has to check every condition of a purge itself to know what to delete.
+     */
+    @Override
+    public PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) throws Exception {
+        return records.purge(conditions, after, limit);
+    }
+
+    @Override
+    public PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) throws Exception {
+        return records.archive(conditions, after, limit, archive);
+    }
+
+    @Override
+    public RecordBatch export(List<SearchCondition> conditions, String after, int limit) throws Exception {
+        List<SearchCondition> supported = Lists.newArrayList();
+        List<SearchCondition> remaining = Lists.newArrayList();
+        split(conditions, supported, remaining);
+        RecordBatch batch = records.export(supported, after, limit);
+        if (remaining.isEmpty()) {
+            return batch;
+        }
+        RecordMatcher matcher = new RecordMatcher(remaining);
+        List<DataWrapper> matching = Lists.newArrayList();
+        for (DataWrapper wrapper : batch.getRecords()) {
+            if (matcher.matches(wrapper)) {
+                matching.add(wrapper);
+            }
+        }
+        return new RecordBatch(matching, batch.getNext());
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.warhead501.omniscience.io;
+
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+
+import java.util.List;
+
+/**
+ * One batch of records read during an export.
+ */
+public final class RecordBatch {
+
+    private final List<DataWrapper> records;
+    private final String next;
+
+    /**
+     * @param records The records read, with the items they refer to in place
+     * @param next    Where the next batch continues, or null if there are no records left to look at
+     */
+    public RecordBatch(List<DataWrapper> records, String next) {
+        this.records = records;
+        this.next = next;
+    }
+
+    public List<DataWrapper> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Where the next batch continues, to be passed back to {@link RecordHandler#export}
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public boolean isDone() {
+        return next == null;
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.github.warhead501.omniscience.api.OmniApi;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Turns records into a compact tagged binary form and back.
+ * <p>
+ * Every value starts with a one byte tag. Strings are written as their UTF-8 length and bytes, wrappers and maps as their
+ * size followed by their keys and values, so nothing but the values themselves and their names is stored.
+ * </p>
+ */
+public final class RecordCodec {
+
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte DATE = 7;
+    private static final byte BYTES = 8;
+    private static final byte LIST = 9;
+    private static final byte WRAPPER = 10;
+    private static final byte MAP = 11;
+    private static final byte SHORT = 12;
+    private static final byte BYTE = 13;
+
+    private RecordCodec() {
+    }
+
+    public static byte[] encode(DataWrapper wrapper) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeWrapper(out, wrapper);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static DataWrapper decode(ByteBuffer buffer) {
+        return readWrapper(buffer);
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeWrapper(DataOutputStream out, DataWrapper wrapper) throws IOException {
+        out.writeInt(wrapper.getKeys(false).size());
+        for (DataKey key : wrapper.getKeys(false)) {
+            Optional<Object> value = wrapper.get(key);
+            writeString(out, key.toString());
+            writeValue(out, value.orElse(""));
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (value instanceof DataWrapper) {
+            out.writeByte(WRAPPER);
+            writeWrapper(out, (DataWrapper) value);
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            out.writeInt(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            out.writeByte(LIST);
+            out.writeInt(((Collection<?>) value).size());
+            for (Object inner : (Collection<?>) value) {
+                writeValue(out, inner);
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.writeByte(LIST);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i));
+            }
+        } else {
+            OmniApi.warning("Unsupported Data Type: " + value.getClass().getName() + ", storing it as text");
+            out.writeByte(STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static DataWrapper readWrapper(ByteBuffer buffer) {
+        DataWrapper wrapper = DataWrapper.createNew();
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            DataKey key = DataKey.of(readString(buffer));
+            wrapper.set(key, readValue(buffer));
+        }
+        return wrapper;
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case STRING:
+                return readString(buffer);
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case SHORT:
+                return buffer.getShort();
+            case BYTE:
+                return buffer.get();
+            case DATE:
+                return new Date(buffer.getLong());
+            case BYTES:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return bytes;
+            case WRAPPER:
+                return readWrapper(buffer);
+            case MAP:
+                int mapSize = buffer.getInt();
+                ImmutableMap.Builder<String, Object> map = ImmutableMap.builder();
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readString(buffer), readValue(buffer));
+                }
+                return map.build();
+            case LIST:
+                int listSize = buffer.getInt();
+                ImmutableList.Builder<Object> list = ImmutableList.builder();
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(buffer));
+                }
+                return list.build();
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag + " at " + (buffer.position() - 1));
+        }
+    }
+}
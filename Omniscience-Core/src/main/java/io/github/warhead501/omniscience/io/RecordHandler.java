@@ -1,16 +1,82 @@
 package io.github.warhead501.omniscience.io;
 
+import io.github.warhead501.omniscience.api.data.BlockPosition;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
 import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.io.archive.ArchiveStore;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public interface RecordHandler {
 
-    void write(List<DataWrapper> wrappers);
+    /**
+     * Stores records. The storage may write them in the background.
+     *
+     * @param wrappers The records to store
+     * @return Completes once the records are stored, or exceptionally if storing them failed
+     */
+    CompletableFuture<Void> write(List<DataWrapper> wrappers);
+
+    /**
+     * Stores the items that records refer to by hash. Items that are already stored are left as they are.
+     *
+     * @param items The serialized items, by hash
+     * @return Completes once the items are stored, or exceptionally if storing them failed
+     */
+    CompletableFuture<Void> writeItems(Map<String, String> items);
 
     CompletableFuture<List<DataEntry>> query(QuerySession session) throws Exception;
 
+    /**
+     * Finds when each of the given positions last had its block changed, in a single batched lookup.
+     *
+     * @param positions The positions to check
+     * @param after     Only changes newer than this are considered
+     * @return The time of the newest block change per position. Positions without a newer change are left out.
+     */
+    CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) throws Exception;
+
+    /**
+     * Deletes one batch of the records matching the conditions. Records are gone through in a fixed order, so a purge
+     * can continue where its last batch stopped, even after a restart. Only called on storages with
+     * {@link StorageCapability#PURGE}.
+     *
+     * @param conditions The conditions records have to match
+     * @param after      Where the previous batch stopped, or null to start at the beginning
+     * @param limit      The most records to look at in this batch
+     * @return The amount of records deleted, and where the next batch continues
+     */
+    PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) throws Exception;
+
+    /**
+     * Moves one batch of the records matching the conditions into the archive, going through records like
+     * {@link #purge}. Records are only deleted once the archive stored them, with the items they refer to in place.
+     * Only called on storages with {@link StorageCapability#ARCHIVE}.
+     *
+     * @param conditions The conditions records have to match
+     * @param after      Where the previous batch stopped, or null to start at the beginning
+     * @param limit      The most records to move in this batch
+     * @param archive    Where the records are moved to
+     * @return The amount of records moved, and where the next batch continues
+     */
+    PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) throws Exception;
+
+    /**
+     * Reads one batch of the records matching the conditions, going through records like {@link #purge}. A batch can
+     * hold fewer records than the limit, or none, without being the last. Only called on storages with
+     * {@link StorageCapability#STREAMING}.
+     *
+     * @param conditions The conditions records have to match
+     * @param after      Where the previous batch stopped, or null to start at the beginning
+     * @param limit      The most records to look at in this batch
+     * @return The matching records, with the items they refer to in place, and where the next batch continues
+     */
+    RecordBatch export(List<SearchCondition> conditions, String after, int limit) throws Exception;
+
 }
@@ -0,0 +1,127 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Checks records against the conditions of a lookup, with the same meaning the conditions have in MongoDB: patterns
+ * match anywhere in a value, lists match if any of their values match, and ranges include both of their endpoints.
+ */
+public final class RecordMatcher {
+
+    private final List<SearchCondition> conditions;
+
+    public RecordMatcher(List<SearchCondition> conditions) {
+        this.conditions = conditions;
+    }
+
+    public boolean matches(DataWrapper wrapper) {
+        return matchesAll(conditions, wrapper);
+    }
+
+    private static boolean matchesAll(List<SearchCondition> conditions, DataWrapper wrapper) {
+        for (SearchCondition condition : conditions) {
+            if (!matches(condition, wrapper)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(SearchCondition condition, DataWrapper wrapper) {
+        if (condition instanceof SearchConditionGroup) {
+            SearchConditionGroup group = (SearchConditionGroup) condition;
+            if (group.getOperator() == SearchConditionGroup.Operator.OR) {
+                for (SearchCondition inner : group.getConditions()) {
+                    if (matches(inner, wrapper)) {
+                        return true;
+                    }
+                }
+                return group.getConditions().isEmpty();
+            }
+            return matchesAll(group.getConditions(), wrapper);
+        }
+
+        FieldCondition field = (FieldCondition) condition;
+        Optional<Object> oActual = wrapper.get(field.getField());
+        Object expected = field.getValue();
+        if (expected instanceof List) {
+            boolean found = oActual.isPresent() && ((List<?>) expected).stream().anyMatch(value -> valueEquals(oActual.get(), value));
+            return field.getRule() == MatchRule.EXCLUDES ? !found : found;
+        }
+        switch (field.getRule()) {
+            case EXISTS:
+                return oActual.isPresent() == Boolean.TRUE.equals(expected);
+            case EQUALS:
+            case INCLUDES:
+                return oActual.isPresent() && valueEquals(oActual.get(), expected);
+            case EXCLUDES:
+                return !oActual.isPresent() || !valueEquals(oActual.get(), expected);
+            case GREATER_THAN_EQUAL:
+                return oActual.isPresent() && atLeast(oActual.get(), expected);
+            case LESS_THAN_EQUAL:
+                return oActual.isPresent() && atMost(oActual.get(), expected);
+            case BETWEEN:
+                if (!(expected instanceof Range)) {
+                    throw new IllegalArgumentException("Between matcher requires a value range");
+                }
+                Range<?> range = (Range<?>) expected;
+                return oActual.isPresent()
+                        && (!range.hasLowerBound() || atLeast(oActual.get(), range.lowerEndpoint()))
+                        && (!range.hasUpperBound() || atMost(oActual.get(), range.upperEndpoint()));
+            default:
+                return false;
+        }
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual instanceof Collection) {
+            return ((Collection<?>) actual).stream().anyMatch(value -> valueEquals(value, expected));
+        }
+        if (expected instanceof Pattern) {
+            return actual instanceof String && ((Pattern) expected).matcher((String) actual).find();
+        }
+        if (actual instanceof Number && expected instanceof Number) {
+            return ((Number) actual).doubleValue() == ((Number) expected).doubleValue();
+        }
+        return Objects.equals(actual, expected);
+    }
+
+    private static boolean atLeast(Object actual, Object expected) {
+        Integer compared = compare(actual, expected);
+        return compared != null && compared >= 0;
+    }
+
+    private static boolean atMost(Object actual, Object expected) {
+        Integer compared = compare(actual, expected);
+        return compared != null && compared <= 0;
+    }
+
+    /**
+     * @return The order of the values, or null if they can't be compared
+     */
+    @SuppressWarnings("unchecked")
+    private static Integer compare(Object actual, Object expected) {
+        if (actual instanceof Number && expected instanceof Number) {
+            return Double.compare(((Number) actual).doubleValue(), ((Number) expected).doubleValue());
+        }
+        if (actual instanceof Date && expected instanceof Date) {
+            return ((Date) actual).compareTo((Date) expected);
+        }
+        if (actual instanceof Comparable && actual.getClass().isInstance(expected)) {
+            return ((Comparable<Object>) actual).compareTo(expected);
+        }
+        return null;
+    }
+}
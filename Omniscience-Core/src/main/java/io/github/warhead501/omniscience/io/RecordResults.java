@@ -0,0 +1,193 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataAggregateEntry;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * Collects the records matching a lookup into the entries shown for it, for storage that filters records itself
+ * instead of having the database do it. Either keeps the first records by time, or counts the records per event,
+ * source, target and day like the grouped lookups of MongoDB.
+ * <p>
+ * Records can be added from several threads at once.
+ * </p>
+ */
+public final class RecordResults {
+
+    private static final DataKey[] GROUP_KEYS = {DataKeys.EVENT_NAME, DataKeys.PLAYER_ID, DataKeys.CAUSE, DataKeys.TARGET, DataKeys.ENTITY_TYPE};
+
+    private final boolean grouped;
+    private final boolean newestFirst;
+    private final int limit;
+    private final Comparator<Found> order;
+    //Holds the best records so far, with the one that would be dropped first on top
+    private final PriorityQueue<Found> best;
+    private final Map<List<Object>, Group> groups = Maps.newHashMap();
+    private final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    public RecordResults(boolean grouped, boolean newestFirst, int limit) {
+        this.grouped = grouped;
+        this.newestFirst = newestFirst;
+        this.limit = limit;
+        Comparator<Found> order = Comparator.comparingLong(found -> found.created);
+        this.order = newestFirst ? order.reversed() : order;
+        this.best = new PriorityQueue<>(this.order.reversed());
+    }
+
+    /**
+     * @param created When a record was created
+     * @return false if a record created then can't be part of the results anymore, so it doesn't have to be read
+     */
+    public synchronized boolean wants(long created) {
+        return grouped || best.size() < limit || (!best.isEmpty() && isBefore(created, best.peek().created));
+    }
+
+    /**
+     * @return true if no record created after the ones added so far can be part of the results anymore
+     */
+    public synchronized boolean isFull() {
+        return !grouped && best.size() >= limit;
+    }
+
+    /**
+     * @param created When the record was created
+     * @param wrapper A record that matches the lookup
+     */
+    public synchronized void add(long created, DataWrapper wrapper) {
+        if (!grouped) {
+            if (wants(created)) {
+                best.add(new Found(created, wrapper));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            return;
+        }
+        calendar.setTimeInMillis(created);
+        List<Object> key = Lists.newArrayListWithCapacity(GROUP_KEYS.length + 3);
+        for (DataKey groupKey : GROUP_KEYS) {
+            key.add(wrapper.get(groupKey).orElse(null));
+        }
+        key.add(calendar.get(Calendar.DAY_OF_MONTH));
+        key.add(calendar.get(Calendar.MONTH) + 1);
+        key.add(calendar.get(Calendar.YEAR));
+
+        Group group = groups.computeIfAbsent(key, k -> new Group(created));
+        if (isBefore(created, group.created)) {
+            group.created = created;
+        }
+        Object count = wrapper.get(DataKeys.COUNT).orElse(1);
+        group.count += count instanceof Number ? ((Number) count).intValue() : 1;
+    }
+
+    /**
+     * @return The entries of the records that were added, in the order of the lookup
+     */
+    public synchronized List<DataEntry> toEntries() {
+        return grouped ? groupEntries() : recordEntries();
+    }
+
+    private List<DataEntry> recordEntries() {
+        List<Found> sorted = Lists.newArrayList(best);
+        sorted.sort(order);
+        List<DataEntry> entries = Lists.newArrayListWithCapacity(sorted.size());
+        for (Found found : sorted) {
+            DataWrapper wrapper = found.wrapper;
+            DataEntry entry = DataEntry.from(wrapper.getString(DataKeys.EVENT_NAME).orElse(""), false);
+            setCause(wrapper);
+            entry.data = wrapper;
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private List<DataEntry> groupEntries() {
+        List<Map.Entry<List<Object>, Group>> sorted = Lists.newArrayList(groups.entrySet());
+        Comparator<Map.Entry<List<Object>, Group>> order = Comparator.comparingLong(group -> group.getValue().created);
+        sorted.sort(newestFirst ? order.reversed() : order);
+
+        List<DataEntry> entries = Lists.newArrayList();
+        for (Map.Entry<List<Object>, Group> group : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            List<Object> key = group.getKey();
+            DataWrapper wrapper = DataWrapper.createNew();
+            for (int i = 0; i < GROUP_KEYS.length; i++) {
+                if (key.get(i) != null) {
+                    wrapper.set(GROUP_KEYS[i], key.get(i));
+                }
+            }
+            int day = (Integer) key.get(GROUP_KEYS.length);
+            int month = (Integer) key.get(GROUP_KEYS.length + 1);
+            int year = (Integer) key.get(GROUP_KEYS.length + 2);
+            wrapper.set(DataKey.of("dayOfMonth"), day);
+            wrapper.set(DataKey.of("month"), month);
+            wrapper.set(DataKey.of("year"), year);
+            wrapper.set(DataKeys.COUNT, group.getValue().count);
+
+            DataEntry entry = DataEntry.from(wrapper.getString(DataKeys.EVENT_NAME).orElse(""), true);
+            if (entry instanceof DataAggregateEntry) {
+                Calendar date = GregorianCalendar.getInstance();
+                date.set(Calendar.YEAR, year);
+                date.set(Calendar.MONTH, month - 1); //Subtract 1 because it's 0 through 11 for the months
+                date.set(Calendar.DAY_OF_MONTH, day);
+                date.set(Calendar.SECOND, 0);
+                date.set(Calendar.MINUTE, 0);
+                date.set(Calendar.HOUR, 0);
+                date.set(Calendar.MILLISECOND, 0);
+                ((DataAggregateEntry) entry).setDate(date);
+            }
+            setCause(wrapper);
+            entry.data = wrapper;
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private boolean isBefore(long created, long other) {
+        return newestFirst ? created > other : created < other;
+    }
+
+    private static void setCause(DataWrapper wrapper) {
+        wrapper.getString(DataKeys.PLAYER_ID).ifPresent(uuid -> {
+            OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(uuid));
+            if (player.getName() != null) {
+                wrapper.set(DataKeys.CAUSE, player.getName());
+            } else {
+                wrapper.set(DataKeys.CAUSE, uuid);
+            }
+        });
+    }
+
+    private static final class Found {
+        private final long created;
+        private final DataWrapper wrapper;
+
+        private Found(long created, DataWrapper wrapper) {
+            this.created = created;
+            this.wrapper = wrapper;
+        }
+    }
+
+    private static final class Group {
+        private long created;
+        private int count;
+
+        private Group(long created) {
+            this.created = created;
+        }
+    }
+}
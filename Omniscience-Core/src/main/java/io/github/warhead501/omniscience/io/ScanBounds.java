@@ -0,0 +1,232 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The span of time, worlds, area, players and events a lookup is limited to, taken from the conditions every record has
+ * to match. Storage uses these to only read the parts that can hold matching records. Conditions that can't narrow a
+ * lookup down, such as anything within an {@code OR} group, are left to {@link RecordMatcher}.
+ */
+public final class ScanBounds {
+
+    private static final DataKey WORLD = DataKeys.LOCATION.then(DataKeys.WORLD);
+    private static final DataKey X = DataKeys.LOCATION.then(DataKeys.X);
+    private static final DataKey Z = DataKeys.LOCATION.then(DataKeys.Z);
+    //What DataHelper#compileUserInput makes of input without wildcards
+    private static final Pattern LITERAL = Pattern.compile("\\(((?:\\\\.|[^\\\\.*+?\\[\\](){}^$|])*)\\)");
+
+    private long minCreated = Long.MIN_VALUE;
+    private long maxCreated = Long.MAX_VALUE;
+    private Set<String> worlds;
+    private Set<String> players;
+    private Set<String> events;
+    private int minX = Integer.MIN_VALUE;
+    private int maxX = Integer.MAX_VALUE;
+    private int minZ = Integer.MIN_VALUE;
+    private int maxZ = Integer.MAX_VALUE;
+
+    public static ScanBounds from(List<SearchCondition> conditions) {
+        ScanBounds bounds = new ScanBounds();
+        bounds.add(conditions);
+        return bounds;
+    }
+
+    private void add(List<SearchCondition> conditions) {
+        for (SearchCondition condition : conditions) {
+            if (condition instanceof SearchConditionGroup) {
+                SearchConditionGroup group = (SearchConditionGroup) condition;
+                if (group.getOperator() == SearchConditionGroup.Operator.AND) {
+                    add(group.getConditions());
+                }
+            } else {
+                add((FieldCondition) condition);
+            }
+        }
+    }
+
+    private void add(FieldCondition condition) {
+        DataKey field = condition.getField();
+        MatchRule rule = condition.getRule();
+        Object value = condition.getValue();
+        if (field.equals(DataKeys.CREATED)) {
+            if (value instanceof Range) {
+                Range<?> range = (Range<?>) value;
+                if (range.hasLowerBound() && range.lowerEndpoint() instanceof Date) {
+                    minCreated = Math.max(minCreated, ((Date) range.lowerEndpoint()).getTime());
+                }
+                if (range.hasUpperBound() && range.upperEndpoint() instanceof Date) {
+                    maxCreated = Math.min(maxCreated, ((Date) range.upperEndpoint()).getTime());
+                }
+            } else if (value instanceof Date) {
+                long time = ((Date) value).getTime();
+                if (rule == MatchRule.GREATER_THAN_EQUAL || rule == MatchRule.EQUALS) {
+                    minCreated = Math.max(minCreated, time);
+                }
+                if (rule == MatchRule.LESS_THAN_EQUAL || rule == MatchRule.EQUALS) {
+                    maxCreated = Math.min(maxCreated, time);
+                }
+            }
+        } else if (field.equals(WORLD)) {
+            worlds = narrow(worlds, rule, value, false);
+        } else if (field.equals(DataKeys.PLAYER_ID)) {
+            players = narrow(players, rule, value, false);
+        } else if (field.equals(DataKeys.EVENT_NAME)) {
+            events = narrow(events, rule, value, true);
+        } else if (field.equals(X) || field.equals(Z)) {
+            int lower = Integer.MIN_VALUE;
+            int upper = Integer.MAX_VALUE;
+            if (value instanceof Range) {
+                Range<?> range = (Range<?>) value;
+                if (range.hasLowerBound() && range.lowerEndpoint() instanceof Number) {
+                    lower = ((Number) range.lowerEndpoint()).intValue();
+                }
+                if (range.hasUpperBound() && range.upperEndpoint() instanceof Number) {
+                    upper = ((Number) range.upperEndpoint()).intValue();
+                }
+            } else if (value instanceof Number) {
+                int coordinate = ((Number) value).intValue();
+                if (rule == MatchRule.GREATER_THAN_EQUAL || rule == MatchRule.EQUALS) {
+                    lower = coordinate;
+                }
+                if (rule == MatchRule.LESS_THAN_EQUAL || rule == MatchRule.EQUALS) {
+                    upper = coordinate;
+                }
+            }
+            if (field.equals(X)) {
+                minX = Math.max(minX, lower);
+                maxX = Math.min(maxX, upper);
+            } else {
+                minZ = Math.max(minZ, lower);
+                maxZ = Math.min(maxZ, upper);
+            }
+        }
+    }
+
+    private static Set<String> narrow(Set<String> current, MatchRule rule, Object value, boolean allowPatterns) {
+        Set<String> allowed = null;
+        if (rule == MatchRule.EQUALS && !(value instanceof Collection)) {
+            String literal = literalOf(value, allowPatterns);
+            if (literal == null) {
+                return current;
+            }
+            allowed = Sets.newHashSet(literal);
+        } else if (rule == MatchRule.INCLUDES && value instanceof Collection) {
+            allowed = Sets.newHashSet();
+            for (Object inner : (Collection<?>) value) {
+                String literal = literalOf(inner, allowPatterns);
+                if (literal == null) {
+                    return current;
+                }
+                allowed.add(literal);
+            }
+        }
+        if (allowed == null) {
+            return current;
+        }
+        if (current != null) {
+            allowed.retainAll(current);
+        }
+        return allowed;
+    }
+
+    /**
+     * @return The exact value that is looked for, or null if it can match more than one value
+     */
+    private static String literalOf(Object value, boolean allowPatterns) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (allowPatterns && value instanceof Pattern) {
+            Matcher matcher = LITERAL.matcher(((Pattern) value).pattern());
+            if (matcher.matches()) {
+                return matcher.group(1).replaceAll("\\\\(.)", "$1");
+            }
+        }
+        return null;
+    }
+
+    public long getMinCreated() {
+        return minCreated;
+    }
+
+    public long getMaxCreated() {
+        return maxCreated;
+    }
+
+    /**
+     * @return The worlds records have to be in, or null if they can be in any world
+     */
+    public Set<String> getWorlds() {
+        return worlds;
+    }
+
+    /**
+     * @return The players records have to be caused by, or null if they can be caused by anyone
+     */
+    public Set<String> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Events are usually searched for with a pattern, which is only turned into an exact event if it has no wildcards.
+     * An exact event leaves out records of events that merely contain it.
+     *
+     * @return The events records have to be of, or null if they can be of any event
+     */
+    public Set<String> getEvents() {
+        return events;
+    }
+
+    public boolean overlapsTime(long from, long to) {
+        return from <= maxCreated && to >= minCreated;
+    }
+
+    public boolean containsTime(long created) {
+        return created >= minCreated && created <= maxCreated;
+    }
+
+    public boolean hasChunkBounds() {
+        return minX != Integer.MIN_VALUE || maxX != Integer.MAX_VALUE || minZ != Integer.MIN_VALUE || maxZ != Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return true if both axes are bounded on both ends, so the chunks within can be listed
+     */
+    public boolean hasFiniteArea() {
+        return minX != Integer.MIN_VALUE && maxX != Integer.MAX_VALUE && minZ != Integer.MIN_VALUE && maxZ != Integer.MAX_VALUE;
+    }
+
+    public boolean containsChunk(int chunkX, int chunkZ) {
+        return chunkX >= (minX >> 4) && chunkX <= (maxX >> 4) && chunkZ >= (minZ >> 4) && chunkZ <= (maxZ >> 4);
+    }
+
+    public int getMinChunkX() {
+        return minX >> 4;
+    }
+
+    public int getMaxChunkX() {
+        return maxX >> 4;
+    }
+
+    public int getMinChunkZ() {
+        return minZ >> 4;
+    }
+
+    public int getMaxChunkZ() {
+        return maxZ >> 4;
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.warhead501.omniscience.io;
+
+/**
+ * What a storage can do itself. Lookups that need something a storage can't do are completed by the
+ * {@link QueryPlanner} instead, at the cost of reading more records.
+ *
+ * @see StorageHandler#getCapabilities()
+ */
+public enum StorageCapability {
+    /**
+     * Lookups without {@code -ng} are counted per event, source, target and day by the storage
+     */
+    GROUPING,
+    /**
+     * Conditions on patterns, like {@code p:Steve*} or {@code b:*_log}, are matched by the storage
+     */
+    TEXT_SEARCH,
+    /**
+     * Conditions on the coordinates of records, like a radius, are matched by the storage
+     */
+    SPATIAL_INDEX,
+    /**
+     * Every record matching a lookup can be read in batches through {@link RecordHandler#export}
+     */
+    STREAMING,
+    /**
+     * Records matching a lookup can be deleted in batches through {@link RecordHandler#purge}
+     */
+    PURGE,
+    /**
+     * Old records can be moved into the archive tier through {@link RecordHandler#archive}
+     */
+    ARCHIVE
+}
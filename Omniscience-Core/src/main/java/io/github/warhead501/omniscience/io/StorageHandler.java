@@ -2,6 +2,9 @@ package io.github.warhead501.omniscience.io;
 
 import io.github.warhead501.omniscience.Omniscience;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public interface StorageHandler {
 
     boolean connect(Omniscience omniscience) throws Exception;
@@ -9,4 +12,11 @@ public interface StorageHandler {
     RecordHandler records();
 
     void close();
+
+    /**
+     * @return What the storage does itself. Nothing by default, so the {@link QueryPlanner} takes care of everything.
+     */
+    default Set<StorageCapability> getCapabilities() {
+        return EnumSet.noneOf(StorageCapability.class);
+    }
 }
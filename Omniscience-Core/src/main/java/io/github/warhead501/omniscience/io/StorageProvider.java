@@ -0,0 +1,15 @@
+package io.github.warhead501.omniscience.io;
+
+/**
+ * Makes a kind of storage available to be selected with {@code database.type}. Other plugins register their providers
+ * with {@link io.github.warhead501.omniscience.api.interfaces.IOmniscience#registerStorageProvider} while they load,
+ * before Omniscience is enabled.
+ */
+public interface StorageProvider extends io.github.warhead501.omniscience.api.interfaces.StorageProvider<StorageHandler> {
+
+    /**
+     * @return A new storage handler, which isn't connected yet
+     */
+    @Override
+    StorageHandler create() throws Exception;
+}
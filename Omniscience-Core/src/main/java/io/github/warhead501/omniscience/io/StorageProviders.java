@@ -0,0 +1,90 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableSet;
+import io.github.warhead501.omniscience.io.dynamo.DynamoStorageHandler;
+import io.github.warhead501.omniscience.io.local.LocalStorageHandler;
+import io.github.warhead501.omniscience.io.mongo.MongoStorageHandler;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * The kinds of storage {@code database.type} can select: the ones Omniscience comes with, and the ones other plugins
+ * registered.
+ */
+public final class StorageProviders {
+
+    private static final Map<String, StorageProvider> PROVIDERS = new ConcurrentSkipListMap<>();
+
+    static {
+        register(new BuiltIn("mongodb", MongoStorageHandler::new)); //https://www.mongodb.com/
+        register(new BuiltIn("dynamodb", DynamoStorageHandler::new)); //https://aws.amazon.com/dynamodb/
+        register(new BuiltIn("local", LocalStorageHandler::new)); //Files in the plugin's folder, see LocalStorageHandler
+    }
+
+    private StorageProviders() {
+    }
+
+    /**
+     * Makes a kind of storage available. Has to be done before Omniscience is enabled to be selectable at startup.
+     *
+     * @param provider The provider of the storage
+     * @throws IllegalArgumentException If a storage of that name is already registered
+     */
+    public static void register(StorageProvider provider) {
+        String name = provider.getName().toLowerCase();
+        if (PROVIDERS.putIfAbsent(name, provider) != null) {
+            throw new IllegalArgumentException("A storage named " + name + " is already registered");
+        }
+    }
+
+    public static Optional<StorageProvider> get(String name) {
+        return Optional.ofNullable(PROVIDERS.get(name.toLowerCase()));
+    }
+
+    /**
+     * @return The names of every registered kind of storage, in alphabetical order
+     */
+    public static Set<String> getNames() {
+        return ImmutableSet.copyOf(PROVIDERS.keySet());
+    }
+
+    /**
+     * Creates the storage registered under a name. Lookups it can't fully handle itself are completed in memory.
+     *
+     * @param name The name of the storage, as set in {@code database.type}
+     * @return A storage handler, which isn't connected yet
+     */
+    public static StorageHandler create(String name) throws Exception {
+        StorageProvider provider = get(name).orElseThrow(() ->
+                new IllegalArgumentException("There is no storage named " + name + ". Choose one of " + String.join(", ", getNames())));
+        StorageHandler handler = provider.create();
+        if (QueryPlanner.isNeeded(handler.getCapabilities())) {
+            return new PlannedStorageHandler(handler);
+        }
+        return handler;
+    }
+
+    private static final class BuiltIn implements StorageProvider {
+        private final String name;
+        private final Supplier<StorageHandler> constructor;
+
+        private BuiltIn(String name, Supplier<StorageHandler> constructor) {
+            this.name = name;
+            this.constructor = constructor;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public StorageHandler create() {
+            return constructor.get();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package io.github.warhead501.omniscience.io.archive;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.ScanBounds;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable file of archived records, written at once and never appended to.
+ * <p>
+ * The file starts with a summary of its records: the span of time, the range of coordinates, and every world, player
+ * and event they are of. The summaries of every segment are kept in memory, so lookups skip the segments that can't
+ * match without reading them. After the summary, the records are stored by column, each column compressed on its own.
+ * A lookup first reads the small columns of time, location, player and event to find the records that could match,
+ * and only inflates the column of encoded records if any could.
+ * </p>
+ */
+final class ArchiveSegment implements Comparable<ArchiveSegment> {
+
+    private static final int MAGIC = 0x4F4D4E41;
+    private static final byte VERSION = 1;
+
+    private static final int CREATED = 0;
+    private static final int LOCATED = 1;
+    private static final int WORLD = 2;
+    private static final int X = 3;
+    private static final int Y = 4;
+    private static final int Z = 5;
+    private static final int PLAYER = 6;
+    private static final int EVENT = 7;
+    private static final int LENGTH = 8;
+    private static final int BODY = 9;
+    private static final int COLUMNS = 10;
+
+    private final File file;
+    private final int count;
+    private final long minCreated;
+    private final long maxCreated;
+    private final int minX, maxX, minY, maxY, minZ, maxZ;
+    private final List<String> worlds;
+    private final List<String> players;
+    private final List<String> events;
+    private final long columnsOffset;
+    private final int[] columnLengths;
+
+    private ArchiveSegment(File file, DataInputStream in) throws IOException {
+        this.file = file;
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException(file.getName() + " isn't an archive segment");
+        }
+        this.count = in.readInt();
+        this.minCreated = in.readLong();
+        this.maxCreated = in.readLong();
+        this.minX = in.readInt();
+        this.maxX = in.readInt();
+        this.minY = in.readInt();
+        this.maxY = in.readInt();
+        this.minZ = in.readInt();
+        this.maxZ = in.readInt();
+        this.worlds = Lists.newArrayList();
+        this.players = Lists.newArrayList();
+        this.events = Lists.newArrayList();
+        for (List<String> dictionary : Lists.newArrayList(worlds, players, events)) {
+            for (int i = in.readInt(); i > 0; i--) {
+                dictionary.add(in.readUTF());
+            }
+        }
+        this.columnLengths = new int[COLUMNS];
+        long columnsSize = 0;
+        for (int i = 0; i < COLUMNS; i++) {
+            columnLengths[i] = in.readInt();
+            columnsSize += columnLengths[i];
+        }
+        //The columns take up the rest of the file
+        this.columnsOffset = file.length() - columnsSize;
+    }
+
+    /**
+     * Reads the summary of a segment written by {@link #write}.
+     */
+    static ArchiveSegment open(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return new ArchiveSegment(file, in);
+        }
+    }
+
+    /**
+     * Writes records into a new segment. The file only appears under its name once it is completely written.
+     *
+     * @param file The file of the new segment
+     * @param rows The records, in any order
+     */
+    static ArchiveSegment write(File file, List<Row> rows) throws IOException {
+        List<Row> sorted = Lists.newArrayList(rows);
+        sorted.sort(Comparator.comparingLong(row -> row.created));
+
+        Map<String, Integer> worldIds = Maps.newLinkedHashMap();
+        Map<String, Integer> playerIds = Maps.newLinkedHashMap();
+        Map<String, Integer> eventIds = Maps.newLinkedHashMap();
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        int minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+
+        ColumnWriter[] columns = new ColumnWriter[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new ColumnWriter();
+        }
+        long previous = 0;
+        for (Row row : sorted) {
+            //Times are stored as the difference to the previous record, which compresses far better
+            columns[CREATED].out.writeLong(row.created - previous);
+            previous = row.created;
+            columns[LOCATED].out.writeBoolean(row.located);
+            columns[X].out.writeInt(row.x);
+            columns[Y].out.writeInt(row.y);
+            columns[Z].out.writeInt(row.z);
+            if (row.located) {
+                minX = Math.min(minX, row.x);
+                maxX = Math.max(maxX, row.x);
+                minY = Math.min(minY, row.y);
+                maxY = Math.max(maxY, row.y);
+                minZ = Math.min(minZ, row.z);
+                maxZ = Math.max(maxZ, row.z);
+            }
+            columns[WORLD].out.writeInt(idOf(worldIds, row.world));
+            columns[PLAYER].out.writeInt(idOf(playerIds, row.player));
+            columns[EVENT].out.writeInt(idOf(eventIds, row.event));
+            columns[LENGTH].out.writeInt(row.body.length);
+            columns[BODY].out.write(row.body);
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(sorted.size());
+        out.writeLong(sorted.isEmpty() ? 0 : sorted.get(0).created);
+        out.writeLong(sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1).created);
+        out.writeInt(minX);
+        out.writeInt(maxX);
+        out.writeInt(minY);
+        out.writeInt(maxY);
+        out.writeInt(minZ);
+        out.writeInt(maxZ);
+        for (Map<String, Integer> dictionary : Lists.newArrayList(worldIds, playerIds, eventIds)) {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                out.writeUTF(value);
+            }
+        }
+        byte[][] compressed = new byte[COLUMNS][];
+        for (int i = 0; i < COLUMNS; i++) {
+            compressed[i] = columns[i].finish();
+            out.writeInt(compressed[i].length);
+        }
+        out.flush();
+
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, header.toByteArray());
+            for (byte[] column : compressed) {
+                write(channel, column);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int idOf(Map<String, Integer> dictionary, String value) {
+        return value == null ? -1 : dictionary.computeIfAbsent(value, key -> dictionary.size());
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    String getName() {
+        return file.getName();
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getMinCreated() {
+        return minCreated;
+    }
+
+    long getMaxCreated() {
+        return maxCreated;
+    }
+
+    /**
+     * @param bounds What a lookup is limited to
+     * @return true if any record of the segment could be within the bounds
+     */
+    boolean mayContain(ScanBounds bounds) {
+        if (count == 0 || !bounds.overlapsTime(minCreated, maxCreated)) {
+            return false;
+        }
+        if (!overlaps(bounds.getWorlds(), worlds) || !overlaps(bounds.getPlayers(), players) || !overlaps(bounds.getEvents(), events)) {
+            return false;
+        }
+        if (bounds.hasChunkBounds()) {
+            //Records without a location never match bounds on their coordinates
+            return minX <= maxX
+                    && (maxX >> 4) >= bounds.getMinChunkX() && (minX >> 4) <= bounds.getMaxChunkX()
+                    && (maxZ >> 4) >= bounds.getMinChunkZ() && (minZ >> 4) <= bounds.getMaxChunkZ();
+        }
+        return true;
+    }
+
+    private static boolean overlaps(Set<String> wanted, List<String> present) {
+        return wanted == null || present.stream().anyMatch(wanted::contains);
+    }
+
+    /**
+     * Visits every record of the segment that could be within the bounds, oldest first.
+     *
+     * @param bounds  What the lookup is limited to
+     * @param visitor Gets every record that could match
+     * @return false if the visitor stopped the scan
+     */
+    boolean scan(ScanBounds bounds, Visitor visitor) throws IOException {
+        ByteBuffer[] columns = read(CREATED, LOCATED, WORLD, X, Z, PLAYER, EVENT, LENGTH);
+        boolean[] candidates = new boolean[count];
+        long[] created = new long[count];
+        boolean any = false;
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            time += columns[CREATED].getLong();
+            created[i] = time;
+            boolean located = columns[LOCATED].get() != 0;
+            String world = valueOf(worlds, columns[WORLD].getInt());
+            int x = columns[X].getInt();
+            int z = columns[Z].getInt();
+            String player = valueOf(players, columns[PLAYER].getInt());
+            String event = valueOf(events, columns[EVENT].getInt());
+            candidates[i] = bounds.containsTime(time)
+                    && (bounds.getWorlds() == null || bounds.getWorlds().contains(world))
+                    && (bounds.getPlayers() == null || bounds.getPlayers().contains(player))
+                    && (bounds.getEvents() == null || bounds.getEvents().contains(event))
+                    && (!bounds.hasChunkBounds() || located && bounds.containsChunk(x >> 4, z >> 4));
+            any |= candidates[i];
+        }
+        if (!any) {
+            return true;
+        }
+
+        ByteBuffer bodies = read(BODY)[BODY];
+        for (int i = 0; i < count; i++) {
+            int length = columns[LENGTH].getInt();
+            int start = bodies.position();
+            bodies.position(start + length);
+            if (!candidates[i]) {
+                continue;
+            }
+            ByteBuffer body = bodies.duplicate();
+            body.position(start).limit(start + length);
+            if (!visitor.visit(created[i], body.slice())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Every record of the segment, for writing the ones to keep into a new segment
+     */
+    List<Row> readRows() throws IOException {
+        ByteBuffer[] columns = read(CREATED, LOCATED, WORLD, X, Y, Z, PLAYER, EVENT, LENGTH, BODY);
+        List<Row> rows = Lists.newArrayListWithCapacity(count);
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            time += columns[CREATED].getLong();
+            byte[] body = new byte[columns[LENGTH].getInt()];
+            columns[BODY].get(body);
+            rows.add(new Row(time,
+                    valueOf(worlds, columns[WORLD].getInt()),
+                    columns[LOCATED].get() != 0,
+                    columns[X].getInt(),
+                    columns[Y].getInt(),
+                    columns[Z].getInt(),
+                    valueOf(players, columns[PLAYER].getInt()),
+                    valueOf(events, columns[EVENT].getInt()),
+                    body));
+        }
+        return rows;
+    }
+
+    private static String valueOf(List<String> dictionary, int id) {
+        return id < 0 ? null : dictionary.get(id);
+    }
+
+    /**
+     * Reads and inflates the columns, leaving the other places of the returned array empty.
+     */
+    private ByteBuffer[] read(int... wanted) throws IOException {
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            for (int column : wanted) {
+                long offset = columnsOffset;
+                for (int i = 0; i < column; i++) {
+                    offset += columnLengths[i];
+                }
+                byte[] compressed = new byte[columnLengths[column]];
+                in.seek(offset);
+                in.readFully(compressed);
+                columns[column] = ByteBuffer.wrap(inflate(compressed));
+            }
+        }
+        return columns;
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Archive segment is cut off");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Archive segment is damaged", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    boolean delete() {
+        return file.delete();
+    }
+
+    @Override
+    public int compareTo(ArchiveSegment other) {
+        int compared = Long.compare(minCreated, other.minCreated);
+        return compared != 0 ? compared : file.getName().compareTo(other.file.getName());
+    }
+
+    interface Visitor {
+        /**
+         * @param created When the record was created
+         * @param body    The encoded record
+         * @return false to stop the scan
+         */
+        boolean visit(long created, ByteBuffer body);
+    }
+
+    /**
+     * An encoded record, along with the values its columns hold.
+     */
+    static final class Row {
+        final long created;
+        final String world;
+        final boolean located;
+        final int x;
+        final int y;
+        final int z;
+        final String player;
+        final String event;
+        final byte[] body;
+
+        private Row(long created, String world, boolean located, int x, int y, int z, String player, String event, byte[] body) {
+            this.created = created;
+            this.world = world;
+            this.located = located;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.player = player;
+            this.event = event;
+            this.body = body;
+        }
+
+        static Row of(DataWrapper wrapper) throws IOException {
+            Object created = wrapper.get(DataKeys.CREATED).orElse(null);
+            Object x = wrapper.get(DataKeys.LOCATION.then(DataKeys.X)).orElse(null);
+            Object y = wrapper.get(DataKeys.LOCATION.then(DataKeys.Y)).orElse(null);
+            Object z = wrapper.get(DataKeys.LOCATION.then(DataKeys.Z)).orElse(null);
+            boolean located = x instanceof Number && z instanceof Number;
+            return new Row(created instanceof Date ? ((Date) created).getTime() : System.currentTimeMillis(),
+                    wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD)).orElse(null),
+                    located,
+                    located ? ((Number) x).intValue() : 0,
+                    y instanceof Number ? ((Number) y).intValue() : 0,
+                    located ? ((Number) z).intValue() : 0,
+                    wrapper.getString(DataKeys.PLAYER_ID).orElse(null),
+                    wrapper.getString(DataKeys.EVENT_NAME).orElse(null),
+                    RecordCodec.encode(wrapper));
+        }
+    }
+
+    private static final class ColumnWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater));
+
+        byte[] finish() throws IOException {
+            try {
+                out.close();
+            } finally {
+                deflater.end();
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
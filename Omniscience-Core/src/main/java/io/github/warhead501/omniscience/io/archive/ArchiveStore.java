@@ -0,0 +1,183 @@
+package io.github.warhead501.omniscience.io.archive;
+
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordBatch;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.RecordMatcher;
+import io.github.warhead501.omniscience.io.ScanBounds;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Level;
+
+/**
+ * The cold tier of storage: records moved out of the database once they are old, kept in compressed segments on disk.
+ * Every call to {@link #write} creates one segment, and segments are only ever replaced as a whole.
+ *
+ * @see ArchiveSegment
+ */
+public final class ArchiveStore {
+
+    private final File directory;
+    private final ConcurrentSkipListSet<ArchiveSegment> segments = new ConcurrentSkipListSet<>();
+
+    ArchiveStore(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the archive folder at " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".arc") || name.endsWith(".arc.tmp"));
+        if (files != null) {
+            for (File file : files) {
+                //Left behind by a write that was cut off, the records it held are still in the database
+                if (file.getName().endsWith(".tmp")) {
+                    file.delete();
+                    continue;
+                }
+                try {
+                    segments.add(ArchiveSegment.open(file));
+                } catch (IOException e) {
+                    Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, "Failed to open archive segment " + file.getName() + ", its records won't be searchable", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores records in a new segment, which is on disk once this returns.
+     *
+     * @param wrappers The records to archive
+     */
+    public void write(List<DataWrapper> wrappers) throws IOException {
+        if (wrappers.isEmpty()) {
+            return;
+        }
+        List<ArchiveSegment.Row> rows = Lists.newArrayListWithCapacity(wrappers.size());
+        for (DataWrapper wrapper : wrappers) {
+            rows.add(ArchiveSegment.Row.of(wrapper));
+        }
+        segments.add(ArchiveSegment.write(newFile(rows), rows));
+    }
+
+    private File newFile(List<ArchiveSegment.Row> rows) {
+        long minCreated = rows.stream().mapToLong(row -> row.created).min().orElse(0);
+        return new File(directory, minCreated + "-" + UUID.randomUUID().toString().substring(0, 8) + ".arc");
+    }
+
+    /**
+     * @param bounds      What a lookup is limited to
+     * @param newestFirst Whether the newest segments come first
+     * @return Every segment that could hold records within the bounds
+     */
+    List<ArchiveSegment> getSegments(ScanBounds bounds, boolean newestFirst) {
+        List<ArchiveSegment> matching = Lists.newArrayList();
+        for (ArchiveSegment segment : newestFirst ? segments.descendingSet() : segments) {
+            if (segment.mayContain(bounds)) {
+                matching.add(segment);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Removes the matching records from the next segment that could hold any, by writing the records to keep into a new
+     * segment that replaces it.
+     *
+     * @param conditions The conditions records have to match to be removed
+     * @param after      The name of the segment purged last, or null to start with the oldest
+     * @return The amount of records removed, and the name of the segment to continue after
+     */
+    synchronized PurgeBatch purge(List<SearchCondition> conditions, String after) throws IOException {
+        ScanBounds bounds = ScanBounds.from(conditions);
+        RecordMatcher matcher = new RecordMatcher(conditions);
+        ArchiveSegment next = nextSegment(bounds, after);
+        if (next == null) {
+            return new PurgeBatch(0, null);
+        }
+
+        List<ArchiveSegment.Row> kept = Lists.newArrayList();
+        int removed = 0;
+        for (ArchiveSegment.Row row : next.readRows()) {
+            if (bounds.containsTime(row.created) && matcher.matches(RecordCodec.decode(ByteBuffer.wrap(row.body)))) {
+                removed++;
+            } else {
+                kept.add(row);
+            }
+        }
+        if (removed > 0) {
+            if (!kept.isEmpty()) {
+                segments.add(ArchiveSegment.write(newFile(kept), kept));
+            }
+            segments.remove(next);
+            if (!next.delete()) {
+                Omniscience.getPluginInstance().getLogger().warning("Failed to delete purged archive segment " + next.getName());
+            }
+        }
+        return new PurgeBatch(removed, next.getName());
+    }
+
+    /**
+     * Reads the matching records of the next segment that could hold any.
+     *
+     * @param conditions The conditions records have to match
+     * @param after      The name of the segment read last, or null to start with the oldest
+     * @return The matching records, and the name of the segment to continue after
+     */
+    synchronized RecordBatch export(List<SearchCondition> conditions, String after) throws IOException {
+        ScanBounds bounds = ScanBounds.from(conditions);
+        RecordMatcher matcher = new RecordMatcher(conditions);
+        ArchiveSegment next = nextSegment(bounds, after);
+        if (next == null) {
+            return new RecordBatch(Collections.emptyList(), null);
+        }
+        List<DataWrapper> records = Lists.newArrayList();
+        for (ArchiveSegment.Row row : next.readRows()) {
+            if (bounds.containsTime(row.created)) {
+                DataWrapper wrapper = RecordCodec.decode(ByteBuffer.wrap(row.body));
+                if (matcher.matches(wrapper)) {
+                    records.add(wrapper);
+                }
+            }
+        }
+        return new RecordBatch(records, next.getName());
+    }
+
+    private ArchiveSegment nextSegment(ScanBounds bounds, String after) {
+        //Segment names start with the time of their oldest record, which is also the order they are kept in
+        long afterCreated = after == null ? Long.MIN_VALUE : Long.parseLong(after.substring(0, after.indexOf('-')));
+        for (ArchiveSegment segment : segments) {
+            int compared = Long.compare(segment.getMinCreated(), afterCreated);
+            if (compared > 0 || compared == 0 && (after == null || segment.getName().compareTo(after) > 0)) {
+                if (segment.mayContain(bounds)) {
+                    return segment;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes every segment of which all records were created before the cutoff.
+     *
+     * @param cutoff Records created before this are expired
+     */
+    synchronized void expire(long cutoff) {
+        for (ArchiveSegment segment : segments) {
+            if (segment.getMaxCreated() < cutoff) {
+                segments.remove(segment);
+                if (!segment.delete()) {
+                    Omniscience.getPluginInstance().getLogger().warning("Failed to delete expired archive segment " + segment.getName());
+                }
+            }
+        }
+    }
+}
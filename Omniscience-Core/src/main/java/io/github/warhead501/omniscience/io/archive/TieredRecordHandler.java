@@ -0,0 +1,272 @@
+package io.github.warhead501.omniscience.io.archive;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.io.BlockChanges;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordBatch;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.RecordMatcher;
+import io.github.warhead501.omniscience.io.RecordResults;
+import io.github.warhead501.omniscience.io.ScanBounds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Puts the archive behind the records of the database. Writes go to the database, and lookups read both and merge
+ * what they found, so it doesn't matter to a lookup which records were archived already.
+ * <p>
+ * Lookups of recent records don't open the archive at all, since no segment summary overlaps their time frame.
+ * </p>
+ */
+final class TieredRecordHandler implements RecordHandler {
+
+    private static final DataKey[] GROUP_KEYS = {DataKeys.EVENT_NAME, DataKeys.PLAYER_ID, DataKeys.CAUSE, DataKeys.TARGET,
+            DataKeys.ENTITY_TYPE, DataKey.of("dayOfMonth"), DataKey.of("month"), DataKey.of("year")};
+    //Purges go through the database first, then through the archive segment by segment
+    private static final String ARCHIVE = "archive:";
+
+    private final RecordHandler live;
+    private final ArchiveStore archive;
+    private final long archiveAfter;
+    private final long archiveExpiry;
+    private final int batchSize;
+    private volatile boolean stopped;
+
+    TieredRecordHandler(RecordHandler live, ArchiveStore archive, long archiveAfter, long archiveExpiry, int batchSize) {
+        this.live = live;
+        this.archive = archive;
+        this.archiveAfter = archiveAfter;
+        this.archiveExpiry = archiveExpiry;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public CompletableFuture<Void> write(List<DataWrapper> wrappers) {
+        return live.write(wrappers);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeItems(Map<String, String> items) {
+        return live.writeItems(items);
+    }
+
+    @Override
+    public CompletableFuture<List<DataEntry>> query(QuerySession session) throws Exception {
+        //The database adds the conditions of flags to the query, so it goes first
+        return live.query(session).thenApply(entries -> merge(session, entries));
+    }
+
+    private List<DataEntry> merge(QuerySession session, List<DataEntry> liveEntries) {
+        Query query = session.getQuery();
+        boolean grouped = !session.hasFlag(Flag.NO_GROUP);
+        boolean newestFirst = session.getSortOrder() == QuerySession.Sort.NEWEST_FIRST;
+        int limit = query.getSearchLimit();
+        ScanBounds bounds = ScanBounds.from(query.getSearchCriteria());
+
+        List<ArchiveSegment> segments = archive.getSegments(bounds, newestFirst);
+        if (!grouped && liveEntries.size() >= limit && !liveEntries.isEmpty()) {
+            //The database filled the lookup, so only segments reaching past its last record can change the results
+            long last = createdOf(liveEntries.get(liveEntries.size() - 1));
+            segments.removeIf(segment -> newestFirst ? segment.getMaxCreated() < last : segment.getMinCreated() > last);
+        }
+        if (segments.isEmpty()) {
+            return liveEntries;
+        }
+
+        long started = System.nanoTime();
+        RecordMatcher matcher = new RecordMatcher(query.getSearchCriteria());
+        RecordResults results = new RecordResults(grouped, newestFirst, limit);
+        for (ArchiveSegment segment : segments) {
+            if (!grouped && results.isFull() && !results.wants(newestFirst ? segment.getMaxCreated() : segment.getMinCreated())) {
+                continue;
+            }
+            scan(segment, bounds, (created, body) -> {
+                if (!results.wants(created)) {
+                    return true;
+                }
+                DataWrapper wrapper = RecordCodec.decode(body);
+                if (matcher.matches(wrapper)) {
+                    results.add(created, wrapper);
+                }
+                return true;
+            });
+        }
+        List<DataEntry> archived = results.toEntries();
+        Omniscience.logDebug("Archive Query: " + archived.size() + " results from " + segments.size() + " segments in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+        if (archived.isEmpty()) {
+            return liveEntries;
+        }
+
+        List<DataEntry> merged;
+        if (grouped) {
+            //A day can be partly archived, its groups are added up
+            Map<List<Object>, DataEntry> groups = Maps.newLinkedHashMap();
+            for (DataEntry entry : newestFirst ? concat(liveEntries, archived) : concat(archived, liveEntries)) {
+                groups.merge(groupKey(entry), entry, (existing, added) -> {
+                    existing.data.set(DataKeys.COUNT, countOf(existing) + countOf(added));
+                    return existing;
+                });
+            }
+            merged = Lists.newArrayList(groups.values());
+        } else {
+            merged = concat(liveEntries, archived);
+            Comparator<DataEntry> order = Comparator.comparingLong(TieredRecordHandler::createdOf);
+            merged.sort(newestFirst ? order.reversed() : order);
+        }
+        return merged.size() > limit ? Lists.newArrayList(merged.subList(0, limit)) : merged;
+    }
+
+    private static List<DataEntry> concat(List<DataEntry> first, List<DataEntry> second) {
+        List<DataEntry> all = Lists.newArrayListWithCapacity(first.size() + second.size());
+        all.addAll(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static List<Object> groupKey(DataEntry entry) {
+        List<Object> key = Lists.newArrayListWithCapacity(GROUP_KEYS.length);
+        for (DataKey groupKey : GROUP_KEYS) {
+            key.add(entry.data.get(groupKey).orElse(null));
+        }
+        return key;
+    }
+
+    private static int countOf(DataEntry entry) {
+        Object count = entry.data.get(DataKeys.COUNT).orElse(1);
+        return count instanceof Number ? ((Number) count).intValue() : 1;
+    }
+
+    private static long createdOf(DataEntry entry) {
+        Object created = entry.data.get(DataKeys.CREATED).orElse(null);
+        return created instanceof Date ? ((Date) created).getTime() : 0;
+    }
+
+    /**
+     * Scans a segment, skipping it if it was purged or expired since the lookup started.
+     */
+    private static void scan(ArchiveSegment segment, ScanBounds bounds, ArchiveSegment.Visitor visitor) {
+        try {
+            segment.scan(bounds, visitor);
+        } catch (IOException e) {
+            if (segment.getFile().exists()) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) throws Exception {
+        return live.getLatestBlockChanges(positions, after).thenApply(found -> {
+            if (positions.isEmpty()) {
+                return found;
+            }
+            BlockChanges changes = new BlockChanges(positions, after);
+            changes.addAll(found);
+            for (ArchiveSegment segment : archive.getSegments(changes.getBounds(), true)) {
+                scan(segment, changes.getBounds(), changes::visit);
+            }
+            return changes.getLatest();
+        });
+    }
+
+    /**
+     * Purges the database first, then rewrites the archive segments holding matching records one segment per batch,
+     * regardless of the batch limit.
+     */
+    @Override
+    public PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) throws Exception {
+        if (after == null || !after.startsWith(ARCHIVE)) {
+            PurgeBatch batch = live.purge(conditions, after, limit);
+            return batch.isDone() ? new PurgeBatch(batch.getDeleted(), ARCHIVE) : batch;
+        }
+        String segment = after.substring(ARCHIVE.length());
+        PurgeBatch batch = archive.purge(conditions, segment.isEmpty() ? null : segment);
+        return new PurgeBatch(batch.getDeleted(), batch.isDone() ? null : ARCHIVE + batch.getNext());
+    }
+
+    /**
+     * The archive tier can't be archived again, so this storage doesn't have the capability.
+     */
+    @Override
+    public PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) {
+        throw new UnsupportedOperationException("The archive tier can't be archived again");
+    }
+
+    /**
+     * Exports from the database first, then from the archive one segment per batch, regardless of the batch limit.
+     */
+    @Override
+    public RecordBatch export(List<SearchCondition> conditions, String after, int limit) throws Exception {
+        if (after == null || !after.startsWith(ARCHIVE)) {
+            RecordBatch batch = live.export(conditions, after, limit);
+            return batch.isDone() ? new RecordBatch(batch.getRecords(), ARCHIVE) : batch;
+        }
+        String segment = after.substring(ARCHIVE.length());
+        RecordBatch batch = archive.export(conditions, segment.isEmpty() ? null : segment);
+        return new RecordBatch(batch.getRecords(), batch.isDone() ? null : ARCHIVE + batch.getNext());
+    }
+
+    /**
+     * Removes expired archive segments, then moves every record older than the archive threshold out of the database
+     * in batches, each into a segment of its own.
+     * <p>
+     * A batch is deleted from the database only once its segment is on disk. If the server stops in between, the
+     * batch is archived again the next time, so a record can show up twice but is never lost.
+     * </p>
+     */
+    void migrate() {
+        if (stopped) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        archive.expire(now - archiveExpiry);
+        List<SearchCondition> conditions = Collections.singletonList(
+                FieldCondition.of(DataKeys.CREATED, MatchRule.LESS_THAN_EQUAL, new Date(now - archiveAfter)));
+        long moved = 0;
+        String after = null;
+        try {
+            do {
+                PurgeBatch batch = live.archive(conditions, after, batchSize, archive);
+                moved += batch.getDeleted();
+                after = batch.getNext();
+            } while (after != null && !stopped);
+        } catch (Exception e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, "Failed to move records to the archive, trying again later", e);
+        }
+        if (moved > 0) {
+            Omniscience.getPluginInstance().getLogger().info("Moved " + moved + " records to the archive");
+        }
+    }
+
+    /**
+     * Stops moving records after the current batch.
+     */
+    void stop() {
+        stopped = true;
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.warhead501.omniscience.io.archive;
+
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
+import io.github.warhead501.omniscience.io.StorageHandler;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Adds an archive to the configured storage. Records older than {@code archive.after} are moved out of the database
+ * every {@code archive.interval} into compressed files in the plugin's folder, which lookups keep searching.
+ *
+ * @see TieredRecordHandler
+ */
+public class TieredStorageHandler implements StorageHandler {
+
+    private final StorageHandler live;
+    private TieredRecordHandler recordHandler;
+    private ScheduledExecutorService migrator;
+
+    /**
+     * @param live The storage that records are written to, and moved out of once they are old
+     */
+    public TieredStorageHandler(StorageHandler live) {
+        this.live = live;
+    }
+
+    @Override
+    public boolean connect(Omniscience omniscience) throws Exception {
+        if (!live.connect(omniscience)) {
+            return false;
+        }
+        if (!live.getCapabilities().contains(StorageCapability.ARCHIVE)) {
+            omniscience.getLogger().severe("This storage can't move records to the archive, disable archive.enabled or use another storage");
+            live.close();
+            return false;
+        }
+        FileConfiguration config = omniscience.getConfig();
+        File directory = new File(omniscience.getDataFolder(), config.getString("archive.directory", "archive"));
+        long archiveAfter = parseDuration(omniscience, "archive.after", "3d");
+        long archiveExpiry = parseDuration(omniscience, "archive.expire", "26w");
+        long interval = parseDuration(omniscience, "archive.interval", "1h");
+        int batchSize = Math.max(1, config.getInt("archive.batchSize", 50000));
+        long recordExpiry = DateUtil.parseDuration(OmniConfig.INSTANCE.getRecordExpiry());
+        if (archiveAfter >= recordExpiry) {
+            omniscience.getLogger().warning("archive.after is longer than storage.expireRecords, records expire before they are archived");
+        }
+
+        ArchiveStore archive;
+        try {
+            archive = new ArchiveStore(directory);
+        } catch (IOException e) {
+            omniscience.getLogger().log(Level.SEVERE, "Failed to open the archive at " + directory, e);
+            live.close();
+            return false;
+        }
+        this.recordHandler = new TieredRecordHandler(live.records(), archive, archiveAfter, archiveExpiry, batchSize);
+        this.migrator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Omniscience Archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        migrator.scheduleWithFixedDelay(recordHandler::migrate, TimeUnit.MINUTES.toMillis(1), Math.max(TimeUnit.MINUTES.toMillis(1), interval), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private static long parseDuration(Omniscience omniscience, String path, String def) {
+        String value = omniscience.getConfig().getString(path, def);
+        try {
+            return DateUtil.parseDuration(value);
+        } catch (IllegalArgumentException e) {
+            omniscience.getLogger().warning("Invalid configuration option for " + path + ": " + value + ". Defaulting to " + def);
+            return DateUtil.parseDuration(def);
+        }
+    }
+
+    @Override
+    public RecordHandler records() {
+        return recordHandler;
+    }
+
+    @Override
+    public Set<StorageCapability> getCapabilities() {
+        Set<StorageCapability> capabilities = EnumSet.noneOf(StorageCapability.class);
+        capabilities.addAll(live.getCapabilities());
+        //The archive tier can't be archived again
+        capabilities.remove(StorageCapability.ARCHIVE);
+        return capabilities;
+    }
+
+    @Override
+    public void close() {
+        if (migrator != null) {
+            //A batch that is being moved finishes first, so it isn't archived twice
+            recordHandler.stop();
+            migrator.shutdown();
+            try {
+                migrator.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        live.close();
+    }
+}
@@ -1,96 +1,523 @@
 package io.github.warhead501.omniscience.io.dynamo;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import io.github.warhead501.omniscience.api.data.DataKey;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
 import io.github.warhead501.omniscience.api.query.QuerySession;
-import io.github.warhead501.omniscience.api.util.DataHelper;
-import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordBatch;
+import io.github.warhead501.omniscience.io.RecordCodec;
 import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.RecordMatcher;
+import io.github.warhead501.omniscience.io.RecordResults;
+import io.github.warhead501.omniscience.io.ScanBounds;
+import io.github.warhead501.omniscience.io.archive.ArchiveStore;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.github.warhead501.omniscience.io.dynamo.DynamoStorageHandler.*;
 
 public class DynamoRecordHandler implements RecordHandler {
 
+    //The most items DynamoDB takes in one BatchWriteItem or BatchGetItem
+    private static final int BATCH_WRITE_LIMIT = 25;
+    private static final int BATCH_GET_LIMIT = 100;
+    private static final int MAX_RETRIES = 8;
+    private static final long BASE_BACKOFF = 50;
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+    //More chunks than this are looked up through an index or a scan rather than a query per chunk
+    private static final int MAX_PARTITIONS = 1024;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
     private final DynamoStorageHandler storageHandler;
+    //Sort keys end with this and a counter, so records created at the same time in the same chunk don't overwrite each other
+    private final String writerId = String.format("%08x", ThreadLocalRandom.current().nextInt());
+    private final AtomicLong writeCount = new AtomicLong();
 
     public DynamoRecordHandler(DynamoStorageHandler storageHandler) {
         this.storageHandler = storageHandler;
     }
 
     @Override
-    public void write(List<DataWrapper> wrappers) {
-        List<Item> items = wrappers.stream().map(this::wrapperToItem).collect(Collectors.toList());
+    public CompletableFuture<Void> write(List<DataWrapper> wrappers) {
+        long expires = DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getRecordExpiry(), true).getTime() / 1000;
+        List<WriteRequest> requests = Lists.newArrayListWithCapacity(wrappers.size());
+        for (DataWrapper wrapper : wrappers) {
+            requests.add(new WriteRequest(new PutRequest(toItem(wrapper, expires))));
+        }
+        return writeAll(OmniConfig.INSTANCE.getTableName(), requests);
     }
 
     @Override
-    public CompletableFuture<List<DataEntry>> query(QuerySession session) {
+    public CompletableFuture<Void> writeItems(Map<String, String> items) {
+        //Items are keyed by their hash, so writing one that is already stored changes nothing
+        List<WriteRequest> requests = Lists.newArrayListWithCapacity(items.size());
+        items.forEach((hash, item) -> requests.add(new WriteRequest(new PutRequest(ImmutableMap.of(
+                HASH, new AttributeValue(hash),
+                ITEM, new AttributeValue(item))))));
+        return writeAll(storageHandler.getItemTableName(), requests);
+    }
+
+    /**
+     * Writes the requests in batches that are sent at the same time.
+     *
+     * @return Completes once every batch is written, or exceptionally if any of them failed
+     */
+    private CompletableFuture<Void> writeAll(String table, List<WriteRequest> requests) {
+        List<CompletableFuture<Void>> batches = Lists.newArrayList();
+        for (List<WriteRequest> batch : Lists.partition(requests, BATCH_WRITE_LIMIT)) {
+            batches.add(CompletableFuture.runAsync(() -> writeBatch(table, batch), storageHandler.getWriteExecutor()));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]));
+    }
+
+    private void writeBatch(String table, List<WriteRequest> batch) {
         AmazonDynamoDB db = storageHandler.getDynamoDB();
-        QueryRequest request = new QueryRequest();
-        return null;
+        Map<String, List<WriteRequest>> pending = Collections.singletonMap(table, batch);
+        for (int attempt = 0; ; attempt++) {
+            pending = db.batchWriteItem(new BatchWriteItemRequest().withRequestItems(pending)).getUnprocessedItems();
+            if (pending == null || pending.isEmpty()) {
+                return;
+            }
+            if (attempt >= MAX_RETRIES) {
+                throw new IllegalStateException("DynamoDB didn't write " + pending.get(table).size() + " entries to " + table + " after " + MAX_RETRIES + " retries");
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * Waits before retrying what DynamoDB left unprocessed, twice as long after every attempt and with some jitter so
+     * batches that were throttled together don't retry together.
+     */
+    private static void backOff(int attempt) {
+        long delay = Math.min(MAX_BACKOFF, BASE_BACKOFF << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a DynamoDB batch", e);
+        }
+    }
+
+    private Map<String, AttributeValue> toItem(DataWrapper wrapper, long expires) {
+        Object createdValue = wrapper.get(DataKeys.CREATED).orElse(null);
+        long created = createdValue instanceof Date ? ((Date) createdValue).getTime() : System.currentTimeMillis();
+        byte[] body;
+        try {
+            body = RecordCodec.encode(wrapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, AttributeValue> item = Maps.newHashMap();
+        item.put(PARTITION, new AttributeValue(partitionOf(wrapper, created)));
+        item.put(SORT, new AttributeValue(sortKey(created) + writerId + Long.toHexString(writeCount.getAndIncrement())));
+        item.put(DATA, new AttributeValue().withB(ByteBuffer.wrap(body)));
+        item.put(EXPIRES, new AttributeValue().withN(Long.toString(expires)));
+        //Records without a player or event are left out of that index
+        wrapper.getString(DataKeys.PLAYER_ID).filter(player -> !player.isEmpty())
+                .ifPresent(player -> item.put(PLAYER, new AttributeValue(player)));
+        wrapper.getString(DataKeys.EVENT_NAME).filter(event -> !event.isEmpty())
+                .ifPresent(event -> item.put(EVENT, new AttributeValue(event)));
+        return item;
     }
 
-    private Item wrapperToItem(DataWrapper wrapper) {
-        Item item = new Item();
-
-        Set<DataKey> keys = wrapper.getKeys(false);
-        for (DataKey dataKey : keys) {
-            Optional<Object> oObject = wrapper.get(dataKey);
-            oObject.ifPresent(object -> {
-                String key = dataKey.asString(".");
-                if (object instanceof List) {
-                    List<Object> convertedList = Lists.newArrayList();
-                    for (Object innerObject : (List<?>) object) {
-                        if (innerObject instanceof DataWrapper) {
-                            convertedList.add(wrapperToItem((DataWrapper) innerObject));
-                        } else if (DataHelper.isPrimitiveType(innerObject)) {
-                            convertedList.add(innerObject);
-                        } else if (object.getClass().isEnum()) {
-                            convertedList.add(object.toString());
-                        } else {
-                            Omniscience.getPluginInstance().getLogger().warning("Unsupported List Data Type: " + innerObject.getClass().getName());
+    static String partitionOf(DataWrapper wrapper, long created) {
+        Optional<String> world = wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD));
+        Object x = wrapper.get(DataKeys.LOCATION.then(DataKeys.X)).orElse(null);
+        Object z = wrapper.get(DataKeys.LOCATION.then(DataKeys.Z)).orElse(null);
+        if (world.isPresent() && x instanceof Number && z instanceof Number) {
+            return chunkPartition(world.get(), ((Number) x).intValue() >> 4, ((Number) z).intValue() >> 4);
+        }
+        return "-:" + Math.floorDiv(created, DAY);
+    }
+
+    static String chunkPartition(String world, int chunkX, int chunkZ) {
+        return world + ":" + chunkX + ":" + chunkZ;
+    }
+
+    /**
+     * @return The start of the sort keys of records created at the given time. These sort by time as text.
+     */
+    static String sortKey(long created) {
+        return String.format("%013d#", Math.max(0, created));
+    }
+
+    private static long createdOf(Map<String, AttributeValue> item) {
+        String sort = item.get(SORT).getS();
+        return Long.parseLong(sort.substring(0, sort.indexOf('#')));
+    }
+
+    @Override
+    public CompletableFuture<List<DataEntry>> query(QuerySession session) throws Exception {
+        Query query = session.getQuery();
+        checkNotNull(query);
+
+        if (session.hasFlag(Flag.NO_CHAT)) {
+            query.addCondition(FieldCondition.of(DataKeys.MESSAGE, MatchRule.EXISTS, false));
+        }
+
+        boolean newestFirst = session.getSortOrder() == QuerySession.Sort.NEWEST_FIRST;
+        ScanBounds bounds = ScanBounds.from(query.getSearchCriteria());
+        RecordMatcher matcher = new RecordMatcher(query.getSearchCriteria());
+        RecordResults results = new RecordResults(!session.hasFlag(Flag.NO_GROUP), newestFirst, query.getSearchLimit());
+        long started = System.nanoTime();
+
+        if (bounds.getMinCreated() > bounds.getMaxCreated()) {
+            return CompletableFuture.completedFuture(results.toEntries());
+        }
+        List<QueryRequest> requests = planQueries(bounds, newestFirst);
+        List<CompletableFuture<Void>> lookups = Lists.newArrayList();
+        if (requests != null) {
+            for (QueryRequest request : requests) {
+                lookups.add(CompletableFuture.runAsync(() -> queryPartition(request, matcher, results), storageHandler.getQueryExecutor()));
+            }
+        } else {
+            int segments = storageHandler.getQueryThreads();
+            for (int segment = 0; segment < segments; segment++) {
+                ScanRequest request = scanRequest(bounds, segment, segments);
+                lookups.add(CompletableFuture.runAsync(() -> scanSegment(request, matcher, results), storageHandler.getQueryExecutor()));
+            }
+        }
+        //Finished on the query thread of the last lookup, the calling thread doesn't wait for any of them
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Omniscience.logDebug("DynamoDB Query: " + (requests != null ? requests.size() + " partitions" : "scan") + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+            List<DataEntry> entries = results.toEntries();
+            resolveItems(entries);
+            return entries;
+        });
+    }
+
+    /**
+     * Picks the partitions a lookup can be answered from: the chunks of its area, or else the players or events it is
+     * limited to.
+     *
+     * @return A query per partition, or null if the whole table has to be scanned
+     */
+    private static List<QueryRequest> planQueries(ScanBounds bounds, boolean newestFirst) {
+        String table = OmniConfig.INSTANCE.getTableName();
+        List<QueryRequest> requests = Lists.newArrayList();
+        if (bounds.getWorlds() != null && bounds.hasFiniteArea()) {
+            long width = (long) bounds.getMaxChunkX() - bounds.getMinChunkX() + 1;
+            long length = (long) bounds.getMaxChunkZ() - bounds.getMinChunkZ() + 1;
+            if (width * length * bounds.getWorlds().size() <= MAX_PARTITIONS) {
+                for (String world : bounds.getWorlds()) {
+                    for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+                        for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                            requests.add(queryRequest(table, null, PARTITION, chunkPartition(world, chunkX, chunkZ),
+                                    bounds.getMinCreated(), bounds.getMaxCreated(), newestFirst));
                         }
                     }
+                }
+                return requests;
+            }
+        }
+        if (bounds.getPlayers() != null) {
+            for (String player : bounds.getPlayers()) {
+                requests.add(queryRequest(table, PLAYER_INDEX, PLAYER, player, bounds.getMinCreated(), bounds.getMaxCreated(), newestFirst));
+            }
+            return requests;
+        }
+        if (bounds.getEvents() != null) {
+            for (String event : bounds.getEvents()) {
+                requests.add(queryRequest(table, EVENT_INDEX, EVENT, event, bounds.getMinCreated(), bounds.getMaxCreated(), newestFirst));
+            }
+            return requests;
+        }
+        return null;
+    }
 
-                    if (!convertedList.isEmpty()) {
-                        item.with(key, convertedList);
-                    }
-                } else if (object instanceof DataWrapper) {
-                    DataWrapper subWrapper = (DataWrapper) object;
-                    item.with(key, wrapperToItem(subWrapper));
-                } else {
-                    if (key.equals(DataKeys.PLAYER_ID.toString())) {
-                        item.with(DataKeys.PLAYER_ID.toString(), object);
-                    } else {
-                        item.with(key, object);
-                    }
+    private static QueryRequest queryRequest(String table, String index, String partition, String value, long from, long to, boolean newestFirst) {
+        return new QueryRequest()
+                .withTableName(table)
+                .withIndexName(index)
+                .withKeyConditionExpression("#p = :p AND #s BETWEEN :from AND :to")
+                .withExpressionAttributeNames(ImmutableMap.of("#p", partition, "#s", SORT))
+                .withExpressionAttributeValues(ImmutableMap.of(
+                        ":p", new AttributeValue(value),
+                        ":from", new AttributeValue(sortKey(from)),
+                        ":to", new AttributeValue(sortKey(to) + "~")))
+                .withScanIndexForward(!newestFirst);
+    }
+
+    private static ScanRequest scanRequest(ScanBounds bounds, int segment, int segments) {
+        ScanRequest request = new ScanRequest()
+                .withTableName(OmniConfig.INSTANCE.getTableName())
+                .withSegment(segment)
+                .withTotalSegments(segments);
+        if (bounds.getMinCreated() != Long.MIN_VALUE || bounds.getMaxCreated() != Long.MAX_VALUE) {
+            request.withFilterExpression("#s BETWEEN :from AND :to")
+                    .withExpressionAttributeNames(ImmutableMap.of("#s", SORT))
+                    .withExpressionAttributeValues(ImmutableMap.of(
+                            ":from", new AttributeValue(sortKey(bounds.getMinCreated())),
+                            ":to", new AttributeValue(sortKey(bounds.getMaxCreated()) + "~")));
+        }
+        return request;
+    }
+
+    /**
+     * Reads one partition in the order of the lookup, until the rest of it can't be part of the results anymore.
+     */
+    private void queryPartition(QueryRequest request, RecordMatcher matcher, RecordResults results) {
+        AmazonDynamoDB db = storageHandler.getDynamoDB();
+        Map<String, AttributeValue> lastKey;
+        do {
+            QueryResult result = db.query(request);
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                long created = createdOf(item);
+                if (!results.wants(created)) {
+                    return;
+                }
+                DataWrapper wrapper = RecordCodec.decode(item.get(DATA).getB().duplicate());
+                if (matcher.matches(wrapper)) {
+                    results.add(created, wrapper);
+                }
+            }
+            lastKey = result.getLastEvaluatedKey();
+            request.setExclusiveStartKey(lastKey);
+        } while (lastKey != null && !lastKey.isEmpty());
+    }
+
+    private void scanSegment(ScanRequest request, RecordMatcher matcher, RecordResults results) {
+        AmazonDynamoDB db = storageHandler.getDynamoDB();
+        Map<String, AttributeValue> lastKey;
+        do {
+            ScanResult result = db.scan(request);
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                long created = createdOf(item);
+                if (!results.wants(created)) {
+                    continue;
+                }
+                DataWrapper wrapper = RecordCodec.decode(item.get(DATA).getB().duplicate());
+                if (matcher.matches(wrapper)) {
+                    results.add(created, wrapper);
                 }
-            });
+            }
+            lastKey = result.getLastEvaluatedKey();
+            request.setExclusiveStartKey(lastKey);
+        } while (lastKey != null && !lastKey.isEmpty());
+    }
+
+    @Override
+    public CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) {
+        Map<BlockPosition, Date> latest = new ConcurrentHashMap<>();
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(latest);
+        }
+        Map<String, Set<BlockPosition>> byChunk = Maps.newHashMap();
+        for (BlockPosition position : positions) {
+            byChunk.computeIfAbsent(chunkPartition(position.getWorld().toString(), position.getX() >> 4, position.getZ() >> 4),
+                    partition -> Sets.newHashSet()).add(position);
         }
 
-        return item;
+        String table = OmniConfig.INSTANCE.getTableName();
+        AmazonDynamoDB db = storageHandler.getDynamoDB();
+        List<CompletableFuture<Void>> lookups = Lists.newArrayList();
+        for (Map.Entry<String, Set<BlockPosition>> chunk : byChunk.entrySet()) {
+            QueryRequest request = queryRequest(table, null, PARTITION, chunk.getKey(), after.getTime() + 1, Long.MAX_VALUE, true);
+            lookups.add(CompletableFuture.runAsync(() -> {
+                //Newest first, so the first change found for a position is its latest
+                Set<BlockPosition> remaining = Sets.newHashSet(chunk.getValue());
+                Map<String, AttributeValue> lastKey;
+                do {
+                    QueryResult result = db.query(request);
+                    for (Map<String, AttributeValue> item : result.getItems()) {
+                        DataWrapper wrapper = RecordCodec.decode(item.get(DATA).getB().duplicate());
+                        if (!(wrapper.get(DataKeys.ORIGINAL_BLOCK).isPresent() || wrapper.get(DataKeys.NEW_BLOCK).isPresent())) {
+                            continue;
+                        }
+                        Optional<Integer> x = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.X));
+                        Optional<Integer> y = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Y));
+                        Optional<Integer> z = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Z));
+                        Optional<String> world = wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD));
+                        if (x.isPresent() && y.isPresent() && z.isPresent() && world.isPresent()) {
+                            BlockPosition position = new BlockPosition(UUID.fromString(world.get()), x.get(), y.get(), z.get());
+                            if (remaining.remove(position)) {
+                                latest.put(position, new Date(createdOf(item)));
+                                if (remaining.isEmpty()) {
+                                    return;
+                                }
+                            }
+                        }
+                    }
+                    lastKey = result.getLastEvaluatedKey();
+                    request.setExclusiveStartKey(lastKey);
+                } while (lastKey != null && !lastKey.isEmpty());
+            }, storageHandler.getQueryExecutor()));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).thenApply(ignored -> latest);
     }
 
-    private DataWrapper itemToDataWrapper(Item item) {
-        DataWrapper wrapper = DataWrapper.createNew();
+    @Override
+    public PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) {
+        RecordMatcher matcher = new RecordMatcher(conditions);
+        ScanBounds bounds = ScanBounds.from(conditions);
+        if (bounds.getMinCreated() > bounds.getMaxCreated()) {
+            return new PurgeBatch(0, null);
+        }
+
+        //A single page of a scan is looked at per batch, its last key is where the next batch continues
+        ScanRequest request = scanRequest(bounds, 0, 1).withLimit(limit);
+        if (after != null) {
+            String[] key = after.split("\\|", 2);
+            request.withExclusiveStartKey(ImmutableMap.of(PARTITION, new AttributeValue(key[0]), SORT, new AttributeValue(key[1])));
+        }
+        ScanResult result = storageHandler.getDynamoDB().scan(request);
 
-        item.asMap().forEach((key, value) -> {
-            DataKey dataKey = DataKey.of(key);
-            if (value instanceof Item) {
-                wrapper.set(dataKey, itemToDataWrapper((Item) value));
-            } else {
-                wrapper.set(dataKey, value);
+        List<WriteRequest> deletes = Lists.newArrayList();
+        for (Map<String, AttributeValue> item : result.getItems()) {
+            if (matcher.matches(RecordCodec.decode(item.get(DATA).getB().duplicate()))) {
+                deletes.add(new WriteRequest(new DeleteRequest(ImmutableMap.of(PARTITION, item.get(PARTITION), SORT, item.get(SORT)))));
             }
-        });
-        return wrapper;
+        }
+        //Deleted on the purge's own thread, which has to wait for them before moving on, rather than on the write threads
+        for (List<WriteRequest> batch : Lists.partition(deletes, BATCH_WRITE_LIMIT)) {
+            writeBatch(OmniConfig.INSTANCE.getTableName(), batch);
+        }
+
+        Map<String, AttributeValue> lastKey = result.getLastEvaluatedKey();
+        String next = lastKey == null || lastKey.isEmpty() ? null : lastKey.get(PARTITION).getS() + "|" + lastKey.get(SORT).getS();
+        return new PurgeBatch(deletes.size(), next);
+    }
+
+    /**
+     * Records expire through the time to live of the table instead, so this storage doesn't have the capability.
+     */
+    @Override
+    public PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) {
+        throw new UnsupportedOperationException("DynamoDB storage can't move records to the archive");
+    }
+
+    @Override
+    public RecordBatch export(List<SearchCondition> conditions, String after, int limit) {
+        RecordMatcher matcher = new RecordMatcher(conditions);
+        ScanBounds bounds = ScanBounds.from(conditions);
+        if (bounds.getMinCreated() > bounds.getMaxCreated()) {
+            return new RecordBatch(Collections.emptyList(), null);
+        }
+
+        //Gone through a page of a scan per batch, the same way as a purge
+        ScanRequest request = scanRequest(bounds, 0, 1).withLimit(limit);
+        if (after != null) {
+            String[] key = after.split("\\|", 2);
+            request.withExclusiveStartKey(ImmutableMap.of(PARTITION, new AttributeValue(key[0]), SORT, new AttributeValue(key[1])));
+        }
+        ScanResult result = storageHandler.getDynamoDB().scan(request);
+
+        List<DataWrapper> records = Lists.newArrayList();
+        Set<String> hashes = Sets.newHashSet();
+        for (Map<String, AttributeValue> item : result.getItems()) {
+            DataWrapper wrapper = RecordCodec.decode(item.get(DATA).getB().duplicate());
+            if (matcher.matches(wrapper)) {
+                records.add(wrapper);
+                hashes.addAll(ItemReferences.collectHashes(wrapper));
+            }
+        }
+        //The records keep their items themselves, so they don't depend on the items stored here
+        if (!hashes.isEmpty()) {
+            Map<String, String> items = readItems(hashes);
+            for (DataWrapper wrapper : records) {
+                ItemReferences.resolve(wrapper, items);
+            }
+        }
+
+        Map<String, AttributeValue> lastKey = result.getLastEvaluatedKey();
+        String next = lastKey == null || lastKey.isEmpty() ? null : lastKey.get(PARTITION).getS() + "|" + lastKey.get(SORT).getS();
+        return new RecordBatch(records, next);
+    }
+
+    /**
+     * Reads every item the entries refer to at once, and puts them back into the entries.
+     */
+    private void resolveItems(List<DataEntry> entries) {
+        Set<String> hashes = Sets.newHashSet();
+        for (DataEntry entry : entries) {
+            hashes.addAll(ItemReferences.collectHashes(entry.data));
+        }
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> items = readItems(hashes);
+        for (DataEntry entry : entries) {
+            ItemReferences.resolve(entry.data, items);
+        }
+    }
+
+    /**
+     * @return The stored items with the given hashes, by hash
+     */
+    private Map<String, String> readItems(Set<String> hashes) {
+        String table = storageHandler.getItemTableName();
+        AmazonDynamoDB db = storageHandler.getDynamoDB();
+        Map<String, String> items = Maps.newHashMap();
+        for (List<String> batch : Lists.partition(Lists.newArrayList(hashes), BATCH_GET_LIMIT)) {
+            List<Map<String, AttributeValue>> keys = Lists.newArrayListWithCapacity(batch.size());
+            for (String hash : batch) {
+                keys.add(Collections.singletonMap(HASH, new AttributeValue(hash)));
+            }
+            Map<String, KeysAndAttributes> pending = Collections.singletonMap(table, new KeysAndAttributes().withKeys(keys));
+            for (int attempt = 0; pending != null && !pending.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    if (attempt > MAX_RETRIES) {
+                        Omniscience.getPluginInstance().getLogger().warning("DynamoDB didn't return every item of a lookup after " + MAX_RETRIES + " retries");
+                        break;
+                    }
+                    backOff(attempt - 1);
+                }
+                BatchGetItemResult result = db.batchGetItem(new BatchGetItemRequest().withRequestItems(pending));
+                for (Map<String, AttributeValue> item : result.getResponses().getOrDefault(table, Collections.emptyList())) {
+                    items.put(item.get(HASH).getS(), item.get(ITEM).getS());
+                }
+                pending = result.getUnprocessedKeys();
+            }
+        }
+
+        ItemReferences.markStored(items.keySet());
+        return items;
     }
 }
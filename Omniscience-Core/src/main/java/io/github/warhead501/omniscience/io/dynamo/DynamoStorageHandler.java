@@ -1,24 +1,168 @@
 package io.github.warhead501.omniscience.io.dynamo;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import io.github.warhead501.omniscience.OmniConfig;
 import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
 import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
 import io.github.warhead501.omniscience.io.StorageHandler;
+import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Stores records in DynamoDB.
+ * <p>
+ * Records are partitioned by world and chunk, and sorted by the time they were created, so a radius lookup only queries
+ * the chunks it covers for the time frame it covers. Records without a location are partitioned by day instead. Lookups
+ * by player or event without an area use the indexes on those, anything else falls back to a parallel scan.
+ * </p>
+ * Setting {@code dynamodb.endpoint} points the handler at another endpoint than AWS, such as a DynamoDB Local instance.
+ */
 public class DynamoStorageHandler implements StorageHandler {
 
+    static final String PARTITION = "Partition";
+    static final String SORT = "Sort";
+    static final String PLAYER = "Player";
+    static final String EVENT = "Event";
+    static final String DATA = "Data";
+    static final String EXPIRES = "Expires";
+    static final String PLAYER_INDEX = "Player-Sort";
+    static final String EVENT_INDEX = "Event-Sort";
+    static final String HASH = "Hash";
+    static final String ITEM = "Item";
+
     private AmazonDynamoDB dynamoDB;
+    private ExecutorService writeExecutor;
+    private ExecutorService queryExecutor;
+    private int queryThreads;
     private DynamoRecordHandler recordHandler;
 
     @Override
     public boolean connect(Omniscience omniscience) {
-        dynamoDB = AmazonDynamoDBClientBuilder.standard()
-                .withRegion("@TODO")
-                .build();
+        FileConfiguration config = omniscience.getConfig();
+        String region = config.getString("dynamodb.region", "us-east-1");
+        String endpoint = config.getString("dynamodb.endpoint", "");
+        String accessKey = config.getString("dynamodb.accessKey", "");
+        String secretKey = config.getString("dynamodb.secretKey", "");
+        int writeThreads = Math.max(1, config.getInt("dynamodb.writeThreads", 4));
+        int queryThreads = Math.max(1, config.getInt("dynamodb.queryThreads", 8));
+
+        AmazonDynamoDBClientBuilder builder = AmazonDynamoDBClientBuilder.standard()
+                .withClientConfiguration(new ClientConfiguration().withMaxConnections(writeThreads + queryThreads));
+        if (endpoint == null || endpoint.isEmpty()) {
+            builder.withRegion(region);
+        } else {
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region));
+        }
+        //Without keys the default AWS credential chain is used, such as environment variables or an instance role
+        if (accessKey != null && !accessKey.isEmpty()) {
+            builder.withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)));
+        }
+        return connect(omniscience, builder.build(), writeThreads, queryThreads);
+    }
+
+    /**
+     * Sets up the tables and threads on a client that is already configured.
+     */
+    boolean connect(Omniscience omniscience, AmazonDynamoDB dynamoDB, int writeThreads, int queryThreads) {
+        this.dynamoDB = dynamoDB;
+        this.queryThreads = queryThreads;
+        String tableName = OmniConfig.INSTANCE.getTableName();
+        try {
+            createRecordTable(tableName);
+            createItemTable(getItemTableName());
+        } catch (Exception e) {
+            omniscience.getLogger().log(Level.SEVERE, "Failed to set up the DynamoDB table " + tableName, e);
+            dynamoDB.shutdown();
+            return false;
+        }
+
+        this.writeExecutor = createExecutor("Omniscience DynamoDB Writer #", writeThreads);
+        this.queryExecutor = createExecutor("Omniscience DynamoDB Query #", queryThreads);
+        this.recordHandler = new DynamoRecordHandler(this);
+        ItemReferences.setEnabled(OmniConfig.INSTANCE.isItemDeduplicationEnabled());
+        return true;
+    }
+
+    private void createRecordTable(String tableName) throws InterruptedException {
+        CreateTableRequest request = new CreateTableRequest()
+                .withTableName(tableName)
+                .withBillingMode(BillingMode.PAY_PER_REQUEST)
+                .withAttributeDefinitions(
+                        new AttributeDefinition(PARTITION, ScalarAttributeType.S),
+                        new AttributeDefinition(SORT, ScalarAttributeType.S),
+                        new AttributeDefinition(PLAYER, ScalarAttributeType.S),
+                        new AttributeDefinition(EVENT, ScalarAttributeType.S))
+                .withKeySchema(
+                        new KeySchemaElement(PARTITION, KeyType.HASH),
+                        new KeySchemaElement(SORT, KeyType.RANGE))
+                .withGlobalSecondaryIndexes(index(PLAYER_INDEX, PLAYER), index(EVENT_INDEX, EVENT));
+        TableUtils.createTableIfNotExists(dynamoDB, request);
+        TableUtils.waitUntilActive(dynamoDB, tableName);
+
+        String ttlStatus = dynamoDB.describeTimeToLive(new DescribeTimeToLiveRequest().withTableName(tableName))
+                .getTimeToLiveDescription().getTimeToLiveStatus();
+        if (TimeToLiveStatus.DISABLED.toString().equals(ttlStatus)) {
+            dynamoDB.updateTimeToLive(new UpdateTimeToLiveRequest()
+                    .withTableName(tableName)
+                    .withTimeToLiveSpecification(new TimeToLiveSpecification().withAttributeName(EXPIRES).withEnabled(true)));
+        }
+    }
+
+    private static GlobalSecondaryIndex index(String name, String partition) {
+        //Only the record itself is needed from an index, its time is part of the sort key
+        return new GlobalSecondaryIndex()
+                .withIndexName(name)
+                .withKeySchema(
+                        new KeySchemaElement(partition, KeyType.HASH),
+                        new KeySchemaElement(SORT, KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.INCLUDE).withNonKeyAttributes(DATA));
+    }
+
+    private void createItemTable(String tableName) throws InterruptedException {
+        CreateTableRequest request = new CreateTableRequest()
+                .withTableName(tableName)
+                .withBillingMode(BillingMode.PAY_PER_REQUEST)
+                .withAttributeDefinitions(new AttributeDefinition(HASH, ScalarAttributeType.S))
+                .withKeySchema(new KeySchemaElement(HASH, KeyType.HASH));
+        TableUtils.createTableIfNotExists(dynamoDB, request);
+        TableUtils.waitUntilActive(dynamoDB, tableName);
+    }
 
-        recordHandler = new DynamoRecordHandler(this);
-        return false;
+    private static ExecutorService createExecutor(String name, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
@@ -26,12 +170,50 @@ public class DynamoStorageHandler implements StorageHandler {
         return recordHandler;
     }
 
+    /**
+     * Everything but moving records into the archive tier.
+     */
     @Override
-    public void close() {
+    public Set<StorageCapability> getCapabilities() {
+        return EnumSet.complementOf(EnumSet.of(StorageCapability.ARCHIVE));
+    }
 
+    @Override
+    public void close() {
+        if (writeExecutor != null) {
+            writeExecutor.shutdown();
+            queryExecutor.shutdownNow();
+            try {
+                writeExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dynamoDB != null) {
+            dynamoDB.shutdown();
+        }
     }
 
     AmazonDynamoDB getDynamoDB() {
         return dynamoDB;
     }
+
+    ExecutorService getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    ExecutorService getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    /**
+     * @return The amount of queries run at once, and the amount of segments a scan is split into
+     */
+    int getQueryThreads() {
+        return queryThreads;
+    }
+
+    String getItemTableName() {
+        return OmniConfig.INSTANCE.getTableName() + "_items";
+    }
 }
@@ -0,0 +1,264 @@
+package io.github.warhead501.omniscience.io.journal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+
+import java.io.*;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Remembers the changes made by rollbacks and restores so that they can be undone, several levels deep.
+ * <p>
+ * Each level is compacted into {@link UndoRecord}s as soon as it is applied and written to a compressed file in the
+ * plugin's data folder. Only a small handle per level is kept in memory. Levels are capped per player, capped in size,
+ * and expire after {@link OmniConfig#getUndoExpiry()}.
+ * </p>
+ */
+public final class UndoJournal {
+
+    private static final int MAGIC = 0x4F4D4E55;
+    private static final byte VERSION = 1;
+
+    private final File directory;
+    private final ConcurrentMap<UUID, Deque<UndoLevel>> levels = Maps.newConcurrentMap();
+    //A single thread keeps reads of a level ordered after its write.
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Omniscience Undo Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UndoJournal(File directory) {
+        this.directory = directory;
+        //Journals from a previous run have no handles anymore, so they can never be undone.
+        deleteAll();
+        if (!directory.exists() && !directory.mkdirs()) {
+            Omniscience.getPluginInstance().getLogger().warning("Failed to create the undo journal folder at " + directory);
+        }
+    }
+
+    /**
+     * Journals the applied changes of a rollback or restore as the newest undo level for the given player.
+     * Must be called on the main thread, as the transactions are read from the world objects they hold.
+     *
+     * @param owner   The player who ran the rollback or restore
+     * @param results The results of the rollback or restore
+     * @return The amount of applied changes that could not be journaled because of {@link OmniConfig#getUndoMaxRecords()}
+     */
+    public int record(UUID owner, List<ActionResult> results) {
+        int maxRecords = OmniConfig.INSTANCE.getUndoMaxRecords();
+        List<UndoRecord> records = Lists.newArrayList();
+        int dropped = 0;
+        for (ActionResult result : results) {
+            if (!result.applied()) {
+                continue;
+            }
+            if (records.size() >= maxRecords) {
+                dropped++;
+                continue;
+            }
+            try {
+                UndoRecord.fromResult(result).ifPresent(records::add);
+            } catch (IOException e) {
+                Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to journal a change for undoing", e);
+            }
+        }
+        if (records.isEmpty()) {
+            return dropped;
+        }
+
+        File file = new File(directory, owner + "-" + System.nanoTime() + ".bin");
+        UndoLevel level = new UndoLevel(file, System.currentTimeMillis(), records.size());
+        ioExecutor.execute(() -> writeLevel(file, records));
+
+        //Pushed while holding the owner's entry, so purgeExpired can't remove the deque between getting and pushing to it
+        levels.compute(owner, (id, owned) -> {
+            if (owned == null) {
+                owned = new ConcurrentLinkedDeque<>();
+            }
+            owned.push(level);
+            while (owned.size() > Math.max(1, OmniConfig.INSTANCE.getUndoLevels())) {
+                UndoLevel oldest = owned.pollLast();
+                if (oldest != null) {
+                    discard(oldest);
+                }
+            }
+            return owned;
+        });
+        return dropped;
+    }
+
+    /**
+     * Removes the newest, unexpired undo level for the given player.
+     *
+     * @param owner The player to undo for
+     * @return The level to undo, if there is one
+     */
+    public Optional<UndoLevel> pop(UUID owner) {
+        purgeExpired();
+        Deque<UndoLevel> owned = levels.get(owner);
+        return owned == null ? Optional.empty() : Optional.ofNullable(owned.poll());
+    }
+
+    /**
+     * Reads the records of a level back from disk, off of the main thread. The level's file is removed afterwards.
+     *
+     * @param level A level obtained from {@link #pop(UUID)}
+     * @return The records of the level, in the order they were applied
+     */
+    public CompletableFuture<List<UndoRecord>> read(UndoLevel level) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readLevel(level.getFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                deleteFile(level.getFile());
+            }
+        }, ioExecutor);
+    }
+
+    /**
+     * Discards every level older than {@link OmniConfig#getUndoExpiry()}.
+     */
+    public void purgeExpired() {
+        long cutoff = DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getUndoExpiry(), false).getTime();
+        levels.values().forEach(owned -> owned.removeIf(level -> {
+            if (level.getCreated() < cutoff) {
+                discard(level);
+                return true;
+            }
+            return false;
+        }));
+        for (UUID owner : levels.keySet()) {
+            levels.computeIfPresent(owner, (id, owned) -> owned.isEmpty() ? null : owned);
+        }
+    }
+
+    public void close() {
+        levels.clear();
+        ioExecutor.shutdown();
+        try {
+            ioExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deleteAll();
+    }
+
+    private void discard(UndoLevel level) {
+        ioExecutor.execute(() -> deleteFile(level.getFile()));
+    }
+
+    private void deleteAll() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Omniscience.getPluginInstance().getLogger().warning("Failed to delete undo journal file " + file);
+        }
+    }
+
+    private void writeLevel(File file, List<UndoRecord> records) {
+        //Worlds and block data repeat heavily within a rollback, so they are written once and referenced by index.
+        Map<String, Integer> strings = Maps.newLinkedHashMap();
+        for (UndoRecord record : records) {
+            if (record.getWorld() != null) {
+                strings.putIfAbsent(record.getWorld().toString(), strings.size());
+            }
+            if (record.getBlockData() != null) {
+                strings.putIfAbsent(record.getBlockData(), strings.size());
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                out.writeUTF(string);
+            }
+            out.writeInt(records.size());
+            for (UndoRecord record : records) {
+                out.writeByte(record.getType().ordinal());
+                if (record.getType() == UndoRecord.Type.ENTITY) {
+                    out.writeLong(record.getEntityId().getMostSignificantBits());
+                    out.writeLong(record.getEntityId().getLeastSignificantBits());
+                    continue;
+                }
+                out.writeInt(strings.get(record.getWorld().toString()));
+                out.writeInt(record.getX());
+                out.writeInt(record.getY());
+                out.writeInt(record.getZ());
+                if (record.getType() == UndoRecord.Type.BLOCK) {
+                    out.writeInt(strings.get(record.getBlockData()));
+                }
+                byte[] contents = record.getContents();
+                out.writeInt(contents == null ? -1 : contents.length);
+                if (contents != null) {
+                    out.write(contents);
+                }
+            }
+        } catch (IOException e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to write undo journal file " + file, e);
+        }
+    }
+
+    private List<UndoRecord> readLevel(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Unrecognized undo journal file " + file);
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            UndoRecord.Type[] types = UndoRecord.Type.values();
+            List<UndoRecord> records = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                UndoRecord.Type type = types[in.readByte()];
+                if (type == UndoRecord.Type.ENTITY) {
+                    records.add(new UndoRecord(type, null, 0, 0, 0, null, null, new UUID(in.readLong(), in.readLong())));
+                    continue;
+                }
+                UUID world = UUID.fromString(strings[in.readInt()]);
+                int x = in.readInt();
+                int y = in.readInt();
+                int z = in.readInt();
+                String blockData = type == UndoRecord.Type.BLOCK ? strings[in.readInt()] : null;
+                int length = in.readInt();
+                byte[] contents = null;
+                if (length >= 0) {
+                    contents = new byte[length];
+                    in.readFully(contents);
+                }
+                records.add(new UndoRecord(type, world, x, y, z, blockData, contents, null));
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.warhead501.omniscience.io.journal;
+
+import java.io.File;
+
+/**
+ * A handle to one journaled rollback or restore. Only the location of its records on disk is kept in memory.
+ */
+public final class UndoLevel {
+
+    private final File file;
+    private final long created;
+    private final int recordCount;
+
+    UndoLevel(File file, long created, int recordCount) {
+        this.file = file;
+        this.created = created;
+        this.recordCount = recordCount;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The time, in milliseconds since epoch, that the rollback or restore was applied
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return The amount of changes that will be reversed when this level is undone
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.warhead501.omniscience.io.journal;
+
+import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.data.Transaction;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.entry.ActionableException;
+import io.github.warhead501.omniscience.api.entry.SkipReason;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.entity.Entity;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A single compact, undoable change. Holds nothing but primitives, strings and serialized item bytes so that
+ * journaled rollbacks never keep chunks, block states or entities alive.
+ */
+public final class UndoRecord {
+
+    private final Type type;
+    private final UUID world;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final String blockData;
+    private final byte[] contents;
+    private final UUID entityId;
+
+    UndoRecord(Type type, UUID world, int x, int y, int z, String blockData, byte[] contents, UUID entityId) {
+        this.type = type;
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.blockData = blockData;
+        this.contents = contents;
+        this.entityId = entityId;
+    }
+
+    /**
+     * Compacts the transaction held by an applied {@link ActionResult} into a record. Must be called on the main thread.
+     *
+     * @param result The result of a rollback or restore
+     * @return The record needed to reverse the change, or empty if the change can't be reversed
+     */
+    static Optional<UndoRecord> fromResult(ActionResult result) throws IOException {
+        Transaction<?> transaction = result.getTransaction();
+        if (!result.applied() || transaction == null) {
+            return Optional.empty();
+        }
+        Object original = transaction.getOriginalState().orElse(null);
+        Object after = transaction.getFinalState().orElse(null);
+
+        if (transaction instanceof LocationTransaction && original instanceof Inventory) {
+            Location location = ((LocationTransaction<?>) transaction).getLocation();
+            if (location.getWorld() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new UndoRecord(Type.INVENTORY, location.getWorld().getUID(),
+                    location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                    null, writeContents(((Inventory) original).getContents()), null));
+        } else if (original instanceof BlockState) {
+            BlockState state = (BlockState) original;
+            byte[] stateContents = null;
+            if (state instanceof Container) {
+                stateContents = writeContents(((Container) state).getSnapshotInventory().getContents());
+            }
+            return Optional.of(new UndoRecord(Type.BLOCK, state.getWorld().getUID(),
+                    state.getX(), state.getY(), state.getZ(),
+                    state.getBlockData().getAsString(), stateContents, null));
+        } else if (after instanceof Entity) {
+            return Optional.of(new UndoRecord(Type.ENTITY, null, 0, 0, 0, null, null, ((Entity) after).getUniqueId()));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reverses this change in the world. Must be called on the main thread.
+     *
+     * @return The result of reversing this change
+     */
+    public ActionResult apply() throws Exception {
+        if (type == Type.ENTITY) {
+            Entity entity = Bukkit.getEntity(entityId);
+            if (entity == null || entity.isDead() || !entity.isValid()) {
+                throw new ActionableException(ActionResult.skipped(SkipReason.INVALID));
+            }
+            entity.remove();
+            return ActionResult.success(null);
+        }
+
+        World bukkitWorld = Bukkit.getWorld(world);
+        if (bukkitWorld == null) {
+            throw new ActionableException(ActionResult.skipped(SkipReason.INVALID_LOCATION));
+        }
+        Block block = bukkitWorld.getBlockAt(x, y, z);
+
+        if (type == Type.BLOCK) {
+            block.setBlockData(DataHelper.parseBlockData(blockData)
+                    .orElseThrow(() -> new ActionableException(ActionResult.skipped(SkipReason.INVALID))), false);
+        } else if (!(block.getState() instanceof Container)) {
+            throw new ActionableException(ActionResult.skipped(SkipReason.INVALID));
+        }
+
+        if (contents != null && block.getState() instanceof Container) {
+            ((Container) block.getState()).getInventory().setContents(readContents(contents));
+        }
+        return ActionResult.success(null);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    UUID getWorld() {
+        return world;
+    }
+
+    int getX() {
+        return x;
+    }
+
+    int getY() {
+        return y;
+    }
+
+    int getZ() {
+        return z;
+    }
+
+    String getBlockData() {
+        return blockData;
+    }
+
+    byte[] getContents() {
+        return contents;
+    }
+
+    UUID getEntityId() {
+        return entityId;
+    }
+
+    private static byte[] writeContents(ItemStack[] items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeInt(items.length);
+            for (ItemStack item : items) {
+                out.writeObject(item);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ItemStack[] readContents(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            ItemStack[] items = new ItemStack[in.readInt()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = (ItemStack) in.readObject();
+            }
+            return items;
+        }
+    }
+
+    enum Type {
+        BLOCK,
+        INVENTORY,
+        ENTITY
+    }
+}
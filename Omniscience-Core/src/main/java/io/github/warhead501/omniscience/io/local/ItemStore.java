@@ -0,0 +1,161 @@
+package io.github.warhead501.omniscience.io.local;
+
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.io.RecordCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the items that records refer to by hash, in one append-only file. Only the position of every item is kept in
+ * memory, the items themselves are read from the file when a lookup needs them. Items are never removed while the
+ * store is in use, {@link #retain} drops the ones no record refers to anymore before it is.
+ */
+final class ItemStore {
+
+    private final File file;
+    private final Map<String, Long> positions = new ConcurrentHashMap<>();
+    private FileChannel channel;
+
+    ItemStore(File file) throws IOException {
+        this.file = file;
+        load();
+    }
+
+    private void load() throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        positions.clear();
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (position + 4 <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            if (length <= 0 || position + 4 + length > size) {
+                break;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(length);
+            channel.read(entry, position + 4);
+            entry.flip();
+            positions.put(RecordCodec.readString(entry), position);
+            position += 4 + length;
+        }
+        if (position < size) {
+            Omniscience.getPluginInstance().getLogger().warning("Dropping " + (size - position) + " bytes of incomplete items from " + file.getName());
+            channel.truncate(position);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the given items. Must be called before the store is used, as records written since
+     * could refer to items that are dropped.
+     *
+     * @param hashes The hashes of the items to keep
+     * @return How many items were dropped
+     */
+    int retain(Set<String> hashes) throws IOException {
+        int dropped = 0;
+        for (String hash : positions.keySet()) {
+            if (!hashes.contains(hash)) {
+                dropped++;
+            }
+        }
+        if (dropped == 0) {
+            return 0;
+        }
+
+        //Written next to the store and only renamed once complete, so a crash keeps the old file
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            for (Map.Entry<String, Long> item : positions.entrySet()) {
+                if (!hashes.contains(item.getKey())) {
+                    continue;
+                }
+                header.clear();
+                channel.read(header, item.getValue());
+                header.flip();
+                ByteBuffer entry = ByteBuffer.allocate(4 + header.getInt(0));
+                channel.read(entry, item.getValue());
+                entry.flip();
+                while (entry.hasRemaining()) {
+                    out.write(entry);
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        load();
+        return dropped;
+    }
+
+    /**
+     * Stores the items that aren't stored yet. Must only be called from one thread at a time.
+     *
+     * @param items The serialized items, by hash
+     */
+    void write(Map<String, String> items) throws IOException {
+        long position = channel.size();
+        for (Map.Entry<String, String> item : items.entrySet()) {
+            if (positions.containsKey(item.getKey())) {
+                continue;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            RecordCodec.writeString(out, item.getKey());
+            RecordCodec.writeString(out, item.getValue());
+            out.flush();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.size());
+            buffer.putInt(bytes.size()).put(bytes.toByteArray()).flip();
+            long entryPosition = position;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            positions.put(item.getKey(), entryPosition);
+        }
+    }
+
+    /**
+     * @param hashes The hashes of the items to read
+     * @return The serialized items that are stored, by hash
+     */
+    Map<String, String> read(Collection<String> hashes) throws IOException {
+        Map<String, String> items = Maps.newHashMap();
+        ByteBuffer header = ByteBuffer.allocate(4);
+        for (String hash : hashes) {
+            Long position = positions.get(hash);
+            if (position == null) {
+                continue;
+            }
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            ByteBuffer entry = ByteBuffer.allocate(header.getInt());
+            channel.read(entry, position + 4);
+            entry.flip();
+            RecordCodec.readString(entry);
+            items.put(hash, RecordCodec.readString(entry));
+        }
+        return items;
+    }
+
+    void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+}
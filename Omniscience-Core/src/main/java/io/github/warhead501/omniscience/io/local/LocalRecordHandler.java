@@ -0,0 +1,162 @@
+package io.github.warhead501.omniscience.io.local;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.*;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import io.github.warhead501.omniscience.io.BlockChanges;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordBatch;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.RecordMatcher;
+import io.github.warhead501.omniscience.io.RecordResults;
+import io.github.warhead501.omniscience.io.ScanBounds;
+import io.github.warhead501.omniscience.io.archive.ArchiveStore;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public class LocalRecordHandler implements RecordHandler {
+
+    private static final long EXPIRE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final SegmentStore store;
+    private final AtomicLong lastExpired = new AtomicLong();
+
+    LocalRecordHandler(SegmentStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public CompletableFuture<Void> write(List<DataWrapper> wrappers) {
+        try {
+            store.append(wrappers);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long now = System.currentTimeMillis();
+        long last = lastExpired.get();
+        //Only the write that moves the time forward expires, so concurrent writes don't expire twice
+        if (now - last >= EXPIRE_INTERVAL && lastExpired.compareAndSet(last, now)) {
+            store.expire(DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getRecordExpiry(), false).getTime());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeItems(Map<String, String> items) {
+        try {
+            store.appendItems(items);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<DataEntry>> query(QuerySession session) throws Exception {
+        Query query = session.getQuery();
+        checkNotNull(query);
+
+        if (session.hasFlag(Flag.NO_CHAT)) {
+            query.addCondition(FieldCondition.of(DataKeys.MESSAGE, MatchRule.EXISTS, false));
+        }
+
+        boolean newestFirst = session.getSortOrder() == QuerySession.Sort.NEWEST_FIRST;
+        ScanBounds bounds = ScanBounds.from(query.getSearchCriteria());
+        RecordMatcher matcher = new RecordMatcher(query.getSearchCriteria());
+        RecordResults results = new RecordResults(!session.hasFlag(Flag.NO_GROUP), newestFirst, query.getSearchLimit());
+        long started = System.nanoTime();
+
+        //Segments are read in order of their newest (or oldest) record, so once enough records were found and the next
+        //segment's newest (or oldest) record isn't wanted anymore, none of the remaining segments hold a wanted record
+        List<Segment> segments = store.getSegments(bounds, newestFirst);
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            segment.scan(bounds, (created, body) -> {
+                if (!results.wants(created)) {
+                    return true;
+                }
+                DataWrapper wrapper = RecordCodec.decode(body);
+                if (matcher.matches(wrapper)) {
+                    results.add(created, wrapper);
+                }
+                return true;
+            });
+            if (results.isFull() && i + 1 < segments.size()) {
+                Segment next = segments.get(i + 1);
+                if (!results.wants(newestFirst ? next.getMaxCreated() : next.getMinCreated())) {
+                    break;
+                }
+            }
+        }
+
+        List<DataEntry> entries = results.toEntries();
+        Omniscience.logDebug("Local Query: " + entries.size() + " results in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+        resolveItems(entries);
+        return CompletableFuture.completedFuture(entries);
+    }
+
+    @Override
+    public CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) throws Exception {
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(Maps.newHashMap());
+        }
+        BlockChanges changes = new BlockChanges(positions, after);
+        for (Segment segment : store.getSegments(changes.getBounds(), true)) {
+            segment.scan(changes.getBounds(), changes::visit);
+        }
+        return CompletableFuture.completedFuture(changes.getLatest());
+    }
+
+    /**
+     * Segments can't be rewritten in batches, so records are only removed once they expire. The storage has none of the
+     * capabilities these need, so they aren't called.
+     */
+    @Override
+    public PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) {
+        throw new UnsupportedOperationException("Local storage can't purge records");
+    }
+
+    @Override
+    public PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) {
+        throw new UnsupportedOperationException("Local storage can't move records to the archive");
+    }
+
+    @Override
+    public RecordBatch export(List<SearchCondition> conditions, String after, int limit) {
+        throw new UnsupportedOperationException("Local storage can't export records");
+    }
+
+    /**
+     * Reads every item the entries refer to at once, and puts them back into the entries.
+     */
+    private void resolveItems(List<DataEntry> entries) throws IOException {
+        Set<String> hashes = Sets.newHashSet();
+        for (DataEntry entry : entries) {
+            hashes.addAll(ItemReferences.collectHashes(entry.data));
+        }
+        if (hashes.isEmpty()) {
+            return;
+        }
+        Map<String, String> items = store.readItems(hashes);
+        ItemReferences.markStored(items.keySet());
+        for (DataEntry entry : entries) {
+            ItemReferences.resolve(entry.data, items);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.warhead501.omniscience.io.local;
+
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
+import io.github.warhead501.omniscience.api.util.DateUtil;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
+import io.github.warhead501.omniscience.io.StorageHandler;
+
+import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stores records in files in the plugin's folder, so no database has to be run next to the server.
+ *
+ * @see SegmentStore
+ */
+public class LocalStorageHandler implements StorageHandler {
+
+    private SegmentStore store;
+    private LocalRecordHandler recordHandler;
+
+    @Override
+    public boolean connect(Omniscience omniscience) {
+        File directory = new File(omniscience.getDataFolder(), omniscience.getConfig().getString("local.directory", "records"));
+        String segmentDuration = omniscience.getConfig().getString("local.segmentDuration", "1h");
+        long duration;
+        try {
+            duration = DateUtil.parseDuration(segmentDuration);
+        } catch (IllegalArgumentException e) {
+            duration = 0;
+        }
+        if (duration < TimeUnit.MINUTES.toMillis(1)) {
+            omniscience.getLogger().warning("Invalid configuration option for local.segmentDuration: " + segmentDuration + ". Defaulting to 1h");
+            duration = TimeUnit.HOURS.toMillis(1);
+        }
+        try {
+            this.store = new SegmentStore(directory, duration);
+        } catch (Exception e) {
+            omniscience.getLogger().log(Level.SEVERE, "Failed to open the local storage at " + directory, e);
+            return false;
+        }
+        store.expire(DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getRecordExpiry(), false).getTime());
+        this.recordHandler = new LocalRecordHandler(store);
+        ItemReferences.setEnabled(OmniConfig.INSTANCE.isItemDeduplicationEnabled());
+        return true;
+    }
+
+    @Override
+    public RecordHandler records() {
+        return recordHandler;
+    }
+
+    /**
+     * Lookups are complete, but records can't be read or deleted in batches, so they can't be exported, purged or
+     * archived. They are only removed once they expire.
+     */
+    @Override
+    public Set<StorageCapability> getCapabilities() {
+        return EnumSet.of(StorageCapability.GROUPING, StorageCapability.TEXT_SEARCH, StorageCapability.SPATIAL_INDEX);
+    }
+
+    @Override
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+}
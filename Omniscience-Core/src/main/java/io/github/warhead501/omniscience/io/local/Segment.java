@@ -0,0 +1,574 @@
+package io.github.warhead501.omniscience.io.local;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.ScanBounds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * One append-only file of records that were created in the same span of time.
+ * <p>
+ * The header holds the span of time the segment takes records for, but lookups go by the oldest and newest record the
+ * segment actually holds, so segments written with another span length are still searched correctly.
+ * Records are written as frames of {@code [length][created][record]}. Every {@link #BLOCK_RECORDS} frames form a block,
+ * and a small index of each block is kept next to the segment: the span of time, worlds, chunks and players of its
+ * records. Lookups skip every block whose index can't match, and read the rest through a memory mapping of the file.
+ * Frames written after the last full block are read without an index. A frame that was cut off by a crash is dropped
+ * when the segment is opened again.
+ * </p>
+ */
+final class Segment implements Comparable<Segment> {
+
+    private static final int MAGIC = 0x4F4D4E53;
+    private static final byte VERSION = 2;
+    //Version 1 had no end of the span in its header
+    private static final byte VERSION_WITHOUT_END = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8;
+    private static final int FRAME_HEADER_SIZE = 4 + 8;
+    static final int BLOCK_RECORDS = 256;
+    //A single mapping can't be larger than this, so a busy span of time is split over several parts
+    static final long MAX_SIZE = 1L << 30;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final long start;
+    private final long end;
+    private final int part;
+    private final int headerSize;
+
+    private final List<BlockIndex> blocks = new CopyOnWriteArrayList<>();
+    private volatile long committed;
+    private volatile long minCreated = Long.MAX_VALUE;
+    private volatile long maxCreated = Long.MIN_VALUE;
+
+    //Only touched by the writing thread
+    private FileChannel writeChannel;
+    private FileChannel indexChannel;
+    private BlockIndex.Builder openBlock;
+
+    private MappedByteBuffer mapping;
+
+    private Segment(File directory, long start, long end, int part, int headerSize) {
+        this.dataFile = new File(directory, start + "-" + part + ".seg");
+        this.indexFile = new File(directory, start + "-" + part + ".idx");
+        this.start = start;
+        this.end = end;
+        this.part = part;
+        this.headerSize = headerSize;
+    }
+
+    /**
+     * Creates a new, empty segment.
+     *
+     * @param start The first millisecond of the span the segment takes records for
+     * @param end   The millisecond after the last one of the span
+     */
+    static Segment create(File directory, long start, long end, int part) throws IOException {
+        Segment segment = new Segment(directory, start, end, part, HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(segment.dataFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).putLong(start).putLong(end).flip();
+            channel.write(header);
+        }
+        segment.committed = HEADER_SIZE;
+        return segment;
+    }
+
+    /**
+     * Opens a segment written by an earlier run, recovering the index of any frames the index file is missing.
+     *
+     * @param dataFile The {@code .seg} file
+     * @param duration The span length assumed for segments written before the span was stored in the header
+     * @return The segment, or null if the file isn't a segment
+     */
+    static Segment open(File dataFile, long duration) throws IOException {
+        String[] name = dataFile.getName().substring(0, dataFile.getName().length() - 4).split("-");
+        if (name.length != 2) {
+            return null;
+        }
+        int part;
+        try {
+            part = Integer.parseInt(name[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Segment segment;
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 4 + 1 + 8 || header.getInt() != MAGIC) {
+                return null;
+            }
+            byte version = header.get();
+            long start = header.getLong();
+            if (version == VERSION && header.remaining() >= 8) {
+                segment = new Segment(dataFile.getParentFile(), start, header.getLong(), part, HEADER_SIZE);
+            } else if (version == VERSION_WITHOUT_END) {
+                segment = new Segment(dataFile.getParentFile(), start, start + duration, part, 4 + 1 + 8);
+            } else {
+                return null;
+            }
+            segment.readIndex(channel.size());
+            segment.recoverTail(channel);
+        }
+        return segment;
+    }
+
+    private void readIndex(long dataSize) throws IOException {
+        if (!indexFile.exists()) {
+            return;
+        }
+        long valid = 0;
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || buffer.remaining() < 4 + length) {
+                    break;
+                }
+                buffer.position(buffer.position() + 4);
+                ByteBuffer entry = buffer.slice();
+                entry.limit(length);
+                BlockIndex block = BlockIndex.read(entry);
+                if (block.end > dataSize) {
+                    break;
+                }
+                blocks.add(block);
+                include(block.minCreated, block.maxCreated);
+                buffer.position(buffer.position() + length);
+                valid = buffer.position();
+            }
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    private void recoverTail(FileChannel channel) throws IOException {
+        long position = blocks.isEmpty() ? headerSize : blocks.get(blocks.size() - 1).end;
+        long size = channel.size();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position + FRAME_HEADER_SIZE <= size) {
+            frameHeader.clear();
+            channel.read(frameHeader, position);
+            frameHeader.flip();
+            int length = frameHeader.getInt();
+            long created = frameHeader.getLong();
+            if (length <= 0 || position + FRAME_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + FRAME_HEADER_SIZE);
+            body.flip();
+            Frame record;
+            try {
+                record = Frame.of(RecordCodec.decode(body), new byte[0], created);
+            } catch (RuntimeException e) {
+                break;
+            }
+            if (openBlock == null) {
+                openBlock = new BlockIndex.Builder(position);
+            }
+            position += FRAME_HEADER_SIZE + length;
+            openBlock.add(record, position);
+            include(created, created);
+        }
+        if (position < size) {
+            Omniscience.getPluginInstance().getLogger().warning("Dropping " + (size - position) + " bytes of incomplete records from " + dataFile.getName());
+            channel.truncate(position);
+        }
+        committed = position;
+    }
+
+    private void include(long from, long to) {
+        minCreated = Math.min(minCreated, from);
+        maxCreated = Math.max(maxCreated, to);
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    /**
+     * @param created When a record was created
+     * @return true if the record belongs in the span of this segment
+     */
+    boolean covers(long created) {
+        return created >= start && created < end;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return When the oldest record of the segment was created, or {@link Long#MAX_VALUE} if it has none
+     */
+    long getMinCreated() {
+        return minCreated;
+    }
+
+    /**
+     * @return When the newest record of the segment was created, or {@link Long#MIN_VALUE} if it has none
+     */
+    long getMaxCreated() {
+        return maxCreated;
+    }
+
+    int getPart() {
+        return part;
+    }
+
+    boolean isFull() {
+        return committed >= MAX_SIZE;
+    }
+
+    /**
+     * Appends records to the end of the segment. Must only be called from one thread at a time.
+     *
+     * @param records The records to write
+     */
+    void append(List<Frame> records) throws IOException {
+        if (writeChannel == null) {
+            writeChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.WRITE);
+            indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        int size = 0;
+        for (Frame record : records) {
+            size += FRAME_HEADER_SIZE + record.body.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long position = committed;
+        List<BlockIndex> sealed = Lists.newArrayList();
+        for (Frame record : records) {
+            if (openBlock == null) {
+                openBlock = new BlockIndex.Builder(position);
+            }
+            buffer.putInt(record.body.length).putLong(record.created).put(record.body);
+            position += FRAME_HEADER_SIZE + record.body.length;
+            openBlock.add(record, position);
+            if (openBlock.count >= BLOCK_RECORDS) {
+                sealed.add(openBlock.build());
+                openBlock = null;
+            }
+        }
+        buffer.flip();
+        long writePosition = committed;
+        while (buffer.hasRemaining()) {
+            writePosition += writeChannel.write(buffer, writePosition);
+        }
+        for (Frame record : records) {
+            include(record.created, record.created);
+        }
+        committed = position;
+        for (BlockIndex block : sealed) {
+            writeIndex(block);
+        }
+    }
+
+    private void writeIndex(BlockIndex block) throws IOException {
+        byte[] bytes = block.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes).flip();
+        while (buffer.hasRemaining()) {
+            indexChannel.write(buffer);
+        }
+        //Only published once every frame of the block is committed
+        blocks.add(block);
+    }
+
+    /**
+     * Indexes the frames after the last full block and stops writing, such as when a newer segment took over.
+     */
+    void closeWriter() {
+        try {
+            if (writeChannel != null) {
+                if (openBlock != null) {
+                    writeIndex(openBlock.build());
+                    openBlock = null;
+                }
+                writeChannel.force(false);
+                writeChannel.close();
+                indexChannel.close();
+            }
+        } catch (IOException e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to close segment " + dataFile.getName(), e);
+        } finally {
+            writeChannel = null;
+            indexChannel = null;
+        }
+    }
+
+    /**
+     * @param bounds What a lookup is limited to
+     * @return true if any record of the segment could be within the bounds
+     */
+    boolean mayContain(ScanBounds bounds) {
+        long min = minCreated;
+        long max = maxCreated;
+        return min <= max && bounds.overlapsTime(min, max);
+    }
+
+    /**
+     * Visits every record of the segment that could be within the bounds, in the order they were written.
+     * Safe to call while the segment is being written to.
+     *
+     * @param bounds  What the lookup is limited to
+     * @param visitor Gets every record that could match
+     * @return false if the visitor stopped the scan
+     */
+    boolean scan(ScanBounds bounds, Visitor visitor) throws IOException {
+        //Blocks are read before the committed size, so every block is within the mapping
+        BlockIndex[] indexed = blocks.toArray(new BlockIndex[0]);
+        long size = committed;
+        ByteBuffer view = map(size);
+        long tail = headerSize;
+        for (BlockIndex block : indexed) {
+            tail = Math.max(tail, block.end);
+            if (block.mayMatch(bounds) && !scan(view, block.offset, block.end, bounds, visitor)) {
+                return false;
+            }
+        }
+        return tail >= size || scan(view, tail, size, bounds, visitor);
+    }
+
+    private boolean scan(ByteBuffer view, long from, long to, ScanBounds bounds, Visitor visitor) {
+        int position = (int) from;
+        while (position + FRAME_HEADER_SIZE <= to) {
+            int length = view.getInt(position);
+            long created = view.getLong(position + 4);
+            int body = position + FRAME_HEADER_SIZE;
+            position = body + length;
+            if (!bounds.containsTime(created)) {
+                continue;
+            }
+            ByteBuffer frame = view.duplicate();
+            frame.position(body).limit(body + length);
+            if (!visitor.visit(created, frame.slice())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized ByteBuffer map(long size) throws IOException {
+        if (mapping == null || mapping.capacity() < size) {
+            try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return mapping.duplicate();
+    }
+
+    /**
+     * Stops writing and removes the segment from disk.
+     */
+    void delete() {
+        closeWriter();
+        synchronized (this) {
+            mapping = null;
+        }
+        if (!dataFile.delete() && dataFile.exists()) {
+            Omniscience.getPluginInstance().getLogger().warning("Failed to delete expired segment " + dataFile.getName());
+        }
+        indexFile.delete();
+    }
+
+    @Override
+    public int compareTo(Segment other) {
+        int compared = Long.compare(start, other.start);
+        return compared != 0 ? compared : Integer.compare(part, other.part);
+    }
+
+    interface Visitor {
+        /**
+         * @param created When the record was created
+         * @param body    The encoded record
+         * @return false to stop the scan
+         */
+        boolean visit(long created, ByteBuffer body);
+    }
+
+    /**
+     * An encoded record, along with the values it is indexed by.
+     */
+    static final class Frame {
+        final long created;
+        final byte[] body;
+        final String world;
+        final boolean located;
+        final long chunk;
+        final String player;
+
+        private Frame(long created, byte[] body, String world, boolean located, long chunk, String player) {
+            this.created = created;
+            this.body = body;
+            this.world = world;
+            this.located = located;
+            this.chunk = chunk;
+            this.player = player;
+        }
+
+        static Frame of(DataWrapper wrapper, byte[] body, long created) {
+            String world = wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD)).orElse(null);
+            Object x = wrapper.get(DataKeys.LOCATION.then(DataKeys.X)).orElse(null);
+            Object z = wrapper.get(DataKeys.LOCATION.then(DataKeys.Z)).orElse(null);
+            boolean located = x instanceof Number && z instanceof Number;
+            long chunk = located ? chunkKey(((Number) x).intValue() >> 4, ((Number) z).intValue() >> 4) : 0;
+            return new Frame(created, body, world, located, chunk, wrapper.getString(DataKeys.PLAYER_ID).orElse(null));
+        }
+
+        static Frame of(DataWrapper wrapper) throws IOException {
+            Object created = wrapper.get(DataKeys.CREATED).orElse(null);
+            long time = created instanceof Date ? ((Date) created).getTime() : System.currentTimeMillis();
+            return of(wrapper, RecordCodec.encode(wrapper), time);
+        }
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The sparse index of one block of frames.
+     */
+    static final class BlockIndex {
+        final long offset;
+        final long end;
+        final long minCreated;
+        final long maxCreated;
+        final Set<String> worlds;
+        final long[] chunks;
+        final Set<String> players;
+
+        private BlockIndex(long offset, long end, long minCreated, long maxCreated, Set<String> worlds, long[] chunks, Set<String> players) {
+            this.offset = offset;
+            this.end = end;
+            this.minCreated = minCreated;
+            this.maxCreated = maxCreated;
+            this.worlds = worlds;
+            this.chunks = chunks;
+            this.players = players;
+        }
+
+        boolean mayMatch(ScanBounds bounds) {
+            if (!bounds.overlapsTime(minCreated, maxCreated)) {
+                return false;
+            }
+            if (bounds.getWorlds() != null && worlds.stream().noneMatch(bounds.getWorlds()::contains)) {
+                return false;
+            }
+            if (bounds.getPlayers() != null && players.stream().noneMatch(bounds.getPlayers()::contains)) {
+                return false;
+            }
+            if (bounds.hasChunkBounds()) {
+                for (long chunk : chunks) {
+                    if (bounds.containsChunk((int) (chunk >> 32), (int) chunk)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(offset);
+            out.writeLong(end);
+            out.writeLong(minCreated);
+            out.writeLong(maxCreated);
+            out.writeInt(worlds.size());
+            for (String world : worlds) {
+                RecordCodec.writeString(out, world);
+            }
+            out.writeInt(chunks.length);
+            for (long chunk : chunks) {
+                out.writeLong(chunk);
+            }
+            out.writeInt(players.size());
+            for (String player : players) {
+                RecordCodec.writeString(out, player);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        static BlockIndex read(ByteBuffer buffer) {
+            long offset = buffer.getLong();
+            long end = buffer.getLong();
+            long minCreated = buffer.getLong();
+            long maxCreated = buffer.getLong();
+            Set<String> worlds = Sets.newHashSet();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                worlds.add(RecordCodec.readString(buffer));
+            }
+            long[] chunks = new long[buffer.getInt()];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = buffer.getLong();
+            }
+            Set<String> players = Sets.newHashSet();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                players.add(RecordCodec.readString(buffer));
+            }
+            return new BlockIndex(offset, end, minCreated, maxCreated, worlds, chunks, players);
+        }
+
+        static final class Builder {
+            private final long offset;
+            private long end;
+            private int count;
+            private long minCreated = Long.MAX_VALUE;
+            private long maxCreated = Long.MIN_VALUE;
+            private final Set<String> worlds = Sets.newHashSet();
+            private final Set<Long> chunks = Sets.newHashSet();
+            private final Set<String> players = Sets.newHashSet();
+
+            Builder(long offset) {
+                this.offset = offset;
+            }
+
+            void add(Frame record, long end) {
+                this.end = end;
+                count++;
+                minCreated = Math.min(minCreated, record.created);
+                maxCreated = Math.max(maxCreated, record.created);
+                if (record.world != null) {
+                    worlds.add(record.world);
+                }
+                if (record.located) {
+                    chunks.add(record.chunk);
+                }
+                if (record.player != null) {
+                    players.add(record.player);
+                }
+            }
+
+            BlockIndex build() {
+                long[] chunkArray = chunks.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(chunkArray);
+                return new BlockIndex(offset, end, minCreated, maxCreated, worlds, chunkArray, players);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.warhead501.omniscience.io.local;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.ScanBounds;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Level;
+
+/**
+ * The segments of the local storage, each holding the records created in one span of {@code duration} milliseconds.
+ * <p>
+ * Records are appended to the segment whose span they were created in, or to a new segment for the span of
+ * {@code duration} they fall in. Lookups only open the segments whose records overlap their time frame, and expired
+ * records are removed a whole segment at a time.
+ * </p>
+ * <p>
+ * The items of expired records are removed on the next start, once nothing can refer to them anymore.
+ * </p>
+ */
+final class SegmentStore {
+
+    //Left behind when segments expire, until the items only they referred to are removed
+    private static final String COMPACT_MARKER = "items.compact";
+
+    private final File directory;
+    private final long duration;
+    private final ConcurrentSkipListSet<Segment> segments = new ConcurrentSkipListSet<>();
+    //The segment being written to for every span that was written to recently, guarded by this
+    private final Map<Long, Segment> writers = Maps.newHashMap();
+    private final ItemStore items;
+
+    SegmentStore(File directory, long duration) throws IOException {
+        this.directory = directory;
+        this.duration = duration;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the storage folder at " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        boolean opened = true;
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    Segment segment = Segment.open(file, duration);
+                    if (segment != null) {
+                        segments.add(segment);
+                    }
+                } catch (IOException e) {
+                    opened = false;
+                    Omniscience.getPluginInstance().getLogger().log(Level.SEVERE, "Failed to open segment " + file.getName() + ", its records won't be searchable", e);
+                }
+            }
+        }
+        this.items = new ItemStore(new File(directory, "items.dat"));
+
+        //Items are only removed while nothing is written, and kept if a segment couldn't be read to tell what it refers to
+        File marker = new File(directory, COMPACT_MARKER);
+        if (marker.exists() && opened) {
+            int dropped = items.retain(collectItemHashes());
+            Omniscience.getPluginInstance().getLogger().info("Removed " + dropped + " items that only expired records referred to");
+            if (!marker.delete()) {
+                Omniscience.getPluginInstance().getLogger().warning("Failed to remove " + marker.getName() + ", items are checked again on the next start");
+            }
+        }
+    }
+
+    /**
+     * @return The hashes of every item a stored record refers to
+     */
+    private Set<String> collectItemHashes() throws IOException {
+        Set<String> hashes = Sets.newHashSet();
+        ScanBounds everything = ScanBounds.from(Lists.newArrayList());
+        for (Segment segment : segments) {
+            segment.scan(everything, (created, body) -> {
+                hashes.addAll(ItemReferences.collectHashes(RecordCodec.decode(body)));
+                return true;
+            });
+        }
+        return hashes;
+    }
+
+    /**
+     * @param hashes The hashes of the items to read
+     * @return The serialized items that are stored, by hash
+     */
+    Map<String, String> readItems(Collection<String> hashes) throws IOException {
+        return items.read(hashes);
+    }
+
+    synchronized void appendItems(Map<String, String> serialized) throws IOException {
+        items.write(serialized);
+    }
+
+    /**
+     * Appends records to the segments of the spans they were created in.
+     *
+     * @param wrappers The records to write
+     */
+    synchronized void append(List<DataWrapper> wrappers) throws IOException {
+        Map<Long, List<Segment.Frame>> bySpan = new TreeMap<>();
+        for (DataWrapper wrapper : wrappers) {
+            Segment.Frame record = Segment.Frame.of(wrapper);
+            bySpan.computeIfAbsent(spanStart(record.created), start -> Lists.newArrayList()).add(record);
+        }
+        for (Map.Entry<Long, List<Segment.Frame>> span : bySpan.entrySet()) {
+            getWriter(span.getKey()).append(span.getValue());
+        }
+
+        //Only the newest span keeps its files open, late records for older spans are rare
+        if (!writers.isEmpty()) {
+            long newest = writers.keySet().stream().mapToLong(Long::longValue).max().getAsLong();
+            writers.entrySet().removeIf(writer -> {
+                if (writer.getKey() < newest) {
+                    writer.getValue().closeWriter();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Segments written with another span length are kept in use, so a record goes to the segment covering it if any.
+     */
+    private long spanStart(long created) {
+        for (Segment writer : writers.values()) {
+            if (writer.covers(created)) {
+                return writer.getStart();
+            }
+        }
+        for (Segment segment : segments.descendingSet()) {
+            if (segment.covers(created)) {
+                return segment.getStart();
+            }
+        }
+        return Math.floorDiv(created, duration) * duration;
+    }
+
+    private Segment getWriter(long start) throws IOException {
+        Segment writer = writers.get(start);
+        if (writer == null) {
+            for (Segment segment : segments) {
+                if (segment.getStart() == start && (writer == null || segment.getPart() > writer.getPart())) {
+                    writer = segment;
+                }
+            }
+        }
+        if (writer == null) {
+            writer = Segment.create(directory, start, start + duration, 0);
+            segments.add(writer);
+        } else if (writer.isFull()) {
+            writer.closeWriter();
+            writer = Segment.create(directory, start, writer.getEnd(), writer.getPart() + 1);
+            segments.add(writer);
+        }
+        writers.put(start, writer);
+        return writer;
+    }
+
+    /**
+     * @param bounds      What a lookup is limited to
+     * @param newestFirst Whether the segments are ordered by their newest record, newest first, rather than by their
+     *                    oldest record, oldest first
+     * @return Every segment that could hold records within the bounds
+     */
+    List<Segment> getSegments(ScanBounds bounds, boolean newestFirst) {
+        List<Segment> matching = Lists.newArrayList();
+        for (Segment segment : segments) {
+            if (segment.mayContain(bounds)) {
+                matching.add(segment);
+            }
+        }
+        matching.sort(newestFirst
+                ? Comparator.comparingLong(Segment::getMaxCreated).reversed()
+                : Comparator.comparingLong(Segment::getMinCreated));
+        return matching;
+    }
+
+    /**
+     * Removes every segment whose records are all older than the cutoff.
+     *
+     * @param cutoff Records created before this are expired
+     */
+    synchronized void expire(long cutoff) {
+        boolean expired = false;
+        for (Segment segment : segments) {
+            if (segment.getMaxCreated() < cutoff) {
+                segments.remove(segment);
+                writers.remove(segment.getStart(), segment);
+                segment.delete();
+                expired = true;
+            }
+        }
+        if (expired) {
+            try {
+                new File(directory, COMPACT_MARKER).createNewFile();
+            } catch (IOException e) {
+                Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to mark the items for removal, the items of expired records are kept", e);
+            }
+        }
+    }
+
+    synchronized void close() {
+        writers.values().forEach(Segment::closeWriter);
+        writers.clear();
+        try {
+            items.close();
+        } catch (IOException e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to close the item store", e);
+        }
+    }
+}
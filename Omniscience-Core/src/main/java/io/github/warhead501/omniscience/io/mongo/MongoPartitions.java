@@ -0,0 +1,155 @@
+package io.github.warhead501.omniscience.io.mongo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of the collections records are split over when partitioning is enabled, one per day or week of their
+ * creation, named after the record collection such as {@code DataEntry_2026-10-19} or {@code DataEntry_2026w42}.
+ * <p>
+ * Periods are in UTC and made of whole days, so the days lookups group records by never span two collections.
+ * Collections of both periods are read, so the period can be changed without losing records. So is the unpartitioned
+ * collection, if it holds records from before partitioning was enabled.
+ * </p>
+ */
+final class MongoPartitions {
+
+    enum Period {
+        DAY,
+        WEEK
+    }
+
+    private final String table;
+    private final Period period;
+    private final Pattern dayName;
+    private final Pattern weekName;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Set<String> prepared = Sets.newConcurrentHashSet();
+    private volatile boolean unpartitioned;
+
+    MongoPartitions(String table, Period period) {
+        this.table = table;
+        this.period = period;
+        this.dayName = Pattern.compile(Pattern.quote(table) + "_(\\d{4})-(\\d{2})-(\\d{2})");
+        this.weekName = Pattern.compile(Pattern.quote(table) + "_(\\d{4})w(\\d{2})");
+    }
+
+    /**
+     * Picks up the partitions that already exist in the database.
+     *
+     * @param collectionNames The names of every collection in the database
+     */
+    void load(Collection<String> collectionNames) {
+        for (String name : collectionNames) {
+            Partition partition = parse(name);
+            if (partition != null) {
+                partitions.put(name, partition);
+            }
+        }
+        this.unpartitioned = collectionNames.contains(table);
+    }
+
+    /**
+     * @return The name of the partition a record created at that time is written to
+     */
+    String nameFor(long created) {
+        LocalDate date = Instant.ofEpochMilli(created).atZone(ZoneOffset.UTC).toLocalDate();
+        String name;
+        LocalDate start;
+        if (period == Period.DAY) {
+            name = String.format("%s_%04d-%02d-%02d", table, date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+            start = date;
+        } else {
+            name = String.format("%s_%04dw%02d", table, date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            start = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        partitions.computeIfAbsent(name, key -> new Partition(key, start, period == Period.DAY ? start.plusDays(1) : start.plusWeeks(1)));
+        return name;
+    }
+
+    /**
+     * Marks the partition as having its indexes, so they are only created once.
+     *
+     * @return false if it already was
+     */
+    boolean markPrepared(String name) {
+        return prepared.add(name);
+    }
+
+    /**
+     * @return The collections that can hold records created between the times, oldest first
+     */
+    List<String> between(long from, long to) {
+        List<String> names = Lists.newArrayList();
+        if (unpartitioned) {
+            names.add(table);
+        }
+        partitions.values().stream()
+                .filter(partition -> partition.start <= to && partition.end > from)
+                .sorted(Comparator.comparingLong((Partition partition) -> partition.start).thenComparing(partition -> partition.name))
+                .forEach(partition -> names.add(partition.name));
+        return names;
+    }
+
+    /**
+     * Forgets the partitions that only hold expired records, so they can be dropped.
+     *
+     * @param cutoff Records created before this are expired
+     * @return The names of the expired partitions
+     */
+    List<String> expire(long cutoff) {
+        List<String> expired = Lists.newArrayList();
+        partitions.values().removeIf(partition -> {
+            if (partition.end > cutoff) {
+                return false;
+            }
+            expired.add(partition.name);
+            prepared.remove(partition.name);
+            return true;
+        });
+        return expired;
+    }
+
+    private Partition parse(String name) {
+        Matcher day = dayName.matcher(name);
+        if (day.matches()) {
+            LocalDate start = LocalDate.of(Integer.parseInt(day.group(1)), Integer.parseInt(day.group(2)), Integer.parseInt(day.group(3)));
+            return new Partition(name, start, start.plusDays(1));
+        }
+        Matcher week = weekName.matcher(name);
+        if (week.matches()) {
+            LocalDate start = LocalDate.of(Integer.parseInt(week.group(1)), 1, 4)
+                    .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, Integer.parseInt(week.group(2)))
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            return new Partition(name, start, start.plusWeeks(1));
+        }
+        return null;
+    }
+
+    private static final class Partition {
+        private final String name;
+        private final long start;
+        private final long end;
+
+        private Partition(String name, LocalDate start, LocalDate end) {
+            this.name = name;
+            this.start = start.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            this.end = end.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -3,48 +3,137 @@ package io.github.warhead501.omniscience.io.mongo;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
-import com.mongodb.client.AggregateIterable;
+import com.google.common.collect.Sets;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.WriteModel;
 import io.github.warhead501.omniscience.api.OmniApi;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
 import io.github.warhead501.omniscience.api.data.DataKey;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.entry.DataAggregateEntry;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
 import io.github.warhead501.omniscience.api.flag.Flag;
 import io.github.warhead501.omniscience.api.query.*;
 import io.github.warhead501.omniscience.api.util.DataHelper;
 import io.github.warhead501.omniscience.api.util.DateUtil;
 import io.github.warhead501.omniscience.OmniConfig;
 import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordBatch;
 import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.ScanBounds;
+import io.github.warhead501.omniscience.io.archive.ArchiveStore;
 import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class MongoRecordHandler implements RecordHandler {
+    private static final long EXPIRE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    //How long a write waits for one of the running writes to finish before it gives up
+    private static final long WRITE_WAIT = TimeUnit.SECONDS.toMillis(30);
+
     private final BulkWriteOptions bulkWriteOptions = new BulkWriteOptions().ordered(false);
 
     private final MongoStorageHandler storageHandler;
+    private final AtomicLong lastExpired = new AtomicLong();
 
     public MongoRecordHandler(MongoStorageHandler storageHandler) {
         this.storageHandler = storageHandler;
     }
 
     @Override
-    public void write(List<DataWrapper> wrappers) {
-        MongoCollection<Document> collection = MongoStorageHandler.getCollection(OmniConfig.INSTANCE.getTableName());
+    public CompletableFuture<Void> write(List<DataWrapper> wrappers) {
+        MongoPartitions partitions = storageHandler.getPartitions();
+        if (partitions == null) {
+            List<WriteModel<Document>> documents = documentsFor(wrappers);
+            return submitWrite(() -> MongoStorageHandler.getWriteCollection(OmniConfig.INSTANCE.getTableName()).bulkWrite(documents, bulkWriteOptions));
+        }
+
+        long now = System.currentTimeMillis();
+        long last = lastExpired.get();
+        if (now - last >= EXPIRE_INTERVAL && lastExpired.compareAndSet(last, now)) {
+            dropExpiredPartitions();
+        }
+        //Records are written to the partition of the time they were created, which is nearly always just one
+        Map<String, List<DataWrapper>> byPartition = Maps.newLinkedHashMap();
+        for (DataWrapper wrapper : wrappers) {
+            long created = wrapper.get(DataKeys.CREATED)
+                    .filter(Date.class::isInstance)
+                    .map(date -> ((Date) date).getTime())
+                    .orElse(now);
+            byPartition.computeIfAbsent(partitions.nameFor(created), name -> Lists.newArrayList()).add(wrapper);
+        }
+        List<CompletableFuture<Void>> writes = Lists.newArrayList();
+        byPartition.forEach((name, partitionWrappers) -> {
+            List<WriteModel<Document>> documents = documentsFor(partitionWrappers);
+            writes.add(submitWrite(() -> {
+                MongoCollection<Document> collection = MongoStorageHandler.getWriteCollection(name);
+                if (partitions.markPrepared(name)) {
+                    MongoStorageHandler.createIndexes(collection, false);
+                }
+                collection.bulkWrite(documents, bulkWriteOptions);
+            }));
+        });
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Runs a write in the background. Only so many writes run at once, past that this waits up to {@link #WRITE_WAIT}
+     * for one to finish, so a slow database holds up the writing thread instead of piling up records in memory.
+     *
+     * @return Completes once the write is done, or exceptionally if it failed or no write finished in time
+     */
+    private CompletableFuture<Void> submitWrite(Runnable write) {
+        Semaphore inFlight = storageHandler.getWritesInFlight();
+        try {
+            if (!inFlight.tryAcquire(WRITE_WAIT, TimeUnit.MILLISECONDS)) {
+                Omniscience.getPluginInstance().getLogger().warning("MongoDB is falling behind, no write finished within "
+                        + TimeUnit.MILLISECONDS.toSeconds(WRITE_WAIT) + "s. The records are kept to retry with the next write.");
+                return CompletableFuture.failedFuture(new IllegalStateException("Timed out waiting for earlier writes to MongoDB"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    write.run();
+                } finally {
+                    inFlight.release();
+                }
+            }, storageHandler.getWriteExecutor());
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
+    private List<WriteModel<Document>> documentsFor(List<DataWrapper> wrappers) {
         List<WriteModel<Document>> documents = Lists.newArrayList();
         for (DataWrapper wrapper : wrappers) {
             Document document = documentFromDataWrapper(wrapper);
@@ -53,8 +142,47 @@ public class MongoRecordHandler implements RecordHandler {
 
             documents.add(new InsertOneModel<>(document));
         }
+        return documents;
+    }
+
+    /**
+     * Drops the partitions of which every record has expired. Partitions have no index expiring single records.
+     */
+    void dropExpiredPartitions() {
+        MongoPartitions partitions = storageHandler.getPartitions();
+        long cutoff = DateUtil.parseTimeStringToDate(OmniConfig.INSTANCE.getRecordExpiry(), false).getTime();
+        for (String name : partitions.expire(cutoff)) {
+            MongoStorageHandler.getCollection(name).drop();
+            Omniscience.getPluginInstance().getLogger().info("Dropped the expired partition " + name);
+        }
+    }
+
+    /**
+     * @return The collections that can hold records matching the conditions, oldest first
+     */
+    private List<String> collectionsFor(List<SearchCondition> conditions) {
+        ScanBounds bounds = ScanBounds.from(conditions);
+        return collectionsBetween(bounds.getMinCreated(), bounds.getMaxCreated());
+    }
+
+    private List<String> collectionsBetween(long from, long to) {
+        MongoPartitions partitions = storageHandler.getPartitions();
+        if (partitions == null) {
+            return Collections.singletonList(OmniConfig.INSTANCE.getTableName());
+        }
+        return partitions.between(from, to);
+    }
 
-        collection.bulkWrite(documents, bulkWriteOptions);
+    @Override
+    public CompletableFuture<Void> writeItems(Map<String, String> items) {
+        //Items are keyed by their hash, so writing one that is already stored changes nothing
+        List<WriteModel<Document>> documents = Lists.newArrayList();
+        items.forEach((hash, item) -> documents.add(new UpdateOneModel<>(
+                new Document("_id", hash),
+                new Document("$setOnInsert", new Document(DataKeys.ITEMSTACK.toString(), item)),
+                new UpdateOptions().upsert(true))));
+
+        return submitWrite(() -> MongoStorageHandler.getWriteCollection(getItemCollectionName()).bulkWrite(documents, bulkWriteOptions));
     }
 
     @Override
@@ -66,11 +194,6 @@ public class MongoRecordHandler implements RecordHandler {
             query.addCondition(FieldCondition.of(DataKeys.MESSAGE, MatchRule.EXISTS, false));
         }
 
-        List<DataEntry> entries = Lists.newArrayList();
-        CompletableFuture<List<DataEntry>> future = new CompletableFuture<>();
-
-        MongoCollection<Document> collection = MongoStorageHandler.getCollection(OmniConfig.INSTANCE.getTableName());
-
         Document matcher = new Document("$match", buildConditions(query.getSearchCriteria()));
 
         Document sortFields = new Document();
@@ -79,7 +202,8 @@ public class MongoRecordHandler implements RecordHandler {
 
         Document limit = new Document("$limit", query.getSearchLimit());
 
-        final AggregateIterable<Document> aggregated;
+        List<Document> pipeline = Lists.newArrayList();
+        pipeline.add(matcher);
         if (!session.hasFlag(Flag.NO_GROUP)) {
             Document groupFields = new Document();
             groupFields.put(DataKeys.EVENT_NAME.toString(), "$" + DataKeys.EVENT_NAME);
@@ -94,68 +218,341 @@ public class MongoRecordHandler implements RecordHandler {
             groupFields.put("year", new Document("$year", "$" + DataKeys.CREATED));
 
             Document groupHolder = new Document("_id", groupFields);
-            groupHolder.put(DataKeys.COUNT.toString(), new Document("$sum", 1));
+            //Merged records already hold the amount of changes they stand for
+            groupHolder.put(DataKeys.COUNT.toString(), new Document("$sum", new Document("$ifNull", Arrays.asList("$" + DataKeys.COUNT, 1))));
 
             Document group = new Document("$group", groupHolder);
-
-            List<Document> pipeline = Lists.newArrayList();
-            pipeline.add(matcher);
             pipeline.add(group);
-            pipeline.add(sorter);
-            pipeline.add(limit);
+        }
+        pipeline.add(sorter);
+        pipeline.add(limit);
+        Omniscience.logDebug("MongoDB Query: " + pipeline);
 
-            aggregated = collection.aggregate(pipeline);
-            Omniscience.logDebug("MongoDB Query: " + pipeline);
-        } else {
-            List<Document> pipeline = Lists.newArrayList();
-            pipeline.add(matcher);
-            pipeline.add(sorter);
-            pipeline.add(limit);
+        List<String> collections = collectionsFor(query.getSearchCriteria());
+        if (session.getSortOrder().getSortVal() < 0) {
+            collections = Lists.reverse(collections);
+        }
+        //Every collection is read on the query threads, the calling thread doesn't wait for any of them
+        List<CompletableFuture<List<Document>>> collectionResults = Lists.newArrayList();
+        for (String name : collections) {
+            collectionResults.add(CompletableFuture.supplyAsync(() -> aggregate(name, pipeline), storageHandler.getQueryExecutor()));
+        }
+        if (collections.size() > 1) {
+            Omniscience.logDebug("MongoDB Query ran on partitions " + collections);
+        }
+        return CompletableFuture.allOf(collectionResults.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<Document> results = collectionResults.size() == 1
+                    ? collectionResults.get(0).join()
+                    : mergePartitionResults(collectionResults, session, query.getSearchLimit());
+            List<DataEntry> entries = toEntries(results, session);
+            resolveItems(entries);
+            return entries;
+        });
+    }
+
+    private List<DataEntry> toEntries(List<Document> results, QuerySession session) {
+        List<DataEntry> entries = Lists.newArrayList();
+        for (Document wrapper : results) {
+            Document document = session.hasFlag(Flag.NO_GROUP) ? wrapper : (Document) wrapper.get("_id");
+            DataWrapper internalWrapper = documentToDataWrapper(document);
+
+            if (!session.hasFlag(Flag.NO_GROUP)) {
+                internalWrapper.set(DataKeys.COUNT, wrapper.get(DataKeys.COUNT.toString()));
+            }
 
-            aggregated = collection.aggregate(pipeline);
-            Omniscience.logDebug("MongoDB Query: " + pipeline);
+            DataEntry entry = DataEntry.from(document.get(DataKeys.EVENT_NAME.toString()).toString(), !session.hasFlag(Flag.NO_GROUP));
+
+            if (entry instanceof DataAggregateEntry) {
+                Calendar calendar = GregorianCalendar.getInstance();
+                calendar.set(Calendar.YEAR, document.getInteger("year"));
+                calendar.set(Calendar.MONTH, document.getInteger("month") - 1); //Subtract 1 because it's 0 through 11 for the months
+                calendar.set(Calendar.DAY_OF_MONTH, document.getInteger("dayOfMonth"));
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.HOUR, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                ((DataAggregateEntry) entry).setDate(calendar);
+            }
+
+            if (document.containsKey(DataKeys.PLAYER_ID.toString())) {
+                String uuid = document.getString(DataKeys.PLAYER_ID.toString());
+                OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(uuid));
+                if (player != null) {
+                    internalWrapper.set(DataKeys.CAUSE, player.getName());
+                } else {
+                    internalWrapper.set(DataKeys.CAUSE, uuid);
+                }
+            }
+
+            entry.data = internalWrapper;
+            entries.add(entry);
         }
+        return entries;
+    }
 
-        try (MongoCursor<Document> cursor = aggregated.iterator()) {
+    private static List<Document> aggregate(String collectionName, List<Document> pipeline) {
+        List<Document> results = Lists.newArrayList();
+        try (MongoCursor<Document> cursor = MongoStorageHandler.getLookupCollection(collectionName).aggregate(pipeline).iterator()) {
             while (cursor.hasNext()) {
-                Document wrapper = cursor.next();
-                Document document = session.hasFlag(Flag.NO_GROUP) ? wrapper : (Document) wrapper.get("_id");
-                DataWrapper internalWrapper = documentToDataWrapper(document);
+                results.add(cursor.next());
+            }
+        }
+        return results;
+    }
 
-                if (!session.hasFlag(Flag.NO_GROUP)) {
-                    internalWrapper.set(DataKeys.COUNT, wrapper.get(DataKeys.COUNT.toString()));
+    /**
+     * Merges what each partition found, in the order of the lookup. The days records are grouped by never span two
+     * partitions, but the unpartitioned collection can hold groups that a partition holds too, so those are added up
+     * and every group is sorted by its day again.
+     *
+     * @param partitionResults What each partition found, in the order the partitions are sorted in
+     */
+    private static List<Document> mergePartitionResults(List<CompletableFuture<List<Document>>> partitionResults,
+                                                        QuerySession session, int limit) {
+        List<Document> merged = Lists.newArrayList();
+        if (session.hasFlag(Flag.NO_GROUP)) {
+            for (CompletableFuture<List<Document>> result : partitionResults) {
+                merged.addAll(result.join());
+            }
+            Comparator<Document> byCreated = Comparator.<Document, Date>comparing(document -> document.getDate(DataKeys.CREATED.toString()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            merged.sort(session.getSortOrder().getSortVal() < 0 ? byCreated.reversed() : byCreated);
+        } else {
+            Map<Object, Document> groups = Maps.newLinkedHashMap();
+            for (CompletableFuture<List<Document>> result : partitionResults) {
+                for (Document group : result.join()) {
+                    groups.merge(group.get("_id"), group, (existing, added) -> existing.append(DataKeys.COUNT.toString(),
+                            ((Number) existing.get(DataKeys.COUNT.toString())).intValue() + ((Number) added.get(DataKeys.COUNT.toString())).intValue()));
                 }
+            }
+            merged.addAll(groups.values());
+            //The unpartitioned collection comes first whatever the days of its groups, so the days decide the order
+            Comparator<Document> byDay = Comparator.comparingInt((Document group) -> dayOf((Document) group.get("_id")));
+            merged.sort(session.getSortOrder().getSortVal() < 0 ? byDay.reversed() : byDay);
+        }
+        return merged.size() > limit ? Lists.newArrayList(merged.subList(0, limit)) : merged;
+    }
 
-                DataEntry entry = DataEntry.from(document.get(DataKeys.EVENT_NAME.toString()).toString(), !session.hasFlag(Flag.NO_GROUP));
-
-                if (entry instanceof DataAggregateEntry) {
-                    Calendar calendar = GregorianCalendar.getInstance();
-                    calendar.set(Calendar.YEAR, document.getInteger("year"));
-                    calendar.set(Calendar.MONTH, document.getInteger("month") - 1); //Subtract 1 because it's 0 through 11 for the months
-                    calendar.set(Calendar.DAY_OF_MONTH, document.getInteger("dayOfMonth"));
-                    calendar.set(Calendar.SECOND, 0);
-                    calendar.set(Calendar.MINUTE, 0);
-                    calendar.set(Calendar.HOUR, 0);
-                    calendar.set(Calendar.MILLISECOND, 0);
-                    ((DataAggregateEntry) entry).setDate(calendar);
-                }
+    private static int dayOf(Document groupId) {
+        return groupId.getInteger("year", 0) * 10000 + groupId.getInteger("month", 0) * 100 + groupId.getInteger("dayOfMonth", 0);
+    }
 
-                if (document.containsKey(DataKeys.PLAYER_ID.toString())) {
-                    String uuid = document.getString(DataKeys.PLAYER_ID.toString());
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(uuid));
-                    if (player != null) {
-                        internalWrapper.set(DataKeys.CAUSE, player.getName());
-                    } else {
-                        internalWrapper.set(DataKeys.CAUSE, uuid);
+    @Override
+    public CompletableFuture<Map<BlockPosition, Date>> getLatestBlockChanges(Collection<BlockPosition> positions, Date after) {
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(Maps.newHashMap());
+        }
+        Set<BlockPosition> wanted = positions instanceof Set ? (Set<BlockPosition>) positions : Sets.newHashSet(positions);
+
+        //One bounding box keeps this on the location index, the exact positions are picked out below
+        Set<String> worlds = Sets.newHashSet();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPosition position : wanted) {
+            worlds.add(position.getWorld().toString());
+            minX = Math.min(minX, position.getX());
+            minY = Math.min(minY, position.getY());
+            minZ = Math.min(minZ, position.getZ());
+            maxX = Math.max(maxX, position.getX());
+            maxY = Math.max(maxY, position.getY());
+            maxZ = Math.max(maxZ, position.getZ());
+        }
+
+        String world = DataKeys.LOCATION.then(DataKeys.WORLD).asString(".");
+        String x = DataKeys.LOCATION.then(DataKeys.X).asString(".");
+        String y = DataKeys.LOCATION.then(DataKeys.Y).asString(".");
+        String z = DataKeys.LOCATION.then(DataKeys.Z).asString(".");
+
+        Document filter = new Document(x, new Document("$gte", minX).append("$lte", maxX))
+                .append(z, new Document("$gte", minZ).append("$lte", maxZ))
+                .append(y, new Document("$gte", minY).append("$lte", maxY))
+                .append(DataKeys.CREATED.toString(), new Document("$gt", after))
+                .append(world, new Document("$in", Lists.newArrayList(worlds)))
+                .append("$or", Lists.newArrayList(
+                        new Document(DataKeys.ORIGINAL_BLOCK.toString(), new Document("$exists", true)),
+                        new Document(DataKeys.NEW_BLOCK.toString(), new Document("$exists", true))));
+
+        Document groupFields = new Document(DataKeys.WORLD.toString(), "$" + world)
+                .append(DataKeys.X.toString(), "$" + x)
+                .append(DataKeys.Y.toString(), "$" + y)
+                .append(DataKeys.Z.toString(), "$" + z);
+        Document group = new Document("_id", groupFields)
+                .append(DataKeys.CREATED.toString(), new Document("$max", "$" + DataKeys.CREATED));
+
+        List<Document> pipeline = Lists.newArrayList();
+        pipeline.add(new Document("$match", filter));
+        pipeline.add(new Document("$group", group));
+        Omniscience.logDebug("MongoDB Query: " + pipeline);
+
+        List<String> collections = collectionsBetween(after.getTime(), Long.MAX_VALUE);
+        return CompletableFuture.supplyAsync(() -> {
+            Map<BlockPosition, Date> latest = Maps.newHashMap();
+            for (String name : collections) {
+                //Always read from the primary, a lagging secondary could miss the changes this is meant to find
+                MongoCollection<Document> collection = MongoStorageHandler.getCollection(name)
+                        .withReadPreference(ReadPreference.primary());
+                try (MongoCursor<Document> cursor = collection.aggregate(pipeline).allowDiskUse(true).iterator()) {
+                    while (cursor.hasNext()) {
+                        Document result = cursor.next();
+                        Document id = (Document) result.get("_id");
+                        BlockPosition position = new BlockPosition(UUID.fromString(id.getString(DataKeys.WORLD.toString())),
+                                id.getInteger(DataKeys.X.toString()),
+                                id.getInteger(DataKeys.Y.toString()),
+                                id.getInteger(DataKeys.Z.toString()));
+                        if (wanted.contains(position)) {
+                            latest.merge(position, result.getDate(DataKeys.CREATED.toString()), (a, b) -> a.after(b) ? a : b);
+                        }
                     }
                 }
+            }
+            return latest;
+        }, storageHandler.getQueryExecutor());
+    }
+
+    @Override
+    public PurgeBatch purge(List<SearchCondition> conditions, String after, int limit) throws IOException {
+        return removeBatch(conditions, after, limit, null);
+    }
+
+    @Override
+    public PurgeBatch archive(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) throws IOException {
+        return removeBatch(conditions, after, limit, archive);
+    }
+
+    /**
+     * Reads one page of the records matching the conditions, in full with the items they refer to in place. A page can
+     * hold fewer records than the limit, or none, when it reaches the end of a partition while more are left.
+     */
+    @Override
+    public RecordBatch export(List<SearchCondition> conditions, String after, int limit) {
+        Page page = readPage(conditions, after, limit, true);
+        return new RecordBatch(page.records, page.next);
+    }
+
+    /**
+     * Deletes one batch of the records matching the conditions, after storing them in the archive if one is given.
+     */
+    private PurgeBatch removeBatch(List<SearchCondition> conditions, String after, int limit, ArchiveStore archive) throws IOException {
+        Page page = readPage(conditions, after, limit, archive != null);
+        if (page.ids.isEmpty()) {
+            return new PurgeBatch(0, page.next);
+        }
+        if (archive != null) {
+            archive.write(page.records);
+        }
+
+        MongoCollection<Document> collection = MongoStorageHandler.getWriteCollection(page.collection);
+        long deleted = collection.deleteMany(new Document("_id", new Document("$in", page.ids))).getDeletedCount();
+        Omniscience.logDebug("MongoDB " + (archive == null ? "Purge" : "Archive") + ": deleted " + deleted + " records from " + page.collection + " matching " + page.filter);
+        return new PurgeBatch((int) deleted, page.next);
+    }
+
+    /**
+     * Reads one page of the records matching the conditions, for purges, archiving and exports.
+     *
+     * @param full Whether the whole records are read, with the items they refer to in place, or only their ids
+     */
+    private Page readPage(List<SearchCondition> conditions, String after, int limit, boolean full) {
+        Page page = new Page();
+        //Each page continues in one collection, from "<collection>:<last _id>", and moves on once it runs out
+        List<String> collections = collectionsFor(conditions);
+        if (collections.isEmpty()) {
+            return page;
+        }
+        int index = 0;
+        ObjectId afterId = null;
+        if (after != null) {
+            int split = after.lastIndexOf(':');
+            String name = split < 0 ? OmniConfig.INSTANCE.getTableName() : after.substring(0, split);
+            String id = after.substring(split + 1);
+            //A partition that expired since is simply started over from the oldest one, which was gone through already
+            index = Math.max(0, collections.indexOf(name));
+            afterId = id.isEmpty() || !collections.contains(name) ? null : new ObjectId(id);
+        }
+        page.collection = collections.get(index);
+        String nextCollection = index + 1 < collections.size() ? collections.get(index + 1) + ":" : null;
+
+        //Paged by _id rather than skipped through, so every page starts right where the last one ended on the index
+        page.filter = buildConditions(conditions);
+        if (afterId != null) {
+            page.filter.append("_id", new Document("$gt", afterId));
+        }
+
+        FindIterable<Document> found = MongoStorageHandler.getWriteCollection(page.collection).find(page.filter)
+                .sort(new Document("_id", 1))
+                .limit(limit);
+        if (!full) {
+            found.projection(new Document("_id", 1));
+        }
+        try (MongoCursor<Document> cursor = found.iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                page.ids.add(document.getObjectId("_id"));
+                if (full) {
+                    document.remove("_id");
+                    document.remove("Expires");
+                    page.records.add(documentToDataWrapper(document));
+                }
+            }
+        }
+        if (page.ids.isEmpty()) {
+            page.next = nextCollection;
+            return page;
+        }
+        if (full) {
+            //The records keep their items themselves, so they don't depend on the items stored here
+            Set<String> hashes = Sets.newHashSet();
+            for (DataWrapper wrapper : page.records) {
+                hashes.addAll(ItemReferences.collectHashes(wrapper));
+            }
+            Map<String, String> items = readItems(hashes);
+            for (DataWrapper wrapper : page.records) {
+                ItemReferences.resolve(wrapper, items);
+            }
+        }
+        page.next = page.ids.size() < limit ? nextCollection : page.collection + ":" + page.ids.get(page.ids.size() - 1).toHexString();
+        return page;
+    }
+
+    /**
+     * Loads every item the entries refer to in one lookup, and puts them back into the entries.
+     */
+    private void resolveItems(List<DataEntry> entries) {
+        Set<String> hashes = Sets.newHashSet();
+        for (DataEntry entry : entries) {
+            hashes.addAll(ItemReferences.collectHashes(entry.data));
+        }
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> items = readItems(hashes);
+        ItemReferences.markStored(items.keySet());
+        for (DataEntry entry : entries) {
+            ItemReferences.resolve(entry.data, items);
+        }
+    }
 
-                entry.data = internalWrapper;
-                entries.add(entry);
+    /**
+     * @return The serialized items that are stored, by hash
+     */
+    private static Map<String, String> readItems(Set<String> hashes) {
+        Map<String, String> items = Maps.newHashMap();
+        if (hashes.isEmpty()) {
+            return items;
+        }
+        MongoCollection<Document> collection = MongoStorageHandler.getLookupCollection(getItemCollectionName());
+        try (MongoCursor<Document> cursor = collection.find(new Document("_id", new Document("$in", Lists.newArrayList(hashes)))).iterator()) {
+            while (cursor.hasNext()) {
+                Document item = cursor.next();
+                items.put(item.getString("_id"), item.getString(DataKeys.ITEMSTACK.toString()));
             }
-            future.complete(entries);
         }
-        return future;
+        return items;
+    }
+
+    private static String getItemCollectionName() {
+        return OmniConfig.INSTANCE.getTableName() + "_items";
     }
 
     private Document documentFromDataWrapper(DataWrapper wrapper) {
@@ -212,6 +609,8 @@ public class MongoRecordHandler implements RecordHandler {
                 wrapper.set(dataKey, ensureCorrectDataTypes((Collection) object));
             } else if (object instanceof Map) {
                 wrapper.set(dataKey, ensureCorrectDataTypes((Map<?, ?>) object));
+            } else if (object instanceof Binary) {
+                wrapper.set(dataKey, ((Binary) object).getData());
             } else {
                 wrapper.set(dataKey, object);
             }
@@ -306,4 +705,12 @@ public class MongoRecordHandler implements RecordHandler {
         }
         return filter;
     }
+
+    private static final class Page {
+        private final List<ObjectId> ids = Lists.newArrayList();
+        private final List<DataWrapper> records = Lists.newArrayList();
+        private String collection;
+        private Document filter;
+        private String next;
+    }
 }
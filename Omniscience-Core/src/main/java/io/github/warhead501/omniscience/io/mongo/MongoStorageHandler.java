@@ -2,8 +2,11 @@ package io.github.warhead501.omniscience.io.mongo;
 
 import com.google.common.collect.Lists;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.MongoCredential;
+import com.mongodb.ReadPreference;
 import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
@@ -12,18 +15,35 @@ import com.mongodb.client.model.IndexOptions;
 import com.mongodb.connection.ClusterSettings;
 import io.github.warhead501.omniscience.OmniConfig;
 import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.entry.ItemReferences;
+import io.github.warhead501.omniscience.api.util.DateUtil;
 import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
 import io.github.warhead501.omniscience.io.StorageHandler;
 import org.bson.Document;
+import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MongoStorageHandler implements StorageHandler {
 
     private static MongoDatabase database;
+    private static WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+    private static ReadPreference lookupReadPreference = ReadPreference.primary();
     private final String collectionName;
+    private MongoClient client;
+    private MongoPartitions partitions;
+    private ExecutorService writeExecutor;
+    private ExecutorService queryExecutor;
+    private Semaphore writesInFlight;
     private MongoRecordHandler recordHandler;
 
     public MongoStorageHandler() {
@@ -39,13 +59,30 @@ public class MongoStorageHandler implements StorageHandler {
         return null;
     }
 
+    /**
+     * @return The collection, writing with the configured write concern
+     */
+    protected static MongoCollection<Document> getWriteCollection(String collectionName) {
+        MongoCollection<Document> collection = getCollection(collectionName);
+        return collection == null ? null : collection.withWriteConcern(writeConcern);
+    }
+
+    /**
+     * @return The collection, reading from the members lookups are routed to
+     */
+    protected static MongoCollection<Document> getLookupCollection(String collectionName) {
+        MongoCollection<Document> collection = getCollection(collectionName);
+        return collection == null ? null : collection.withReadPreference(lookupReadPreference);
+    }
+
     @Override
     public boolean connect(Omniscience omniscience) {
-        Map<?, ?> serverList = omniscience.getConfig().getMapList("mongodb.servers").get(0);
+        FileConfiguration config = omniscience.getConfig();
+        Map<?, ?> serverList = config.getMapList("mongodb.servers").get(0);
         List<ServerAddress> addressMongoCredentialMap = Lists.newArrayList();
-        boolean usesAuth = omniscience.getConfig().getBoolean("mongodb.usesauth");
-        String username = omniscience.getConfig().getString("mongodb.user");
-        char[] password = omniscience.getConfig().getString("mongodb.password").toCharArray();
+        boolean usesAuth = config.getBoolean("mongodb.usesauth");
+        String username = config.getString("mongodb.user");
+        char[] password = config.getString("mongodb.password").toCharArray();
         MongoCredential cred = MongoCredential.createCredential(username, OmniConfig.INSTANCE.getAuthenticationDatabaseName(), password);
         for (Map.Entry<?, ?> server : serverList.entrySet()) {
             String serverName = (String) server.getKey();
@@ -55,49 +92,247 @@ public class MongoStorageHandler implements StorageHandler {
             addressMongoCredentialMap.add(new ServerAddress(host, port));
         }
 
+        int maxPoolSize = Math.max(1, OmniConfig.INSTANCE.getMaxPoolSize());
+        int minPoolSize = Math.min(Math.max(0, OmniConfig.INSTANCE.getMinPoolSize()), maxPoolSize);
+        long maxIdleTime = parseDuration(omniscience, "mongodb.maxConnectionIdleTime", "0");
+        long connectTimeout = parseDuration(omniscience, "mongodb.connectTimeout", "10s");
+        long socketTimeout = parseDuration(omniscience, "mongodb.socketTimeout", "0");
+        long serverSelectionTimeout = parseDuration(omniscience, "mongodb.serverSelectionTimeout", "30s");
+
+        writeConcern = parseWriteConcern(omniscience);
+        ReadPreference readPreference = parseReadPreference(omniscience, "mongodb.readPreference", ReadPreference.primary());
+        lookupReadPreference = parseReadPreference(omniscience, "mongodb.lookupReadPreference", readPreference);
+
         ClusterSettings clusterSettings = ClusterSettings
                 .builder()
                 .hosts(addressMongoCredentialMap)
+                .serverSelectionTimeout(serverSelectionTimeout, TimeUnit.MILLISECONDS)
                 .build();
-        MongoClientSettings settings = usesAuth ? MongoClientSettings.builder()
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
                 .applyToClusterSettings(builder -> builder.applySettings(clusterSettings))
-                .credential(cred)
-                .build()
-                : MongoClientSettings.builder()
-                .applyToClusterSettings(builder -> builder.applySettings(clusterSettings))
-                .build();
-        MongoClient client = MongoClients.create(settings);
+                .applyToConnectionPoolSettings(builder -> builder
+                        .maxSize(maxPoolSize)
+                        .minSize(minPoolSize)
+                        .maxConnectionIdleTime(maxIdleTime, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(builder -> builder
+                        .connectTimeout((int) connectTimeout, TimeUnit.MILLISECONDS)
+                        .readTimeout((int) socketTimeout, TimeUnit.MILLISECONDS))
+                .compressorList(parseCompressors(omniscience))
+                .writeConcern(writeConcern)
+                .readPreference(readPreference);
+        if (usesAuth) {
+            settings.credential(cred);
+        }
+        client = MongoClients.create(settings.build());
         database = client.getDatabase(OmniConfig.INSTANCE.getDatabaseName());
 
+        this.partitions = parsePartitions(omniscience, collectionName);
         this.recordHandler = new MongoRecordHandler(this);
+        ItemReferences.setEnabled(OmniConfig.INSTANCE.isItemDeduplicationEnabled());
         try {
             MongoCollection<Document> collection = getCollection(collectionName);
-            if (collection != null) {
-                collection.createIndex(
-                        new Document("Location.X", 1).append("Location.Z", 1).append("Location.Y", 1).append("Created", -1)
-                );
-                collection.createIndex(new Document("Created", -1).append("Event", 1));
-                collection.createIndex(new Document("Created", -1).append("Player", 1));
-
-                IndexOptions options = new IndexOptions().expireAfter(0L, TimeUnit.SECONDS);
-                collection.createIndex(new Document("Expires", 1), options);
-                return true;
-            } else {
+            if (collection == null) {
                 return false;
             }
+            if (partitions == null) {
+                createIndexes(collection, true);
+            } else {
+                partitions.load(database.listCollectionNames().into(Lists.newArrayList()));
+                recordHandler.dropExpiredPartitions();
+            }
+            //Writes and lookups run on their own threads, so neither the caller nor each other has to wait for them
+            int writeThreads = Math.max(1, config.getInt("mongodb.writeThreads", 4));
+            int queryThreads = Math.max(1, config.getInt("mongodb.queryThreads", 8));
+            this.writesInFlight = new Semaphore(Math.max(writeThreads, config.getInt("mongodb.maxPendingWrites", 16)));
+            this.writeExecutor = createExecutor("Omniscience MongoDB Writer #", writeThreads);
+            this.queryExecutor = createExecutor("Omniscience MongoDB Query #", queryThreads);
+            return true;
         } catch (Exception ex) {
             ex.printStackTrace();
             return false;
         }
     }
 
+    private static ExecutorService createExecutor(String name, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the indexes lookups use on a collection of records.
+     *
+     * @param expire Whether records are removed once they expire. Partitions are dropped as a whole instead.
+     */
+    static void createIndexes(MongoCollection<Document> collection, boolean expire) {
+        collection.createIndex(
+                new Document("Location.X", 1).append("Location.Z", 1).append("Location.Y", 1).append("Created", -1)
+        );
+        collection.createIndex(new Document("Created", -1).append("Event", 1));
+        collection.createIndex(new Document("Created", -1).append("Player", 1));
+        if (!OmniConfig.INSTANCE.getServerId().isEmpty()) {
+            //Lookups are scoped to one server by default, so each server only reads its own part of this index
+            collection.createIndex(new Document("Server", 1).append("Created", -1).append("Event", 1));
+        }
+
+        if (expire) {
+            IndexOptions options = new IndexOptions().expireAfter(0L, TimeUnit.SECONDS);
+            collection.createIndex(new Document("Expires", 1), options);
+        }
+    }
+
+    private static MongoPartitions parsePartitions(Omniscience omniscience, String collectionName) {
+        String value = omniscience.getConfig().getString("mongodb.partitioning", "none");
+        switch (value.toLowerCase()) {
+            case "none":
+                return null;
+            case "day":
+                return new MongoPartitions(collectionName, MongoPartitions.Period.DAY);
+            case "week":
+                return new MongoPartitions(collectionName, MongoPartitions.Period.WEEK);
+            default:
+                omniscience.getLogger().warning("Invalid configuration option for mongodb.partitioning: " + value + ". Defaulting to none");
+                return null;
+        }
+    }
+
+    /**
+     * @return The duration in milliseconds, where 0 means no limit
+     */
+    private static long parseDuration(Omniscience omniscience, String path, String def) {
+        String value = omniscience.getConfig().getString(path, def);
+        if (value == null || value.isEmpty() || value.equals("0")) {
+            return 0;
+        }
+        try {
+            return DateUtil.parseDuration(value);
+        } catch (IllegalArgumentException e) {
+            omniscience.getLogger().warning("Invalid configuration option for " + path + ": " + value + ". Defaulting to " + def);
+            return def.equals("0") ? 0 : DateUtil.parseDuration(def);
+        }
+    }
+
+    private static WriteConcern parseWriteConcern(Omniscience omniscience) {
+        String value = omniscience.getConfig().getString("mongodb.writeConcern", "acknowledged");
+        WriteConcern concern;
+        if (value.matches("\\d+")) {
+            concern = new WriteConcern(Integer.parseInt(value));
+        } else {
+            concern = WriteConcern.valueOf(value.toUpperCase());
+            if (concern == null) {
+                omniscience.getLogger().warning("Invalid configuration option for mongodb.writeConcern: " + value + ". Defaulting to acknowledged");
+                concern = WriteConcern.ACKNOWLEDGED;
+            }
+        }
+        if (omniscience.getConfig().getBoolean("mongodb.journal", false)) {
+            concern = concern.withJournal(true);
+        }
+        return concern;
+    }
+
+    private static ReadPreference parseReadPreference(Omniscience omniscience, String path, ReadPreference def) {
+        String value = omniscience.getConfig().getString(path, "");
+        if (value == null || value.isEmpty()) {
+            return def;
+        }
+        try {
+            return ReadPreference.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            omniscience.getLogger().warning("Invalid configuration option for " + path + ": " + value + ". Defaulting to " + def.getName());
+            return def;
+        }
+    }
+
+    /**
+     * Compressors are offered to the server in the configured order. Zstandard and Snappy need their library, which
+     * is loaded by the server from the libraries in plugin.yml, and are skipped if it is missing.
+     */
+    private static List<MongoCompressor> parseCompressors(Omniscience omniscience) {
+        List<MongoCompressor> compressors = Lists.newArrayList();
+        for (String name : omniscience.getConfig().getStringList("mongodb.compressors")) {
+            switch (name.toLowerCase()) {
+                case "zstd":
+                    if (isPresent("com.github.luben.zstd.Zstd")) {
+                        compressors.add(MongoCompressor.createZstdCompressor());
+                    } else {
+                        omniscience.getLogger().warning("The zstd library isn't available, not compressing with zstd");
+                    }
+                    break;
+                case "snappy":
+                    if (isPresent("org.xerial.snappy.Snappy")) {
+                        compressors.add(MongoCompressor.createSnappyCompressor());
+                    } else {
+                        omniscience.getLogger().warning("The snappy library isn't available, not compressing with snappy");
+                    }
+                    break;
+                case "zlib":
+                    compressors.add(MongoCompressor.createZlibCompressor());
+                    break;
+                default:
+                    omniscience.getLogger().warning("Invalid configuration option for mongodb.compressors: " + name + ". Use zstd, snappy or zlib");
+            }
+        }
+        return compressors;
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, MongoStorageHandler.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
     @Override
     public RecordHandler records() {
         return recordHandler;
     }
 
+    /**
+     * @return The partitions records are split over, or null if they are all stored in one collection
+     */
+    MongoPartitions getPartitions() {
+        return partitions;
+    }
+
+    ExecutorService getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    ExecutorService getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    /**
+     * @return The writes that may be queued or running at once
+     */
+    Semaphore getWritesInFlight() {
+        return writesInFlight;
+    }
+
     @Override
-    public void close() {
+    public Set<StorageCapability> getCapabilities() {
+        return EnumSet.allOf(StorageCapability.class);
+    }
 
+    @Override
+    public void close() {
+        if (writeExecutor != null) {
+            //Records that were handed over before shutting down are still written
+            writeExecutor.shutdown();
+            queryExecutor.shutdownNow();
+            try {
+                writeExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (client != null) {
+            client.close();
+        }
     }
 }
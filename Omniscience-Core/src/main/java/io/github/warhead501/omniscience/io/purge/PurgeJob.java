@@ -0,0 +1,313 @@
+package io.github.warhead501.omniscience.io.purge;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.io.BackgroundJob;
+import io.github.warhead501.omniscience.io.PurgeBatch;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes the records matching a lookup in batches of {@link OmniConfig#getPurgeBatchLimit()}, on a thread of its own
+ * so it never holds up writing or looking up records. Only one purge runs at a time.
+ * <p>
+ * The conditions and progress of a purge are saved after every batch, so a purge that was stopped or cut off by a
+ * restart can be resumed where it left off. A purge never deletes records created after it was started.
+ * </p>
+ */
+public enum PurgeJob {
+    INSTANCE;
+
+    private final BackgroundJob<Progress> job = new BackgroundJob<>("Omniscience Purge");
+    private File file;
+
+    /**
+     * @param dataFolder The folder the progress of a purge is saved in
+     */
+    public void setup(File dataFolder) {
+        this.file = new File(dataFolder, "purge.yml");
+        if (file.exists()) {
+            Omniscience.getPluginInstance().getLogger().info("A purge was stopped before it finished. Use /omni purge resume to continue it.");
+        }
+    }
+
+    public boolean isRunning() {
+        return job.isRunning();
+    }
+
+    /**
+     * @return Whether a stopped purge was saved that can be resumed
+     */
+    public boolean canResume() {
+        return file.exists();
+    }
+
+    /**
+     * Starts purging the records matching the conditions. Replaces a stopped purge that wasn't resumed.
+     *
+     * @param sender      Who started the purge, and is told how it goes
+     * @param description The parameters the conditions were made from, to show when resuming
+     * @param conditions  The conditions records have to match to be purged
+     */
+    public synchronized void start(CommandSender sender, String description, List<SearchCondition> conditions) {
+        if (job.isRunning()) {
+            throw new IllegalStateException("A purge is already running. Stop it with /omni purge stop first.");
+        }
+        checkSupported();
+        List<SearchCondition> bounded = Lists.newArrayList(conditions);
+        bounded.add(FieldCondition.of(DataKeys.CREATED, MatchRule.LESS_THAN_EQUAL, new Date()));
+        Progress progress = new Progress(description, bounded, null, 0);
+        save(progress);
+        run(sender, progress);
+    }
+
+    /**
+     * Continues the purge that was saved when it was stopped.
+     *
+     * @param sender Who resumed the purge, and is told how it goes
+     * @return The parameters of the resumed purge
+     */
+    public synchronized String resume(CommandSender sender) {
+        if (job.isRunning()) {
+            throw new IllegalStateException("A purge is already running.");
+        }
+        if (!file.exists()) {
+            throw new IllegalStateException("There is no stopped purge to resume.");
+        }
+        checkSupported();
+        Progress progress = load();
+        run(sender, progress);
+        return progress.getDescription();
+    }
+
+    /**
+     * Checked before anything is saved, so a purge the storage can't run is never started or resumed.
+     */
+    public void checkSupported() {
+        if (!Omniscience.getStorageHandler().getCapabilities().contains(StorageCapability.PURGE)) {
+            throw new IllegalStateException("This storage can't purge records, they are only removed once they expire.");
+        }
+    }
+
+    /**
+     * Stops the running purge after its current batch. Its progress is kept so it can be resumed.
+     *
+     * @return false if no purge was running
+     */
+    public boolean stop() {
+        return job.stop();
+    }
+
+    /**
+     * @return The parameters and amount of deleted records of the running purge
+     */
+    public Optional<String> getStatus() {
+        return job.getRunning().map(progress -> "Purging " + progress.getDescription() + ": " + progress.deleted + " records deleted so far");
+    }
+
+    /**
+     * Stops the running purge and waits shortly for its current batch, so its progress is saved before shutting down.
+     */
+    public void shutdown() {
+        job.shutdown();
+    }
+
+    private void run(CommandSender sender, Progress progress) {
+        job.run(sender, progress, () -> purge(sender, progress), e -> "Purging " + progress.getDescription() + " failed after deleting "
+                + progress.deleted + " records, check the console for details. Resume it with /omni purge resume.");
+    }
+
+    private void purge(CommandSender sender, Progress progress) throws Exception {
+        RecordHandler records = Omniscience.getStorageHandler().records();
+        while (!progress.isStopped()) {
+            long started = System.currentTimeMillis();
+            PurgeBatch batch = records.purge(progress.conditions, progress.after, Math.max(1, OmniConfig.INSTANCE.getPurgeBatchLimit()));
+            progress.deleted += batch.getDeleted();
+            progress.after = batch.getNext();
+            if (batch.isDone()) {
+                if (!file.delete()) {
+                    Omniscience.getPluginInstance().getLogger().warning("Failed to delete " + file.getName() + " after finishing a purge");
+                }
+                BackgroundJob.report(sender, Formatter.success("Purge finished, " + progress.deleted + " records were deleted."));
+                return;
+            }
+            save(progress);
+
+            if (progress.isReportDue()) {
+                BackgroundJob.report(sender, Formatter.subHeader("Purge in progress, " + progress.deleted + " records deleted so far."));
+            }
+            //Waits at least as long as the batch took, so a purge never takes up more than half of the database's time
+            Thread.sleep(Math.max(OmniConfig.INSTANCE.getPurgeDelay(), System.currentTimeMillis() - started));
+        }
+        BackgroundJob.report(sender, Formatter.success("Purge stopped after deleting " + progress.deleted + " records. Resume it with /omni purge resume."));
+    }
+
+    private void save(Progress progress) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("description", progress.getDescription());
+        config.set("after", progress.after);
+        config.set("deleted", progress.deleted);
+        List<Map<String, Object>> conditions = Lists.newArrayList();
+        for (SearchCondition condition : progress.conditions) {
+            conditions.add(encode(condition));
+        }
+        config.set("conditions", conditions);
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            Omniscience.getPluginInstance().getLogger().log(Level.WARNING, "Failed to save the progress of the purge, it can't be resumed", e);
+        }
+    }
+
+    private Progress load() {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        List<SearchCondition> conditions = Lists.newArrayList();
+        for (Map<?, ?> condition : config.getMapList("conditions")) {
+            conditions.add(decode(condition));
+        }
+        return new Progress(config.getString("description"), conditions, config.getString("after"), config.getLong("deleted"));
+    }
+
+    static Map<String, Object> encode(SearchCondition condition) {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        if (condition instanceof SearchConditionGroup) {
+            SearchConditionGroup group = (SearchConditionGroup) condition;
+            List<Map<String, Object>> conditions = Lists.newArrayList();
+            for (SearchCondition inner : group.getConditions()) {
+                conditions.add(encode(inner));
+            }
+            map.put("operator", group.getOperator().name());
+            map.put("conditions", conditions);
+        } else {
+            FieldCondition field = (FieldCondition) condition;
+            map.put("field", field.getField().asString("."));
+            map.put("rule", field.getRule().name());
+            map.put("value", encodeValue(field.getValue()));
+        }
+        return map;
+    }
+
+    static SearchCondition decode(Map<?, ?> map) {
+        if (map.containsKey("operator")) {
+            SearchConditionGroup group = new SearchConditionGroup(SearchConditionGroup.Operator.valueOf((String) map.get("operator")));
+            for (Object inner : (List<?>) map.get("conditions")) {
+                group.add(decode((Map<?, ?>) inner));
+            }
+            return group;
+        }
+        DataKey field = DataKey.of(((String) map.get("field")).split("\\."));
+        return FieldCondition.of(field, MatchRule.valueOf((String) map.get("rule")), decodeValue((Map<?, ?>) map.get("value")));
+    }
+
+    /**
+     * Values are saved with their type, and numbers as text, so they come back exactly as they were.
+     */
+    private static Map<String, Object> encodeValue(Object value) {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        if (value instanceof Pattern) {
+            map.put("type", "pattern");
+            map.put("value", ((Pattern) value).pattern());
+            map.put("flags", ((Pattern) value).flags());
+        } else if (value instanceof Date) {
+            map.put("type", "date");
+            map.put("value", Long.toString(((Date) value).getTime()));
+        } else if (value instanceof Range) {
+            Range<?> range = (Range<?>) value;
+            map.put("type", "range");
+            if (range.hasLowerBound()) {
+                map.put("lower", encodeValue(range.lowerEndpoint()));
+                map.put("lowerType", range.lowerBoundType().name());
+            }
+            if (range.hasUpperBound()) {
+                map.put("upper", encodeValue(range.upperEndpoint()));
+                map.put("upperType", range.upperBoundType().name());
+            }
+        } else if (value instanceof List) {
+            List<Map<String, Object>> values = Lists.newArrayList();
+            for (Object inner : (List<?>) value) {
+                values.add(encodeValue(inner));
+            }
+            map.put("type", "list");
+            map.put("value", values);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean || value instanceof String) {
+            map.put("type", value.getClass().getSimpleName().toLowerCase());
+            map.put("value", value.toString());
+        } else {
+            throw new IllegalArgumentException("Can't save a condition on " + value.getClass().getName());
+        }
+        return map;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object decodeValue(Map<?, ?> map) {
+        String value = String.valueOf(map.get("value"));
+        switch ((String) map.get("type")) {
+            case "pattern":
+                return Pattern.compile(value, ((Number) map.get("flags")).intValue());
+            case "date":
+                return new Date(Long.parseLong(value));
+            case "range":
+                Comparable lower = map.containsKey("lower") ? (Comparable) decodeValue((Map<?, ?>) map.get("lower")) : null;
+                Comparable upper = map.containsKey("upper") ? (Comparable) decodeValue((Map<?, ?>) map.get("upper")) : null;
+                if (lower != null && upper != null) {
+                    return Range.range(lower, BoundType.valueOf((String) map.get("lowerType")), upper, BoundType.valueOf((String) map.get("upperType")));
+                } else if (lower != null) {
+                    return Range.downTo(lower, BoundType.valueOf((String) map.get("lowerType")));
+                } else if (upper != null) {
+                    return Range.upTo(upper, BoundType.valueOf((String) map.get("upperType")));
+                }
+                return Range.all();
+            case "list":
+                List<Object> values = Lists.newArrayList();
+                for (Object inner : (List<?>) map.get("value")) {
+                    values.add(decodeValue((Map<?, ?>) inner));
+                }
+                return values;
+            case "integer":
+                return Integer.parseInt(value);
+            case "long":
+                return Long.parseLong(value);
+            case "double":
+                return Double.parseDouble(value);
+            case "boolean":
+                return Boolean.parseBoolean(value);
+            default:
+                return value;
+        }
+    }
+
+    private static final class Progress extends BackgroundJob.Progress {
+        private final List<SearchCondition> conditions;
+        private volatile String after;
+        private volatile long deleted;
+
+        private Progress(String description, List<SearchCondition> conditions, String after, long deleted) {
+            super(description);
+            this.conditions = conditions;
+            this.after = after;
+            this.deleted = deleted;
+        }
+    }
+}
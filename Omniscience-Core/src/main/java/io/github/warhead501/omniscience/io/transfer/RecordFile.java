@@ -0,0 +1,108 @@
+package io.github.warhead501.omniscience.io.transfer;
+
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.io.RecordCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The files written by /omni export: a GZIP compressed stream of records, each written as its length followed by the
+ * record in the form of {@link RecordCodec}. A length of 0 follows the last record, so a file that was cut short is
+ * noticed rather than imported partially without a word.
+ */
+final class RecordFile {
+
+    private static final int MAGIC = 0x4F4D4E58;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private RecordFile() {
+    }
+
+    static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        Writer(File file) throws IOException {
+            this.out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        void write(DataWrapper wrapper) throws IOException {
+            byte[] bytes = RecordCodec.encode(wrapper);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Marks the end of the records and closes the file.
+         */
+        void finish() throws IOException {
+            out.writeInt(0);
+            out.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+
+        Reader(File file) throws IOException {
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                this.in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(stream, BUFFER_SIZE), BUFFER_SIZE));
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file.getName() + " is not an Omniscience export");
+                }
+                int version = in.readInt();
+                if (version > VERSION) {
+                    throw new IOException(file.getName() + " was exported by a newer version of Omniscience");
+                }
+            } catch (IOException e) {
+                stream.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return The next record, or null after the last one
+         */
+        DataWrapper read() throws IOException {
+            try {
+                int length = in.readInt();
+                if (length == 0) {
+                    return null;
+                }
+                if (length < 0) {
+                    throw new IOException("The export is damaged, a record has a length of " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return RecordCodec.decode(ByteBuffer.wrap(bytes));
+            } catch (EOFException e) {
+                throw new IOException("The export ends before its last record, it was probably cut short", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
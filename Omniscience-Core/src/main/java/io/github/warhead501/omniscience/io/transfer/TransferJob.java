@@ -0,0 +1,218 @@
+package io.github.warhead501.omniscience.io.transfer;
+
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.util.Formatter;
+import io.github.warhead501.omniscience.io.BackgroundJob;
+import io.github.warhead501.omniscience.io.RecordBatch;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import io.github.warhead501.omniscience.io.StorageCapability;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Exports the records matching a lookup to a file in the exports folder, or imports the records of such a file, on a
+ * thread of its own. Records are read and written in batches of {@link OmniConfig#getTransferBatchSize()}, so only one
+ * batch is held in memory no matter how many records are moved. Only one export or import runs at a time.
+ *
+ * @see RecordFile
+ */
+public enum TransferJob {
+    INSTANCE;
+
+    private static final Pattern FILE_NAME = Pattern.compile("[\\w-][\\w.-]*");
+
+    private final BackgroundJob<Progress> job = new BackgroundJob<>("Omniscience Transfer");
+    private File directory;
+
+    /**
+     * @param dataFolder The folder the exports folder is kept in
+     */
+    public void setup(File dataFolder) {
+        this.directory = new File(dataFolder, "exports");
+    }
+
+    public boolean isRunning() {
+        return job.isRunning();
+    }
+
+    /**
+     * Starts exporting the records matching the conditions. Records created after the export started are left out.
+     *
+     * @param sender      Who started the export, and is told how it goes
+     * @param description The parameters the conditions were made from
+     * @param conditions  The conditions records have to match to be exported
+     * @param fileName    The name of the file in the exports folder, which may not exist yet
+     */
+    public synchronized void startExport(CommandSender sender, String description, List<SearchCondition> conditions, String fileName) {
+        checkNotRunning();
+        if (!Omniscience.getStorageHandler().getCapabilities().contains(StorageCapability.STREAMING)) {
+            throw new IllegalStateException("This storage can't export records.");
+        }
+        File file = resolve(fileName);
+        if (file.exists()) {
+            throw new IllegalStateException(fileName + " already exists, choose another name or remove it first.");
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Failed to create the exports folder.");
+        }
+        List<SearchCondition> bounded = Lists.newArrayList(conditions);
+        bounded.add(FieldCondition.of(DataKeys.CREATED, MatchRule.LESS_THAN_EQUAL, new Date()));
+        Progress progress = new Progress("Exporting " + description + " to " + fileName);
+        run(sender, progress, () -> export(sender, progress, bounded, file));
+    }
+
+    /**
+     * Starts importing the records of a file in the exports folder into the storage.
+     *
+     * @param sender   Who started the import, and is told how it goes
+     * @param fileName The name of the file in the exports folder
+     */
+    public synchronized void startImport(CommandSender sender, String fileName) {
+        checkNotRunning();
+        File file = resolve(fileName);
+        if (!file.isFile()) {
+            throw new IllegalStateException("There is no file named " + fileName + " in the exports folder.");
+        }
+        Progress progress = new Progress("Importing " + fileName);
+        run(sender, progress, () -> importRecords(sender, progress, file));
+    }
+
+    /**
+     * Stops the running export or import after its current batch.
+     *
+     * @return false if neither was running
+     */
+    public boolean stop() {
+        return job.stop();
+    }
+
+    /**
+     * @return What is being exported or imported, and how many records were so far
+     */
+    public Optional<String> getStatus() {
+        return job.getRunning().map(progress -> progress.getDescription() + ": " + progress.records + " records so far");
+    }
+
+    /**
+     * Stops the running export or import, and waits shortly for its current batch.
+     */
+    public void shutdown() {
+        job.shutdown();
+    }
+
+    private void checkNotRunning() {
+        if (job.isRunning()) {
+            throw new IllegalStateException("An export or import is already running. Stop it with /omni export stop first.");
+        }
+    }
+
+    /**
+     * Only plain names are accepted, so no file outside of the exports folder can be read or written.
+     */
+    private File resolve(String fileName) {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalStateException("File names may only contain letters, numbers, dots, dashes and underscores.");
+        }
+        return new File(directory, fileName);
+    }
+
+    private void run(CommandSender sender, Progress progress, BackgroundJob.Task task) {
+        job.run(sender, progress, task, e -> progress.getDescription() + " failed after " + progress.records + " records: " + e.getMessage());
+    }
+
+    private void export(CommandSender sender, Progress progress, List<SearchCondition> conditions, File file) throws Exception {
+        RecordHandler records = Omniscience.getStorageHandler().records();
+        int batchSize = Math.max(1, OmniConfig.INSTANCE.getTransferBatchSize());
+        //Written next to the export and only renamed once complete, so an export that failed can't be imported
+        File temp = new File(directory, file.getName() + ".tmp");
+        boolean finished = false;
+        try (RecordFile.Writer writer = new RecordFile.Writer(temp)) {
+            String after = null;
+            do {
+                RecordBatch batch = records.export(conditions, after, batchSize);
+                for (DataWrapper wrapper : batch.getRecords()) {
+                    writer.write(wrapper);
+                }
+                progress.records += batch.getRecords().size();
+                after = batch.getNext();
+
+                if (progress.isReportDue()) {
+                    BackgroundJob.report(sender, Formatter.subHeader(progress.getDescription() + ", " + progress.records + " records so far."));
+                }
+            } while (after != null && !progress.isStopped());
+            if (after == null) {
+                writer.finish();
+                finished = true;
+            }
+        } finally {
+            if (!finished) {
+                temp.delete();
+            }
+        }
+        if (!finished) {
+            BackgroundJob.report(sender, Formatter.success("Export stopped after " + progress.records + " records, the unfinished file was removed."));
+            return;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        BackgroundJob.report(sender, Formatter.success("Export finished, " + progress.records + " records were written to " + file.getName() + "."));
+    }
+
+    private void importRecords(CommandSender sender, Progress progress, File file) throws IOException {
+        RecordHandler records = Omniscience.getStorageHandler().records();
+        int batchSize = Math.max(1, OmniConfig.INSTANCE.getTransferBatchSize());
+        boolean finished = false;
+        try (RecordFile.Reader reader = new RecordFile.Reader(file)) {
+            List<DataWrapper> batch = Lists.newArrayListWithCapacity(batchSize);
+            while (!progress.isStopped()) {
+                DataWrapper wrapper = reader.read();
+                if (wrapper == null) {
+                    finished = true;
+                    break;
+                }
+                batch.add(wrapper);
+                if (batch.size() >= batchSize) {
+                    //Each batch is stored before the next is read, so a failed write stops the import where it failed
+                    records.write(batch).join();
+                    progress.records += batch.size();
+                    batch = Lists.newArrayListWithCapacity(batchSize);
+
+                    if (progress.isReportDue()) {
+                        BackgroundJob.report(sender, Formatter.subHeader(progress.getDescription() + ", " + progress.records + " records so far."));
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                records.write(batch).join();
+                progress.records += batch.size();
+            }
+        }
+        if (!finished) {
+            BackgroundJob.report(sender, Formatter.success("Import stopped after " + progress.records + " records."));
+            return;
+        }
+        BackgroundJob.report(sender, Formatter.success("Import finished, " + progress.records + " records were imported from " + file.getName() + "."));
+    }
+
+    private static final class Progress extends BackgroundJob.Progress {
+        private volatile long records;
+
+        private Progress(String description) {
+            super(description);
+        }
+    }
+}
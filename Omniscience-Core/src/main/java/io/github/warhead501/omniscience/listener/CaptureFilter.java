@@ -0,0 +1,99 @@
+package io.github.warhead501.omniscience.listener;
+
+import com.google.common.collect.ImmutableSet;
+import io.github.warhead501.omniscience.Omniscience;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link CaptureRule} of every event, compiled from the {@code events} section of the configuration.
+ * <p>
+ * Besides {@code enabled}, each event can have these optional filters:
+ * <ul>
+ *     <li>{@code worlds}: Only record the event in these worlds</li>
+ *     <li>{@code ignoreCauses}: Entity types, block types or {@code environment} whose entries aren't recorded</li>
+ *     <li>{@code ignoreTargets}: Block or item types whose entries aren't recorded</li>
+ *     <li>{@code sample}: The share of entries that are recorded, from 0 to 1</li>
+ * </ul>
+ * </p>
+ */
+public enum CaptureFilter {
+    INSTANCE;
+
+    private final Map<String, CaptureRule> rules = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the rule of an event. The same rule is returned for the lifetime of the plugin, so it should be kept.
+     *
+     * @param eventName The event
+     * @return The rule, which is disabled until the event is configured
+     */
+    public CaptureRule rule(String eventName) {
+        return rules.computeIfAbsent(eventName, CaptureRule::new);
+    }
+
+    /**
+     * Compiles the rules of every configured event. Events that are no longer configured are disabled.
+     *
+     * @param events The events section of the configuration
+     */
+    public void compile(ConfigurationSection events) {
+        Set<String> configured = events.getKeys(false);
+        for (String eventName : configured) {
+            ConfigurationSection section = events.getConfigurationSection(eventName);
+            if (section != null) {
+                rule(eventName).update(compile(eventName, section));
+            }
+        }
+        rules.forEach((eventName, rule) -> {
+            if (!configured.contains(eventName)) {
+                rule.disable();
+            }
+        });
+    }
+
+    private CaptureRule.Settings compile(String eventName, ConfigurationSection section) {
+        Set<EntityType> ignoredEntities = EnumSet.noneOf(EntityType.class);
+        Set<Material> ignoredBlocks = EnumSet.noneOf(Material.class);
+        boolean ignoreEnvironment = false;
+        for (String cause : section.getStringList("ignoreCauses")) {
+            if (cause.equalsIgnoreCase("environment")) {
+                ignoreEnvironment = true;
+                continue;
+            }
+            EntityType entityType = null;
+            try {
+                entityType = EntityType.valueOf(cause.toUpperCase());
+            } catch (IllegalArgumentException ignored) {
+            }
+            Material material = Material.matchMaterial(cause);
+            if (entityType != null) {
+                ignoredEntities.add(entityType);
+            } else if (material != null) {
+                ignoredBlocks.add(material);
+            } else {
+                Omniscience.getPluginInstance().getLogger().warning("Unknown cause in events." + eventName + ".ignoreCauses: " + cause);
+            }
+        }
+
+        Set<Material> ignoredTargets = EnumSet.noneOf(Material.class);
+        for (String target : section.getStringList("ignoreTargets")) {
+            Material material = Material.matchMaterial(target);
+            if (material != null) {
+                ignoredTargets.add(material);
+            } else {
+                Omniscience.getPluginInstance().getLogger().warning("Unknown material in events." + eventName + ".ignoreTargets: " + target);
+            }
+        }
+
+        double sample = Math.max(0, Math.min(1, section.getDouble("sample", 1.0)));
+        return new CaptureRule.Settings(section.getBoolean("enabled"), ImmutableSet.copyOf(section.getStringList("worlds")),
+                ignoredEntities, ignoredBlocks, ignoreEnvironment, ignoredTargets, sample);
+    }
+}
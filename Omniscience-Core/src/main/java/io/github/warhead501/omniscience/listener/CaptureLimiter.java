@@ -0,0 +1,199 @@
+package io.github.warhead501.omniscience.listener;
+
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.entry.OEntry;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many records are kept of events that can fire many times per second, such as players hitting each other.
+ * <p>
+ * Each event has its own {@link Rule}, which applies to every pair of source and target separately. Entries past the
+ * limit are counted instead of saved, and once the window of the pair ends the count is saved as a single record.
+ * The check only touches a few counters, so it is done before an entry is built.
+ * </p>
+ */
+public enum CaptureLimiter {
+    INSTANCE;
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Counts an entry against the rate limit of its event. Must be called on the main thread.
+     *
+     * @param eventName The event of the entry
+     * @param source    What caused the entry
+     * @param target    What the entry was done to, such as an entity or a block
+     * @param location  Where the entry happened
+     * @return true if the entry should be saved, false if it was counted towards the summary of its window instead
+     */
+    public boolean tryCapture(String eventName, Object source, Object target, Location location) {
+        Rule rule = OmniConfig.INSTANCE.getRateLimits().get(eventName);
+        if (rule == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Object responsible = getResponsible(source);
+        Key key = new Key(eventName, identify(responsible), identify(target));
+        Window window = windows.get(key);
+        if (window != null && now - window.started >= rule.window) {
+            windows.remove(key, window);
+            window.summarize(eventName);
+            window = null;
+        }
+        if (window == null) {
+            window = windows.computeIfAbsent(key, k -> new Window(responsible, now));
+        }
+
+        int over = window.captured.incrementAndGet() - rule.max;
+        if (over <= 0 || (rule.sample > 0 && over % rule.sample == 0)) {
+            return true;
+        }
+        window.target = getTargetName(target);
+        window.location = location;
+        window.skipped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Saves the summary of every window that has ended. Must be called on the main thread.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Key, Window>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Window> entry = iterator.next();
+            Rule rule = OmniConfig.INSTANCE.getRateLimits().get(entry.getKey().eventName);
+            if (rule == null || now - entry.getValue().started >= rule.window) {
+                iterator.remove();
+                entry.getValue().summarize(entry.getKey().eventName);
+            }
+        }
+    }
+
+    /**
+     * Saves the summary of every window, such as when the plugin is disabled. Must be called on the main thread.
+     */
+    public void flushAll() {
+        Iterator<Map.Entry<Key, Window>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Window> entry = iterator.next();
+            iterator.remove();
+            entry.getValue().summarize(entry.getKey().eventName);
+        }
+    }
+
+    private static Object getResponsible(Object source) {
+        //A player shooting arrows is limited as the player, not as every arrow on its own
+        if (source instanceof Projectile && ((Projectile) source).getShooter() != null) {
+            return ((Projectile) source).getShooter();
+        }
+        return source;
+    }
+
+    /**
+     * @return What tells the object apart from others, without holding on to entities or blocks
+     */
+    private static Object identify(Object object) {
+        if (object instanceof Entity) {
+            return ((Entity) object).getUniqueId();
+        } else if (object instanceof Block) {
+            Block block = (Block) object;
+            return new BlockPosition(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+        }
+        return object;
+    }
+
+    private static String getTargetName(Object target) {
+        if (target instanceof Player) {
+            return ((Player) target).getName();
+        } else if (target instanceof Entity) {
+            return ((Entity) target).getType().name();
+        } else if (target instanceof Block) {
+            return ((Block) target).getType().name();
+        }
+        return String.valueOf(target);
+    }
+
+    /**
+     * The rate limit of one event.
+     */
+    public static final class Rule {
+        private final int max;
+        private final long window;
+        private final int sample;
+
+        /**
+         * @param max    The most entries kept per source and target in one window
+         * @param window How long a window lasts, in milliseconds
+         * @param sample Past the limit, still keep one out of every this many entries. 0 keeps none.
+         */
+        public Rule(int max, long window, int sample) {
+            this.max = max;
+            this.window = window;
+            this.sample = sample;
+        }
+    }
+
+    private static final class Key {
+        private final String eventName;
+        private final Object source;
+        private final Object target;
+
+        private Key(String eventName, Object source, Object target) {
+            this.eventName = eventName;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * eventName.hashCode() + Objects.hashCode(source)) + Objects.hashCode(target);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return eventName.equals(key.eventName) && Objects.equals(source, key.source) && Objects.equals(target, key.target);
+        }
+    }
+
+    private static final class Window {
+        //Only what the summary is attributed to is kept, as entities can be removed before the window ends
+        private final UUID playerId;
+        private final Object cause;
+        private final long started;
+        private final AtomicInteger captured = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private volatile String target;
+        private volatile Location location;
+
+        private Window(Object source, long started) {
+            this.playerId = source instanceof Player ? ((Player) source).getUniqueId() : null;
+            this.cause = source instanceof Entity ? ((Entity) source).getType() : source;
+            this.started = started;
+        }
+
+        private void summarize(String eventName) {
+            int count = skipped.get();
+            if (count > 0 && location != null) {
+                Object source = playerId == null ? cause : Bukkit.getOfflinePlayer(playerId);
+                OEntry.create().source(source).skipped(eventName, target, count, location).save();
+            }
+        }
+    }
+}
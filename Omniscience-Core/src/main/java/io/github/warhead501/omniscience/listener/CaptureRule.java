@@ -0,0 +1,109 @@
+package io.github.warhead501.omniscience.listener;
+
+import com.google.common.collect.ImmutableSet;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Projectile;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether an entry of one event is recorded, compiled from the event's configuration by {@link CaptureFilter}.
+ * <p>
+ * Listeners keep the rule of each of their events in a field, so checking it is a handful of field reads and enum set
+ * lookups. Reloading the configuration swaps the compiled settings in place, so the same rule object stays valid.
+ * </p>
+ */
+public final class CaptureRule {
+
+    private static final Settings DISABLED = new Settings(false, ImmutableSet.of(),
+            EnumSet.noneOf(EntityType.class), EnumSet.noneOf(Material.class), false, EnumSet.noneOf(Material.class), 1.0);
+
+    private final String eventName;
+    private volatile Settings settings = DISABLED;
+
+    CaptureRule(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * @return Whether the event is recorded at all
+     */
+    public boolean isEnabled() {
+        return settings.enabled;
+    }
+
+    /**
+     * Checks an entry against every filter of the event. Must be called before anything about the entry is built.
+     *
+     * @param world  The world the entry happened in, or null to skip the world filter
+     * @param cause  What caused the entry, or null for the environment
+     * @param target The block or item type the entry is about, or null to skip the target filter
+     * @return true if the entry should be recorded
+     */
+    public boolean test(World world, Object cause, Material target) {
+        Settings current = settings;
+        if (!current.enabled) {
+            return false;
+        }
+        if (world != null && !current.worlds.isEmpty() && !current.worlds.contains(world.getName())) {
+            return false;
+        }
+        if (target != null && current.ignoredTargets.contains(target)) {
+            return false;
+        }
+        if (cause instanceof Projectile && ((Projectile) cause).getShooter() != null) {
+            cause = ((Projectile) cause).getShooter();
+        }
+        if (cause instanceof Entity) {
+            if (current.ignoredEntities.contains(((Entity) cause).getType())) {
+                return false;
+            }
+        } else if (cause instanceof Block) {
+            if (current.ignoredBlocks.contains(((Block) cause).getType())) {
+                return false;
+            }
+        } else if (cause == null && current.ignoreEnvironment) {
+            return false;
+        }
+        return current.sample >= 1.0 || ThreadLocalRandom.current().nextDouble() < current.sample;
+    }
+
+    void update(Settings settings) {
+        this.settings = settings;
+    }
+
+    void disable() {
+        this.settings = DISABLED;
+    }
+
+    static final class Settings {
+        private final boolean enabled;
+        private final ImmutableSet<String> worlds;
+        private final Set<EntityType> ignoredEntities;
+        private final Set<Material> ignoredBlocks;
+        private final boolean ignoreEnvironment;
+        private final Set<Material> ignoredTargets;
+        private final double sample;
+
+        Settings(boolean enabled, ImmutableSet<String> worlds, Set<EntityType> ignoredEntities,
+                 Set<Material> ignoredBlocks, boolean ignoreEnvironment, Set<Material> ignoredTargets, double sample) {
+            this.enabled = enabled;
+            this.worlds = worlds;
+            this.ignoredEntities = ignoredEntities;
+            this.ignoredBlocks = ignoredBlocks;
+            this.ignoreEnvironment = ignoreEnvironment;
+            this.ignoredTargets = ignoredTargets;
+            this.sample = sample;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package io.github.warhead501.omniscience.listener;
 
 import com.google.common.collect.ImmutableList;
-import io.github.warhead501.omniscience.OmniEventRegistrar;
+import org.bukkit.Location;
 import org.bukkit.event.Listener;
 
 public abstract class OmniListener implements Listener {
@@ -26,6 +26,20 @@ public abstract class OmniListener implements Listener {
     }
 
     protected boolean isEnabled(String event) {
-        return OmniEventRegistrar.INSTANCE.isEventEnabled(event);
+        return CaptureFilter.INSTANCE.rule(event).isEnabled();
+    }
+
+    /**
+     * @return The compiled rule of an event, to be kept in a field and checked before each entry is built
+     */
+    protected static CaptureRule rule(String event) {
+        return CaptureFilter.INSTANCE.rule(event);
+    }
+
+    /**
+     * @return false if the source went over the rate limit of the event, in which case the entry should not be saved
+     */
+    protected boolean withinRateLimit(String event, Object source, Object target, Location location) {
+        return CaptureLimiter.INSTANCE.tryCapture(event, source, target, location);
     }
 }
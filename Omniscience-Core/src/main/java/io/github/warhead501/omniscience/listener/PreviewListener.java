@@ -0,0 +1,16 @@
+package io.github.warhead501.omniscience.listener;
+
+import io.github.warhead501.omniscience.command.util.RollbackPreview;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public final class PreviewListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        //The client drops the fake blocks when it disconnects, so there's nothing left to hide
+        RollbackPreview.remove(e.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,367 @@
+package io.github.warhead501.omniscience.listener.block;
+
+import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.entry.OEntry;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Directional;
+import org.bukkit.block.data.type.Bed;
+import org.bukkit.block.data.type.Lantern;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds and saves the blocks that break along with the blocks of one break or explosion, such as torches on a wall or the
+ * rest of a cactus.
+ * <p>
+ * Every position is only saved once per resolver, so overlapping columns and blocks that are already part of the batch
+ * aren't saved twice. With chunk snapshots enabled, block types are read from a snapshot taken once per chunk instead of
+ * from the world, which is cheaper once a batch holds more than a few blocks. Must be used on the main thread, during
+ * the event, and thrown away after it.
+ * </p>
+ */
+class DependentBlockResolver {
+
+    private static final BlockFace[] DIRS = new BlockFace[]{BlockFace.EAST, BlockFace.WEST, BlockFace.NORTH, BlockFace.SOUTH};
+
+    private final World world;
+    private final Object source;
+    private final boolean snapshotChunks;
+    private final Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+    private final Set<Long> visited = new HashSet<>();
+
+    /**
+     * @param world          The world of the batch
+     * @param source         What dependant breaks are attributed to
+     * @param snapshotChunks Whether block types are read from chunk snapshots. Only worth it for large batches.
+     */
+    DependentBlockResolver(World world, Object source, boolean snapshotChunks) {
+        this.world = world;
+        this.source = source;
+        this.snapshotChunks = snapshotChunks;
+    }
+
+    /**
+     * Marks a block that is saved by the batch itself, so it isn't saved again as a dependant.
+     *
+     * @param block The broken block
+     */
+    void markBroken(Block block) {
+        visited.add(Block.getBlockKey(block.getX(), block.getY(), block.getZ()));
+    }
+
+    /**
+     * Saves every block that breaks along with a broken block, including the rest of a multi-block plant or bed.
+     *
+     * @param broken The broken block, which must still be in the world
+     */
+    void resolve(Block broken) {
+        int x = broken.getX();
+        int y = broken.getY();
+        int z = broken.getZ();
+        Material type = getType(x, y, z);
+        if (isColumn(type)) {
+            int stepY = y + 1;
+            while (isColumn(getType(x, stepY, z))) {
+                breakDependant(x, stepY, z);
+                resolveAttached(x, stepY, z);
+                stepY++;
+            }
+        } else if (Tag.BEDS.isTagged(type)) {
+            Bed bed = (Bed) getBlockData(x, y, z);
+            BlockFace face = bed.getPart() == Bed.Part.HEAD ? bed.getFacing().getOppositeFace() : bed.getFacing();
+            int otherX = x + face.getModX();
+            int otherZ = z + face.getModZ();
+            if (getBlockData(otherX, y, otherZ) instanceof Bed) {
+                breakDependant(otherX, y, otherZ);
+                resolveAttached(otherX, y, otherZ);
+            }
+        }
+        resolveAttached(x, y, z);
+    }
+
+    /**
+     * Saves every block that is attached to a broken block, such as torches, signs and plants.
+     *
+     * @param broken The broken block, which must still be in the world
+     */
+    void resolveAttached(Block broken) {
+        resolveAttached(broken.getX(), broken.getY(), broken.getZ());
+    }
+
+    private void resolveAttached(int x, int y, int z) {
+        DependantStyle upStyle = getStyle(getType(x, y + 1, z));
+        if (upStyle == DependantStyle.BOTTOM) {
+            breakDependant(x, y + 1, z);
+        } else if (upStyle == DependantStyle.ALL) {
+            BlockData up = getBlockData(x, y + 1, z);
+            if (up instanceof Directional) {
+                if (((Directional) up).getFacing().getOppositeFace() == BlockFace.UP) {
+                    breakDependant(x, y + 1, z);
+                }
+            } else if (up instanceof Lantern) {
+                if (!((Lantern) up).isHanging()) {
+                    breakDependant(x, y + 1, z);
+                }
+            }
+        } else if (upStyle == DependantStyle.TALL) {
+            breakDependant(x, y + 1, z);
+            if (getStyle(getType(x, y + 2, z)) == DependantStyle.TALL) {
+                breakDependant(x, y + 2, z);
+            }
+        }
+        for (BlockFace face : DIRS) {
+            int relX = x + face.getModX();
+            int relZ = z + face.getModZ();
+            DependantStyle style = getStyle(getType(relX, y, relZ));
+            if (style == DependantStyle.WALL || style == DependantStyle.ALL) {
+                BlockData relative = getBlockData(relX, y, relZ);
+                if (relative instanceof Directional && face == ((Directional) relative).getFacing()) {
+                    breakDependant(relX, y, relZ);
+                }
+            }
+        }
+        DependantStyle downStyle = getStyle(getType(x, y - 1, z));
+        if (downStyle == DependantStyle.ALL) {
+            BlockData down = getBlockData(x, y - 1, z);
+            if (down instanceof Directional) {
+                if (((Directional) down).getFacing().getOppositeFace() == BlockFace.DOWN) {
+                    breakDependant(x, y - 1, z);
+                }
+            } else if (down instanceof Lantern) {
+                if (((Lantern) down).isHanging()) {
+                    breakDependant(x, y - 1, z);
+                }
+            }
+        } else if (downStyle == DependantStyle.TALL && getStyle(getType(x, y, z)) == DependantStyle.TALL) {
+            breakDependant(x, y - 1, z);
+        }
+    }
+
+    private void breakDependant(int x, int y, int z) {
+        if (visited.add(Block.getBlockKey(x, y, z))) {
+            Block block = world.getBlockAt(x, y, z);
+            OEntry.create().source(source).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
+        }
+    }
+
+    private static boolean isColumn(Material material) {
+        return material == Material.CACTUS
+                || material == Material.SUGAR_CANE
+                || material == Material.KELP_PLANT
+                || material == Material.BAMBOO;
+    }
+
+    private Material getType(int x, int y, int z) {
+        if (y < world.getMinHeight() || y >= world.getMaxHeight()) {
+            return Material.AIR;
+        }
+        ChunkSnapshot snapshot = getSnapshot(x >> 4, z >> 4);
+        return snapshot != null ? snapshot.getBlockType(x & 15, y, z & 15) : world.getBlockAt(x, y, z).getType();
+    }
+
+    private BlockData getBlockData(int x, int y, int z) {
+        ChunkSnapshot snapshot = getSnapshot(x >> 4, z >> 4);
+        return snapshot != null ? snapshot.getBlockData(x & 15, y, z & 15) : world.getBlockAt(x, y, z).getBlockData();
+    }
+
+    private ChunkSnapshot getSnapshot(int chunkX, int chunkZ) {
+        if (!snapshotChunks) {
+            return null;
+        }
+        //Unloaded chunks aren't snapshotted, reading them through the world keeps the old behaviour
+        return snapshots.computeIfAbsent((long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL),
+                key -> world.isChunkLoaded(chunkX, chunkZ) ? world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false) : null);
+    }
+
+    /**
+     * Fetches a registered list of dependent blocks and their style of dependency. Excludes {@link Bed} intentionally.
+     * <p>
+     * We do this because Spigot doesn't, and would reject a PR this small. (Just make a PR looooooooooooooooooooool)
+     *
+     * @param material The material to check for
+     * @return The dependant style
+     */
+    private static DependantStyle getStyle(Material material) {
+        switch (material) {
+            case POPPY:
+            case DANDELION:
+            case LILY_OF_THE_VALLEY:
+            case WITHER_ROSE:
+            case CORNFLOWER:
+            case OAK_SAPLING:
+            case BIRCH_SAPLING:
+            case JUNGLE_SAPLING:
+            case ACACIA_SAPLING:
+            case DARK_OAK_SAPLING:
+            case GRASS:
+            case FERN:
+            case DEAD_BUSH:
+            case SEAGRASS:
+            case SEA_PICKLE:
+            case BRAIN_CORAL_FAN:
+            case WHEAT:
+            case POTATOES:
+            case CARROTS:
+            case BLUE_ORCHID:
+            case ALLIUM:
+            case RED_TULIP:
+            case ORANGE_TULIP:
+            case WHITE_TULIP:
+            case PINK_TULIP:
+            case OXEYE_DAISY:
+            case BROWN_MUSHROOM:
+            case RED_MUSHROOM:
+            case TORCH:
+            case REDSTONE_TORCH:
+            case REDSTONE_WIRE:
+            case COMPARATOR:
+            case REPEATER:
+            case BLACK_CARPET:
+            case BLUE_CARPET:
+            case BROWN_CARPET:
+            case CYAN_CARPET:
+            case GRAY_CARPET:
+            case GREEN_CARPET:
+            case LIGHT_BLUE_CARPET:
+            case LIGHT_GRAY_CARPET:
+            case LIME_CARPET:
+            case MAGENTA_CARPET:
+            case ORANGE_CARPET:
+            case PINK_CARPET:
+            case PURPLE_CARPET:
+            case RED_CARPET:
+            case WHITE_CARPET:
+            case YELLOW_CARPET:
+            case HORN_CORAL:
+            case FIRE_CORAL:
+            case TUBE_CORAL:
+            case BRAIN_CORAL:
+            case BUBBLE_CORAL:
+            case DEAD_BRAIN_CORAL_BLOCK:
+            case DEAD_BUBBLE_CORAL_BLOCK:
+            case DEAD_FIRE_CORAL_BLOCK:
+            case DEAD_HORN_CORAL_BLOCK:
+            case DEAD_TUBE_CORAL_BLOCK:
+            case ACACIA_PRESSURE_PLATE:
+            case BIRCH_PRESSURE_PLATE:
+            case DARK_OAK_PRESSURE_PLATE:
+            case HEAVY_WEIGHTED_PRESSURE_PLATE:
+            case JUNGLE_PRESSURE_PLATE:
+            case LIGHT_WEIGHTED_PRESSURE_PLATE:
+            case OAK_PRESSURE_PLATE:
+            case SPRUCE_PRESSURE_PLATE:
+            case STONE_PRESSURE_PLATE:
+            case RAIL:
+            case ACTIVATOR_RAIL:
+            case DETECTOR_RAIL:
+            case POWERED_RAIL:
+            case CHORUS_FLOWER:
+            case BEETROOTS:
+            case MELON_STEM:
+            case PUMPKIN_STEM:
+            case ATTACHED_MELON_STEM:
+            case ATTACHED_PUMPKIN_STEM:
+            case SNOW:
+            case SPRUCE_SIGN:
+            case ACACIA_SIGN:
+            case BIRCH_SIGN:
+            case DARK_OAK_SIGN:
+            case JUNGLE_SIGN:
+            case OAK_SIGN:
+                return DependantStyle.BOTTOM;
+            case BUBBLE_CORAL_WALL_FAN:
+            case DEAD_BRAIN_CORAL_WALL_FAN:
+            case DEAD_BUBBLE_CORAL_WALL_FAN:
+            case DEAD_FIRE_CORAL_WALL_FAN:
+            case DEAD_HORN_CORAL_WALL_FAN:
+            case DEAD_TUBE_CORAL_WALL_FAN:
+            case FIRE_CORAL_WALL_FAN:
+            case HORN_CORAL_WALL_FAN:
+            case TUBE_CORAL_WALL_FAN:
+            case WHITE_WALL_BANNER:
+            case BLACK_WALL_BANNER:
+            case BLUE_WALL_BANNER:
+            case BROWN_WALL_BANNER:
+            case CYAN_WALL_BANNER:
+            case GRAY_WALL_BANNER:
+            case GREEN_WALL_BANNER:
+            case LIGHT_BLUE_WALL_BANNER:
+            case LIGHT_GRAY_WALL_BANNER:
+            case LIME_WALL_BANNER:
+            case MAGENTA_WALL_BANNER:
+            case ORANGE_WALL_BANNER:
+            case PINK_WALL_BANNER:
+            case PURPLE_WALL_BANNER:
+            case RED_WALL_BANNER:
+            case YELLOW_WALL_BANNER:
+            case BRAIN_CORAL_WALL_FAN:
+            case WALL_TORCH:
+            case REDSTONE_WALL_TORCH:
+            case FIRE_CORAL_FAN:
+            case BUBBLE_CORAL_FAN:
+            case DEAD_BRAIN_CORAL_FAN:
+            case DEAD_BUBBLE_CORAL_FAN:
+            case DEAD_FIRE_CORAL_FAN:
+            case DEAD_HORN_CORAL_FAN:
+            case DEAD_TUBE_CORAL_FAN:
+            case HORN_CORAL_FAN:
+            case TUBE_CORAL_FAN:
+            case COCOA_BEANS:
+            case LADDER:
+            case TRIPWIRE_HOOK:
+            case ACACIA_WALL_SIGN:
+            case BIRCH_WALL_SIGN:
+            case DARK_OAK_WALL_SIGN:
+            case JUNGLE_WALL_SIGN:
+            case OAK_WALL_SIGN:
+            case SPRUCE_WALL_SIGN:
+                return DependantStyle.WALL;
+            case DARK_OAK_DOOR:
+            case ACACIA_DOOR:
+            case BIRCH_DOOR:
+            case IRON_DOOR:
+            case JUNGLE_DOOR:
+            case OAK_DOOR:
+            case SPRUCE_DOOR:
+            case TALL_GRASS:
+            case TALL_SEAGRASS:
+            case SUNFLOWER:
+            case LILAC:
+            case PEONY:
+            case ROSE_BUSH:
+            case LARGE_FERN:
+                return DependantStyle.TALL;
+            case LEVER:
+            case BIRCH_BUTTON:
+            case ACACIA_BUTTON:
+            case DARK_OAK_BUTTON:
+            case JUNGLE_BUTTON:
+            case OAK_BUTTON:
+            case SPRUCE_BUTTON:
+            case STONE_BUTTON:
+            case LANTERN:
+            case SOUL_LANTERN:
+            case CHAIN:
+                return DependantStyle.ALL;
+            default:
+                return DependantStyle.NONE;
+        }
+    }
+
+    private enum DependantStyle {
+        WALL,
+        BOTTOM,
+        TALL,
+        ALL,
+        NONE
+    }
+}
@@ -2,18 +2,18 @@ package io.github.warhead501.omniscience.listener.block;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.entry.BlockBatch;
 import io.github.warhead501.omniscience.api.entry.OEntry;
 import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.bukkit.block.*;
 import org.bukkit.block.data.Bisected;
-import org.bukkit.block.data.Directional;
-import org.bukkit.block.data.type.Bed;
 import org.bukkit.block.data.type.Door;
-import org.bukkit.block.data.type.Lantern;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -25,12 +25,16 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.metadata.MetadataValue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 public class EventBreakListener extends OmniListener {
 
-    private static final BlockFace[] DIRS = new BlockFace[]{BlockFace.EAST, BlockFace.WEST, BlockFace.NORTH, BlockFace.SOUTH};
+    //Explosions breaking at least this many blocks read block types from chunk snapshots
+    private static final int SNAPSHOT_THRESHOLD = 32;
+
+    private final CaptureRule breakRule = rule("break");
 
     public EventBreakListener() {
         super(ImmutableList.of("break"));
@@ -38,10 +42,15 @@ public class EventBreakListener extends OmniListener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockBreak(BlockBreakEvent event) {
+        if (!breakRule.test(event.getBlock().getWorld(), event.getPlayer(), event.getBlock().getType())) {
+            return;
+        }
         OEntry.create().source(event.getPlayer()).brokeBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlock().getState(), null)).save();
         saveContainerDrops(event.getPlayer(), event.getBlock());
         //For rollbacks and restores dependents should be saved after the parent
-        saveMultiBreak(event.getPlayer(), event.getBlock());
+        DependentBlockResolver resolver = new DependentBlockResolver(event.getBlock().getWorld(), event.getPlayer(), false);
+        resolver.markBroken(event.getBlock());
+        resolver.resolve(event.getBlock());
     }
 
 
@@ -55,11 +64,7 @@ public class EventBreakListener extends OmniListener {
                 }
             }
         } else {
-            event.blockList().forEach(block -> {
-                OEntry.create().source(event.getBlock().getType().name()).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
-                saveContainerDrops(event.getBlock(), block);
-                saveMultiBreak(event.getBlock(), block);
-            });
+            saveExplodedBlocks(event.getBlock().getType().name(), event.getBlock(), event.getBlock().getWorld(), event.blockList());
         }
     }
 
@@ -88,77 +93,61 @@ public class EventBreakListener extends OmniListener {
                 }
             }
         } else {
-            event.blockList()
-                    .stream()
-                    .filter(block -> block.getType() == Material.CAVE_AIR)
-                    .forEach(block -> {
-                        OEntry.create().source(event.getEntity()).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
-                        saveContainerDrops(event.getEntity(), block);
-                        //For rollbacks and restores dependents should be saved after the parent
-                        saveMultiBreak(event.getEntity(), block);
-                    });
-            event.blockList()
-                    .stream()
-                    .filter(block -> block.getType() != Material.CAVE_AIR)
-                    .forEach(block -> {
-                        OEntry.create().source(event.getEntity()).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
-                        saveContainerDrops(event.getEntity(), block);
-                        //For rollbacks and restores dependents should be saved after the parent
-                        saveMultiBreak(event.getEntity(), block);
-                    });
+            saveExplodedBlocks(event.getEntity(), event.getEntity(), event.getLocation().getWorld(), event.blockList());
         }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockBurn(BlockBurnEvent event) {
         OEntry.create().environment().brokeBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlock().getState(), null)).save();
-        saveDependantBreaks(null, event.getBlock());
+        DependentBlockResolver resolver = new DependentBlockResolver(event.getBlock().getWorld(), null, false);
+        resolver.markBroken(event.getBlock());
+        resolver.resolveAttached(event.getBlock());
     }
 
     private boolean writeBlockBreakForMetaData(MetadataValue value, List<Block> blocks, Object source) {
         if (value.getOwningPlugin() instanceof Omniscience) {
             OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(value.asString()));
-            blocks.stream()
-                    .filter(block -> block.getType() != Material.CAVE_AIR)
-                    .forEach(block -> {
-                        OEntry.create().source(player).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
-                        saveContainerDrops(source, block);
-                        //For rollbacks and restores dependents should be saved after the parent
-                        saveMultiBreak(source, block);
-                    });
+            if (!blocks.isEmpty()) {
+                saveExplodedBlocks(player, source, blocks.get(0).getWorld(), blocks);
+            }
             return true;
         }
         return false;
     }
 
-    private void saveMultiBreak(Object source, Block broken) {
-        if (broken.getType() == Material.CACTUS ||
-                broken.getType() == Material.SUGAR_CANE ||
-                broken.getType() == Material.KELP_PLANT ||
-                broken.getType() == Material.BAMBOO) {
-            Block step = broken.getRelative(BlockFace.UP);
-            while (step.getType() == Material.CACTUS ||
-                    step.getType() == Material.SUGAR_CANE ||
-                    step.getType() == Material.KELP_PLANT ||
-                    step.getType() == Material.BAMBOO) {
-                OEntry.create().source(source).brokeBlock(new LocationTransaction<>(step.getLocation(), step.getState(), null)).save();
-                saveDependantBreaks(source, step);
-                step = step.getRelative(BlockFace.UP);
+    /**
+     * Saves the blocks of an explosion as one {@link BlockBatch}, so that each plain block only costs a few array writes
+     * on the main thread. Tile entities still get a full entry each, since their contents have to be snapshotted.
+     * Dependant breaks of the whole explosion are resolved together, so blocks shared by several broken blocks are only
+     * read and saved once.
+     *
+     * @param cause      What the entries are attributed to
+     * @param dropSource What container drops and dependant breaks are attributed to
+     * @param world      The world the explosion happened in
+     * @param blocks     The blocks destroyed by the explosion
+     */
+    private void saveExplodedBlocks(Object cause, Object dropSource, World world, List<Block> blocks) {
+        BlockBatch batch = OEntry.create().source(cause).brokeBlocks(world);
+        List<Block> captured = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            if (!block.getType().isAir() && breakRule.test(world, cause, block.getType())) {
+                captured.add(block);
             }
-        } else if (broken.getBlockData() instanceof Bed) {
-            Bed bed = (Bed) broken.getBlockData();
-            final Block otherBlock;
-            if (bed.getPart() == Bed.Part.HEAD) {
-                otherBlock = broken.getRelative(bed.getFacing().getOppositeFace());
+        }
+        DependentBlockResolver resolver = new DependentBlockResolver(world, dropSource, captured.size() >= SNAPSHOT_THRESHOLD);
+        captured.forEach(resolver::markBroken);
+        for (Block block : captured) {
+            if (block.getState(false) instanceof TileState) {
+                OEntry.create().source(cause).brokeBlock(new LocationTransaction<>(block.getLocation(), block.getState(), null)).save();
+                saveContainerDrops(dropSource, block);
             } else {
-                otherBlock = broken.getRelative(bed.getFacing());
-            }
-            if (otherBlock.getBlockData() instanceof Bed) {
-                OEntry.create().source(source).brokeBlock(new LocationTransaction<>(otherBlock.getLocation(), otherBlock.getState(), null)).save();
-                saveDependantBreaks(source, otherBlock);
+                batch.add(block.getX(), block.getY(), block.getZ(), block.getBlockData());
             }
+            //For rollbacks and restores dependents should be saved after the parent
+            resolver.resolve(block);
         }
-        saveDependantBreaks(source, broken);
+        batch.save();
     }
 
     private void saveContainerDrops(Object source, Block container) {
@@ -186,239 +175,4 @@ public class EventBreakListener extends OmniListener {
     private boolean sameLocations(Block a, Block b) {
         return a.getX() == b.getX() && a.getY() == b.getY() && a.getZ() == b.getZ();
     }
-
-    private void saveDependantBreaks(Object source, Block broken) {
-        Block up = broken.getRelative(BlockFace.UP);
-        Block down = broken.getRelative(BlockFace.DOWN);
-        if (getStyle(up.getType()) == DependantStyle.BOTTOM) {
-            OEntry.create().source(source).brokeBlock(new LocationTransaction<>(up.getLocation(), up.getState(), null)).save();
-        } else if (getStyle(up.getType()) == DependantStyle.ALL) {
-            if (up.getBlockData() instanceof Directional) {
-                Directional direct = (Directional) up.getBlockData();
-                if (direct.getFacing().getOppositeFace() == BlockFace.UP) {
-                    OEntry.create().source(source).brokeBlock(new LocationTransaction<>(up.getLocation(), up.getState(), null)).save();
-                }
-            } else if (up.getBlockData() instanceof Lantern) {
-                Lantern lantern = (Lantern) up.getBlockData();
-                if (!lantern.isHanging()) {
-                    OEntry.create().source(source).brokeBlock(new LocationTransaction<>(up.getLocation(), up.getState(), null)).save();
-                }
-            }
-        } else if (getStyle(up.getType()) == DependantStyle.TALL) {
-            OEntry.create().source(source).brokeBlock(new LocationTransaction<>(up.getLocation(), up.getState(), null)).save();
-            if (getStyle(up.getRelative(BlockFace.UP).getType()) == DependantStyle.TALL) {
-                Block up2 = up.getRelative(BlockFace.UP);
-                OEntry.create().source(source).brokeBlock(new LocationTransaction<>(up2.getLocation(), up2.getState(), null)).save();
-            }
-        }
-        for (BlockFace face : DIRS) {
-            Block relative = broken.getRelative(face);
-            if (getStyle(relative.getType()) == DependantStyle.WALL || getStyle(relative.getType()) == DependantStyle.ALL) {
-                if (relative.getBlockData() instanceof Directional) {
-                    Directional direct = (Directional) relative.getBlockData();
-                    if (face == direct.getFacing()) {
-                        OEntry.create().source(source).brokeBlock(new LocationTransaction<>(relative.getLocation(), relative.getState(), null)).save();
-                    }
-                }
-            }
-        }
-        if (getStyle(down.getType()) == DependantStyle.ALL) {
-            if (down.getBlockData() instanceof Directional) {
-                Directional direct = (Directional) down.getBlockData();
-                if (direct.getFacing().getOppositeFace() == BlockFace.DOWN) {
-                    OEntry.create().source(source).brokeBlock(new LocationTransaction<>(down.getLocation(), down.getState(), null)).save();
-                }
-            } else if (down.getBlockData() instanceof Lantern) {
-                Lantern lantern = (Lantern) down.getBlockData();
-                if (lantern.isHanging()) {
-                    OEntry.create().source(source).brokeBlock(new LocationTransaction<>(down.getLocation(), down.getState(), null)).save();
-                }
-            }
-        } else if (getStyle(down.getType()) == DependantStyle.TALL && getStyle(broken.getType()) == DependantStyle.TALL) {
-            OEntry.create().source(source).brokeBlock(new LocationTransaction<>(down.getLocation(), down.getState(), null)).save();
-        }
-    }
-
-    /**
-     * Fetches a registered list of dependent blocks and their style of dependency. Excludes {@link Bed} intentionally.
-     * <p>
-     * We do this because Spigot doesn't, and would reject a PR this small. (Just make a PR looooooooooooooooooooool)
-     *
-     * @param material The material to check for
-     * @return The dependant style
-     */
-    private DependantStyle getStyle(Material material) {
-        switch (material) {
-            case POPPY:
-            case DANDELION:
-            case LILY_OF_THE_VALLEY:
-            case WITHER_ROSE:
-            case CORNFLOWER:
-            case OAK_SAPLING:
-            case BIRCH_SAPLING:
-            case JUNGLE_SAPLING:
-            case ACACIA_SAPLING:
-            case DARK_OAK_SAPLING:
-            case GRASS:
-            case FERN:
-            case DEAD_BUSH:
-            case SEAGRASS:
-            case SEA_PICKLE:
-            case BRAIN_CORAL_FAN:
-            case WHEAT:
-            case POTATOES:
-            case CARROTS:
-            case BLUE_ORCHID:
-            case ALLIUM:
-            case RED_TULIP:
-            case ORANGE_TULIP:
-            case WHITE_TULIP:
-            case PINK_TULIP:
-            case OXEYE_DAISY:
-            case BROWN_MUSHROOM:
-            case RED_MUSHROOM:
-            case TORCH:
-            case REDSTONE_TORCH:
-            case REDSTONE_WIRE:
-            case COMPARATOR:
-            case REPEATER:
-            case BLACK_CARPET:
-            case BLUE_CARPET:
-            case BROWN_CARPET:
-            case CYAN_CARPET:
-            case GRAY_CARPET:
-            case GREEN_CARPET:
-            case LIGHT_BLUE_CARPET:
-            case LIGHT_GRAY_CARPET:
-            case LIME_CARPET:
-            case MAGENTA_CARPET:
-            case ORANGE_CARPET:
-            case PINK_CARPET:
-            case PURPLE_CARPET:
-            case RED_CARPET:
-            case WHITE_CARPET:
-            case YELLOW_CARPET:
-            case HORN_CORAL:
-            case FIRE_CORAL:
-            case TUBE_CORAL:
-            case BRAIN_CORAL:
-            case BUBBLE_CORAL:
-            case DEAD_BRAIN_CORAL_BLOCK:
-            case DEAD_BUBBLE_CORAL_BLOCK:
-            case DEAD_FIRE_CORAL_BLOCK:
-            case DEAD_HORN_CORAL_BLOCK:
-            case DEAD_TUBE_CORAL_BLOCK:
-            case ACACIA_PRESSURE_PLATE:
-            case BIRCH_PRESSURE_PLATE:
-            case DARK_OAK_PRESSURE_PLATE:
-            case HEAVY_WEIGHTED_PRESSURE_PLATE:
-            case JUNGLE_PRESSURE_PLATE:
-            case LIGHT_WEIGHTED_PRESSURE_PLATE:
-            case OAK_PRESSURE_PLATE:
-            case SPRUCE_PRESSURE_PLATE:
-            case STONE_PRESSURE_PLATE:
-            case RAIL:
-            case ACTIVATOR_RAIL:
-            case DETECTOR_RAIL:
-            case POWERED_RAIL:
-            case CHORUS_FLOWER:
-            case BEETROOTS:
-            case MELON_STEM:
-            case PUMPKIN_STEM:
-            case ATTACHED_MELON_STEM:
-            case ATTACHED_PUMPKIN_STEM:
-            case SNOW:
-            case SPRUCE_SIGN:
-            case ACACIA_SIGN:
-            case BIRCH_SIGN:
-            case DARK_OAK_SIGN:
-            case JUNGLE_SIGN:
-            case OAK_SIGN:
-                return DependantStyle.BOTTOM;
-            case BUBBLE_CORAL_WALL_FAN:
-            case DEAD_BRAIN_CORAL_WALL_FAN:
-            case DEAD_BUBBLE_CORAL_WALL_FAN:
-            case DEAD_FIRE_CORAL_WALL_FAN:
-            case DEAD_HORN_CORAL_WALL_FAN:
-            case DEAD_TUBE_CORAL_WALL_FAN:
-            case FIRE_CORAL_WALL_FAN:
-            case HORN_CORAL_WALL_FAN:
-            case TUBE_CORAL_WALL_FAN:
-            case WHITE_WALL_BANNER:
-            case BLACK_WALL_BANNER:
-            case BLUE_WALL_BANNER:
-            case BROWN_WALL_BANNER:
-            case CYAN_WALL_BANNER:
-            case GRAY_WALL_BANNER:
-            case GREEN_WALL_BANNER:
-            case LIGHT_BLUE_WALL_BANNER:
-            case LIGHT_GRAY_WALL_BANNER:
-            case LIME_WALL_BANNER:
-            case MAGENTA_WALL_BANNER:
-            case ORANGE_WALL_BANNER:
-            case PINK_WALL_BANNER:
-            case PURPLE_WALL_BANNER:
-            case RED_WALL_BANNER:
-            case YELLOW_WALL_BANNER:
-            case BRAIN_CORAL_WALL_FAN:
-            case WALL_TORCH:
-            case REDSTONE_WALL_TORCH:
-            case FIRE_CORAL_FAN:
-            case BUBBLE_CORAL_FAN:
-            case DEAD_BRAIN_CORAL_FAN:
-            case DEAD_BUBBLE_CORAL_FAN:
-            case DEAD_FIRE_CORAL_FAN:
-            case DEAD_HORN_CORAL_FAN:
-            case DEAD_TUBE_CORAL_FAN:
-            case HORN_CORAL_FAN:
-            case TUBE_CORAL_FAN:
-            case COCOA_BEANS:
-            case LADDER:
-            case TRIPWIRE_HOOK:
-            case ACACIA_WALL_SIGN:
-            case BIRCH_WALL_SIGN:
-            case DARK_OAK_WALL_SIGN:
-            case JUNGLE_WALL_SIGN:
-            case OAK_WALL_SIGN:
-            case SPRUCE_WALL_SIGN:
-                return DependantStyle.WALL;
-            case DARK_OAK_DOOR:
-            case ACACIA_DOOR:
-            case BIRCH_DOOR:
-            case IRON_DOOR:
-            case JUNGLE_DOOR:
-            case OAK_DOOR:
-            case SPRUCE_DOOR:
-            case TALL_GRASS:
-            case TALL_SEAGRASS:
-            case SUNFLOWER:
-            case LILAC:
-            case PEONY:
-            case ROSE_BUSH:
-            case LARGE_FERN:
-                return DependantStyle.TALL;
-            case LEVER:
-            case BIRCH_BUTTON:
-            case ACACIA_BUTTON:
-            case DARK_OAK_BUTTON:
-            case JUNGLE_BUTTON:
-            case OAK_BUTTON:
-            case SPRUCE_BUTTON:
-            case STONE_BUTTON:
-            case LANTERN:
-            case SOUL_LANTERN:
-            case CHAIN:
-                return DependantStyle.ALL;
-            default:
-                return DependantStyle.NONE;
-        }
-    }
-
-    private enum DependantStyle {
-        WALL,
-        BOTTOM,
-        TALL,
-        ALL,
-        NONE
-    }
 }
@@ -2,7 +2,9 @@ package io.github.warhead501.omniscience.listener.block;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.entry.EventCoalescer;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -11,17 +13,31 @@ import org.bukkit.event.block.LeavesDecayEvent;
 
 public class EventDecayListener extends OmniListener {
 
+    private final CaptureRule decayRule = rule("decay");
+
     public EventDecayListener() {
         super(ImmutableList.of("decay"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onLeavesDecay(LeavesDecayEvent event) {
+        if (!decayRule.test(event.getBlock().getWorld(), null, event.getBlock().getType())) {
+            return;
+        }
+        if (EventCoalescer.INSTANCE.coalesce("decay", event.getBlock(), event.getBlock().getType())) {
+            return;
+        }
         OEntry.create().environment().decayedBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlock().getState(), null)).save();
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockFade(BlockFadeEvent event) {
+        if (!decayRule.test(event.getBlock().getWorld(), null, event.getBlock().getType())) {
+            return;
+        }
+        if (EventCoalescer.INSTANCE.coalesce("decay", event.getBlock(), event.getBlock().getType())) {
+            return;
+        }
         OEntry.create().environment().decayedBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlock().getState(), event.getNewState())).save();
     }
 }
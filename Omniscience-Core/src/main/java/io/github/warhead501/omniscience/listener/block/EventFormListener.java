@@ -2,20 +2,35 @@ package io.github.warhead501.omniscience.listener.block;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.entry.EventCoalescer;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.EntityBlockFormEvent;
 
 public class EventFormListener extends OmniListener {
 
+    private final CaptureRule formRule = rule("form");
+
     public EventFormListener() {
         super(ImmutableList.of("form"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockForm(BlockFormEvent event) {
+        Object cause = event instanceof EntityBlockFormEvent ? ((EntityBlockFormEvent) event).getEntity() : null;
+        if (!formRule.test(event.getBlock().getWorld(), cause, event.getNewState().getType())) {
+            return;
+        }
+        //Blocks formed by a player, such as ice from frost walker, are always recorded one by one
+        boolean byPlayer = cause instanceof Player;
+        if (!byPlayer && EventCoalescer.INSTANCE.coalesce("form", event.getBlock(), event.getNewState().getType())) {
+            return;
+        }
         OEntry.create().environment().formedBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlock().getState(), event.getNewState())).save();
     }
 }
@@ -2,8 +2,11 @@ package io.github.warhead501.omniscience.listener.block;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
+import io.github.warhead501.omniscience.api.entry.EventCoalescer;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
+import org.bukkit.Material;
 import org.bukkit.block.BlockState;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -13,14 +16,19 @@ import org.bukkit.event.world.StructureGrowEvent;
 
 public class EventGrowListener extends OmniListener {
 
+    private final CaptureRule growRule = rule("grow");
+
     public EventGrowListener() {
         super(ImmutableList.of("grow"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onStructureGrow(StructureGrowEvent e) {
-        if (isEnabled("grow")) {
+        if (growRule.isEnabled()) {
             for (BlockState block : e.getBlocks()) {
+                if (!growRule.test(block.getWorld(), e.getPlayer(), block.getType())) {
+                    continue;
+                }
                 OEntry.create().source(e.getPlayer()).grewBlock(new LocationTransaction<>(block.getLocation(), null, block)).save();
             }
         }
@@ -28,14 +36,19 @@ public class EventGrowListener extends OmniListener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockGrow(BlockGrowEvent e) {
-        if (isEnabled("grow")) {
+        if (growRule.test(e.getBlock().getWorld(), null, e.getBlock().getType()) && !EventCoalescer.INSTANCE.coalesce("grow", e.getBlock(), e.getBlock().getType())) {
             OEntry.create().source(null).grewBlock(new LocationTransaction<>(e.getBlock().getLocation(), e.getBlock().getState(), e.getNewState())).save();
         }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockSpread(BlockSpreadEvent e) {
-        if (isEnabled("grow")) {
+        if (!growRule.test(e.getBlock().getWorld(), null, e.getBlock().getType())) {
+            return;
+        }
+        //Fire spreading is griefing players want to roll back, so it is never merged
+        boolean fire = e.getNewState().getType() == Material.FIRE;
+        if (fire || !EventCoalescer.INSTANCE.coalesce("grow", e.getBlock(), e.getBlock().getType())) {
             OEntry.create().source(null).grewBlock(new LocationTransaction<>(e.getBlock().getLocation(), e.getBlock().getState(), e.getNewState())).save();
         }
     }
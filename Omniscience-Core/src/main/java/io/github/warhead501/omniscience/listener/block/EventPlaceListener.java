@@ -5,6 +5,7 @@ import io.github.warhead501.omniscience.Omniscience;
 import io.github.warhead501.omniscience.api.data.InventoryTransaction;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import io.github.warhead501.omniscience.listener.item.EventInventoryListener;
 import org.bukkit.Location;
@@ -19,6 +20,8 @@ import org.bukkit.event.block.SignChangeEvent;
 
 public class EventPlaceListener extends OmniListener {
 
+    private final CaptureRule placeRule = rule("place");
+
     public EventPlaceListener() {
         super(ImmutableList.of("place"));
     }
@@ -33,6 +36,9 @@ public class EventPlaceListener extends OmniListener {
             EventInventoryListener.saveLecternTransaction(event.getPlayer(), event.getItemInHand(), lectern, InventoryTransaction.ActionType.DEPOSIT);
             return;
         }
+        if (!placeRule.test(event.getBlock().getWorld(), event.getPlayer(), event.getBlock().getType())) {
+            return;
+        }
         OEntry.create().source(event.getPlayer()).placedBlock(new LocationTransaction<>(event.getBlock().getLocation(), event.getBlockReplacedState(), event.getBlock().getState())).save();
     }
 
@@ -40,6 +46,7 @@ public class EventPlaceListener extends OmniListener {
     public void onBlockMultiPlace(BlockMultiPlaceEvent event) {
         event.getReplacedBlockStates().stream()
                 .filter(state -> !blockLocationsAreEqual(event.getBlock().getLocation(), state.getLocation()))
+                .filter(state -> placeRule.test(state.getWorld(), event.getPlayer(), state.getBlock().getType()))
                 .forEach(state ->
                         OEntry.create().source(event.getPlayer()).placedBlock(new LocationTransaction<>(state.getBlock().getLocation(), state, state.getBlock().getState())).save()
                 );
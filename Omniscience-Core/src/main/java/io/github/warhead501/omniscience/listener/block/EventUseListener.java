@@ -3,6 +3,7 @@ package io.github.warhead501.omniscience.listener.block;
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
 import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -18,13 +19,15 @@ import org.bukkit.event.player.PlayerInteractEvent;
 
 public class EventUseListener extends OmniListener {
 
+    private final CaptureRule useRule = rule("use");
+
     public EventUseListener() {
         super(ImmutableList.of("use"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerInteract(PlayerInteractEvent e) {
-        if (isEnabled("use")) {
+        if (e.getClickedBlock() != null && useRule.test(e.getClickedBlock().getWorld(), e.getPlayer(), e.getClickedBlock().getType())) {
             BlockData data = e.getClickedBlock().getBlockData();
             if (data instanceof Openable
                     || data instanceof Switch
@@ -33,6 +36,9 @@ public class EventUseListener extends OmniListener {
                     || data instanceof DaylightDetector
                     || data instanceof Cake
                     || (OmniConfig.INSTANCE.doCraftBookInteraction() && isCraftBookSign(e.getClickedBlock()))) {
+                if (!withinRateLimit("use", e.getPlayer(), e.getClickedBlock(), e.getClickedBlock().getLocation())) {
+                    return;
+                }
                 OEntry.create().source(e.getPlayer()).use(e.getClickedBlock()).save();
             }
         }
@@ -41,7 +47,9 @@ public class EventUseListener extends OmniListener {
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onTargetHit(ProjectileHitEvent e) {
         if ((e.getEntity().getType().equals(EntityType.ARROW) || e.getEntity().getType().equals(EntityType.SPECTRAL_ARROW)) &&
-                e.getHitBlock() != null && e.getHitBlock().getType().equals(Material.TARGET)) {
+                e.getHitBlock() != null && e.getHitBlock().getType().equals(Material.TARGET)
+                && useRule.test(e.getHitBlock().getWorld(), e.getEntity(), Material.TARGET)
+                && withinRateLimit("use", e.getEntity(), e.getHitBlock(), e.getHitBlock().getLocation())) {
             OEntry.create().source(e.getEntity().getShooter()).use(e.getHitBlock()).save();
         }
     }
@@ -2,6 +2,7 @@ package io.github.warhead501.omniscience.listener.entity;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 
 import org.bukkit.entity.EntityType;
@@ -12,6 +13,9 @@ import org.bukkit.inventory.ItemStack;
 
 public class EventDeathListener extends OmniListener {
 
+	private final CaptureRule deathRule = rule("death");
+	private final CaptureRule dropRule = rule("drop");
+
 	public EventDeathListener() {
 		super(ImmutableList.of("death"));
 	}
@@ -19,12 +23,16 @@ public class EventDeathListener extends OmniListener {
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
 	public void onEntityDeath(EntityDeathEvent e) {
 		if (!e.getEntityType().equals(EntityType.ARMOR_STAND))
-			if (e.getEntity().getKiller() != null) {
+			if (e.getEntity().getKiller() != null
+					&& deathRule.test(e.getEntity().getWorld(), e.getEntity().getKiller(), null)) {
 				try {
 					OEntry.create().source(e.getEntity().getKiller()).kill(e.getEntity()).save();
 				} catch (NullPointerException ignored){}
 			}
 		for (ItemStack drop : e.getDrops()) {
+			if (!dropRule.test(e.getEntity().getWorld(), e.getEntity(), drop.getType())) {
+				continue;
+			}
 			OEntry.create().source(e.getEntity()).droppedItem(drop, e.getEntity().getLocation()).save();
 		}
 	}
@@ -2,6 +2,7 @@ package io.github.warhead501.omniscience.listener.entity;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
@@ -11,21 +12,29 @@ import org.bukkit.event.entity.EntityDamageByEntityEvent;
 
 public class EventHitListener extends OmniListener {
 
+    private final CaptureRule shotRule = rule("shot");
+    private final CaptureRule hitRule = rule("hit");
+
     public EventHitListener() {
         super(ImmutableList.of("hit", "shot"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onEntityDamageByEntity(EntityDamageByEntityEvent e) {
-        if (isEnabled("shot")
+        if (shotRule.isEnabled()
                 && e.getDamager() instanceof Projectile
                 && ((Projectile) e.getDamager()).getShooter() instanceof Player) {
+            if (!shotRule.test(e.getEntity().getWorld(), e.getDamager(), null)
+                    || !withinRateLimit("shot", e.getDamager(), e.getEntity(), e.getEntity().getLocation())) {
+                return;
+            }
             OEntry.create().source(e.getDamager()).shot(e.getEntity()).save();
             return;
         }
-        if (isEnabled("hit")
-                && (e.getDamager() instanceof Player
-                || e.getEntity() instanceof Player)) {
+        if ((e.getDamager() instanceof Player
+                || e.getEntity() instanceof Player)
+                && hitRule.test(e.getEntity().getWorld(), e.getDamager(), null)
+                && withinRateLimit("hit", e.getDamager(), e.getEntity(), e.getEntity().getLocation())) {
             OEntry.create().source(e.getDamager()).hit(e.getEntity()).save();
         }
     }
@@ -2,6 +2,7 @@ package io.github.warhead501.omniscience.listener.entity;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -10,20 +11,23 @@ import org.spigotmc.event.entity.EntityMountEvent;
 
 public class EventMountListener extends OmniListener {
 
+    private final CaptureRule mountRule = rule("mount");
+    private final CaptureRule dismountRule = rule("dismount");
+
     public EventMountListener() {
         super(ImmutableList.of("mount", "dismount"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onEntityMount(EntityMountEvent e) {
-        if (isEnabled("mount")) {
+        if (mountRule.test(e.getMount().getWorld(), e.getEntity(), null) && withinRateLimit("mount", e.getEntity(), e.getMount(), e.getMount().getLocation())) {
             OEntry.create().source(e.getEntity()).mount(false, e.getMount()).save();
         }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onEntityDismount(EntityDismountEvent e) {
-        if (isEnabled("dismount")) {
+        if (dismountRule.test(e.getDismounted().getWorld(), e.getEntity(), null) && withinRateLimit("dismount", e.getEntity(), e.getDismounted(), e.getDismounted().getLocation())) {
             OEntry.create().source(e.getEntity()).mount(true, e.getDismounted()).save();
         }
     }
@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.Omniscience;
 import io.github.warhead501.omniscience.api.entry.OEntry;
 import io.github.warhead501.omniscience.api.util.OmniUtils;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -16,24 +17,33 @@ import static io.github.warhead501.omniscience.command.OmniSubCommand.GREEN;
 
 public class EventDropListener extends OmniListener {
 
+    private final CaptureRule dropRule = rule("drop");
+
     public EventDropListener() {
         super(ImmutableList.of("drop"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerDropItem(PlayerDropItemEvent event) {
+        if (!dropRule.test(event.getPlayer().getWorld(), event.getPlayer(), event.getItemDrop().getItemStack().getType())) {
+            return;
+        }
         OEntry.create().source(event.getPlayer()).dropped(event.getItemDrop()).save();
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onEntityDropItem(EntityDropItemEvent event) {
-        if (!(event.getEntity() instanceof Player)) {
+        if (!(event.getEntity() instanceof Player)
+                && dropRule.test(event.getEntity().getWorld(), event.getEntity(), event.getItemDrop().getItemStack().getType())) {
             OEntry.create().source(event.getEntity()).dropped(event.getItemDrop()).save();
         }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onBlockDispense(BlockDispenseEvent event) {
+        if (!dropRule.test(event.getBlock().getWorld(), event.getBlock(), event.getItem().getType())) {
+            return;
+        }
         OEntry.create().source(event.getBlock()).droppedItem(event.getItem(), event.getBlock().getLocation()).save();
     }
 
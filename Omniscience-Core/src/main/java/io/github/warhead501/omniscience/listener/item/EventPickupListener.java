@@ -3,6 +3,7 @@ package io.github.warhead501.omniscience.listener.item;
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
 import io.github.warhead501.omniscience.api.util.OmniUtils;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -13,12 +14,17 @@ import static io.github.warhead501.omniscience.command.OmniSubCommand.GREEN;
 
 public class EventPickupListener extends OmniListener {
 
+    private final CaptureRule pickupRule = rule("pickup");
+
     public EventPickupListener() {
         super(ImmutableList.of("pickup"));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onEntityPickupItem(EntityPickupItemEvent event) {
+        if (!pickupRule.test(event.getEntity().getWorld(), event.getEntity(), event.getItem().getItemStack().getType())) {
+            return;
+        }
         OEntry.create().source(event.getEntity()).pickup(event.getItem()).save();
     }
 
@@ -2,6 +2,7 @@ package io.github.warhead501.omniscience.listener.player;
 
 import com.google.common.collect.ImmutableList;
 import io.github.warhead501.omniscience.api.entry.OEntry;
+import io.github.warhead501.omniscience.listener.CaptureRule;
 import io.github.warhead501.omniscience.listener.OmniListener;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -9,13 +10,16 @@ import org.bukkit.event.player.PlayerTeleportEvent;
 
 public class EventTeleportListener extends OmniListener {
 
+	private final CaptureRule teleportRule = rule("teleport");
+
 	public EventTeleportListener() {
 		super(ImmutableList.of("teleport"));
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void teleport(PlayerTeleportEvent event) {
-		if (event.getCause() != PlayerTeleportEvent.TeleportCause.UNKNOWN && isEnabled("teleport")) { // Thrown out unknowns
+		if (event.getCause() != PlayerTeleportEvent.TeleportCause.UNKNOWN && teleportRule.test(event.getFrom().getWorld(), event.getPlayer(), null) // Thrown out unknowns
+				&& withinRateLimit("teleport", event.getPlayer(), event.getCause(), event.getFrom())) {
 			OEntry.create().player(event.getPlayer()).teleported(event.getFrom(), event.getTo(), event.getCause()).save();
 		}
 	}
@@ -0,0 +1,77 @@
+package io.github.warhead501.omniscience;
+
+import io.github.warhead501.omniscience.api.OmniApi;
+import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sets up {@link OmniConfig} from the default config.yml, for tests that run parts of the plugin without a server.
+ */
+public final class TestConfig {
+
+    private TestConfig() {
+    }
+
+    /**
+     * Storage options are only read the first time, the same as on a server.
+     *
+     * @param overrides Options set on top of the default config.yml
+     * @return The configuration OmniConfig was set up with
+     */
+    public static FileConfiguration setup(Map<String, Object> overrides) throws IOException, InvalidConfigurationException {
+        YamlConfiguration configuration = new YamlConfiguration();
+        try (Reader reader = new InputStreamReader(TestConfig.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            configuration.load(reader);
+        }
+        overrides.forEach(configuration::set);
+        OmniConfig.INSTANCE.setup(configuration);
+        return configuration;
+    }
+
+    /**
+     * The API's instance can only be set once, so every test shares the same mock.
+     *
+     * @return The mock the API was set up with
+     */
+    public static IOmniscience setupApi() throws IllegalAccessException {
+        if (OmniApi.getOmniscience() == null) {
+            IOmniscience omniscience = mock(IOmniscience.class);
+            when(omniscience.getDateFormat()).thenReturn("yyyy-MM-dd HH:mm:ss");
+            when(omniscience.getSimpleDateFormat()).thenReturn("yyyy-MM-dd");
+            OmniApi.setCore(omniscience);
+        }
+        return OmniApi.getOmniscience();
+    }
+
+    /**
+     * Bukkit's server can only be set once, so every test shares the same mock. It knows every player by their id.
+     *
+     * @return The mock Bukkit was set up with
+     */
+    public static Server setupServer() {
+        if (Bukkit.getServer() == null) {
+            Server server = mock(Server.class);
+            when(server.getLogger()).thenReturn(Logger.getLogger(TestConfig.class.getName()));
+            when(server.getOfflinePlayer(any(UUID.class))).thenReturn(mock(OfflinePlayer.class));
+            Bukkit.setServer(server);
+        }
+        return Bukkit.getServer();
+    }
+}
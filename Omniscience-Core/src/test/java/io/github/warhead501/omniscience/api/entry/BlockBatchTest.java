@@ -0,0 +1,90 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockBatchTest {
+
+    private static final UUID WORLD = UUID.fromString("2d3c1a4e-0000-0000-0000-000000000000");
+    private static final UUID PLAYER = UUID.fromString("7f1b2c3d-0000-0000-0000-000000000000");
+
+    private static BlockData blockData(Material material, String data) {
+        BlockData blockData = mock(BlockData.class);
+        when(blockData.getMaterial()).thenReturn(material);
+        when(blockData.getAsString()).thenReturn(data);
+        return blockData;
+    }
+
+    private static BlockBatch batch() {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(WORLD);
+        OfflinePlayer player = mock(OfflinePlayer.class);
+        when(player.getUniqueId()).thenReturn(PLAYER);
+        return new BlockBatch("break", player, world);
+    }
+
+    @Test
+    public void testExpand_Records() {
+        BlockData stone = blockData(Material.STONE, "minecraft:stone");
+        BlockBatch batch = batch();
+        assertTrue(batch.isEmpty());
+        batch.add(1, 64, -2, stone);
+        assertFalse(batch.isEmpty());
+
+        List<DataWrapper> records = batch.expand();
+        assertEquals(1, records.size());
+        DataWrapper record = records.get(0);
+        assertEquals("break", record.getString(DataKeys.EVENT_NAME).orElse(null));
+        assertEquals(PLAYER.toString(), record.getString(DataKeys.PLAYER_ID).orElse(null));
+        assertEquals("STONE", record.getString(DataKeys.TARGET).orElse(null));
+        assertEquals("STONE", record.getString(DataKeys.ORIGINAL_BLOCK.then(DataKeys.MATERIAL_TYPE)).orElse(null));
+        assertEquals("minecraft:stone", record.getString(DataKeys.ORIGINAL_BLOCK.then(DataKeys.BLOCK_DATA)).orElse(null));
+        assertEquals(WORLD.toString(), record.getString(DataKeys.LOCATION.then(DataKeys.WORLD)).orElse(null));
+        assertEquals(1, (int) record.getInt(DataKeys.LOCATION.then(DataKeys.X)).orElse(0));
+        assertEquals(64, (int) record.getInt(DataKeys.LOCATION.then(DataKeys.Y)).orElse(0));
+        assertEquals(-2, (int) record.getInt(DataKeys.LOCATION.then(DataKeys.Z)).orElse(0));
+    }
+
+    @Test
+    public void testExpand_OrderAndPalette() {
+        BlockData stone = blockData(Material.STONE, "minecraft:stone");
+        BlockData dirt = blockData(Material.DIRT, "minecraft:dirt");
+        BlockBatch batch = batch();
+        //More blocks than the batch starts out with room for
+        for (int i = 0; i < 100; i++) {
+            batch.add(i, 64, -i, i % 3 == 0 ? dirt : stone);
+        }
+        assertEquals(100, batch.size());
+
+        List<DataWrapper> records = batch.expand();
+        assertEquals(100, records.size());
+        Object created = records.get(0).get(DataKeys.CREATED).orElse(null);
+        for (int i = 0; i < records.size(); i++) {
+            DataWrapper record = records.get(i);
+            assertEquals(i, (int) record.getInt(DataKeys.LOCATION.then(DataKeys.X)).orElse(-1));
+            assertEquals(-i, (int) record.getInt(DataKeys.LOCATION.then(DataKeys.Z)).orElse(1));
+            assertEquals(i % 3 == 0 ? "DIRT" : "STONE", record.getString(DataKeys.TARGET).orElse(null));
+            assertSame(created, record.get(DataKeys.CREATED).orElse(null));
+        }
+        //Each distinct state is only converted once
+        verify(stone, times(1)).getAsString();
+        verify(dirt, times(1)).getAsString();
+    }
+}
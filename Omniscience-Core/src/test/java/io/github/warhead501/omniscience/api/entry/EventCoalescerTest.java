@@ -0,0 +1,157 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.TestConfig;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.listener.CaptureFilter;
+import io.github.warhead501.omniscience.listener.block.EventGrowListener;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EventCoalescerTest {
+
+    private static final UUID WORLD = UUID.fromString("2d3c1a4e-0000-0000-0000-000000000000");
+
+    private World world;
+
+    @Before
+    public void setup() throws Exception {
+        FileConfiguration configuration = TestConfig.setup(ImmutableMap.of());
+        CaptureFilter.INSTANCE.compile(configuration.getConfigurationSection("events"));
+        when(TestConfig.setupApi().getEvents()).thenReturn(ImmutableMap.of("grow", new PastTenseWithEnabled(true, "grew")));
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(WORLD);
+
+        EventCoalescer.INSTANCE.flushAll();
+        EntryQueue.getSnapshotQueue().clear();
+    }
+
+    private Block block(int x, int y, int z, Material type) {
+        Block block = mock(Block.class);
+        when(block.getWorld()).thenReturn(world);
+        when(block.getX()).thenReturn(x);
+        when(block.getY()).thenReturn(y);
+        when(block.getZ()).thenReturn(z);
+        when(block.getType()).thenReturn(type);
+        when(block.getLocation()).thenReturn(new Location(world, x, y, z));
+        BlockState state = state(type);
+        when(block.getState()).thenReturn(state);
+        return block;
+    }
+
+    private static BlockState state(Material type) {
+        BlockData blockData = mock(BlockData.class);
+        when(blockData.getMaterial()).thenReturn(type);
+        when(blockData.getAsString()).thenReturn("minecraft:" + type.name().toLowerCase());
+        BlockState state = mock(BlockState.class);
+        when(state.getType()).thenReturn(type);
+        when(state.getBlockData()).thenReturn(blockData);
+        return state;
+    }
+
+    private static List<DataWrapper> saved() {
+        List<DataWrapper> records = Lists.newArrayList();
+        for (EntrySnapshot snapshot : EntryQueue.getSnapshotQueue()) {
+            records.add(snapshot.materialize());
+        }
+        EntryQueue.getSnapshotQueue().clear();
+        return records;
+    }
+
+    private static DataWrapper find(List<DataWrapper> records, String target, int x) {
+        for (DataWrapper record : records) {
+            if (target.equals(record.getString(DataKeys.TARGET).orElse(null))
+                    && x == record.getInt(DataKeys.LOCATION.then(DataKeys.X)).orElse(Integer.MIN_VALUE)) {
+                return record;
+            }
+        }
+        throw new AssertionError("No record of " + target + " at x " + x);
+    }
+
+    @Test
+    public void testCoalesce_OnlyConfiguredEvents() {
+        assertFalse(EventCoalescer.INSTANCE.coalesce("break", block(1, 64, 1, Material.STONE), Material.STONE));
+        assertTrue(EventCoalescer.INSTANCE.coalesce("grow", block(1, 64, 1, Material.WHEAT), Material.WHEAT));
+    }
+
+    @Test
+    public void testFlushAll_OneRecordPerChunkAndType() {
+        EventCoalescer.INSTANCE.coalesce("grow", block(1, 64, 2, Material.WHEAT), Material.WHEAT);
+        EventCoalescer.INSTANCE.coalesce("grow", block(5, 63, 9, Material.WHEAT), Material.WHEAT);
+        EventCoalescer.INSTANCE.coalesce("grow", block(3, 65, 4, Material.WHEAT), Material.WHEAT);
+        EventCoalescer.INSTANCE.coalesce("grow", block(2, 64, 2, Material.CARROTS), Material.CARROTS);
+        EventCoalescer.INSTANCE.coalesce("grow", block(17, 64, 2, Material.WHEAT), Material.WHEAT);
+        assertTrue(saved().isEmpty());
+
+        EventCoalescer.INSTANCE.flushAll();
+        List<DataWrapper> records = saved();
+        assertEquals(3, records.size());
+
+        DataWrapper wheat = find(records, "WHEAT", 1);
+        assertEquals("grow", wheat.getString(DataKeys.EVENT_NAME).orElse(null));
+        assertEquals(3, (int) wheat.getInt(DataKeys.COUNT).orElse(0));
+        assertEquals(63, (int) wheat.getInt(DataKeys.BOUNDS.then(DataKeys.MIN).then(DataKeys.Y)).orElse(0));
+        assertEquals(2, (int) wheat.getInt(DataKeys.BOUNDS.then(DataKeys.MIN).then(DataKeys.Z)).orElse(0));
+        assertEquals(5, (int) wheat.getInt(DataKeys.BOUNDS.then(DataKeys.MAX).then(DataKeys.X)).orElse(0));
+        assertEquals(65, (int) wheat.getInt(DataKeys.BOUNDS.then(DataKeys.MAX).then(DataKeys.Y)).orElse(0));
+        assertEquals(9, (int) wheat.getInt(DataKeys.BOUNDS.then(DataKeys.MAX).then(DataKeys.Z)).orElse(0));
+        assertEquals(WORLD.toString(), wheat.getString(DataKeys.LOCATION.then(DataKeys.WORLD)).orElse(null));
+        assertEquals(1, (int) find(records, "CARROTS", 2).getInt(DataKeys.COUNT).orElse(0));
+        assertEquals(1, (int) find(records, "WHEAT", 17).getInt(DataKeys.COUNT).orElse(0));
+    }
+
+    @Test
+    public void testFlush_WaitsForWindow() throws Exception {
+        EventCoalescer.INSTANCE.coalesce("grow", block(1, 64, 2, Material.WHEAT), Material.WHEAT);
+        EventCoalescer.INSTANCE.flush();
+        assertTrue(saved().isEmpty());
+
+        TestConfig.setup(ImmutableMap.of("coalesce.window", "0s"));
+        EventCoalescer.INSTANCE.flush();
+        assertEquals(1, saved().size());
+    }
+
+    @Test
+    public void testSpread_FireNotMerged() {
+        EventGrowListener listener = new EventGrowListener();
+        BlockSpreadEvent grass = mock(BlockSpreadEvent.class);
+        when(grass.getBlock()).thenReturn(block(1, 64, 2, Material.DIRT));
+        when(grass.getNewState()).thenReturn(state(Material.GRASS_BLOCK));
+        listener.onBlockSpread(grass);
+        assertTrue(saved().isEmpty());
+
+        BlockSpreadEvent fire = mock(BlockSpreadEvent.class);
+        when(fire.getBlock()).thenReturn(block(3, 64, 2, Material.AIR));
+        when(fire.getNewState()).thenReturn(state(Material.FIRE));
+        listener.onBlockSpread(fire);
+        List<DataWrapper> records = saved();
+        assertEquals(1, records.size());
+        assertEquals("AIR", records.get(0).getString(DataKeys.TARGET).orElse(null));
+        assertEquals("FIRE", records.get(0).getString(DataKeys.NEW_BLOCK.then(DataKeys.MATERIAL_TYPE)).orElse(null));
+        assertFalse(records.get(0).get(DataKeys.COUNT).isPresent());
+
+        EventCoalescer.INSTANCE.flushAll();
+        records = saved();
+        assertEquals(1, records.size());
+        assertEquals("DIRT", records.get(0).getString(DataKeys.TARGET).orElse(null));
+    }
+}
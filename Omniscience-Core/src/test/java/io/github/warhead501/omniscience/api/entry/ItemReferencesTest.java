@@ -0,0 +1,112 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemReferencesTest {
+
+    @Before
+    public void enable() {
+        ItemReferences.setEnabled(true);
+        ItemReferences.drainPending();
+    }
+
+    @After
+    public void disable() {
+        ItemReferences.drainPending();
+        ItemReferences.setEnabled(false);
+    }
+
+    /**
+     * @param serialized What a single one of the item is serialized as. Unique per test, known hashes are kept between tests.
+     */
+    private static ItemStack item(String serialized, int amount) {
+        ItemStack single = mock(ItemStack.class);
+        when(single.serializeAsBytes()).thenReturn(serialized.getBytes(StandardCharsets.UTF_8));
+        ItemStack item = mock(ItemStack.class);
+        when(item.getType()).thenReturn(Material.DIAMOND_SWORD);
+        when(item.getAmount()).thenReturn(amount);
+        when(item.clone()).thenReturn(single);
+        return item;
+    }
+
+    private static String hash(String serialized) {
+        return Hashing.sha256().hashBytes(serialized.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static String encoded(String serialized) {
+        return Base64.getEncoder().encodeToString(serialized.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWrite_SameItemOnce() {
+        String sword = "sword-" + UUID.randomUUID();
+        DataWrapper first = DataWrapper.createNew();
+        DataWrapper second = DataWrapper.createNew();
+        ItemReferences.write(first, DataKeys.ITEMSTACK, item(sword, 1));
+        ItemReferences.write(second, DataKeys.ITEMSTACK, item(sword, 3));
+
+        assertEquals(hash(sword), first.getString(DataKeys.ITEMSTACK.then(DataKeys.HASH)).orElse(null));
+        assertEquals(hash(sword), second.getString(DataKeys.ITEMSTACK.then(DataKeys.HASH)).orElse(null));
+        assertEquals(1, (int) first.getInt(DataKeys.ITEMSTACK.then(DataKeys.AMOUNT)).orElse(0));
+        assertEquals(3, (int) second.getInt(DataKeys.ITEMSTACK.then(DataKeys.AMOUNT)).orElse(0));
+        assertEquals(ImmutableMap.of(hash(sword), encoded(sword)), ItemReferences.drainPending());
+        assertTrue(ItemReferences.drainPending().isEmpty());
+    }
+
+    @Test
+    public void testWrite_StoredNotQueued() {
+        String sword = "sword-" + UUID.randomUUID();
+        String bow = "bow-" + UUID.randomUUID();
+        ItemReferences.markStored(ImmutableSet.of(hash(sword)));
+        ItemReferences.write(DataWrapper.createNew(), DataKeys.ITEMSTACK, item(sword, 1));
+        ItemReferences.write(DataWrapper.createNew(), DataKeys.ITEMSTACK, item(bow, 1));
+
+        Map<String, String> drained = ItemReferences.drainPending();
+        assertEquals(ImmutableMap.of(hash(bow), encoded(bow)), drained);
+
+        //Items that failed to be written are tried again
+        ItemReferences.requeue(drained);
+        assertEquals(drained, ItemReferences.drainPending());
+    }
+
+    @Test
+    public void testCollectHashes_Nested() {
+        String sword = "sword-" + UUID.randomUUID();
+        String bow = "bow-" + UUID.randomUUID();
+        DataWrapper wrapper = DataWrapper.createNew();
+        ItemReferences.write(wrapper, DataKeys.ITEMSTACK, item(sword, 1));
+        ItemReferences.write(wrapper, DataKeys.ORIGINAL_BLOCK.then(DataKeys.ITEMSTACK), item(bow, 1));
+
+        assertEquals(ImmutableSet.of(hash(sword), hash(bow)), ItemReferences.collectHashes(wrapper));
+    }
+
+    @Test
+    public void testResolve_MissingLeftInPlace() {
+        String sword = "sword-" + UUID.randomUUID();
+        DataWrapper wrapper = DataWrapper.createNew();
+        ItemReferences.write(wrapper, DataKeys.ITEMSTACK, item(sword, 2));
+
+        ItemReferences.resolve(wrapper, ImmutableMap.of(hash("bow-" + UUID.randomUUID()), encoded("bow")));
+        assertEquals(2, (int) wrapper.getInt(DataKeys.ITEMSTACK.then(DataKeys.AMOUNT)).orElse(0));
+        assertEquals(hash(sword), wrapper.getString(DataKeys.ITEMSTACK.then(DataKeys.HASH)).orElse(null));
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.warhead501.omniscience.api.parameter;
+
+import com.google.common.collect.ImmutableList;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ServerParameterTest {
+
+    private static Query build(String value) {
+        Query query = new Query();
+        new ServerParameter().buildForQuery(null, "server", value, query);
+        return query;
+    }
+
+    private static FieldCondition condition(Query query, int index) {
+        FieldCondition condition = (FieldCondition) query.getSearchCriteria().get(index);
+        assertEquals(DataKeys.SERVER, condition.getField());
+        return condition;
+    }
+
+    @Test
+    public void testBuild_Exact() {
+        Query query = build("hub");
+        assertEquals(1, query.getSearchCriteria().size());
+        assertEquals(MatchRule.EQUALS, condition(query, 0).getRule());
+        assertEquals("hub", condition(query, 0).getValue());
+    }
+
+    @Test
+    public void testBuild_Wildcard() {
+        Query query = build("hub-*");
+        assertEquals(MatchRule.EQUALS, condition(query, 0).getRule());
+        Pattern pattern = (Pattern) condition(query, 0).getValue();
+        assertTrue(pattern.matcher("hub-2").find());
+        assertFalse(pattern.matcher("hub").find());
+        assertFalse(pattern.matcher("lobby").find());
+    }
+
+    @Test
+    public void testBuild_List() {
+        Query query = build("hub,!hub-2,lobby-*");
+        assertEquals(2, query.getSearchCriteria().size());
+
+        assertEquals(MatchRule.INCLUDES, condition(query, 0).getRule());
+        List<?> included = (List<?>) condition(query, 0).getValue();
+        assertEquals("hub", included.get(0));
+        assertTrue(((Pattern) included.get(1)).matcher("lobby-1").find());
+
+        assertEquals(MatchRule.EXCLUDES, condition(query, 1).getRule());
+        assertEquals(ImmutableList.of("hub-2"), condition(query, 1).getValue());
+    }
+
+    @Test
+    public void testBuild_All() {
+        assertTrue(build("all").getSearchCriteria().isEmpty());
+    }
+
+    @Test
+    public void testAcceptsValue() {
+        ServerParameter parameter = new ServerParameter();
+        assertTrue(parameter.acceptsValue("hub-2"));
+        assertTrue(parameter.acceptsValue("hub,!lobby-*"));
+        assertFalse(parameter.acceptsValue("hub 2"));
+    }
+}
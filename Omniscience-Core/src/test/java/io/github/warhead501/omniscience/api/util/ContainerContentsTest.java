@@ -0,0 +1,97 @@
+package io.github.warhead501.omniscience.api.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.TestConfig;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.Material;
+import org.bukkit.UnsafeValues;
+import org.bukkit.inventory.ItemStack;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContainerContentsTest {
+
+    //Stands in for the server's item serialization, by the name each item is serialized as
+    private static final Map<String, ItemStack> SERIALIZED = Maps.newConcurrentMap();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        TestConfig.setupApi();
+        UnsafeValues unsafe = mock(UnsafeValues.class);
+        when(unsafe.deserializeItem(any(byte[].class))).thenAnswer(invocation -> {
+            ItemStack item = SERIALIZED.get(new String((byte[]) invocation.getArgument(0), StandardCharsets.UTF_8));
+            if (item == null) {
+                throw new IllegalArgumentException("Unknown item");
+            }
+            return item;
+        });
+        when(TestConfig.setupServer().getUnsafe()).thenReturn(unsafe);
+    }
+
+    private static ItemStack item(String name, Material type) {
+        ItemStack item = mock(ItemStack.class);
+        when(item.getType()).thenReturn(type);
+        when(item.clone()).thenReturn(item);
+        when(item.serializeAsBytes()).thenReturn(name.getBytes(StandardCharsets.UTF_8));
+        SERIALIZED.put(name, item);
+        return item;
+    }
+
+    @Test
+    public void testCopyOf_FilledSlots() {
+        ItemStack stone = item("stone", Material.STONE);
+        ItemStack air = item("air", Material.AIR);
+        Map<Integer, ItemStack> copy = ContainerContents.copyOf(new ItemStack[]{null, air, stone});
+        assertEquals(ImmutableMap.of(2, stone), copy);
+    }
+
+    @Test
+    public void testWrite_Read() {
+        ItemStack stone = item("stone", Material.STONE);
+        ItemStack dirt = item("dirt", Material.DIRT);
+        Map<Integer, ItemStack> contents = ImmutableMap.of(0, stone, 4, dirt, 7, stone, 26, stone);
+
+        DataWrapper wrapper = DataWrapper.createNew();
+        ContainerContents.write(wrapper, DataKeys.ORIGINAL_BLOCK.then(DataKeys.CONTENTS), contents);
+
+        //Each distinct stack is only stored once
+        assertEquals(2, wrapper.getStringList(DataKeys.ORIGINAL_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.ITEMS)).get().size());
+        assertEquals(ImmutableList.of(0, 4, 7, 26), wrapper.get(DataKeys.ORIGINAL_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.SLOTS)).get());
+        assertEquals(ImmutableList.of(0, 1, 0, 0), wrapper.get(DataKeys.ORIGINAL_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.SLOT_ITEMS)).get());
+
+        Map<Integer, ItemStack> read = ContainerContents.read(wrapper, DataKeys.ORIGINAL_BLOCK);
+        assertEquals(contents, read);
+        assertSame(stone, read.get(26));
+    }
+
+    @Test
+    public void testRead_SkipsBrokenItems() {
+        ItemStack stone = item("stone", Material.STONE);
+        DataWrapper wrapper = DataWrapper.createNew();
+        wrapper.set(DataKeys.NEW_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.ITEMS), ImmutableList.of(
+                Base64.getEncoder().encodeToString("unknown".getBytes(StandardCharsets.UTF_8)),
+                Base64.getEncoder().encodeToString(stone.serializeAsBytes())));
+        wrapper.set(DataKeys.NEW_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.SLOTS), ImmutableList.of(3, 5, 9));
+        wrapper.set(DataKeys.NEW_BLOCK.then(DataKeys.CONTENTS).then(DataKeys.SLOT_ITEMS), ImmutableList.of(0, 1, 2));
+
+        assertEquals(ImmutableMap.of(5, stone), ContainerContents.read(wrapper, DataKeys.NEW_BLOCK));
+    }
+
+    @Test
+    public void testRead_Nothing() {
+        assertEquals(ImmutableMap.of(), ContainerContents.read(DataWrapper.createNew(), DataKeys.ORIGINAL_BLOCK));
+    }
+}
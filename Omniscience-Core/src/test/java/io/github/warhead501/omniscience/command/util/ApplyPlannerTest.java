@@ -0,0 +1,93 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.entry.Actionable;
+import io.github.warhead501.omniscience.api.entry.ActionableException;
+import io.github.warhead501.omniscience.api.entry.PlannedAction;
+import io.github.warhead501.omniscience.api.entry.SkipReason;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+public class ApplyPlannerTest {
+
+    private static List<Change> changes(int count) {
+        List<Change> changes = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            changes.add(new Change());
+        }
+        return changes;
+    }
+
+    @Test
+    public void testPlan_KeepsOrderAcrossPartitions() throws Exception {
+        List<Change> changes = changes(600);
+        List<PlannedAction> plans = ApplyPlanner.plan(ImmutableList.copyOf(changes), true).get(10, TimeUnit.SECONDS);
+        assertEquals(changes.size(), plans.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertSame(changes.get(i).rollback, plans.get(i));
+        }
+    }
+
+    @Test
+    public void testPlan_Restore() throws Exception {
+        List<Change> changes = changes(3);
+        List<PlannedAction> plans = ApplyPlanner.plan(ImmutableList.copyOf(changes), false).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < changes.size(); i++) {
+            assertSame(changes.get(i).restore, plans.get(i));
+        }
+    }
+
+    @Test
+    public void testPlan_SkipKeptInPlace() throws Exception {
+        Actionable invalid = new Change() {
+            @Override
+            public PlannedAction planRollback() throws Exception {
+                throw skipped(SkipReason.INVALID_LOCATION);
+            }
+        };
+        Change valid = new Change();
+        List<PlannedAction> plans = ApplyPlanner.plan(ImmutableList.of(invalid, valid), true).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, plans.size());
+        assertSame(valid.rollback, plans.get(1));
+        try {
+            plans.get(0).commit();
+            fail("The skip should be thrown on commit");
+        } catch (ActionableException e) {
+            assertEquals(SkipReason.INVALID_LOCATION, e.getResult().getReason());
+        }
+    }
+
+    private static class Change implements Actionable {
+        private final PlannedAction rollback = () -> ActionResult.skipped(SkipReason.UNIMPLEMENTED);
+        private final PlannedAction restore = () -> ActionResult.skipped(SkipReason.UNIMPLEMENTED);
+
+        @Override
+        public ActionResult rollback() throws Exception {
+            return rollback.commit();
+        }
+
+        @Override
+        public ActionResult restore() throws Exception {
+            return restore.commit();
+        }
+
+        @Override
+        public PlannedAction planRollback() throws Exception {
+            return rollback;
+        }
+
+        @Override
+        public PlannedAction planRestore() throws Exception {
+            return restore;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.warhead501.omniscience.command.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.github.warhead501.omniscience.TestConfig;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.ActionResult;
+import io.github.warhead501.omniscience.api.entry.Actionable;
+import io.github.warhead501.omniscience.api.entry.BlockEntry;
+import io.github.warhead501.omniscience.api.entry.PlannedAction;
+import io.github.warhead501.omniscience.io.RecordHandler;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class ConflictDetectorTest {
+
+    private static final UUID WORLD = UUID.fromString("2d3c1a4e-0000-0000-0000-000000000000");
+    private static final BlockPosition FIRST = new BlockPosition(WORLD, 10, 64, -5);
+    private static final BlockPosition SECOND = new BlockPosition(WORLD, 40, 70, 20);
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        //Entries format their time with the API's date format
+        TestConfig.setupApi();
+    }
+
+    private static BlockEntry entry(BlockPosition position, Object created) {
+        BlockEntry entry = new BlockEntry();
+        entry.data = DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, "break")
+                .set(DataKeys.CREATED, created)
+                .set(DataKeys.LOCATION.then(DataKeys.WORLD), position.getWorld().toString())
+                .set(DataKeys.LOCATION.then(DataKeys.X), position.getX())
+                .set(DataKeys.LOCATION.then(DataKeys.Y), position.getY())
+                .set(DataKeys.LOCATION.then(DataKeys.Z), position.getZ());
+        return entry;
+    }
+
+    private static RecordHandler records(ImmutableMap<BlockPosition, Date> latest) throws Exception {
+        RecordHandler records = mock(RecordHandler.class);
+        when(records.getLatestBlockChanges(anyCollection(), any(Date.class))).thenReturn(CompletableFuture.completedFuture(latest));
+        return records;
+    }
+
+    @Test
+    public void testFilter_LongAndDateCreated() throws Exception {
+        BlockEntry first = entry(FIRST, 2000L);
+        BlockEntry second = entry(SECOND, new Date(3000));
+        RecordHandler records = records(ImmutableMap.of(FIRST, new Date(2500), SECOND, new Date(3000)));
+
+        ConflictDetector.Result result = ConflictDetector.filter(ImmutableList.<Actionable>of(first, second), records).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ImmutableSet.of(FIRST), result.getConflicts());
+        assertEquals(ImmutableList.of(second), result.getActionables());
+        //A Long is milliseconds, the same as the Date it was stored from
+        verify(records).getLatestBlockChanges(eq(ImmutableSet.of(FIRST, SECOND)), eq(new Date(2000)));
+    }
+
+    @Test
+    public void testFilter_NewestInJobPerPosition() throws Exception {
+        BlockEntry older = entry(FIRST, new Date(1000));
+        BlockEntry newer = entry(FIRST, 4000L);
+        RecordHandler records = records(ImmutableMap.of(FIRST, new Date(4000)));
+
+        ConflictDetector.Result result = ConflictDetector.filter(ImmutableList.<Actionable>of(older, newer), records).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ImmutableSet.of(), result.getConflicts());
+        assertEquals(ImmutableList.of(older, newer), result.getActionables());
+    }
+
+    @Test
+    public void testFilter_KeepsOtherActionables() throws Exception {
+        Actionable other = new Actionable() {
+            @Override
+            public ActionResult rollback() {
+                return null;
+            }
+
+            @Override
+            public ActionResult restore() {
+                return null;
+            }
+
+            @Override
+            public PlannedAction planRollback() {
+                return null;
+            }
+
+            @Override
+            public PlannedAction planRestore() {
+                return null;
+            }
+        };
+        BlockEntry conflicting = entry(FIRST, new Date(1000));
+        RecordHandler records = records(ImmutableMap.of(FIRST, new Date(2000)));
+
+        ConflictDetector.Result result = ConflictDetector.filter(ImmutableList.<Actionable>of(other, conflicting), records).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ImmutableSet.of(FIRST), result.getConflicts());
+        assertEquals(ImmutableList.of(other), result.getActionables());
+    }
+
+    @Test
+    public void testFilter_NoBlocksSkipsLookup() throws Exception {
+        BlockEntry unlocated = new BlockEntry();
+        unlocated.data = DataWrapper.createNew().set(DataKeys.CREATED, new Date(1000));
+        RecordHandler records = mock(RecordHandler.class);
+
+        ConflictDetector.Result result = ConflictDetector.filter(ImmutableList.<Actionable>of(unlocated), records).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ImmutableList.of(unlocated), result.getActionables());
+        verifyNoInteractions(records);
+    }
+}
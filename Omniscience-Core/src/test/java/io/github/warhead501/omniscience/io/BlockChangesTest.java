@@ -0,0 +1,63 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.github.warhead501.omniscience.api.data.BlockPosition;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class BlockChangesTest {
+
+    private static final UUID WORLD = UUID.fromString("2d3c1a4e-0000-0000-0000-000000000000");
+    private static final BlockPosition FIRST = new BlockPosition(WORLD, 10, 64, -5);
+    private static final BlockPosition SECOND = new BlockPosition(WORLD, 40, 70, 20);
+
+    private static ByteBuffer record(BlockPosition position, long created, boolean block) throws Exception {
+        DataWrapper wrapper = DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, block ? "break" : "say")
+                .set(DataKeys.CREATED, new Date(created))
+                .set(DataKeys.LOCATION.then(DataKeys.WORLD), position.getWorld().toString())
+                .set(DataKeys.LOCATION.then(DataKeys.X), position.getX())
+                .set(DataKeys.LOCATION.then(DataKeys.Y), position.getY())
+                .set(DataKeys.LOCATION.then(DataKeys.Z), position.getZ());
+        if (block) {
+            wrapper.set(DataKeys.ORIGINAL_BLOCK, "STONE");
+        }
+        return ByteBuffer.wrap(RecordCodec.encode(wrapper));
+    }
+
+    @Test
+    public void testBounds_CoverPositions() {
+        BlockChanges changes = new BlockChanges(ImmutableList.of(FIRST, SECOND), new Date(1000));
+        assertEquals(1001, changes.getBounds().getMinCreated());
+        assertTrue(changes.getBounds().containsChunk(0, -1));
+        assertTrue(changes.getBounds().containsChunk(2, 1));
+    }
+
+    @Test
+    public void testVisit_NewestBlockChange() throws Exception {
+        BlockChanges changes = new BlockChanges(ImmutableList.of(FIRST, SECOND), new Date(1000));
+        assertTrue(changes.visit(3000, record(FIRST, 3000, true)));
+        assertTrue(changes.visit(2000, record(FIRST, 2000, true)));
+        assertTrue(changes.visit(4000, record(FIRST, 4000, false)));
+        assertTrue(changes.visit(5000, record(new BlockPosition(WORLD, 11, 64, -5), 5000, true)));
+        assertEquals(ImmutableMap.of(FIRST, new Date(3000)), changes.getLatest());
+    }
+
+    @Test
+    public void testAddAll_KeepsNewest() throws Exception {
+        BlockChanges changes = new BlockChanges(ImmutableList.of(FIRST, SECOND), new Date(1000));
+        changes.visit(3000, record(FIRST, 3000, true));
+        changes.visit(3000, record(SECOND, 3000, true));
+        changes.addAll(ImmutableMap.of(FIRST, new Date(6000), SECOND, new Date(2000)));
+        assertEquals(ImmutableMap.of(FIRST, new Date(6000), SECOND, new Date(3000)), changes.getLatest());
+    }
+}
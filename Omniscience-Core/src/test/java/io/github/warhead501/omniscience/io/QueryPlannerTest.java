@@ -0,0 +1,133 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.TestConfig;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueryPlannerTest {
+
+    private static final SearchCondition EVENT = FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "break");
+    private static final SearchCondition TARGET = FieldCondition.of(DataKeys.TARGET, MatchRule.EQUALS, DataHelper.compileUserInput("*_ORE"));
+    private static final SearchCondition X = FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(0, 15));
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        TestConfig.setup(ImmutableMap.of());
+        //Entries are made of the records that match, and format their time with the API
+        TestConfig.setupApi();
+    }
+
+    private static DataWrapper record(String target, int x, long created) {
+        return DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, "break")
+                .set(DataKeys.TARGET, target)
+                .set(DataKeys.CREATED, new Date(created))
+                .set(DataKeys.LOCATION.then(DataKeys.X), x);
+    }
+
+    private static QuerySession session(SearchCondition... conditions) {
+        Query query = new Query();
+        query.setSearchCriteria(Lists.newArrayList(conditions));
+        query.setSearchLimit(100);
+        QuerySession session = new QuerySession(null);
+        session.setQuery(query);
+        session.addFlag(Flag.NO_GROUP);
+        return session;
+    }
+
+    private static List<String> targets(List<DataEntry> entries) {
+        return entries.stream().map(DataEntry::getTargetName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testQuery_AllSupportedPassedOn() throws Exception {
+        RecordHandler records = mock(RecordHandler.class);
+        CompletableFuture<List<DataEntry>> found = CompletableFuture.completedFuture(ImmutableList.of());
+        QuerySession session = session(EVENT, TARGET, X);
+        when(records.query(session)).thenReturn(found);
+
+        QueryPlanner planner = new QueryPlanner(records, ImmutableSet.of(StorageCapability.TEXT_SEARCH, StorageCapability.SPATIAL_INDEX));
+        assertSame(found, planner.query(session));
+    }
+
+    @Test
+    public void testQuery_StreamingChecksRemaining() throws Exception {
+        RecordHandler records = mock(RecordHandler.class);
+        when(records.export(anyList(), isNull(), anyInt())).thenReturn(new RecordBatch(ImmutableList.of(
+                record("IRON_ORE", 3, 1000),
+                record("STONE", 4, 2000)), "next"));
+        when(records.export(anyList(), eq("next"), anyInt())).thenReturn(new RecordBatch(ImmutableList.of(
+                record("GOLD_ORE", 40, 3000),
+                record("GOLD_ORE", 5, 4000)), null));
+
+        QueryPlanner planner = new QueryPlanner(records, ImmutableSet.of(StorageCapability.STREAMING));
+        List<DataEntry> entries = planner.query(session(EVENT, TARGET, X)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ImmutableList.of("GOLD_ORE", "IRON_ORE"), targets(entries));
+        ArgumentCaptor<List<SearchCondition>> supported = ArgumentCaptor.forClass(List.class);
+        verify(records).export(supported.capture(), isNull(), anyInt());
+        assertEquals(ImmutableList.of(EVENT), supported.getValue());
+    }
+
+    @Test
+    public void testQuery_NarrowedChecksRemaining() throws Exception {
+        RecordHandler records = mock(RecordHandler.class);
+        DataEntry iron = mock(DataEntry.class);
+        iron.data = record("IRON_ORE", 3, 1000);
+        DataEntry stone = mock(DataEntry.class);
+        stone.data = record("STONE", 4, 2000);
+        DataEntry gold = mock(DataEntry.class);
+        gold.data = record("GOLD_ORE", 40, 3000);
+        when(records.query(any(QuerySession.class))).thenReturn(CompletableFuture.completedFuture(ImmutableList.of(iron, stone, gold)));
+
+        QueryPlanner planner = new QueryPlanner(records, ImmutableSet.of(StorageCapability.SPATIAL_INDEX));
+        QuerySession session = session(EVENT, TARGET, X);
+        session.clearFlags();
+        List<DataEntry> entries = planner.query(session).get(10, TimeUnit.SECONDS);
+
+        //Grouped here, from single records of the storage
+        assertEquals(1, entries.size());
+        assertEquals("IRON_ORE", entries.get(0).getTargetName());
+        assertEquals(1, (int) entries.get(0).data.getInt(DataKeys.COUNT).orElse(0));
+
+        ArgumentCaptor<QuerySession> narrowed = ArgumentCaptor.forClass(QuerySession.class);
+        verify(records).query(narrowed.capture());
+        assertTrue(narrowed.getValue().hasFlag(Flag.NO_GROUP));
+        assertEquals(ImmutableList.of(EVENT, X), narrowed.getValue().getQuery().getSearchCriteria());
+        assertEquals(100, narrowed.getValue().getQuery().getSearchLimit());
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class RecordCodecTest {
+
+    @Test
+    public void testRoundTrip_KeepsTypes() throws Exception {
+        DataWrapper wrapper = DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, "break")
+                .set(DataKeys.CREATED, new Date(1650000000000L))
+                .set(DataKeys.LOCATION.then(DataKeys.WORLD), "2d3c1a4e-0000-0000-0000-000000000000")
+                .set(DataKeys.LOCATION.then(DataKeys.X), 12)
+                .set(DataKeys.LOCATION.then(DataKeys.Y), 64)
+                .set(DataKey.of("Long"), 5000000000L)
+                .set(DataKey.of("Double"), 0.5D)
+                .set(DataKey.of("Float"), 1.5F)
+                .set(DataKey.of("Short"), (short) 7)
+                .set(DataKey.of("Byte"), (byte) 3)
+                .set(DataKey.of("Boolean"), true)
+                .set(DataKey.of("List"), Lists.newArrayList("a", 1, Lists.newArrayList(2L)))
+                .set(DataKey.of("Map"), ImmutableMap.of("Amount", 3, "Name", "Stone"));
+
+        DataWrapper decoded = RecordCodec.decode(ByteBuffer.wrap(RecordCodec.encode(wrapper)));
+
+        assertEquals(wrapper, decoded);
+        assertEquals(Short.valueOf((short) 7), decoded.get(DataKey.of("Short")).get());
+        assertEquals(Byte.valueOf((byte) 3), decoded.get(DataKey.of("Byte")).get());
+        assertEquals(Float.valueOf(1.5F), decoded.get(DataKey.of("Float")).get());
+    }
+
+    @Test
+    public void testRoundTrip_Bytes() throws Exception {
+        byte[] bytes = {1, 2, 3, -1};
+        DataWrapper wrapper = DataWrapper.createNew().set(DataKey.of("Bytes"), bytes);
+
+        DataWrapper decoded = RecordCodec.decode(ByteBuffer.wrap(RecordCodec.encode(wrapper)));
+
+        assertTrue(Arrays.equals(bytes, (byte[]) decoded.get(DataKey.of("Bytes")).get()));
+    }
+
+    @Test
+    public void testDecode_ConsumesOneRecord() throws Exception {
+        byte[] first = RecordCodec.encode(DataWrapper.createNew().set(DataKeys.EVENT_NAME, "place"));
+        byte[] second = RecordCodec.encode(DataWrapper.createNew().set(DataKeys.EVENT_NAME, "break"));
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length).put(first).put(second);
+        buffer.flip();
+
+        assertEquals("place", RecordCodec.decode(buffer).getString(DataKeys.EVENT_NAME).get());
+        assertEquals("break", RecordCodec.decode(buffer).getString(DataKeys.EVENT_NAME).get());
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecode_UnknownTag() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(1);
+        buffer.putInt(1);
+        buffer.put((byte) 'A');
+        buffer.put((byte) 99);
+        buffer.flip();
+        RecordCodec.decode(buffer);
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class RecordMatcherTest {
+
+    private static final DataKey MISSING = DataKey.of("Missing");
+
+    private final DataWrapper record = DataWrapper.createNew()
+            .set(DataKeys.EVENT_NAME, "break")
+            .set(DataKeys.PLAYER_ID, "player-1")
+            .set(DataKeys.CREATED, new Date(1000))
+            .set(DataKeys.LOCATION.then(DataKeys.X), 10)
+            .set(DataKeys.LOCATION.then(DataKeys.Z), -5);
+
+    private static boolean matches(DataWrapper wrapper, SearchCondition... conditions) {
+        return new RecordMatcher(ImmutableList.copyOf(conditions)).matches(wrapper);
+    }
+
+    @Test
+    public void testPattern_MatchesAnywhere() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, DataHelper.compileUserInput("rea"))));
+        assertTrue(matches(record, FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, DataHelper.compileUserInput("b*k"))));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, DataHelper.compileUserInput("place"))));
+    }
+
+    @Test
+    public void testEquals_String() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "break")));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "brea")));
+    }
+
+    @Test
+    public void testEquals_NumbersOfOtherTypes() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), MatchRule.EQUALS, 10L)));
+        assertTrue(matches(record, FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), MatchRule.EQUALS, 10.0D)));
+    }
+
+    @Test
+    public void testIncludes_AnyOfList() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.INCLUDES, ImmutableList.of("player-2", "player-1"))));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.INCLUDES, ImmutableList.of("player-2"))));
+    }
+
+    @Test
+    public void testExcludes_MissingField() {
+        assertTrue(matches(record, FieldCondition.of(MISSING, MatchRule.EXCLUDES, ImmutableList.of("hub"))));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EXCLUDES, ImmutableList.of("player-1"))));
+    }
+
+    @Test
+    public void testExists() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EXISTS, true)));
+        assertTrue(matches(record, FieldCondition.of(MISSING, MatchRule.EXISTS, false)));
+        assertFalse(matches(record, FieldCondition.of(MISSING, MatchRule.EXISTS, true)));
+    }
+
+    @Test
+    public void testBetween_IncludesEndpoints() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(10, 20))));
+        assertTrue(matches(record, FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Z), Range.closed(-10, -5))));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(11, 20))));
+        assertTrue(matches(record, FieldCondition.of(DataKeys.CREATED, Range.atMost(new Date(1000)))));
+    }
+
+    @Test
+    public void testDates() {
+        assertTrue(matches(record, FieldCondition.of(DataKeys.CREATED, MatchRule.GREATER_THAN_EQUAL, new Date(1000))));
+        assertFalse(matches(record, FieldCondition.of(DataKeys.CREATED, MatchRule.GREATER_THAN_EQUAL, new Date(1001))));
+        assertTrue(matches(record, FieldCondition.of(DataKeys.CREATED, MatchRule.LESS_THAN_EQUAL, new Date(1000))));
+    }
+
+    @Test
+    public void testGroups() {
+        SearchConditionGroup or = new SearchConditionGroup(SearchConditionGroup.Operator.OR);
+        or.add(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "place"));
+        or.add(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, "player-1"));
+        assertTrue(matches(record, or));
+
+        SearchConditionGroup and = new SearchConditionGroup(SearchConditionGroup.Operator.AND);
+        and.add(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "place"));
+        and.add(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, "player-1"));
+        assertFalse(matches(record, and));
+
+        assertTrue(matches(record, new SearchConditionGroup(SearchConditionGroup.Operator.OR)));
+    }
+}
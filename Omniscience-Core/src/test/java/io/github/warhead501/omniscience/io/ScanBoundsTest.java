@@ -0,0 +1,106 @@
+package io.github.warhead501.omniscience.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+import io.github.warhead501.omniscience.api.util.DataHelper;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ScanBoundsTest {
+
+    @Test
+    public void testUnbounded() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of());
+        assertEquals(Long.MIN_VALUE, bounds.getMinCreated());
+        assertEquals(Long.MAX_VALUE, bounds.getMaxCreated());
+        assertNull(bounds.getWorlds());
+        assertNull(bounds.getPlayers());
+        assertNull(bounds.getEvents());
+        assertFalse(bounds.hasChunkBounds());
+    }
+
+    @Test
+    public void testCreated_Narrowest() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.CREATED, Range.closed(new Date(100), new Date(500))),
+                FieldCondition.of(DataKeys.CREATED, MatchRule.GREATER_THAN_EQUAL, new Date(200))));
+        assertEquals(200, bounds.getMinCreated());
+        assertEquals(500, bounds.getMaxCreated());
+        assertTrue(bounds.containsTime(200));
+        assertTrue(bounds.containsTime(500));
+        assertFalse(bounds.containsTime(199));
+        assertTrue(bounds.overlapsTime(0, 200));
+        assertFalse(bounds.overlapsTime(501, 1000));
+    }
+
+    @Test
+    public void testWorlds_Intersected() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.WORLD), MatchRule.INCLUDES, ImmutableList.of("a", "b")),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.WORLD), MatchRule.EQUALS, "b")));
+        assertEquals(ImmutableSet.of("b"), bounds.getWorlds());
+    }
+
+    @Test
+    public void testEvents_LiteralPatterns() {
+        ScanBounds exact = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.INCLUDES, ImmutableList.of(DataHelper.compileUserInput("break"), DataHelper.compileUserInput("item-drop")))));
+        assertEquals(ImmutableSet.of("break", "item-drop"), exact.getEvents());
+
+        ScanBounds wildcard = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, DataHelper.compileUserInput("b*"))));
+        assertNull(wildcard.getEvents());
+    }
+
+    @Test
+    public void testPlayers_PatternsIgnored() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, DataHelper.compileUserInput("player"))));
+        assertNull(bounds.getPlayers());
+    }
+
+    @Test
+    public void testOrGroup_Ignored() {
+        SearchConditionGroup or = new SearchConditionGroup(SearchConditionGroup.Operator.OR);
+        or.add(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, "player-1"));
+        SearchConditionGroup and = new SearchConditionGroup(SearchConditionGroup.Operator.AND);
+        and.add(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "break"));
+
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(or, and));
+        assertNull(bounds.getPlayers());
+        assertEquals(ImmutableSet.of("break"), bounds.getEvents());
+    }
+
+    @Test
+    public void testChunks() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(-20, 40)),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Z), Range.closed(0, 15))));
+        assertTrue(bounds.hasFiniteArea());
+        assertEquals(-2, bounds.getMinChunkX());
+        assertEquals(2, bounds.getMaxChunkX());
+        assertEquals(0, bounds.getMinChunkZ());
+        assertEquals(0, bounds.getMaxChunkZ());
+        assertTrue(bounds.containsChunk(-2, 0));
+        assertFalse(bounds.containsChunk(0, 1));
+    }
+
+    @Test
+    public void testChunks_OneSided() {
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), MatchRule.GREATER_THAN_EQUAL, 100)));
+        assertTrue(bounds.hasChunkBounds());
+        assertFalse(bounds.hasFiniteArea());
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.warhead501.omniscience.io.archive;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.io.RecordCodec;
+import io.github.warhead501.omniscience.io.ScanBounds;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ArchiveSegmentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DataWrapper record(long created, String world, int x, int z, String player, String event) {
+        DataWrapper wrapper = DataWrapper.createNew()
+                .set(DataKeys.CREATED, new Date(created))
+                .set(DataKeys.EVENT_NAME, event);
+        if (world != null) {
+            wrapper.set(DataKeys.LOCATION.then(DataKeys.WORLD), world)
+                    .set(DataKeys.LOCATION.then(DataKeys.X), x)
+                    .set(DataKeys.LOCATION.then(DataKeys.Y), 64)
+                    .set(DataKeys.LOCATION.then(DataKeys.Z), z);
+        }
+        if (player != null) {
+            wrapper.set(DataKeys.PLAYER_ID, player);
+        }
+        return wrapper;
+    }
+
+    private ArchiveSegment write(DataWrapper... records) throws Exception {
+        List<ArchiveSegment.Row> rows = Lists.newArrayList();
+        for (DataWrapper record : records) {
+            rows.add(ArchiveSegment.Row.of(record));
+        }
+        return ArchiveSegment.write(new File(folder.getRoot(), "segment"), rows);
+    }
+
+    private static List<DataWrapper> scan(ArchiveSegment segment, ScanBounds bounds) throws Exception {
+        List<DataWrapper> found = Lists.newArrayList();
+        segment.scan(bounds, (created, body) -> found.add(RecordCodec.decode(body)));
+        return found;
+    }
+
+    @Test
+    public void testWrite_Summary() throws Exception {
+        ArchiveSegment segment = write(
+                record(300, "world", 10, 10, "player-1", "break"),
+                record(100, "world", -40, 5, "player-2", "place"),
+                record(200, null, 0, 0, null, "say"));
+
+        ArchiveSegment opened = ArchiveSegment.open(segment.getFile());
+        assertEquals(3, opened.getCount());
+        assertEquals(100, opened.getMinCreated());
+        assertEquals(300, opened.getMaxCreated());
+        assertFalse(new File(folder.getRoot(), "segment.tmp").exists());
+    }
+
+    @Test
+    public void testScan_OldestFirst() throws Exception {
+        DataWrapper first = record(100, "world", -40, 5, "player-2", "place");
+        DataWrapper second = record(200, null, 0, 0, null, "say");
+        DataWrapper third = record(300, "world", 10, 10, "player-1", "break");
+        ArchiveSegment segment = write(third, first, second);
+
+        assertEquals(ImmutableList.of(first, second, third), scan(segment, ScanBounds.from(ImmutableList.of())));
+    }
+
+    @Test
+    public void testScan_OnlyCandidates() throws Exception {
+        DataWrapper inside = record(300, "world", 10, 10, "player-1", "break");
+        ArchiveSegment segment = write(
+                inside,
+                record(100, "world", -40, 5, "player-1", "break"),
+                record(200, null, 0, 0, "player-1", "break"),
+                record(400, "world", 12, 12, "player-2", "break"));
+
+        ScanBounds bounds = ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, "player-1"),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(0, 20)),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Z), Range.closed(0, 20))));
+        assertEquals(ImmutableList.of(inside), scan(segment, bounds));
+    }
+
+    @Test
+    public void testScan_Stops() throws Exception {
+        ArchiveSegment segment = write(
+                record(100, "world", 0, 0, null, "break"),
+                record(200, "world", 0, 0, null, "break"));
+
+        List<Long> visited = Lists.newArrayList();
+        assertFalse(segment.scan(ScanBounds.from(ImmutableList.of()), (created, body) -> {
+            visited.add(created);
+            return false;
+        }));
+        assertEquals(ImmutableList.of(100L), visited);
+    }
+
+    @Test
+    public void testMayContain() throws Exception {
+        ArchiveSegment segment = write(
+                record(100, "world", 0, 0, "player-1", "break"),
+                record(200, "world", 20, 20, "player-1", "place"));
+
+        assertTrue(segment.mayContain(ScanBounds.from(ImmutableList.of())));
+        assertTrue(segment.mayContain(ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "place")))));
+        assertFalse(segment.mayContain(ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "say")))));
+        assertFalse(segment.mayContain(ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.CREATED, MatchRule.GREATER_THAN_EQUAL, new Date(201))))));
+        assertFalse(segment.mayContain(ScanBounds.from(ImmutableList.of(
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), MatchRule.GREATER_THAN_EQUAL, 100)))));
+    }
+
+    @Test
+    public void testReadRows() throws Exception {
+        ArchiveSegment segment = write(
+                record(200, null, 0, 0, null, "say"),
+                record(100, "world", -40, 5, "player-2", "place"));
+
+        List<ArchiveSegment.Row> rows = segment.readRows();
+        assertEquals(2, rows.size());
+        assertEquals(100, rows.get(0).created);
+        assertEquals("world", rows.get(0).world);
+        assertTrue(rows.get(0).located);
+        assertEquals(-40, rows.get(0).x);
+        assertEquals(64, rows.get(0).y);
+        assertEquals("player-2", rows.get(0).player);
+        assertEquals(200, rows.get(1).created);
+        assertFalse(rows.get(1).located);
+        assertNull(rows.get(1).world);
+        assertNull(rows.get(1).player);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.warhead501.omniscience.io.dynamo;
+
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.warhead501.omniscience.io.dynamo.DynamoRecordHandler.chunkPartition;
+import static io.github.warhead501.omniscience.io.dynamo.DynamoRecordHandler.partitionOf;
+import static io.github.warhead501.omniscience.io.dynamo.DynamoRecordHandler.sortKey;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class DynamoRecordHandlerTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void testSortKey_OrdersByTime() {
+        assertTrue(sortKey(999).compareTo(sortKey(1000)) < 0);
+        assertTrue(sortKey(99999999999L).compareTo(sortKey(100000000000L)) < 0);
+        assertTrue(sortKey(1650000000000L).compareTo(sortKey(1650000000001L)) < 0);
+        assertEquals(sortKey(0), sortKey(-5));
+    }
+
+    @Test
+    public void testSortKey_RecordsWithinTime() {
+        //Stored sort keys continue with the writer and a counter, the end of a lookup's range adds a ~ to the sort key
+        String stored = sortKey(1000) + "0000abcd" + Long.toHexString(Long.MAX_VALUE);
+        assertTrue(sortKey(1000).compareTo(stored) < 0);
+        assertTrue(stored.compareTo(sortKey(1000) + "~") < 0);
+        assertTrue(stored.compareTo(sortKey(1001)) < 0);
+    }
+
+    @Test
+    public void testPartition_Chunk() {
+        DataWrapper wrapper = DataWrapper.createNew()
+                .set(DataKeys.LOCATION.then(DataKeys.WORLD), "world")
+                .set(DataKeys.LOCATION.then(DataKeys.X), 31)
+                .set(DataKeys.LOCATION.then(DataKeys.Y), 64)
+                .set(DataKeys.LOCATION.then(DataKeys.Z), -1);
+        assertEquals("world:1:-1", partitionOf(wrapper, 0));
+        assertEquals(chunkPartition("world", 1, -1), partitionOf(wrapper, DAY * 3));
+    }
+
+    @Test
+    public void testPartition_DayWithoutLocation() {
+        assertEquals("-:0", partitionOf(DataWrapper.createNew(), DAY - 1));
+        assertEquals("-:1", partitionOf(DataWrapper.createNew(), DAY));
+        assertEquals("-:-1", partitionOf(DataWrapper.createNew(), -1));
+        assertEquals("-:1", partitionOf(DataWrapper.createNew().set(DataKeys.LOCATION.then(DataKeys.WORLD), "world"), DAY));
+    }
+}
@@ -0,0 +1,235 @@
+package io.github.warhead501.omniscience.io.dynamo;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import io.github.warhead501.omniscience.OmniConfig;
+import io.github.warhead501.omniscience.Omniscience;
+import io.github.warhead501.omniscience.TestConfig;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.entry.DataEntry;
+import io.github.warhead501.omniscience.api.flag.Flag;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.Query;
+import io.github.warhead501.omniscience.api.query.QuerySession;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the DynamoDB storage against DynamoDB Local. Skipped unless its endpoint is given, for example with
+ * {@code -Domniscience.dynamodb.endpoint=http://localhost:8000}.
+ */
+public class DynamoStorageTest {
+
+    private static final String ENDPOINT = System.getProperty("omniscience.dynamodb.endpoint", System.getenv("OMNISCIENCE_DYNAMODB_ENDPOINT"));
+    private static final int BATCH_WRITE_LIMIT = 25;
+
+    private static AmazonDynamoDB client;
+    private static AmazonDynamoDB dynamoDB;
+    private static DynamoStorageHandler storageHandler;
+
+    @BeforeClass
+    public static void connect() throws Exception {
+        Assume.assumeTrue("No DynamoDB Local endpoint given", ENDPOINT != null && !ENDPOINT.isEmpty());
+        TestConfig.setup(ImmutableMap.of("database.dataTableName", "OmniscienceTest"));
+        TestConfig.setupApi();
+        //Players of the results are looked up by their id
+        TestConfig.setupServer();
+
+        client = AmazonDynamoDBClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(ENDPOINT, "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build();
+        deleteTables();
+        dynamoDB = mock(AmazonDynamoDB.class, AdditionalAnswers.delegatesTo(client));
+        storageHandler = new DynamoStorageHandler();
+        assertTrue(storageHandler.connect(mock(Omniscience.class), dynamoDB, 2, 4));
+    }
+
+    @After
+    public void resetCalls() {
+        reset(dynamoDB);
+    }
+
+    @AfterClass
+    public static void close() {
+        if (storageHandler != null) {
+            storageHandler.close();
+            deleteTables();
+            client.shutdown();
+        }
+    }
+
+    private static void deleteTables() {
+        TableUtils.deleteTableIfExists(client, new DeleteTableRequest(OmniConfig.INSTANCE.getTableName()));
+        TableUtils.deleteTableIfExists(client, new DeleteTableRequest(OmniConfig.INSTANCE.getTableName() + "_items"));
+    }
+
+    private static DataWrapper record(UUID world, String event, String player, long created, int x, int z) {
+        return DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, event)
+                .set(DataKeys.PLAYER_ID, player)
+                .set(DataKeys.CREATED, new Date(created))
+                .set(DataKeys.LOCATION.then(DataKeys.WORLD), world.toString())
+                .set(DataKeys.LOCATION.then(DataKeys.X), x)
+                .set(DataKeys.LOCATION.then(DataKeys.Y), 64)
+                .set(DataKeys.LOCATION.then(DataKeys.Z), z);
+    }
+
+    private static List<DataEntry> query(SearchCondition... conditions) throws Exception {
+        Query query = new Query();
+        query.setSearchCriteria(Lists.newArrayList(conditions));
+        QuerySession session = new QuerySession(null);
+        session.setQuery(query);
+        session.addFlag(Flag.NO_GROUP);
+        return storageHandler.records().query(session).get(30, TimeUnit.SECONDS);
+    }
+
+    private static List<QueryRequest> queried() {
+        ArgumentCaptor<QueryRequest> requests = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDB, atLeastOnce()).query(requests.capture());
+        verify(dynamoDB, never()).scan(any(ScanRequest.class));
+        return requests.getAllValues();
+    }
+
+    @Test
+    public void testWrite_RetriesUnprocessed() throws Exception {
+        String table = OmniConfig.INSTANCE.getTableName();
+        AtomicInteger throttled = new AtomicInteger();
+        //Every full batch only has part of it written the first time, the way DynamoDB does when it is throttled
+        doAnswer(invocation -> {
+            BatchWriteItemRequest request = invocation.getArgument(0);
+            List<WriteRequest> batch = request.getRequestItems().get(table);
+            if (batch == null || batch.size() != BATCH_WRITE_LIMIT) {
+                return client.batchWriteItem(request);
+            }
+            throttled.incrementAndGet();
+            client.batchWriteItem(new BatchWriteItemRequest().withRequestItems(Collections.singletonMap(table, batch.subList(0, 10))));
+            return new BatchWriteItemResult().withUnprocessedItems(Collections.singletonMap(table, batch.subList(10, batch.size())));
+        }).when(dynamoDB).batchWriteItem(any(BatchWriteItemRequest.class));
+
+        UUID world = UUID.randomUUID();
+        List<DataWrapper> records = Lists.newArrayList();
+        for (int i = 0; i < 60; i++) {
+            records.add(record(world, "break", UUID.randomUUID().toString(), 1000 + i, i % 16, 0));
+        }
+        storageHandler.records().write(records).get(30, TimeUnit.SECONDS);
+
+        assertEquals(2, throttled.get());
+        int stored = client.query(new QueryRequest(table)
+                .withKeyConditionExpression("#p = :p")
+                .withExpressionAttributeNames(ImmutableMap.of("#p", DynamoStorageHandler.PARTITION))
+                .withExpressionAttributeValues(ImmutableMap.of(":p", new AttributeValue(world + ":0:0")))
+                .withSelect(Select.COUNT)).getCount();
+        assertEquals(60, stored);
+    }
+
+    @Test
+    public void testQuery_RadiusQueriesChunks() throws Exception {
+        UUID world = UUID.randomUUID();
+        String player = UUID.randomUUID().toString();
+        storageHandler.records().write(ImmutableList.of(
+                record(world, "break", player, 1000, 5, 5),
+                record(world, "place", player, 2000, 40, 10),
+                record(world, "break", player, 3000, 200, 200),
+                record(UUID.randomUUID(), "break", player, 4000, 5, 5))).get(30, TimeUnit.SECONDS);
+
+        List<DataEntry> entries = query(
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.WORLD), MatchRule.EQUALS, world.toString()),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), Range.closed(0, 47)),
+                FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Z), Range.closed(0, 15)));
+
+        assertEquals(ImmutableList.of("place", "break"), entries.stream().map(DataEntry::getEventName).collect(Collectors.toList()));
+        Set<String> partitions = Sets.newHashSet();
+        for (QueryRequest request : queried()) {
+            assertNull(request.getIndexName());
+            partitions.add(request.getExpressionAttributeValues().get(":p").getS());
+        }
+        assertEquals(ImmutableSet.of(world + ":0:0", world + ":1:0", world + ":2:0"), partitions);
+    }
+
+    @Test
+    public void testQuery_PlayerIndex() throws Exception {
+        String player = UUID.randomUUID().toString();
+        storageHandler.records().write(ImmutableList.of(
+                record(UUID.randomUUID(), "break", player, 1000, 5, 5),
+                record(UUID.randomUUID(), "break", player, 2000, -500, 900),
+                record(UUID.randomUUID(), "break", UUID.randomUUID().toString(), 3000, 5, 5))).get(30, TimeUnit.SECONDS);
+
+        List<DataEntry> entries = query(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, player));
+
+        assertEquals(2, entries.size());
+        for (DataEntry entry : entries) {
+            assertEquals(player, entry.data.getString(DataKeys.PLAYER_ID).orElse(null));
+        }
+        for (QueryRequest request : queried()) {
+            assertEquals(DynamoStorageHandler.PLAYER_INDEX, request.getIndexName());
+            assertEquals(player, request.getExpressionAttributeValues().get(":p").getS());
+        }
+    }
+
+    @Test
+    public void testQuery_EventIndex() throws Exception {
+        String event = "test-" + UUID.randomUUID();
+        storageHandler.records().write(ImmutableList.of(
+                record(UUID.randomUUID(), event, UUID.randomUUID().toString(), 1000, 5, 5),
+                record(UUID.randomUUID(), event, UUID.randomUUID().toString(), 2000, 5, 5),
+                record(UUID.randomUUID(), "break", UUID.randomUUID().toString(), 3000, 5, 5))).get(30, TimeUnit.SECONDS);
+
+        List<DataEntry> entries = query(
+                FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, event),
+                FieldCondition.of(DataKeys.CREATED, Range.closed(new Date(1500), new Date(2500))));
+
+        assertEquals(1, entries.size());
+        assertEquals(event, entries.get(0).getEventName());
+        for (QueryRequest request : queried()) {
+            assertEquals(DynamoStorageHandler.EVENT_INDEX, request.getIndexName());
+            assertEquals(event, request.getExpressionAttributeValues().get(":p").getS());
+        }
+    }
+}
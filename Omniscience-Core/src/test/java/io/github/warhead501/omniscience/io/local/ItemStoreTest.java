@@ -0,0 +1,53 @@
+package io.github.warhead501.omniscience.io.local;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ItemStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrite_Read() throws Exception {
+        File file = new File(folder.getRoot(), "items.dat");
+        ItemStore store = new ItemStore(file);
+        store.write(ImmutableMap.of("a", "item a", "b", "item b"));
+        store.write(ImmutableMap.of("a", "item a again"));
+        store.close();
+
+        ItemStore reopened = new ItemStore(file);
+        assertEquals(ImmutableMap.of("a", "item a", "b", "item b"), reopened.read(ImmutableList.of("a", "b", "c")));
+        reopened.close();
+    }
+
+    @Test
+    public void testRetain() throws Exception {
+        File file = new File(folder.getRoot(), "items.dat");
+        ItemStore store = new ItemStore(file);
+        store.write(ImmutableMap.of("a", "item a", "b", "item b", "c", "item c"));
+        long size = file.length();
+
+        assertEquals(2, store.retain(ImmutableSet.of("b", "d")));
+        assertEquals(ImmutableMap.of("b", "item b"), store.read(ImmutableList.of("a", "b", "c")));
+        store.write(ImmutableMap.of("a", "item a"));
+        store.close();
+
+        assertFalse(new File(folder.getRoot(), "items.dat.tmp").exists());
+        ItemStore reopened = new ItemStore(file);
+        assertEquals(ImmutableMap.of("a", "item a", "b", "item b"), reopened.read(ImmutableList.of("a", "b", "c")));
+        assertEquals(0, reopened.retain(ImmutableSet.of("a", "b")));
+        reopened.close();
+        assertTrue(file.length() < size);
+    }
+}
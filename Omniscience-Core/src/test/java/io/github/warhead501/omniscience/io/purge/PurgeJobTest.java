@@ -0,0 +1,101 @@
+package io.github.warhead501.omniscience.io.purge;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.query.FieldCondition;
+import io.github.warhead501.omniscience.api.query.MatchRule;
+import io.github.warhead501.omniscience.api.query.SearchCondition;
+import io.github.warhead501.omniscience.api.query.SearchConditionGroup;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class PurgeJobTest {
+
+    /**
+     * Saves the condition the way the progress of a purge is saved, and reads it back.
+     */
+    private static SearchCondition roundTrip(SearchCondition condition) throws Exception {
+        YamlConfiguration saved = new YamlConfiguration();
+        saved.set("conditions", ImmutableList.of(PurgeJob.encode(condition)));
+        YamlConfiguration loaded = new YamlConfiguration();
+        loaded.loadFromString(saved.saveToString());
+        return PurgeJob.decode(loaded.getMapList("conditions").get(0));
+    }
+
+    private static FieldCondition roundTripField(FieldCondition condition) throws Exception {
+        FieldCondition decoded = (FieldCondition) roundTrip(condition);
+        assertEquals(condition.getField(), decoded.getField());
+        assertEquals(condition.getRule(), decoded.getRule());
+        return decoded;
+    }
+
+    @Test
+    public void testRoundTrip_Values() throws Exception {
+        assertEquals("break", roundTripField(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "break")).getValue());
+        assertEquals(new Date(1650000000123L), roundTripField(FieldCondition.of(DataKeys.CREATED, MatchRule.LESS_THAN_EQUAL, new Date(1650000000123L))).getValue());
+        assertEquals(5000000000L, roundTripField(FieldCondition.of(DataKeys.QUANTITY, MatchRule.GREATER_THAN_EQUAL, 5000000000L)).getValue());
+        assertEquals(12, roundTripField(FieldCondition.of(DataKeys.LOCATION.then(DataKeys.X), MatchRule.EQUALS, 12)).getValue());
+        assertEquals(0.5D, roundTripField(FieldCondition.of(DataKeys.QUANTITY, MatchRule.EQUALS, 0.5D)).getValue());
+        assertEquals(true, roundTripField(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EXISTS, true)).getValue());
+    }
+
+    @Test
+    public void testRoundTrip_Pattern() throws Exception {
+        Pattern pattern = Pattern.compile("(b.*k)", Pattern.CASE_INSENSITIVE);
+        Pattern decoded = (Pattern) roundTripField(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, pattern)).getValue();
+        assertEquals(pattern.pattern(), decoded.pattern());
+        assertEquals(pattern.flags(), decoded.flags());
+    }
+
+    @Test
+    public void testRoundTrip_List() throws Exception {
+        Object decoded = roundTripField(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.INCLUDES, ImmutableList.of("player-1", "player-2"))).getValue();
+        assertEquals(ImmutableList.of("player-1", "player-2"), decoded);
+    }
+
+    @Test
+    public void testRoundTrip_Ranges() throws Exception {
+        Range<Date> closed = Range.closedOpen(new Date(100), new Date(200));
+        assertEquals(closed, roundTripField(FieldCondition.of(DataKeys.CREATED, closed)).getValue());
+        Range<Integer> lower = Range.atLeast(-64);
+        assertEquals(lower, roundTripField(FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Y), lower)).getValue());
+        Range<Integer> upper = Range.upTo(320, BoundType.OPEN);
+        assertEquals(upper, roundTripField(FieldCondition.of(DataKeys.LOCATION.then(DataKeys.Y), upper)).getValue());
+    }
+
+    @Test
+    public void testRoundTrip_Groups() throws Exception {
+        SearchConditionGroup inner = new SearchConditionGroup(SearchConditionGroup.Operator.AND);
+        inner.add(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, "break"));
+        SearchConditionGroup outer = new SearchConditionGroup(SearchConditionGroup.Operator.OR);
+        outer.add(inner);
+        outer.add(FieldCondition.of(DataKeys.PLAYER_ID, MatchRule.EQUALS, "player-1"));
+
+        SearchConditionGroup decoded = (SearchConditionGroup) roundTrip(outer);
+        assertEquals(SearchConditionGroup.Operator.OR, decoded.getOperator());
+        List<SearchCondition> conditions = decoded.getConditions();
+        assertEquals(2, conditions.size());
+        assertTrue(conditions.get(0) instanceof SearchConditionGroup);
+        assertEquals(SearchConditionGroup.Operator.AND, ((SearchConditionGroup) conditions.get(0)).getOperator());
+        FieldCondition event = (FieldCondition) ((SearchConditionGroup) conditions.get(0)).getConditions().get(0);
+        assertEquals(DataKeys.EVENT_NAME, event.getField());
+        assertEquals("break", event.getValue());
+        assertFalse(conditions.get(1) instanceof SearchConditionGroup);
+        assertEquals("player-1", ((FieldCondition) conditions.get(1)).getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncode_UnsupportedValue() {
+        PurgeJob.encode(FieldCondition.of(DataKeys.EVENT_NAME, MatchRule.EQUALS, new Object()));
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.warhead501.omniscience.io.transfer;
+
+import io.github.warhead501.omniscience.api.data.DataKeys;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class RecordFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DataWrapper record(int index) {
+        return DataWrapper.createNew()
+                .set(DataKeys.EVENT_NAME, "break")
+                .set(DataKeys.CREATED, new Date(1000L * index))
+                .set(DataKeys.LOCATION.then(DataKeys.X), index);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = folder.newFile("export");
+        try (RecordFile.Writer writer = new RecordFile.Writer(file)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(record(i));
+            }
+            writer.finish();
+        }
+
+        try (RecordFile.Reader reader = new RecordFile.Reader(file)) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(record(i), reader.read());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testRoundTrip_Empty() throws Exception {
+        File file = folder.newFile("export");
+        try (RecordFile.Writer writer = new RecordFile.Writer(file)) {
+            writer.finish();
+        }
+
+        try (RecordFile.Reader reader = new RecordFile.Reader(file)) {
+            assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_Unfinished() throws Exception {
+        File file = folder.newFile("export");
+        try (RecordFile.Writer writer = new RecordFile.Writer(file)) {
+            writer.write(record(1));
+        }
+
+        try (RecordFile.Reader reader = new RecordFile.Reader(file)) {
+            assertEquals(record(1), reader.read());
+            reader.read();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_NotAnExport() throws Exception {
+        File file = folder.newFile("export");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("Not an export".getBytes(StandardCharsets.UTF_8));
+        }
+        new RecordFile.Reader(file).close();
+    }
+}
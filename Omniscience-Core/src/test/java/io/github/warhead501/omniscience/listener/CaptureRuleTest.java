@@ -0,0 +1,115 @@
+package io.github.warhead501.omniscience.listener;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Zombie;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CaptureRuleTest {
+
+    private static YamlConfiguration events(String yaml) throws Exception {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.loadFromString(yaml);
+        return configuration;
+    }
+
+    private static World world(String name) {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn(name);
+        return world;
+    }
+
+    private static Zombie zombie() {
+        Zombie zombie = mock(Zombie.class);
+        when(zombie.getType()).thenReturn(EntityType.ZOMBIE);
+        return zombie;
+    }
+
+    @Test
+    public void testCompile_Filters() throws Exception {
+        CaptureFilter.INSTANCE.compile(events(
+                "rule-filters:\n" +
+                "  enabled: true\n" +
+                "  worlds: [world]\n" +
+                "  ignoreCauses: [zombie, tnt]\n" +
+                "  ignoreTargets: [cave_air]\n"));
+        CaptureRule rule = CaptureFilter.INSTANCE.rule("rule-filters");
+        World world = world("world");
+
+        assertTrue(rule.isEnabled());
+        assertTrue(rule.test(world, null, Material.STONE));
+        assertFalse(rule.test(world("world_nether"), null, Material.STONE));
+        assertFalse(rule.test(world, null, Material.CAVE_AIR));
+        assertFalse(rule.test(world, zombie(), Material.STONE));
+        assertTrue(rule.test(world, mock(Player.class), Material.STONE));
+
+        Block tnt = mock(Block.class);
+        when(tnt.getType()).thenReturn(Material.TNT);
+        assertFalse(rule.test(world, tnt, Material.STONE));
+
+        //Projectiles are filtered by whoever shot them
+        Zombie shooter = zombie();
+        Arrow arrow = mock(Arrow.class);
+        when(arrow.getShooter()).thenReturn(shooter);
+        assertFalse(rule.test(world, arrow, Material.STONE));
+
+        //Filters that aren't given are skipped
+        assertTrue(rule.test(null, null, null));
+    }
+
+    @Test
+    public void testCompile_IgnoreEnvironment() throws Exception {
+        CaptureFilter.INSTANCE.compile(events(
+                "rule-environment:\n" +
+                "  enabled: true\n" +
+                "  ignoreCauses: [environment]\n"));
+        CaptureRule rule = CaptureFilter.INSTANCE.rule("rule-environment");
+
+        assertFalse(rule.test(null, null, Material.STONE));
+        assertTrue(rule.test(null, mock(Player.class), Material.STONE));
+    }
+
+    @Test
+    public void testCompile_Sample() throws Exception {
+        CaptureFilter.INSTANCE.compile(events(
+                "rule-none:\n" +
+                "  enabled: true\n" +
+                "  sample: 0\n" +
+                "rule-all:\n" +
+                "  enabled: true\n" +
+                "  sample: 2\n"));
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(CaptureFilter.INSTANCE.rule("rule-none").test(null, null, null));
+            assertTrue(CaptureFilter.INSTANCE.rule("rule-all").test(null, null, null));
+        }
+    }
+
+    @Test
+    public void testCompile_ReloadKeepsRule() throws Exception {
+        CaptureRule rule = CaptureFilter.INSTANCE.rule("rule-reload");
+        assertFalse(rule.isEnabled());
+
+        CaptureFilter.INSTANCE.compile(events("rule-reload:\n  enabled: true\n"));
+        assertSame(rule, CaptureFilter.INSTANCE.rule("rule-reload"));
+        assertTrue(rule.test(null, null, Material.STONE));
+
+        CaptureFilter.INSTANCE.compile(events("rule-reload:\n  enabled: false\n"));
+        assertFalse(rule.test(null, null, Material.STONE));
+
+        CaptureFilter.INSTANCE.compile(events("rule-reload:\n  enabled: true\n"));
+        CaptureFilter.INSTANCE.compile(events("other:\n  enabled: true\n"));
+        assertFalse(rule.isEnabled());
+    }
+}
@@ -3,6 +3,7 @@ package io.github.warhead501.omniscience.api;
 import io.github.warhead501.omniscience.api.entry.DataEntry;
 import io.github.warhead501.omniscience.api.flag.FlagHandler;
 import io.github.warhead501.omniscience.api.interfaces.IOmniscience;
+import io.github.warhead501.omniscience.api.interfaces.StorageProvider;
 import io.github.warhead501.omniscience.api.interfaces.WorldEditHandler;
 import io.github.warhead501.omniscience.api.parameter.ParameterHandler;
 import io.github.warhead501.omniscience.api.util.PastTenseWithEnabled;
@@ -115,6 +116,10 @@ public class OmniApi {
         omniscience.registerWorldEditHandler(handler);
     }
 
+    public static void registerStorageProvider(StorageProvider<?> provider) {
+        omniscience.registerStorageProvider(provider);
+    }
+
     public static Optional<Class<? extends DataEntry>> getEventClass(String event) {
         return omniscience.getEventClass(event);
     }
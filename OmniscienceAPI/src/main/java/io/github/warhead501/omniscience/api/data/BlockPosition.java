@@ -0,0 +1,79 @@
+package io.github.warhead501.omniscience.api.data;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The position of a single block, by world id. Unlike a {@link org.bukkit.Location} it never looks up or holds the world,
+ * so it is safe to build, compare and hash off of the main thread.
+ */
+public final class BlockPosition {
+
+    private final UUID world;
+    private final int x;
+    private final int y;
+    private final int z;
+
+    public BlockPosition(UUID world, int x, int y, int z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Reads the position stored under {@link DataKeys#LOCATION} of a record.
+     *
+     * @param wrapper The record
+     * @return The position, if the record has a complete and valid location
+     */
+    public static Optional<BlockPosition> from(DataWrapper wrapper) {
+        Optional<Integer> oX = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.X));
+        Optional<Integer> oY = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Y));
+        Optional<Integer> oZ = wrapper.getInt(DataKeys.LOCATION.then(DataKeys.Z));
+        Optional<String> oWorld = wrapper.getString(DataKeys.LOCATION.then(DataKeys.WORLD));
+        if (!oX.isPresent() || !oY.isPresent() || !oZ.isPresent() || !oWorld.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new BlockPosition(UUID.fromString(oWorld.get()), oX.get(), oY.get(), oZ.get()));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public UUID getWorld() {
+        return world;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(world, x, y, z);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BlockPosition)) return false;
+        BlockPosition position = (BlockPosition) o;
+        return x == position.x && y == position.y && z == position.z && world.equals(position.world);
+    }
+
+    @Override
+    public String toString() {
+        return x + ", " + y + ", " + z;
+    }
+}
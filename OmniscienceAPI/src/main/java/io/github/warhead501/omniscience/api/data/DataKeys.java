@@ -32,6 +32,13 @@ public final class DataKeys {
     public static final DataKey ENTITY = DataKey.of("Entity");
     public static final DataKey SIGN_TEXT = DataKey.of("SignText");
     public static final DataKey INVENTORY = DataKey.of("Inventory");
+    public static final DataKey CONTENTS = DataKey.of("Contents");
+    public static final DataKey ITEMS = DataKey.of("Items");
+    public static final DataKey SLOTS = DataKey.of("Slots");
+    public static final DataKey SLOT_ITEMS = DataKey.of("SlotItems");
+    public static final DataKey HASH = DataKey.of("Hash");
+    public static final DataKey SERVER = DataKey.of("Server");
+    public static final DataKey AMOUNT = DataKey.of("Amount");
     public static final DataKey ITEM_SLOT = DataKey.of("ItemSlot");
     public static final DataKey CONFIG_CLASS = DataKey.of("ClassName");
     public static final DataKey BANNER_PATTERNS = DataKey.of("BannerPatterns");
@@ -42,6 +49,9 @@ public final class DataKeys {
     public static final DataKey DAMAGE_CAUSE = DataKey.of("DamageCause");
     public static final DataKey DAMAGE_AMOUNT = DataKey.of("DamageAmount");
     public static final DataKey TELEPORT_CAUSE = DataKey.of("TeleportCause");
+    public static final DataKey BOUNDS = DataKey.of("Bounds");
+    public static final DataKey MIN = DataKey.of("Min");
+    public static final DataKey MAX = DataKey.of("Max");
 
     //META TAGS
     public static final DataKey DISPLAY_METHOD = DataKey.of("DisplayMethod");
@@ -6,6 +6,28 @@ public interface Actionable {
 
     ActionResult restore() throws Exception;
 
+    /**
+     * Decodes everything a rollback needs without touching the world, so that it can be done off of the main thread.
+     * By default nothing is decoded ahead of time and the whole rollback happens on commit.
+     *
+     * @return The rollback, ready to be committed on the main thread
+     * @throws Exception If the stored data can't be decoded
+     */
+    default PlannedAction planRollback() throws Exception {
+        return this::rollback;
+    }
+
+    /**
+     * Decodes everything a restore needs without touching the world, so that it can be done off of the main thread.
+     * By default nothing is decoded ahead of time and the whole restore happens on commit.
+     *
+     * @return The restore, ready to be committed on the main thread
+     * @throws Exception If the stored data can't be decoded
+     */
+    default PlannedAction planRestore() throws Exception {
+        return this::restore;
+    }
+
     default ActionableException skipped(SkipReason reason) {
         return new ActionableException(ActionResult.skipped(reason));
     }
@@ -0,0 +1,121 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.warhead501.omniscience.api.data.DataKeys.*;
+
+/**
+ * Many block changes of one event that share a cause, a time and a world, such as the blocks of an explosion.
+ * <p>
+ * Adding a block only stores its coordinates and an index into a palette of the distinct block states in the batch.
+ * The full records are only built by {@link #expand()}, which is called off of the main thread when the batch is written.
+ * </p>
+ */
+public final class BlockBatch {
+
+    private final String eventName;
+    private final DataWrapper cause = DataWrapper.createNew();
+    private final Date created = new Date();
+    private final String world;
+
+    private final Map<BlockData, Integer> paletteIndex = Maps.newHashMap();
+    private final List<BlockData> palette = Lists.newArrayList();
+    private int[] positions = new int[48];
+    private int[] states = new int[16];
+    private int size;
+
+    BlockBatch(String eventName, Object source, World world) {
+        this.eventName = eventName;
+        this.world = world.getUID().toString();
+        OEntry.writeCause(source, cause::set);
+    }
+
+    /**
+     * Adds a block that was changed. Must be called on the main thread.
+     *
+     * @param x         The block's x coordinate
+     * @param y         The block's y coordinate
+     * @param z         The block's z coordinate
+     * @param blockData The block's data before it was changed
+     * @return This batch
+     */
+    public BlockBatch add(int x, int y, int z, BlockData blockData) {
+        if (size == states.length) {
+            states = Arrays.copyOf(states, size * 2);
+            positions = Arrays.copyOf(positions, size * 6);
+        }
+        Integer state = paletteIndex.get(blockData);
+        if (state == null) {
+            state = palette.size();
+            paletteIndex.put(blockData, state);
+            palette.add(blockData);
+        }
+        positions[size * 3] = x;
+        positions[size * 3 + 1] = y;
+        positions[size * 3 + 2] = z;
+        states[size] = state;
+        size++;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * Queues this batch to be saved. Does nothing if no blocks were added.
+     */
+    public void save() {
+        if (size > 0) {
+            EntryQueue.submit(this);
+        }
+    }
+
+    /**
+     * Builds one record per block, identical to the records {@link OEntry} builds for a single broken block.
+     *
+     * @return The records of this batch, in the order the blocks were added
+     */
+    public List<DataWrapper> expand() {
+        //Each distinct state is converted to a string once for the whole batch
+        String[] blockDataStrings = new String[palette.size()];
+        String[] materials = new String[palette.size()];
+        for (int i = 0; i < palette.size(); i++) {
+            blockDataStrings[i] = palette.get(i).getAsString();
+            materials[i] = palette.get(i).getMaterial().name();
+        }
+
+        List<DataWrapper> wrappers = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            DataWrapper wrapper = cause.copy();
+            wrapper.set(ORIGINAL_BLOCK.then(MATERIAL_TYPE), materials[states[i]]);
+            wrapper.set(ORIGINAL_BLOCK.then(BLOCK_DATA), blockDataStrings[states[i]]);
+            wrapper.set(TARGET, materials[states[i]]);
+            wrapper.set(LOCATION.then(X), positions[i * 3]);
+            wrapper.set(LOCATION.then(Y), positions[i * 3 + 1]);
+            wrapper.set(LOCATION.then(Z), positions[i * 3 + 2]);
+            wrapper.set(LOCATION.then(WORLD), world);
+            wrapper.set(EVENT_NAME, eventName);
+            wrapper.set(CREATED, created);
+            wrappers.add(wrapper);
+        }
+        return wrappers;
+    }
+}
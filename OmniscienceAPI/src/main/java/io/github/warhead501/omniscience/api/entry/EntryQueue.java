@@ -9,6 +9,8 @@ import java.util.concurrent.LinkedBlockingDeque;
 public final class EntryQueue {
 
     private static final LinkedBlockingDeque<DataWrapper> queue = new LinkedBlockingDeque<>();
+    private static final LinkedBlockingDeque<BlockBatch> batchQueue = new LinkedBlockingDeque<>();
+    private static final LinkedBlockingDeque<EntrySnapshot> snapshotQueue = new LinkedBlockingDeque<>();
 
     private EntryQueue() {
     }
@@ -28,7 +30,38 @@ public final class EntryQueue {
         queue.add(wrapper);
     }
 
+    /**
+     * Queues a captured entry to be turned into a record and saved off of the main thread.
+     * The snapshot must already hold its event name.
+     */
+    static void submit(final EntrySnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("A null snapshot was handed to save for the saving queue");
+        }
+        snapshotQueue.add(snapshot);
+    }
+
+    public static void submit(final BlockBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("A null batch was handed to save for the saving queue");
+        }
+
+        if (!OmniApi.isEventRegistered(batch.getEventName())) {
+            throw new IllegalArgumentException("The event " + batch.getEventName() + " is not registered with Omniscience. This event cannot be saved!");
+        }
+
+        batchQueue.add(batch);
+    }
+
     public static LinkedBlockingDeque<DataWrapper> getQueue() {
         return queue;
     }
+
+    public static LinkedBlockingDeque<EntrySnapshot> getSnapshotQueue() {
+        return snapshotQueue;
+    }
+
+    public static LinkedBlockingDeque<BlockBatch> getBatchQueue() {
+        return batchQueue;
+    }
 }
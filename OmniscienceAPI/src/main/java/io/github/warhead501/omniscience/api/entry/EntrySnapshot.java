@@ -0,0 +1,151 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import io.github.warhead501.omniscience.api.util.ContainerContents;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.warhead501.omniscience.api.data.DataKeys.BLOCK_DATA;
+import static io.github.warhead501.omniscience.api.data.DataKeys.MATERIAL_TYPE;
+
+/**
+ * The values of an entry as they were when the event happened, before they are turned into a {@link DataWrapper}.
+ * <p>
+ * Capturing only copies what could still change after the event, such as items and block data. The expensive work of
+ * building the record, like serializing items and container contents, converting block data to strings and sanitizing text, is done by
+ * {@link #materialize()} on a worker thread.
+ * </p>
+ */
+public final class EntrySnapshot {
+
+    private final List<Map.Entry<DataKey, Object>> values = Lists.newArrayList();
+    private DataWrapper direct;
+
+    EntrySnapshot() {
+    }
+
+    /**
+     * Records a value. Must be called on the main thread.
+     *
+     * @param key   Where the value is stored in the record
+     * @param value The value. Items, maps and collections are copied so later changes don't leak into the record.
+     * @return This snapshot
+     */
+    public EntrySnapshot set(DataKey key, Object value) {
+        values.add(Maps.immutableEntry(key, copyOf(value)));
+        return this;
+    }
+
+    /**
+     * Records the material and block data of a block. Must be called on the main thread.
+     *
+     * @param key   Where the block is stored in the record
+     * @param block The block
+     * @return This snapshot
+     */
+    public EntrySnapshot setBlock(DataKey key, BlockState block) {
+        values.add(Maps.immutableEntry(key, new BlockSnapshot(block.getBlockData())));
+        return this;
+    }
+
+    /**
+     * Records the filled slots of a container. Must be called on the main thread.
+     *
+     * @param key      Where the contents are stored in the record
+     * @param contents The contents of the container's inventory
+     * @return This snapshot
+     */
+    public EntrySnapshot setContents(DataKey key, ItemStack[] contents) {
+        values.add(Maps.immutableEntry(key, new ContentsSnapshot(ContainerContents.copyOf(contents))));
+        return this;
+    }
+
+    /**
+     * @return A wrapper whose values are added to the record as they are, for code that still writes to the record
+     * directly. Nothing written to it is copied, so it must not be given values that can change after the event.
+     */
+    DataWrapper direct() {
+        if (direct == null) {
+            direct = DataWrapper.createNew();
+        }
+        return direct;
+    }
+
+    /**
+     * Builds the record. Safe to call off of the main thread.
+     *
+     * @return The record, the same as if it had been built while the event happened
+     */
+    public DataWrapper materialize() {
+        DataWrapper wrapper = DataWrapper.createNew();
+        for (Map.Entry<DataKey, Object> value : values) {
+            if (value.getValue() instanceof BlockSnapshot) {
+                BlockData blockData = ((BlockSnapshot) value.getValue()).blockData;
+                wrapper.set(value.getKey().then(MATERIAL_TYPE), blockData.getMaterial().name());
+                wrapper.set(value.getKey().then(BLOCK_DATA), blockData.getAsString());
+            } else if (value.getValue() instanceof ItemStack) {
+                ItemReferences.write(wrapper, value.getKey(), (ItemStack) value.getValue());
+            } else if (value.getValue() instanceof ContentsSnapshot) {
+                ContainerContents.write(wrapper, value.getKey(), ((ContentsSnapshot) value.getValue()).contents);
+            } else {
+                wrapper.set(value.getKey(), value.getValue());
+            }
+        }
+        if (direct != null) {
+            merge(wrapper, direct);
+        }
+        return wrapper;
+    }
+
+    private static void merge(DataWrapper target, DataWrapper source) {
+        for (DataKey key : source.getKeys(false)) {
+            Object value = source.get(key).orElse(null);
+            if (value instanceof DataWrapper) {
+                merge(target.getWrapper(key).orElseGet(() -> target.createWrapper(key)), (DataWrapper) value);
+            } else {
+                target.set(key, value);
+            }
+        }
+    }
+
+    private static Object copyOf(Object value) {
+        if (value instanceof ItemStack) {
+            return ((ItemStack) value).clone();
+        } else if (value instanceof Map) {
+            Map<Object, Object> copy = Maps.newLinkedHashMap();
+            ((Map<?, ?>) value).forEach((key, inner) -> copy.put(key, copyOf(inner)));
+            return copy;
+        } else if (value instanceof Collection) {
+            List<Object> copy = Lists.newArrayList();
+            for (Object inner : (Collection<?>) value) {
+                copy.add(copyOf(inner));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static final class ContentsSnapshot {
+        private final Map<Integer, ItemStack> contents;
+
+        private ContentsSnapshot(Map<Integer, ItemStack> contents) {
+            this.contents = contents;
+        }
+    }
+
+    private static final class BlockSnapshot {
+        private final BlockData blockData;
+
+        private BlockSnapshot(BlockData blockData) {
+            this.blockData = blockData;
+        }
+    }
+}
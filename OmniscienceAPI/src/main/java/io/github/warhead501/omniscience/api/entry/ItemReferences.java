@@ -0,0 +1,183 @@
+package io.github.warhead501.omniscience.api.entry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import io.github.warhead501.omniscience.api.OmniApi;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.warhead501.omniscience.api.data.DataKeys.*;
+
+/**
+ * Stores the items of records once, in a separate store, and has records refer to them by the hash of their contents.
+ * <p>
+ * A referenced item is written as its {@code Hash} and {@code Amount}, plus the parts of its meta that lookups filter on.
+ * The item itself, with an amount of 1, is queued until the next write through {@link #drainPending()}. Hashes that are
+ * known to be stored already are remembered, so a common item is only serialized into the store once.
+ * Records read back from storage get their items put back in place by {@link #resolve}.
+ * </p>
+ */
+public final class ItemReferences {
+
+    //Kept in the record so item name, lore and custom item lookups keep working without loading the item
+    private static final ImmutableList<String> SEARCHED_META = ImmutableList.of("meta-type", "display-name", "lore");
+    private static final DataKey META = DataKey.of("meta");
+
+    private static final Cache<String, Boolean> storedHashes = CacheBuilder.newBuilder()
+            .maximumSize(8192)
+            .build();
+    private static final Map<String, String> pending = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    private ItemReferences() {
+    }
+
+    /**
+     * @param enabled Whether items are written as references. Only enabled by storage that can hold the items.
+     */
+    public static void setEnabled(boolean enabled) {
+        ItemReferences.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes an item into a record, as a reference if references are enabled. Safe to call off of the main thread.
+     *
+     * @param wrapper The record
+     * @param key     Where the item is stored in the record
+     * @param item    The item, which must not be changed anymore
+     */
+    public static void write(DataWrapper wrapper, DataKey key, ItemStack item) {
+        if (!enabled || item.getType().isAir()) {
+            wrapper.set(key, item);
+            return;
+        }
+        ItemStack single = item.clone();
+        single.setAmount(1);
+        byte[] bytes = single.serializeAsBytes();
+        String hash = Hashing.sha256().hashBytes(bytes).toString();
+
+        wrapper.set(key.then(HASH), hash);
+        wrapper.set(key.then(AMOUNT), item.getAmount());
+        if (item.hasItemMeta()) {
+            Map<String, Object> meta = item.getItemMeta().serialize();
+            for (String field : SEARCHED_META) {
+                if (meta.get(field) != null) {
+                    wrapper.set(key.then(META).then(DataKey.of(field)), meta.get(field));
+                }
+            }
+        }
+
+        if (storedHashes.getIfPresent(hash) == null) {
+            pending.putIfAbsent(hash, Base64.getEncoder().encodeToString(bytes));
+        }
+    }
+
+    /**
+     * Takes every item that has been referenced since the last call and isn't known to be stored yet.
+     * Must be called after the records referring to them were taken from the queue, so none of them are missed.
+     *
+     * @return The serialized items, by hash
+     */
+    public static Map<String, String> drainPending() {
+        Map<String, String> drained = Maps.newHashMap();
+        for (String hash : pending.keySet()) {
+            String item = pending.remove(hash);
+            if (item != null) {
+                drained.put(hash, item);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Puts items taken by {@link #drainPending()} back, after writing them failed, so the next write tries them again.
+     *
+     * @param items The serialized items, by hash
+     */
+    public static void requeue(Map<String, String> items) {
+        items.forEach(pending::putIfAbsent);
+    }
+
+    /**
+     * Remembers that the items with these hashes are stored, so they aren't written again.
+     *
+     * @param hashes The hashes of stored items
+     */
+    public static void markStored(Collection<String> hashes) {
+        hashes.forEach(hash -> storedHashes.put(hash, Boolean.TRUE));
+    }
+
+    /**
+     * Finds every item a record refers to.
+     *
+     * @param wrapper The record
+     * @return The hashes of the referenced items
+     */
+    public static Set<String> collectHashes(DataWrapper wrapper) {
+        Set<String> hashes = Sets.newHashSet();
+        collectHashes(wrapper, hashes);
+        return hashes;
+    }
+
+    private static void collectHashes(DataWrapper wrapper, Set<String> hashes) {
+        for (DataKey key : wrapper.getKeys(false)) {
+            wrapper.getWrapper(key).ifPresent(inner -> {
+                Optional<String> oHash = inner.getString(HASH);
+                if (oHash.isPresent()) {
+                    hashes.add(oHash.get());
+                } else {
+                    collectHashes(inner, hashes);
+                }
+            });
+        }
+    }
+
+    /**
+     * Puts the referenced items of a record back in place, with their stored amount.
+     *
+     * @param wrapper The record
+     * @param items   The serialized items, by hash. References to missing items are left as they are.
+     */
+    public static void resolve(DataWrapper wrapper, Map<String, String> items) {
+        for (DataKey key : wrapper.getKeys(false)) {
+            Optional<DataWrapper> oInner = wrapper.getWrapper(key);
+            if (!oInner.isPresent()) {
+                continue;
+            }
+            DataWrapper inner = oInner.get();
+            Optional<String> oHash = inner.getString(HASH);
+            if (!oHash.isPresent()) {
+                resolve(inner, items);
+                continue;
+            }
+            String item = items.get(oHash.get());
+            if (item == null) {
+                continue;
+            }
+            try {
+                ItemStack itemStack = ItemStack.deserializeBytes(Base64.getDecoder().decode(item));
+                itemStack.setAmount(inner.getInt(AMOUNT).orElse(1));
+                wrapper.remove(key);
+                wrapper.set(key, itemStack);
+            } catch (RuntimeException e) {
+                OmniApi.warning("Failed to deserialize the stored item " + oHash.get() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -7,9 +7,9 @@ import io.github.warhead501.omniscience.api.data.DataKey;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.data.InventoryTransaction;
 import io.github.warhead501.omniscience.api.data.LocationTransaction;
-import io.github.warhead501.omniscience.api.util.DataHelper;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.bukkit.block.*;
 import org.bukkit.command.BlockCommandSender;
 import org.bukkit.command.CommandSender;
@@ -24,6 +24,7 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.Date;
+import java.util.function.BiConsumer;
 
 import static io.github.warhead501.omniscience.api.data.DataKeys.*;
 
@@ -44,38 +45,47 @@ public final class OEntry {
         if (!OmniApi.isEventRegistered(eventBuilder.getEventName())) {
             throw new IllegalArgumentException(eventBuilder.getEventName() + " is not registered with Omniscience. This must be done to continue.");
         }
-        eventBuilder.getWrapper().set(EVENT_NAME, eventBuilder.getEventName());
-        eventBuilder.getWrapper().set(CREATED, new Date());
+        eventBuilder.getSnapshot().set(EVENT_NAME, eventBuilder.getEventName());
+        eventBuilder.getSnapshot().set(CREATED, new Date());
 
-        DataKey cause = (sourceBuilder.getSource() instanceof Player) ? PLAYER_ID : CAUSE;
+        writeCause(sourceBuilder.getSource(), eventBuilder.getSnapshot()::set);
+
+        EntryQueue.submit(eventBuilder.getSnapshot());
+    }
+
+    /**
+     * Writes who or what caused an entry into its wrapper, the same way for single entries and batches.
+     */
+    static void writeCause(Object source, BiConsumer<DataKey, Object> wrapper) {
+        DataKey cause = (source instanceof OfflinePlayer) ? PLAYER_ID : CAUSE;
 
         String causeId = "environment";
-        if (sourceBuilder.getSource() instanceof Player) {
-            causeId = ((Player) sourceBuilder.getSource()).getUniqueId().toString();
-        } else if (sourceBuilder.getSource() instanceof Entity) {
-            causeId = ((Entity) sourceBuilder.getSource()).getType().name();
-        } else if (sourceBuilder.getSource() instanceof Plugin) {
-            causeId = "pl@" + ((Plugin) sourceBuilder.getSource()).getName().replace(' ', '_');
-        } else if (sourceBuilder.getSource() instanceof ConsoleCommandSender) {
+        if (source instanceof OfflinePlayer) {
+            causeId = ((OfflinePlayer) source).getUniqueId().toString();
+        } else if (source instanceof Entity) {
+            causeId = ((Entity) source).getType().name();
+        } else if (source instanceof EntityType) {
+            causeId = ((EntityType) source).name();
+        } else if (source instanceof Plugin) {
+            causeId = "pl@" + ((Plugin) source).getName().replace(' ', '_');
+        } else if (source instanceof ConsoleCommandSender) {
             causeId = "console";
-        } else if (sourceBuilder.getSource() instanceof RemoteConsoleCommandSender) {
+        } else if (source instanceof RemoteConsoleCommandSender) {
             causeId = "remote_console";
-        } else if (sourceBuilder.getSource() instanceof BlockCommandSender) {
-            BlockCommandSender sender = (BlockCommandSender) sourceBuilder.getSource();
+        } else if (source instanceof BlockCommandSender) {
+            BlockCommandSender sender = (BlockCommandSender) source;
             CommandBlock commandBlock = (CommandBlock) sender.getBlock().getState();
-            eventBuilder.getWrapper().set(X, commandBlock.getX());
-            eventBuilder.getWrapper().set(Y, commandBlock.getY());
-            eventBuilder.getWrapper().set(Z, commandBlock.getZ());
-            eventBuilder.getWrapper().set(WORLD, commandBlock.getWorld().getUID().toString());
+            wrapper.accept(X, commandBlock.getX());
+            wrapper.accept(Y, commandBlock.getY());
+            wrapper.accept(Z, commandBlock.getZ());
+            wrapper.accept(WORLD, commandBlock.getWorld().getUID().toString());
             causeId = "command_block";
             if (commandBlock.getName() != null) {
                 causeId = causeId + " (" + commandBlock.getName() + ")";
             }
         }
 
-        eventBuilder.getWrapper().set(cause, causeId);
-
-        EntryQueue.submit(eventBuilder.getWrapper());
+        wrapper.accept(cause, causeId);
     }
 
     public static class SourceBuilder {
@@ -93,7 +103,7 @@ public final class OEntry {
     public static class EventBuilder {
         protected final SourceBuilder sourceBuilder;
         protected String eventName;
-        protected DataWrapper wrapper = DataWrapper.createNew();
+        protected final EntrySnapshot snapshot = new EntrySnapshot();
 
         protected EventBuilder(SourceBuilder sourceBuilder) {
             this.sourceBuilder = sourceBuilder;
@@ -103,8 +113,17 @@ public final class OEntry {
             return new OEntry(builder, this);
         }
 
+        public EntrySnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return A wrapper whose values are added to the record when it is built
+         * @deprecated Values written here are not copied when the event happens. Use {@link #getSnapshot()} instead.
+         */
+        @Deprecated
         public DataWrapper getWrapper() {
-            return wrapper;
+            return snapshot.direct();
         }
 
         public String getEventName() {
@@ -114,12 +133,12 @@ public final class OEntry {
         public OEntry brokeBlock(LocationTransaction<BlockState> blockTransaction) {
             this.eventName = "break";
             blockTransaction.getOriginalState().ifPresent(block -> {
-                wrapper.set(ORIGINAL_BLOCK, DataWrapper.ofBlock(block));
-                wrapper.set(TARGET, block.getType().name());
+                snapshot.setBlock(ORIGINAL_BLOCK, block);
+                snapshot.set(TARGET, block.getType().name());
                 writeExtraStateData(ORIGINAL_BLOCK, block);
             });
             blockTransaction.getFinalState().ifPresent(block -> {
-                wrapper.set(NEW_BLOCK, DataWrapper.ofBlock(block));
+                snapshot.setBlock(NEW_BLOCK, block);
                 writeExtraStateData(NEW_BLOCK, block);
             });
             writeLocationData(blockTransaction.getLocation());
@@ -129,12 +148,12 @@ public final class OEntry {
         public OEntry placedBlock(LocationTransaction<BlockState> blockTransaction) {
             this.eventName = "place";
             blockTransaction.getOriginalState().ifPresent(block -> {
-                wrapper.set(ORIGINAL_BLOCK, DataWrapper.ofBlock(block));
+                snapshot.setBlock(ORIGINAL_BLOCK, block);
                 writeExtraStateData(ORIGINAL_BLOCK, block);
             });
             blockTransaction.getFinalState().ifPresent(block -> {
-                wrapper.set(NEW_BLOCK, DataWrapper.ofBlock(block));
-                wrapper.set(TARGET, block.getType().name());
+                snapshot.setBlock(NEW_BLOCK, block);
+                snapshot.set(TARGET, block.getType().name());
                 writeExtraStateData(NEW_BLOCK, block);
             });
             writeLocationData(blockTransaction.getLocation());
@@ -144,12 +163,12 @@ public final class OEntry {
         public OEntry decayedBlock(LocationTransaction<BlockState> blockTransaction) {
             this.eventName = "decay";
             blockTransaction.getOriginalState().ifPresent(block -> {
-                wrapper.set(ORIGINAL_BLOCK, DataWrapper.ofBlock(block));
-                wrapper.set(TARGET, block.getType().name());
+                snapshot.setBlock(ORIGINAL_BLOCK, block);
+                snapshot.set(TARGET, block.getType().name());
                 writeExtraStateData(ORIGINAL_BLOCK, block);
             });
             blockTransaction.getFinalState().ifPresent(block -> {
-                wrapper.set(NEW_BLOCK, DataWrapper.ofBlock(block));
+                snapshot.setBlock(NEW_BLOCK, block);
                 writeExtraStateData(NEW_BLOCK, block);
             });
             writeLocationData(blockTransaction.getLocation());
@@ -159,12 +178,12 @@ public final class OEntry {
         public OEntry grewBlock(LocationTransaction<BlockState> blockTransaction) {
             this.eventName = "grow";
             blockTransaction.getOriginalState().ifPresent(block -> {
-                wrapper.set(ORIGINAL_BLOCK, DataWrapper.ofBlock(block));
-                wrapper.set(TARGET, block.getType().name());
+                snapshot.setBlock(ORIGINAL_BLOCK, block);
+                snapshot.set(TARGET, block.getType().name());
                 writeExtraStateData(ORIGINAL_BLOCK, block);
             });
             blockTransaction.getFinalState().ifPresent(block -> {
-                wrapper.set(NEW_BLOCK, DataWrapper.ofBlock(block));
+                snapshot.setBlock(NEW_BLOCK, block);
                 writeExtraStateData(NEW_BLOCK, block);
             });
             writeLocationData(blockTransaction.getLocation());
@@ -174,47 +193,100 @@ public final class OEntry {
         public OEntry formedBlock(LocationTransaction<BlockState> blockTransaction) {
             this.eventName = "form";
             blockTransaction.getOriginalState().ifPresent(block -> {
-                wrapper.set(ORIGINAL_BLOCK, DataWrapper.ofBlock(block));
+                snapshot.setBlock(ORIGINAL_BLOCK, block);
                 writeExtraStateData(ORIGINAL_BLOCK, block);
             });
             blockTransaction.getFinalState().ifPresent(block -> {
-                wrapper.set(NEW_BLOCK, DataWrapper.ofBlock(block));
-                wrapper.set(TARGET, block.getType().name());
+                snapshot.setBlock(NEW_BLOCK, block);
+                snapshot.set(TARGET, block.getType().name());
                 writeExtraStateData(NEW_BLOCK, block);
             });
             writeLocationData(blockTransaction.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
+        /**
+         * Records many changes of one event and block type that were merged into a single entry, such as crops growing
+         * throughout a chunk. The entry is placed at the lowest corner of the area the changes happened in.
+         *
+         * @param eventName The event of the merged changes
+         * @param target    The block type of the merged changes
+         * @param count     How many changes were merged
+         * @param min       The lowest corner of the area the changes happened in
+         * @param max       The highest corner of the area the changes happened in
+         * @return The entry
+         */
+        public OEntry coalesced(String eventName, String target, int count, Location min, Location max) {
+            this.eventName = eventName;
+            snapshot.set(TARGET, target);
+            snapshot.set(COUNT, count);
+            snapshot.set(BOUNDS.then(MIN).then(X), min.getBlockX());
+            snapshot.set(BOUNDS.then(MIN).then(Y), min.getBlockY());
+            snapshot.set(BOUNDS.then(MIN).then(Z), min.getBlockZ());
+            snapshot.set(BOUNDS.then(MAX).then(X), max.getBlockX());
+            snapshot.set(BOUNDS.then(MAX).then(Y), max.getBlockY());
+            snapshot.set(BOUNDS.then(MAX).then(Z), max.getBlockZ());
+            writeLocationData(min);
+            return new OEntry(sourceBuilder, this);
+        }
+
+        /**
+         * Records how many entries of an event were left out because this source went over the event's rate limit.
+         *
+         * @param eventName The event of the entries that were left out
+         * @param target    What the entries were done to
+         * @param skipped   How many entries were left out
+         * @param location  Where the last entry that was left out happened
+         * @return The entry
+         */
+        public OEntry skipped(String eventName, String target, int skipped, Location location) {
+            this.eventName = eventName;
+            snapshot.set(TARGET, target);
+            snapshot.set(COUNT, skipped);
+            writeLocationData(location);
+            return new OEntry(sourceBuilder, this);
+        }
+
+        /**
+         * Starts a batch of blocks broken together by this source, such as by an explosion.
+         * The batch shares its cause, time and world between all of its blocks.
+         *
+         * @param world The world the blocks were broken in
+         * @return An empty batch
+         */
+        public BlockBatch brokeBlocks(World world) {
+            return new BlockBatch("break", sourceBuilder.getSource(), world);
+        }
+
         public OEntry dropped(Item item) {
             return droppedItem(item.getItemStack(), item.getLocation());
         }
 
         public OEntry droppedItem(ItemStack item, Location location) {
             this.eventName = "drop";
-            wrapper.set(ITEMSTACK, item);
-            wrapper.set(QUANTITY, item.getAmount());
-            wrapper.set(TARGET, item.getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, item);
+            snapshot.set(QUANTITY, item.getAmount());
+            snapshot.set(TARGET, item.getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
             writeLocationData(location);
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry pickup(Item item) {
             this.eventName = "pickup";
-            wrapper.set(ITEMSTACK, item.getItemStack());
-            wrapper.set(QUANTITY, item.getItemStack().getAmount());
-            wrapper.set(TARGET, item.getItemStack().getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, item.getItemStack());
+            snapshot.set(QUANTITY, item.getItemStack().getAmount());
+            snapshot.set(TARGET, item.getItemStack().getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
             writeLocationData(item.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry said(String message) {
             this.eventName = "say";
-            wrapper.set(TARGET, "something to Everyone");
-            wrapper.set(DISPLAY_METHOD, "message");
-            wrapper.set(MESSAGE, message);
+            snapshot.set(TARGET, "something to Everyone");
+            snapshot.set(DISPLAY_METHOD, "message");
+            snapshot.set(MESSAGE, message);
             if (sourceBuilder.getSource() instanceof Entity) {
                 writeLocationData(((Entity) sourceBuilder.getSource()).getLocation());
             }
@@ -223,9 +295,9 @@ public final class OEntry {
 
         public OEntry ranCommand(String command) {
             this.eventName = "command";
-            wrapper.set(TARGET, command.split(" ")[0]);
-            wrapper.set(DISPLAY_METHOD, "message");
-            wrapper.set(MESSAGE, command);
+            snapshot.set(TARGET, command.split(" ")[0]);
+            snapshot.set(DISPLAY_METHOD, "message");
+            snapshot.set(MESSAGE, command);
             if (sourceBuilder.getSource() instanceof Entity) {
                 writeLocationData(((Entity) sourceBuilder.getSource()).getLocation());
             }
@@ -248,12 +320,15 @@ public final class OEntry {
 
         public OEntry kill(Entity killed) {
             this.eventName = "death";
-            wrapper.set(TARGET, killed.getType().name());
+            snapshot.set(TARGET, killed.getType().name());
             if (killed instanceof Player) {
-                wrapper.set(TARGET, killed.getName());
+                snapshot.set(TARGET, killed.getName());
+            }
+            snapshot.set(ENTITY_TYPE, killed.getType().name());
+            byte[] entityData = ReflectionHandler.getEntityAsBytes(killed);
+            if (entityData != null) {
+                snapshot.set(ENTITY, entityData);
             }
-            wrapper.set(ENTITY_TYPE, killed.getType().name());
-            wrapper.set(ENTITY, ReflectionHandler.getEntityAsBytes(killed));
             writeLastDamageData(killed);
             writeLocationData(killed.getLocation());
             return new OEntry(sourceBuilder, this);
@@ -261,40 +336,40 @@ public final class OEntry {
 
         public OEntry removedFromItemFrame(ItemFrame frame, ItemStack itemStack) {
             this.eventName = "entity-withdraw";
-            wrapper.set(TARGET, itemStack.getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(ITEMSTACK, itemStack);
-            wrapper.set(ENTITY_TYPE, frame.getType().name());
+            snapshot.set(TARGET, itemStack.getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, itemStack);
+            snapshot.set(ENTITY_TYPE, frame.getType().name());
             writeLocationData(frame.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry putIntoItemFrame(ItemFrame frame, ItemStack itemStack) {
             this.eventName = "entity-deposit";
-            wrapper.set(TARGET, itemStack.getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(ITEMSTACK, itemStack);
-            wrapper.set(ENTITY_TYPE, frame.getType().name());
+            snapshot.set(TARGET, itemStack.getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, itemStack);
+            snapshot.set(ENTITY_TYPE, frame.getType().name());
             writeLocationData(frame.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry putIntoArmorStand(ArmorStand stand, ItemStack itemStack) {
             this.eventName = "entity-deposit";
-            wrapper.set(TARGET, itemStack.getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(ITEMSTACK, itemStack);
-            wrapper.set(ENTITY_TYPE, stand.getType().name());
+            snapshot.set(TARGET, itemStack.getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, itemStack);
+            snapshot.set(ENTITY_TYPE, stand.getType().name());
             writeLocationData(stand.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry removedFromArmorStand(ArmorStand stand, ItemStack itemStack) {
             this.eventName = "entity-withdraw";
-            wrapper.set(TARGET, itemStack.getType().name());
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(ITEMSTACK, itemStack);
-            wrapper.set(ENTITY_TYPE, stand.getType().name());
+            snapshot.set(TARGET, itemStack.getType().name());
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(ITEMSTACK, itemStack);
+            snapshot.set(ENTITY_TYPE, stand.getType().name());
             writeLocationData(stand.getLocation());
             return new OEntry(sourceBuilder, this);
         }
@@ -312,7 +387,7 @@ public final class OEntry {
         public OEntry opened(Location location, String name) {
             this.eventName = "open";
             writeLocationData(location);
-            wrapper.set(TARGET, name);
+            snapshot.set(TARGET, name);
             return new OEntry(sourceBuilder, this);
         }
 
@@ -329,20 +404,20 @@ public final class OEntry {
         public OEntry closed(Location location, String name) {
             this.eventName = "close";
             writeLocationData(location);
-            wrapper.set(TARGET, name);
+            snapshot.set(TARGET, name);
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry use(Block block) {
             this.eventName = "use";
-            wrapper.set(TARGET, block.getType().name());
+            snapshot.set(TARGET, block.getType().name());
             writeLocationData(block.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry mount(boolean dismount, Entity entity) {
             this.eventName = dismount ? "dismount" : "mount";
-            wrapper.set(TARGET, entity.getType().name());
+            snapshot.set(TARGET, entity.getType().name());
             writeLocationData(entity.getLocation());
             return new OEntry(sourceBuilder, this);
         }
@@ -353,25 +428,25 @@ public final class OEntry {
             InventoryHolder holder = transaction.getHolder();
 
             if (containerName != null) {
-                wrapper.set(TARGET, diff.getType().name() + " in " + containerName);
+                snapshot.set(TARGET, diff.getType().name() + " in " + containerName);
             } else if (holder instanceof Container) {
-                wrapper.set(TARGET, diff.getType().name() + " in " + ((Container) holder).getBlock().getType().name());
+                snapshot.set(TARGET, diff.getType().name() + " in " + ((Container) holder).getBlock().getType().name());
             } else if (holder instanceof DoubleChest) {
-                wrapper.set(TARGET, diff.getType().name() + " in CHEST");
+                snapshot.set(TARGET, diff.getType().name() + " in CHEST");
             } else {
-                wrapper.set(TARGET, diff.getType().name() + " in UNKNOWN");
+                snapshot.set(TARGET, diff.getType().name() + " in UNKNOWN");
             }
             writeLocationData(location);
 
-            wrapper.set(ITEM_SLOT, transaction.getSlot());
+            snapshot.set(ITEM_SLOT, transaction.getSlot());
             //Set the itemstack with the quantity that was actually deposited into the container
-            wrapper.set(ITEMSTACK, diff);
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(QUANTITY, diff.getAmount());
+            snapshot.set(ITEMSTACK, diff);
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(QUANTITY, diff.getAmount());
             //Store the itemstack that was in this slot before the item was deposited, if any
-            transaction.getOriginalState().ifPresent(is -> wrapper.set(BEFORE.then(ITEMSTACK), is));
+            transaction.getOriginalState().ifPresent(is -> snapshot.set(BEFORE.then(ITEMSTACK), is));
             //Store the itemstack that is now in this slot after items were deposited
-            transaction.getFinalState().ifPresent(is -> wrapper.set(AFTER.then(ITEMSTACK), is));
+            transaction.getFinalState().ifPresent(is -> snapshot.set(AFTER.then(ITEMSTACK), is));
             return new OEntry(sourceBuilder, this);
         }
 
@@ -381,46 +456,46 @@ public final class OEntry {
             InventoryHolder holder = transaction.getHolder();
 
             if (containerName != null) {
-                wrapper.set(TARGET, diff.getType().name() + " from " + containerName);
+                snapshot.set(TARGET, diff.getType().name() + " from " + containerName);
             } else if (holder instanceof Container) {
-                wrapper.set(TARGET, diff.getType().name() + " from " + ((Container) holder).getBlock().getType().name());
+                snapshot.set(TARGET, diff.getType().name() + " from " + ((Container) holder).getBlock().getType().name());
             } else if (holder instanceof DoubleChest) {
-                wrapper.set(TARGET, diff.getType().name() + " from CHEST");
+                snapshot.set(TARGET, diff.getType().name() + " from CHEST");
             } else {
-                wrapper.set(TARGET, diff.getType().name() + " from UNKNOWN");
+                snapshot.set(TARGET, diff.getType().name() + " from UNKNOWN");
             }
             writeLocationData(location);
 
-            wrapper.set(ITEM_SLOT, transaction.getSlot());
+            snapshot.set(ITEM_SLOT, transaction.getSlot());
             //Set the itemstack with the quantity that was actually withdrawn from the container
-            wrapper.set(ITEMSTACK, diff);
-            wrapper.set(DISPLAY_METHOD, "item");
-            wrapper.set(QUANTITY, diff.getAmount());
+            snapshot.set(ITEMSTACK, diff);
+            snapshot.set(DISPLAY_METHOD, "item");
+            snapshot.set(QUANTITY, diff.getAmount());
             //Store the itemstack that was in this slot before the items were withdrawn
-            transaction.getOriginalState().ifPresent(is -> wrapper.set(BEFORE.then(ITEMSTACK), is));
+            transaction.getOriginalState().ifPresent(is -> snapshot.set(BEFORE.then(ITEMSTACK), is));
             //Store the itemstack that is now in this slot after the withdraw, if any
-            transaction.getFinalState().ifPresent(is -> wrapper.set(AFTER.then(ITEMSTACK), is));
+            transaction.getFinalState().ifPresent(is -> snapshot.set(AFTER.then(ITEMSTACK), is));
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry ignited(Block block) {
             this.eventName = "ignite";
-            wrapper.set(TARGET, block.getType().name());
+            snapshot.set(TARGET, block.getType().name());
             writeLocationData(block.getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry named(Entity entity, String originalName, String newName) {
             this.eventName = "named";
-            wrapper.set(TARGET, (originalName == null
+            snapshot.set(TARGET, (originalName == null
                     ? entity.getType().name()
                     : originalName + " (" + entity.getType().name() + ")") + " to " + (newName == null ? "" : newName));
-            wrapper.set(ENTITY_TYPE, entity.getType().name());
-            wrapper.set(ENTITY_ID, entity.getUniqueId());
+            snapshot.set(ENTITY_TYPE, entity.getType().name());
+            snapshot.set(ENTITY_ID, entity.getUniqueId());
             writeLocationData(entity.getLocation());
 
-            if (originalName != null) wrapper.set(NAME.then(BEFORE), originalName);
-            wrapper.set(NAME.then(AFTER), newName == null ? "" : newName);
+            if (originalName != null) snapshot.set(NAME.then(BEFORE), originalName);
+            snapshot.set(NAME.then(AFTER), newName == null ? "" : newName);
 
             return new OEntry(sourceBuilder, this);
         }
@@ -429,7 +504,7 @@ public final class OEntry {
         public OEntry custom(String eventName, DataWrapper wrapperData) {
             this.eventName = eventName;
             wrapperData.getKeys(false).forEach(key -> {
-                wrapperData.get(key).ifPresent(data -> wrapper.set(key, data));
+                wrapperData.get(key).ifPresent(data -> snapshot.set(key, data));
             });
             return new OEntry(sourceBuilder, this);
         }
@@ -437,7 +512,7 @@ public final class OEntry {
         public OEntry customWithLocation(String eventName, DataWrapper wrapperData, Location location) {
             this.eventName = eventName;
             wrapperData.getKeys(false).forEach(key -> {
-                wrapperData.get(key).ifPresent(data -> wrapper.set(key, data));
+                wrapperData.get(key).ifPresent(data -> snapshot.set(key, data));
             });
             writeLocationData(location);
             return new OEntry(sourceBuilder, this);
@@ -445,22 +520,22 @@ public final class OEntry {
 
         protected void writeExtraStateData(DataKey keyToWrite, BlockState state) {
             if (state instanceof Sign) {
-                wrapper.set(keyToWrite.then(SIGN_TEXT), Lists.newArrayList(((Sign) state).getLines()));
+                snapshot.set(keyToWrite.then(SIGN_TEXT), Lists.newArrayList(((Sign) state).getLines()));
             } else if (state instanceof Container) {
-                wrapper.set(keyToWrite.then(INVENTORY), DataHelper.convertArrayToMap(((Container) state).getInventory().getContents()));
+                snapshot.setContents(keyToWrite.then(CONTENTS), ((Container) state).getInventory().getContents());
             } else if (state instanceof Banner) {
-                wrapper.set(keyToWrite.then(BANNER_PATTERNS), ((Banner) state).getPatterns());
+                snapshot.set(keyToWrite.then(BANNER_PATTERNS), ((Banner) state).getPatterns());
             } else if (state instanceof Jukebox) {
                 if (((Jukebox) state).getRecord() != null) {
-                    wrapper.set(keyToWrite.then(RECORD), ((Jukebox) state).getRecord());
+                    snapshot.set(keyToWrite.then(RECORD), ((Jukebox) state).getRecord());
                 }
             }
         }
 
         protected void writeGenericDamageData(Entity entity) {
-            wrapper.set(TARGET, entity.getType().name());
+            snapshot.set(TARGET, entity.getType().name());
             if (entity instanceof Player) {
-                wrapper.set(TARGET, entity.getName());
+                snapshot.set(TARGET, entity.getName());
             }
             writeLocationData(entity.getLocation());
         }
@@ -468,18 +543,18 @@ public final class OEntry {
         protected void writeLastDamageData(Entity damaged) {
             EntityDamageEvent lastDamageEvent = damaged.getLastDamageCause();
             if (lastDamageEvent != null) {
-                wrapper.set(DAMAGE_CAUSE, lastDamageEvent.getCause() != null ? lastDamageEvent.getCause().name() : "Unknown");
-                wrapper.set(DAMAGE_AMOUNT, String.valueOf(lastDamageEvent.getDamage()));
+                snapshot.set(DAMAGE_CAUSE, lastDamageEvent.getCause() != null ? lastDamageEvent.getCause().name() : "Unknown");
+                snapshot.set(DAMAGE_AMOUNT, String.valueOf(lastDamageEvent.getDamage()));
             }
-            wrapper.set(DISPLAY_METHOD, "damage");
+            snapshot.set(DISPLAY_METHOD, "damage");
         }
 
         protected void writeLocationData(Location location) {
-            wrapper.set(LOCATION.then(X), location.getBlockX());
-            wrapper.set(LOCATION.then(Y), location.getBlockY());
-            wrapper.set(LOCATION.then(Z), location.getBlockZ());
+            snapshot.set(LOCATION.then(X), location.getBlockX());
+            snapshot.set(LOCATION.then(Y), location.getBlockY());
+            snapshot.set(LOCATION.then(Z), location.getBlockZ());
             if (location.getWorld() != null) {
-                wrapper.set(LOCATION.then(WORLD), location.getWorld().getUID().toString());
+                snapshot.set(LOCATION.then(WORLD), location.getWorld().getUID().toString());
             }
         }
     }
@@ -505,6 +580,10 @@ public final class OEntry {
                 return new EventBuilder(new SourceBuilder(source));
             }
 
+            if (source instanceof EntityType) {
+                return new EventBuilder(new SourceBuilder(source));
+            }
+
             if (source instanceof JavaPlugin) {
                 return new EventBuilder(new SourceBuilder(source));
             }
@@ -557,41 +636,41 @@ public final class OEntry {
 
         public OEntry signInteract(Location location, Sign sign) {
             this.eventName = "useSign";
-            wrapper.set(TARGET, sign.getType().name());
-            wrapper.set(ORIGINAL_BLOCK, sign.getBlockData().getAsString());
-            wrapper.set(SIGN_TEXT, Lists.newArrayList(sign.getLines()));
+            snapshot.set(TARGET, sign.getType().name());
+            snapshot.set(ORIGINAL_BLOCK, sign.getBlockData().getAsString());
+            snapshot.set(SIGN_TEXT, Lists.newArrayList(sign.getLines()));
             writeLocationData(location);
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry cloned(ItemStack itemStack) {
             this.eventName = "clone";
-            wrapper.set(TARGET, itemStack.getType().name());
-            wrapper.set(ITEMSTACK, itemStack);
-            wrapper.set(DISPLAY_METHOD, "item");
+            snapshot.set(TARGET, itemStack.getType().name());
+            snapshot.set(ITEMSTACK, itemStack);
+            snapshot.set(DISPLAY_METHOD, "item");
             writeLocationData(player().getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry quit() {
             this.eventName = "quit";
-            wrapper.set(TARGET, player().getAddress().getHostString());
+            snapshot.set(TARGET, player().getAddress().getHostString());
             writeLocationData(player().getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry joined(String host) {
             this.eventName = "join";
-            wrapper.set(TARGET, host);
+            snapshot.set(TARGET, host);
             writeLocationData(player().getLocation());
             return new OEntry(sourceBuilder, this);
         }
 
         public OEntry teleported(Location from, Location to, PlayerTeleportEvent.TeleportCause cause) {
             this.eventName = "teleport";
-            wrapper.set(TARGET, "x: " + to.getBlockX() + " y: " + to.getBlockY() + " z: " + to.getBlockZ() + " world: " + to.getWorld().getName());
-            wrapper.set(TELEPORT_CAUSE, cause.name());
-            wrapper.set(DISPLAY_METHOD, "teleport");
+            snapshot.set(TARGET, "x: " + to.getBlockX() + " y: " + to.getBlockY() + " z: " + to.getBlockZ() + " world: " + to.getWorld().getName());
+            snapshot.set(TELEPORT_CAUSE, cause.name());
+            snapshot.set(DISPLAY_METHOD, "teleport");
             writeLocationData(from);
 
             return new OEntry(sourceBuilder, this);
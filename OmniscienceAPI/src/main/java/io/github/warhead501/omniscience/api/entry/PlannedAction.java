@@ -0,0 +1,16 @@
+package io.github.warhead501.omniscience.api.entry;
+
+/**
+ * A change that has already been decoded and only has to be written to the world.
+ */
+@FunctionalInterface
+public interface PlannedAction {
+
+    /**
+     * Writes the change to the world. Must be called on the main thread.
+     *
+     * @return The result of the change
+     * @throws Exception If the change could not be made. {@link ActionableException}s carry the reason it was skipped.
+     */
+    ActionResult commit() throws Exception;
+}
@@ -4,5 +4,7 @@ public enum Flag {
     DRAIN,
     EXTENDED,
     NO_GROUP,
-    NO_CHAT
+    NO_CHAT,
+    PREVIEW,
+    SAFE
 }
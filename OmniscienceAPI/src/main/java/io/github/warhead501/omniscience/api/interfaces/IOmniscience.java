@@ -53,6 +53,15 @@ public interface IOmniscience {
 
     void registerWorldEditHandler(WorldEditHandler handler);
 
+    /**
+     * Makes a kind of storage available to be selected with {@code database.type}. Has to be done while plugins load,
+     * before Omniscience is enabled.
+     *
+     * @param provider The provider of the storage, which has to implement Omniscience's own StorageProvider
+     * @throws IllegalArgumentException If it doesn't, or a storage of that name is already registered
+     */
+    void registerStorageProvider(StorageProvider<?> provider);
+
     String getDateFormat();
 
     NamespacedKey getItemKey();
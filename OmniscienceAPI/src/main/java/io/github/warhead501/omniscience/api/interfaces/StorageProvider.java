@@ -0,0 +1,20 @@
+package io.github.warhead501.omniscience.api.interfaces;
+
+/**
+ * Makes a kind of storage available to be selected with {@code database.type}, registered through
+ * {@link IOmniscience#registerStorageProvider}.
+ *
+ * @param <H> The storage handler it creates, which has to be one of Omniscience's storage handlers
+ */
+public interface StorageProvider<H> {
+
+    /**
+     * @return The name {@code database.type} selects this storage by, in lowercase
+     */
+    String getName();
+
+    /**
+     * @return A new storage handler, which isn't connected yet
+     */
+    H create() throws Exception;
+}
@@ -0,0 +1,128 @@
+package io.github.warhead501.omniscience.api.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.warhead501.omniscience.api.OmniApi;
+import io.github.warhead501.omniscience.api.data.DataKey;
+import io.github.warhead501.omniscience.api.data.DataWrapper;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.github.warhead501.omniscience.api.data.DataKeys.*;
+
+/**
+ * Stores the contents of a container in a compact form.
+ * <p>
+ * Only slots holding an item are stored. Every distinct stack is serialized once to NBT bytes under {@code Items}, and
+ * {@code Slots} and {@code SlotItems} hold each filled slot with the index of its stack. A chest full of the same
+ * stack only stores that stack once.
+ * </p>
+ */
+public final class ContainerContents {
+
+    private ContainerContents() {
+    }
+
+    /**
+     * Copies the filled slots of a container. Must be called on the main thread.
+     *
+     * @param contents The contents of the container's inventory
+     * @return A copy of every slot holding an item, by slot
+     */
+    public static Map<Integer, ItemStack> copyOf(ItemStack[] contents) {
+        Map<Integer, ItemStack> items = Maps.newLinkedHashMap();
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack item = contents[i];
+            if (item != null && !item.getType().isAir()) {
+                items.put(i, item.clone());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Writes the contents of a container. Safe to call off of the main thread with items copied by {@link #copyOf}.
+     *
+     * @param wrapper  The record to write to
+     * @param key      Where the contents are stored in the record
+     * @param contents The items of the container, by slot
+     */
+    public static void write(DataWrapper wrapper, DataKey key, Map<Integer, ItemStack> contents) {
+        Map<ItemStack, Integer> indexes = Maps.newHashMap();
+        List<String> items = Lists.newArrayList();
+        List<Integer> slots = Lists.newArrayListWithCapacity(contents.size());
+        List<Integer> slotItems = Lists.newArrayListWithCapacity(contents.size());
+        contents.forEach((slot, item) -> {
+            Integer index = indexes.get(item);
+            if (index == null) {
+                index = items.size();
+                indexes.put(item, index);
+                items.add(Base64.getEncoder().encodeToString(item.serializeAsBytes()));
+            }
+            slots.add(slot);
+            slotItems.add(index);
+        });
+        wrapper.set(key.then(ITEMS), items);
+        wrapper.set(key.then(SLOTS), slots);
+        wrapper.set(key.then(SLOT_ITEMS), slotItems);
+    }
+
+    /**
+     * Reads the contents of a container, from either this form or the full inventory maps of older records.
+     *
+     * @param wrapper The record
+     * @param parent  The block the contents belong to, such as {@link io.github.warhead501.omniscience.api.data.DataKeys#ORIGINAL_BLOCK}
+     * @return The items of the container, by slot. Empty if nothing was stored.
+     */
+    public static Map<Integer, ItemStack> read(DataWrapper wrapper, DataKey parent) {
+        Map<Integer, ItemStack> contents = Maps.newHashMap();
+        Optional<DataWrapper> oCompact = wrapper.getWrapper(parent.then(CONTENTS));
+        if (oCompact.isPresent()) {
+            DataWrapper compact = oCompact.get();
+            List<String> items = compact.getStringList(ITEMS).orElse(Lists.newArrayList());
+            List<ItemStack> decoded = Lists.newArrayListWithCapacity(items.size());
+            for (String item : items) {
+                try {
+                    decoded.add(ItemStack.deserializeBytes(Base64.getDecoder().decode(item)));
+                } catch (RuntimeException e) {
+                    OmniApi.warning("Failed to deserialize a stored item: " + e.getMessage());
+                    decoded.add(null);
+                }
+            }
+            List<Integer> slots = getIntList(compact, SLOTS);
+            List<Integer> slotItems = getIntList(compact, SLOT_ITEMS);
+            for (int i = 0; i < Math.min(slots.size(), slotItems.size()); i++) {
+                int index = slotItems.get(i);
+                if (index >= 0 && index < decoded.size() && decoded.get(index) != null) {
+                    contents.put(slots.get(i), decoded.get(index).clone());
+                }
+            }
+            return contents;
+        }
+
+        wrapper.getWrapper(parent.then(INVENTORY)).ifPresent(inventory -> inventory.getKeys(false)
+                .forEach(key -> inventory.getConfigSerializable(key)
+                        .ifPresent(config -> {
+                            if (config instanceof ItemStack) {
+                                contents.put(Integer.valueOf(key.toString()), (ItemStack) config);
+                            }
+                        })));
+        return contents;
+    }
+
+    private static List<Integer> getIntList(DataWrapper wrapper, DataKey key) {
+        List<Integer> values = Lists.newArrayList();
+        wrapper.get(key).filter(value -> value instanceof List).ifPresent(list -> {
+            for (Object value : (List<?>) list) {
+                if (value instanceof Number) {
+                    values.add(((Number) value).intValue());
+                }
+            }
+        });
+        return values;
+    }
+}
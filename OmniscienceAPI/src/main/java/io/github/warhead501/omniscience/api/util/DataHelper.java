@@ -1,8 +1,12 @@
 package io.github.warhead501.omniscience.api.util;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.github.warhead501.omniscience.api.data.DataKeys;
 import io.github.warhead501.omniscience.api.data.DataWrapper;
 import io.github.warhead501.omniscience.api.OmniApi;
@@ -21,10 +25,15 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
 public final class DataHelper {
 
+    private static final Cache<String, BlockData> blockDataCache = CacheBuilder.newBuilder()
+            .maximumSize(4096)
+            .build();
+
     public static boolean isPrimitiveType(Object object) {
         return (object instanceof Boolean ||
                 object instanceof Byte ||
@@ -43,8 +52,27 @@ public final class DataHelper {
         }
         return wrapper
                 .get(DataKeys.BLOCK_DATA)
-                .map(o -> Bukkit.getServer()
-                        .createBlockData((String) o));
+                .flatMap(o -> parseBlockData((String) o));
+    }
+
+    /**
+     * Parses a stored block data string. Rollbacks repeat the same few hundred strings many thousands of times, so
+     * parsed block data is cached and each caller gets its own copy.
+     *
+     * @param blockData The block data string, as written by {@link BlockData#getAsString()}
+     * @return A copy of the parsed block data, which may be changed freely
+     * @throws IllegalArgumentException If the string is not valid block data
+     */
+    public static Optional<BlockData> parseBlockData(String blockData) {
+        if (blockData == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(blockDataCache.get(blockData, () -> Bukkit.getServer().createBlockData(blockData)).clone());
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalArgumentException(e.getCause());
+        }
     }
 
     public static Optional<Location> getLocationFromDataWrapper(DataWrapper wrapper) {
@@ -164,7 +192,7 @@ public final class DataHelper {
     }
 
     public static Pattern compileUserInput(String userInput) {
-        String result = ("(" + (userInput.replaceAll("[-.\\+*?\\[^\\]$(){}=!<>|:\\\\]", "\\\\$0")) + ")").replaceAll("\\*", ".*");
+        String result = ("(" + (userInput.replaceAll("[-.\\+?\\[^\\]$(){}=!<>|:\\\\]", "\\\\$0")) + ")").replaceAll("\\*", ".*");
         return Pattern.compile(result);
     }
 
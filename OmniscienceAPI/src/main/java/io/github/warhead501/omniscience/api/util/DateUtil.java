@@ -25,6 +25,7 @@ package io.github.warhead501.omniscience.api.util;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -120,4 +121,44 @@ public class DateUtil {
 
         return calendar.getTime();
     }
+
+    /**
+     * Parses the same shorthand as {@link #parseTimeStringToDate(String, boolean)} into a fixed length of time. Days
+     * are always 24 hours and weeks 7 days, so the result doesn't change with the current date or daylight saving time.
+     *
+     * @param shorthand String shorthand value.
+     * @return The length of time in milliseconds.
+     */
+    public static long parseDuration(String shorthand) {
+        final String[] matches = TypeUtil.pregMatchAll(relativeTimeDeclaration, shorthand);
+        if (matches.length == 0) {
+            throw new IllegalArgumentException("Invalid date shorthand.");
+        }
+
+        long duration = 0;
+        for (final String match : matches) {
+            final Matcher m = relativeTimeDeclaration.matcher(match);
+            if (m.matches()) {
+                final long tfValue = Long.parseLong(m.group(1));
+                switch (m.group(2)) {
+                    case "w":
+                        duration += TimeUnit.DAYS.toMillis(tfValue * 7);
+                        break;
+                    case "d":
+                        duration += TimeUnit.DAYS.toMillis(tfValue);
+                        break;
+                    case "h":
+                        duration += TimeUnit.HOURS.toMillis(tfValue);
+                        break;
+                    case "m":
+                        duration += TimeUnit.MINUTES.toMillis(tfValue);
+                        break;
+                    case "s":
+                        duration += TimeUnit.SECONDS.toMillis(tfValue);
+                        break;
+                }
+            }
+        }
+        return duration;
+    }
 }
\ No newline at end of file
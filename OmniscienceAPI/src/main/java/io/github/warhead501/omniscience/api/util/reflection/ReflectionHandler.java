@@ -2,7 +2,6 @@ package io.github.warhead501.omniscience.api.util.reflection;
 
 import io.github.warhead501.omniscience.api.OmniApi;
 import io.github.warhead501.omniscience.api.OmniVersionHelper;
-import org.bson.internal.Base64;
 import org.bukkit.Bukkit;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.entity.Entity;
@@ -13,13 +12,20 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Base64;
 import java.util.UUID;
 
 /**
  * A class I basically stitched together from Sporadic's code. - 501warhead
+ * <p>
+ * The NMS methods of the running {@link OmniVersionHelper} are looked up once into {@link MethodHandle}s, and entity
+ * data is written through a buffer that is reused by each thread.
+ * </p>
  *
  * @author Sporadic
  */
@@ -27,88 +33,18 @@ public final class ReflectionHandler {
 
     final private static String CRAFTBUKKIT_PATH = "org.bukkit.craftbukkit." + Bukkit.getServer().getClass().getPackage().getName().split("\\.")[3] + ".";
     final private static String PATH = OmniApi.getOmniscience().getVersion().getNMS_PATH();
-    private static Method asNMSCopy;
-    private static Method getNMSEntity;
-    private static Method loadEntityFromNBT;
-    private static Constructor<?> compoundConstructor;
-    private static Method saveToJson;
-    private static Method saveEntityToJson;
-    private static Method setCompoundUUID;
-    private static Method setCompoundFloat;
-
-    private static Method streamToolsLoadCompoundFromInput;
-    private static Method streamToolsWriteCompoundToOutput;
-
-    static {
-        OmniVersionHelper versionHelper = OmniApi.getOmniscience().getVersion();
-        try {
-            Class<?> NBTTagCompound = Class.forName(PATH + versionHelper.getNBTTagCompound());
-            Class<?> NMSItemStack = Class.forName(PATH + versionHelper.getNMSItemStack());
-            Class<?> NMSEntity = Class.forName(PATH + versionHelper.getNMSEntity());
-            Class<?> NBTCompressedStreamTools = Class.forName(PATH + versionHelper.getNBTCompressedStreamTools());
-            Class<?> craftBukkitEntity = Class.forName(CRAFTBUKKIT_PATH + "entity.CraftEntity");
-            Class<?> craftBukkitItemStack = Class.forName(CRAFTBUKKIT_PATH + "inventory.CraftItemStack");
-
-            setCompoundFloat = NBTTagCompound.getMethod(versionHelper.getSetCompoundFloatMethodName(), String.class, float.class);
-            for (Method method : NMSEntity.getMethods()) {
-                for (Type type : method.getGenericParameterTypes()) {
-                    if (type.getTypeName().equalsIgnoreCase(NBTTagCompound.getTypeName())
-                            && method.getReturnType().equals(Void.TYPE)) {
-                        loadEntityFromNBT = method;
-                        break;
-                    }
-                }
-            }
+    //Buffers that grew past this for an unusually large entity are dropped instead of being kept around
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
 
-            for (Method method : NBTTagCompound.getMethods()) {
-                boolean stringMatch = false;
-                for (Type type : method.getGenericParameterTypes()) {
-                    if (type.getTypeName().equalsIgnoreCase(String.class.getTypeName())
-                            && !stringMatch) {
-                        stringMatch = true;
-                    }
-                    if (stringMatch
-                            && type.getTypeName().equalsIgnoreCase(UUID.class.getTypeName())
-                            && method.getReturnType().equals(Void.TYPE)) {
-                        setCompoundUUID = method;
-                        break;
-                    }
-                }
-            }
-
-            for (Method method : NBTCompressedStreamTools.getMethods()) {
-                Type[] parameterTypes = method.getGenericParameterTypes();
-                if (method.getReturnType().equals(Void.TYPE)) {
-                    if (parameterTypes.length == 2
-                            && parameterTypes[0].getTypeName().equals(NBTTagCompound.getTypeName())
-                            && parameterTypes[1].getTypeName().equals(OutputStream.class.getTypeName())) {
-                        streamToolsWriteCompoundToOutput = method;
-                    }
-                } else if (method.getReturnType().equals(NBTTagCompound)) {
-                    if (parameterTypes.length == 1
-                            && parameterTypes[0].getTypeName().equals(InputStream.class.getTypeName())) {
-                        streamToolsLoadCompoundFromInput = method;
-                    }
-                }
-            }
-            compoundConstructor = NBTTagCompound.getConstructor();
-
-            saveToJson = NMSItemStack.getMethod(versionHelper.getSaveToJsonMethodName(), NBTTagCompound);
-            saveEntityToJson = NMSEntity.getMethod(versionHelper.getSaveEntityToJson(), NBTTagCompound);
-
-            getNMSEntity = craftBukkitEntity.getMethod("getHandle");
-            asNMSCopy = craftBukkitItemStack.getMethod("asNMSCopy", ItemStack.class);
-        } catch (Throwable t) {
-            t.printStackTrace();
-        }
-    }
+    private static final NMSHandles handles = NMSHandles.resolve(OmniApi.getOmniscience().getVersion());
+    private static final ThreadLocal<ByteArrayOutputStream> buffers = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(8192));
 
     public static String getItemJson(ItemStack is) {
         try {
-            Object nmsStack = getMinecraftItemStack(is);
-            Object compound = compoundConstructor.newInstance();
+            Object nmsStack = handles.asNMSCopy.invokeExact(is);
+            Object compound = handles.newCompound.invokeExact();
 
-            saveToJson.invoke(nmsStack, compound);
+            handles.saveToJson.invokeExact(nmsStack, compound);
             return compound.toString();
         } catch (Throwable t) {
             t.printStackTrace();
@@ -116,53 +52,152 @@ public final class ReflectionHandler {
         return null;
     }
 
-    public static String getEntityAsBytes(Entity entity) {
+    /**
+     * @param entity The entity to save
+     * @return The entity's compressed nbt data, or null if it could not be saved
+     */
+    public static byte[] getEntityAsBytes(Entity entity) {
+        ByteArrayOutputStream buffer = buffers.get();
         try {
-            Object nmsEntity = getMinecraftEntity(entity);
-            Object compound = compoundConstructor.newInstance();
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            Object nmsEntity = handles.getNMSEntity.invokeExact(entity);
+            Object compound = handles.newCompound.invokeExact();
 
-            saveEntityToJson.invoke(nmsEntity, compound);
-            streamToolsWriteCompoundToOutput.invoke(null, compound, stream);
-            byte[] val = stream.toByteArray();
-            stream.close();
-
-            return Base64.encode(val);
+            handles.saveEntityToJson.invokeExact(nmsEntity, compound);
+            buffer.reset();
+            handles.streamToolsWriteCompoundToOutput.invokeExact(compound, (OutputStream) buffer);
+            return buffer.toByteArray();
         } catch (Throwable t) {
             t.printStackTrace();
+        } finally {
+            if (buffer.size() > MAX_RETAINED_BUFFER) {
+                buffers.remove();
+            }
         }
         return null;
     }
 
+    /**
+     * Loads entity data stored as Base64 text by older versions of Omniscience.
+     *
+     * @see #loadEntityFromNBT(Entity, byte[])
+     */
+    public static void loadEntityFromNBT(Entity entity, String nbt) {
+        loadEntityFromNBT(entity, Base64.getDecoder().decode(nbt));
+    }
+
     /**
      * This method will load entity data that has been stored in nbt into the entity. This will create a LITERAL COPY OF THE SAVED ENTITY. Basically, everything will be the exact same.
      * Except for UUID and health. UUID is because same uuid entities cause fucking problems. Health because otherwise the entity is fuckin dead
      *
      * @param entity A base entity to overwrite. As we're loading entity data, you're gonna have to give us an entity to brainwash.
-     * @param nbt    The nbt string to parse and load into the entity.
+     * @param nbt    The compressed nbt data to load into the entity.
      */
-    public static void loadEntityFromNBT(Entity entity, String nbt) {
+    public static void loadEntityFromNBT(Entity entity, byte[] nbt) {
         try {
-            ByteArrayInputStream stream = new ByteArrayInputStream(Base64.decode(nbt));
-            Object compound = streamToolsLoadCompoundFromInput.invoke(null, (InputStream) stream);
-            stream.close();
+            Object compound = handles.streamToolsLoadCompoundFromInput.invokeExact((InputStream) new ByteArrayInputStream(nbt));
             if (entity instanceof LivingEntity) {
-                setCompoundFloat.invoke(compound, "Health", (float) ((LivingEntity) entity).getAttribute(Attribute.GENERIC_MAX_HEALTH).getValue());
+                handles.setCompoundFloat.invokeExact(compound, "Health", (float) ((LivingEntity) entity).getAttribute(Attribute.GENERIC_MAX_HEALTH).getValue());
             }
 
-            Object nmsEntity = getMinecraftEntity(entity);
-            setCompoundUUID.invoke(compound, "UUID", entity.getUniqueId());
-            loadEntityFromNBT.invoke(nmsEntity, compound);
+            Object nmsEntity = handles.getNMSEntity.invokeExact(entity);
+            handles.setCompoundUUID.invokeExact(compound, "UUID", entity.getUniqueId());
+            handles.loadEntityFromNBT.invokeExact(nmsEntity, compound);
         } catch (Throwable t) {
             t.printStackTrace();
         }
     }
 
-    private static Object getMinecraftItemStack(ItemStack origin) throws Exception {
-        return asNMSCopy.invoke(null, origin);
-    }
+    /**
+     * The NMS methods used by this class, looked up once for a server version.
+     * Every handle is adapted to take and return plain Objects, so they can be called with invokeExact.
+     */
+    private static final class NMSHandles {
+        private MethodHandle asNMSCopy;
+        private MethodHandle getNMSEntity;
+        private MethodHandle loadEntityFromNBT;
+        private MethodHandle newCompound;
+        private MethodHandle saveToJson;
+        private MethodHandle saveEntityToJson;
+        private MethodHandle setCompoundUUID;
+        private MethodHandle setCompoundFloat;
+
+        private MethodHandle streamToolsLoadCompoundFromInput;
+        private MethodHandle streamToolsWriteCompoundToOutput;
+
+        private static NMSHandles resolve(OmniVersionHelper versionHelper) {
+            NMSHandles handles = new NMSHandles();
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType objectToVoid = MethodType.methodType(void.class, Object.class, Object.class);
+            try {
+                Class<?> NBTTagCompound = Class.forName(PATH + versionHelper.getNBTTagCompound());
+                Class<?> NMSItemStack = Class.forName(PATH + versionHelper.getNMSItemStack());
+                Class<?> NMSEntity = Class.forName(PATH + versionHelper.getNMSEntity());
+                Class<?> NBTCompressedStreamTools = Class.forName(PATH + versionHelper.getNBTCompressedStreamTools());
+                Class<?> craftBukkitEntity = Class.forName(CRAFTBUKKIT_PATH + "entity.CraftEntity");
+                Class<?> craftBukkitItemStack = Class.forName(CRAFTBUKKIT_PATH + "inventory.CraftItemStack");
+
+                handles.setCompoundFloat = lookup.unreflect(NBTTagCompound.getMethod(versionHelper.getSetCompoundFloatMethodName(), String.class, float.class))
+                        .asType(MethodType.methodType(void.class, Object.class, String.class, float.class));
+                for (Method method : NMSEntity.getMethods()) {
+                    for (Type type : method.getGenericParameterTypes()) {
+                        if (type.getTypeName().equalsIgnoreCase(NBTTagCompound.getTypeName())
+                                && method.getReturnType().equals(Void.TYPE)) {
+                            handles.loadEntityFromNBT = lookup.unreflect(method).asType(objectToVoid);
+                            break;
+                        }
+                    }
+                }
+
+                for (Method method : NBTTagCompound.getMethods()) {
+                    boolean stringMatch = false;
+                    for (Type type : method.getGenericParameterTypes()) {
+                        if (type.getTypeName().equalsIgnoreCase(String.class.getTypeName())
+                                && !stringMatch) {
+                            stringMatch = true;
+                        }
+                        if (stringMatch
+                                && type.getTypeName().equalsIgnoreCase(UUID.class.getTypeName())
+                                && method.getReturnType().equals(Void.TYPE)) {
+                            handles.setCompoundUUID = lookup.unreflect(method)
+                                    .asType(MethodType.methodType(void.class, Object.class, String.class, UUID.class));
+                            break;
+                        }
+                    }
+                }
 
-    private static Object getMinecraftEntity(Entity entity) throws Exception {
-        return getNMSEntity.invoke(entity);
+                for (Method method : NBTCompressedStreamTools.getMethods()) {
+                    Type[] parameterTypes = method.getGenericParameterTypes();
+                    if (method.getReturnType().equals(Void.TYPE)) {
+                        if (parameterTypes.length == 2
+                                && parameterTypes[0].getTypeName().equals(NBTTagCompound.getTypeName())
+                                && parameterTypes[1].getTypeName().equals(OutputStream.class.getTypeName())) {
+                            handles.streamToolsWriteCompoundToOutput = lookup.unreflect(method)
+                                    .asType(MethodType.methodType(void.class, Object.class, OutputStream.class));
+                        }
+                    } else if (method.getReturnType().equals(NBTTagCompound)) {
+                        if (parameterTypes.length == 1
+                                && parameterTypes[0].getTypeName().equals(InputStream.class.getTypeName())) {
+                            handles.streamToolsLoadCompoundFromInput = lookup.unreflect(method)
+                                    .asType(MethodType.methodType(Object.class, InputStream.class));
+                        }
+                    }
+                }
+                handles.newCompound = lookup.unreflectConstructor(NBTTagCompound.getConstructor())
+                        .asType(MethodType.methodType(Object.class));
+
+                handles.saveToJson = lookup.unreflect(NMSItemStack.getMethod(versionHelper.getSaveToJsonMethodName(), NBTTagCompound))
+                        .asType(objectToVoid);
+                handles.saveEntityToJson = lookup.unreflect(NMSEntity.getMethod(versionHelper.getSaveEntityToJson(), NBTTagCompound))
+                        .asType(objectToVoid);
+
+                handles.getNMSEntity = lookup.unreflect(craftBukkitEntity.getMethod("getHandle"))
+                        .asType(MethodType.methodType(Object.class, Entity.class));
+                handles.asNMSCopy = lookup.unreflect(craftBukkitItemStack.getMethod("asNMSCopy", ItemStack.class))
+                        .asType(MethodType.methodType(Object.class, ItemStack.class));
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            return handles;
+        }
     }
 }